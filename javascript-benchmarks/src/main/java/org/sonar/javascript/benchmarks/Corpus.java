@@ -0,0 +1,78 @@
+/*
+ * Sonar JavaScript Plugin
+ * Copyright (C) 2011 Eriks Nukis and SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.javascript.benchmarks;
+
+import com.google.common.base.Charsets;
+import com.google.common.io.Files;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Synthetic source code of given size and nesting depth, which is also written to a temporary file.
+ * Number of processed bytes is reported as an additional counter, so that throughput can be read in bytes per second.
+ */
+@State(Scope.Thread)
+@AuxCounters(AuxCounters.Type.EVENTS)
+public class Corpus {
+
+  @Param({"10000", "1000000", "5000000"})
+  public int size;
+
+  @Param({"2", "8"})
+  public int depth;
+
+  /**
+   * Number of bytes processed during current iteration.
+   */
+  public long bytes;
+
+  String source;
+  File file;
+
+  @Setup(Level.Trial)
+  public void generate() throws IOException {
+    source = CorpusGenerator.generate(size, depth);
+    file = File.createTempFile("corpus", ".js");
+    Files.write(source, file, Charsets.UTF_8);
+  }
+
+  @Setup(Level.Iteration)
+  public void reset() {
+    bytes = 0;
+  }
+
+  @TearDown(Level.Trial)
+  public void delete() {
+    file.delete();
+  }
+
+  void processed() {
+    bytes += source.length();
+  }
+
+}
@@ -0,0 +1,188 @@
+/*
+ * Sonar JavaScript Plugin
+ * Copyright (C) 2011 Eriks Nukis and SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.javascript.benchmarks;
+
+import java.util.Random;
+
+/**
+ * Generates synthetic JavaScript source code for benchmarks. Output depends only on the parameters, so results of different runs are comparable.
+ * Generated code contains functions nested up to a given depth, and the most common kinds of statements, expressions, literals and comments.
+ */
+public class CorpusGenerator {
+
+  private static final long SEED = 42;
+
+  private static final String[] NAMES = {"a", "b", "count", "items", "result", "value", "options", "callback", "i", "element"};
+  private static final String[] BINARY_OPERATORS = {"+", "-", "*", "/", "%", "==", "===", "!=", "<", ">=", "&&", "||", "&", "<<", ">>>"};
+  private static final String[] STRINGS = {"'text'", "\"double quoted\"", "'escaped \\' quote'", "\"\\u0041\\n\""};
+  private static final String[] NUMBERS = {"0", "1", "42", "3.14", ".5", "1e10", "0xFF"};
+  private static final String[] REGEXPS = {"/ab+c/", "/^[a-z0-9_-]{3,16}$/i", "/\\d+(?:\\.\\d*)?/g", "/[/\\]]+/"};
+
+  private final int maxDepth;
+  private final Random random = new Random(SEED);
+  private final StringBuilder sb = new StringBuilder();
+  private int indent;
+  private int functions;
+
+  /**
+   * @param maxDepth maximal nesting depth of functions and blocks
+   */
+  public CorpusGenerator(int maxDepth) {
+    this.maxDepth = maxDepth;
+  }
+
+  /**
+   * @return source code of approximately given size in characters
+   */
+  public static String generate(int size, int maxDepth) {
+    return new CorpusGenerator(maxDepth).generate(size);
+  }
+
+  public String generate(int size) {
+    sb.setLength(0);
+    line("/*");
+    line(" * Generated by " + CorpusGenerator.class.getName() + ", size " + size + ", depth " + maxDepth);
+    line(" */");
+    while (sb.length() < size) {
+      functionDeclaration(0);
+    }
+    return sb.toString();
+  }
+
+  private void functionDeclaration(int depth) {
+    functions++;
+    line("// Function number " + functions);
+    line("function f" + functions + "(" + name() + ", " + name() + ") {");
+    body(depth + 1);
+    line("}");
+  }
+
+  private void body(int depth) {
+    indent++;
+    int statements = 2 + random.nextInt(6);
+    for (int i = 0; i < statements; i++) {
+      statement(depth);
+    }
+    line("return " + expression(2) + ";");
+    indent--;
+  }
+
+  private void statement(int depth) {
+    int kind = random.nextInt(depth < maxDepth ? 10 : 5);
+    switch (kind) {
+      case 0:
+        line("var " + name() + " = " + expression(3) + ";");
+        break;
+      case 1:
+        line(name() + " = " + expression(3) + ";");
+        break;
+      case 2:
+        line(name() + "." + name() + "(" + expression(1) + ", " + REGEXPS[random.nextInt(REGEXPS.length)] + ");");
+        break;
+      case 3:
+        line("/* " + name() + " is " + STRINGS[random.nextInt(STRINGS.length)] + " */ " + name() + "++;");
+        break;
+      case 4:
+        line("var " + name() + " = {" + name() + ": " + expression(1) + ", '" + name() + "': [" + expression(1) + ", " + expression(1) + "]};");
+        break;
+      case 5:
+        line("if (" + expression(2) + ") {");
+        block(depth);
+        line("} else {");
+        block(depth);
+        line("}");
+        break;
+      case 6:
+        line("for (var i = 0; i < " + name() + ".length; i++) {");
+        block(depth);
+        line("}");
+        break;
+      case 7:
+        line("switch (" + name() + ") {");
+        line("case " + NUMBERS[random.nextInt(NUMBERS.length)] + ":");
+        block(depth);
+        line("  break;");
+        line("default:");
+        block(depth);
+        line("}");
+        break;
+      case 8:
+        line("try {");
+        block(depth);
+        line("} catch (e) {");
+        block(depth);
+        line("}");
+        break;
+      default:
+        line("var " + name() + " = function (" + name() + ") {");
+        body(depth + 1);
+        line("};");
+        break;
+    }
+  }
+
+  private void block(int depth) {
+    indent++;
+    int statements = 1 + random.nextInt(3);
+    for (int i = 0; i < statements; i++) {
+      statement(depth + 1);
+    }
+    indent--;
+  }
+
+  private String expression(int depth) {
+    if (depth == 0) {
+      return primary();
+    }
+    switch (random.nextInt(5)) {
+      case 0:
+        return "(" + expression(depth - 1) + ")";
+      case 1:
+        return name() + "(" + expression(depth - 1) + ")";
+      case 2:
+        return expression(depth - 1) + " ? " + expression(depth - 1) + " : " + expression(depth - 1);
+      default:
+        return expression(depth - 1) + " " + BINARY_OPERATORS[random.nextInt(BINARY_OPERATORS.length)] + " " + expression(depth - 1);
+    }
+  }
+
+  private String primary() {
+    switch (random.nextInt(4)) {
+      case 0:
+        return STRINGS[random.nextInt(STRINGS.length)];
+      case 1:
+        return NUMBERS[random.nextInt(NUMBERS.length)];
+      default:
+        return name();
+    }
+  }
+
+  private String name() {
+    return NAMES[random.nextInt(NAMES.length)];
+  }
+
+  private void line(String line) {
+    for (int i = 0; i < indent; i++) {
+      sb.append("  ");
+    }
+    sb.append(line).append('\n');
+  }
+
+}
@@ -0,0 +1,79 @@
+/*
+ * Sonar JavaScript Plugin
+ * Copyright (C) 2011 Eriks Nukis and SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.javascript.benchmarks;
+
+import com.google.common.base.Charsets;
+import com.sonar.sslr.impl.Lexer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.sonar.javascript.EcmaScriptConfiguration;
+import org.sonar.javascript.lexer.CompactTokens;
+import org.sonar.javascript.lexer.EcmaScriptLexer;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of {@link EcmaScriptLexer}: both engines, and lexing into {@link CompactTokens}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LexerBenchmark {
+
+  @Param({"false", "true"})
+  public boolean handWrittenLexer;
+
+  private EcmaScriptConfiguration conf;
+  private Lexer lexer;
+
+  @Setup
+  public void setup() {
+    conf = new EcmaScriptConfiguration(Charsets.UTF_8);
+    conf.setHandWrittenLexer(handWrittenLexer);
+    lexer = EcmaScriptLexer.create(conf);
+  }
+
+  @Benchmark
+  public Object lex(Corpus corpus) {
+    Object result = lexer.lex(corpus.file);
+    corpus.processed();
+    return result;
+  }
+
+  @Benchmark
+  public Object lexCompact(Corpus corpus) {
+    Object result = EcmaScriptLexer.lexCompact(conf, corpus.file);
+    corpus.processed();
+    return result;
+  }
+
+}
@@ -0,0 +1,86 @@
+/*
+ * Sonar JavaScript Plugin
+ * Copyright (C) 2011 Eriks Nukis and SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.javascript.benchmarks;
+
+import com.google.common.base.Charsets;
+import com.sonar.sslr.api.Token;
+import com.sonar.sslr.impl.Parser;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.sonar.javascript.EcmaScriptConfiguration;
+import org.sonar.javascript.api.EcmaScriptGrammar;
+import org.sonar.javascript.lexer.EcmaScriptLexer;
+import org.sonar.javascript.parser.EcmaScriptParser;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of {@link EcmaScriptParser} on tokens, which are lexed in advance, so that lexing is not measured.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ParserBenchmark {
+
+  /**
+   * Whether expressions are parsed by operator-precedence climbing.
+   */
+  @Param({"false", "true"})
+  public boolean precedenceClimbing;
+
+  /**
+   * Number of threads to parse chunks of a program, 1 to parse sequentially.
+   */
+  @Param({"1", "4"})
+  public int chunkedParsingThreads;
+
+  private Parser<EcmaScriptGrammar> parser;
+  private List<Token> tokens;
+
+  @Setup
+  public void setup(Corpus corpus) {
+    EcmaScriptConfiguration conf = new EcmaScriptConfiguration(Charsets.UTF_8);
+    conf.setPrecedenceClimbing(precedenceClimbing);
+    conf.setChunkedParsingThreads(chunkedParsingThreads);
+    parser = EcmaScriptParser.create(conf);
+    tokens = EcmaScriptLexer.create(conf).lex(corpus.file);
+  }
+
+  @Benchmark
+  public Object parse(Corpus corpus) {
+    Object result = parser.parse(tokens);
+    corpus.processed();
+    return result;
+  }
+
+}
@@ -0,0 +1,98 @@
+/*
+ * Sonar JavaScript Plugin
+ * Copyright (C) 2011 Eriks Nukis and SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.javascript.benchmarks;
+
+import com.sonar.sslr.impl.Lexer;
+import com.sonar.sslr.impl.channel.BlackHoleChannel;
+import com.sonar.sslr.impl.channel.IdentifierAndKeywordChannel;
+import com.sonar.sslr.impl.channel.PunctuatorChannel;
+import com.sonar.sslr.impl.channel.UnknownCharacterChannel;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.sonar.channel.Channel;
+import org.sonar.javascript.api.EcmaScriptKeyword;
+import org.sonar.javascript.api.EcmaScriptPunctuator;
+import org.sonar.javascript.lexer.EcmaScriptLexer;
+import org.sonar.javascript.lexer.EcmaScriptPunctuatorChannel;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares {@link EcmaScriptPunctuatorChannel} with {@link PunctuatorChannel} on code, which consists mostly of punctuators.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PunctuatorBenchmark {
+
+  @Param({"100000"})
+  public int punctuators;
+
+  private String source;
+  private Lexer sslrLexer;
+  private Lexer trieLexer;
+
+  @Setup
+  public void setup() {
+    EcmaScriptPunctuator[] values = EcmaScriptPunctuator.values();
+    Random random = new Random(42);
+    StringBuilder sb = new StringBuilder();
+    for (int i = 0; i < punctuators; i++) {
+      sb.append(values[random.nextInt(values.length)].getValue()).append(i % 2 == 0 ? " a " : " ");
+    }
+    source = sb.toString();
+    sslrLexer = lexer(new PunctuatorChannel(EcmaScriptPunctuator.values()));
+    trieLexer = lexer(new EcmaScriptPunctuatorChannel());
+  }
+
+  private static Lexer lexer(Channel<Lexer> punctuatorChannel) {
+    return Lexer.builder()
+        .withFailIfNoChannelToConsumeOneCharacter(true)
+        .withChannel(new BlackHoleChannel("\\s++"))
+        .withChannel(new IdentifierAndKeywordChannel(EcmaScriptLexer.IDENTIFIER, true, EcmaScriptKeyword.values()))
+        .withChannel(punctuatorChannel)
+        .withChannel(new UnknownCharacterChannel())
+        .build();
+  }
+
+  @Benchmark
+  public Object punctuatorChannel() {
+    return sslrLexer.lex(source);
+  }
+
+  @Benchmark
+  public Object trie() {
+    return trieLexer.lex(source);
+  }
+
+}
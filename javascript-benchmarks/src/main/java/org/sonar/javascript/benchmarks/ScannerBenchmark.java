@@ -0,0 +1,68 @@
+/*
+ * Sonar JavaScript Plugin
+ * Copyright (C) 2011 Eriks Nukis and SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.javascript.benchmarks;
+
+import com.google.common.base.Charsets;
+import com.sonar.sslr.squid.AstScanner;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.sonar.javascript.EcmaScriptConfiguration;
+import org.sonar.javascript.JavaScriptAstScanner;
+import org.sonar.javascript.api.EcmaScriptGrammar;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * End-to-end throughput of {@link JavaScriptAstScanner}: lexing, parsing and computation of metrics.
+ * A new scanner is created for each file, as by the sensor.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ScannerBenchmark {
+
+  /**
+   * Whether only metrics of lines and comments are computed, so that function bodies are not parsed.
+   */
+  @Param({"false", "true"})
+  public boolean lazyFunctionBodies;
+
+  @Benchmark
+  public Object scan(Corpus corpus) {
+    EcmaScriptConfiguration conf = new EcmaScriptConfiguration(Charsets.UTF_8);
+    conf.setLazyFunctionBodies(lazyFunctionBodies);
+    AstScanner<EcmaScriptGrammar> scanner = JavaScriptAstScanner.create(conf);
+    scanner.scanFile(corpus.file);
+    corpus.processed();
+    return scanner.getIndex();
+  }
+
+}
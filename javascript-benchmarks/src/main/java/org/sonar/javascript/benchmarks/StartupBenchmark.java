@@ -0,0 +1,93 @@
+/*
+ * Sonar JavaScript Plugin
+ * Copyright (C) 2011 Eriks Nukis and SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.javascript.benchmarks;
+
+import com.google.common.base.Charsets;
+import com.google.common.io.Files;
+import com.sonar.sslr.squid.AstScanner;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.sonar.javascript.EcmaScriptConfiguration;
+import org.sonar.javascript.JavaScriptAstScanner;
+import org.sonar.javascript.api.EcmaScriptGrammar;
+import org.sonar.javascript.parser.EcmaScriptParser;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time to first file: creation of a parser followed by parsing of a small file, as done by each new tool,
+ * with grammar built for each parser and with grammar shared by all parsers, and creation of a scanner
+ * followed by scanning of the same file, as done by the sensor. Scanner always builds its own grammar,
+ * because it collapses single-child nodes and skips function bodies depending on its visitors.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class StartupBenchmark {
+
+  private static final String SOURCE = "var a = 1;\nfunction f(b) {\n  return a + b;\n}\n";
+
+  @Param({"parser", "sharedGrammarParser", "scanner"})
+  public String mode;
+
+  private EcmaScriptConfiguration conf;
+  private File file;
+
+  @Setup
+  public void setup() throws IOException {
+    conf = new EcmaScriptConfiguration(Charsets.UTF_8);
+    file = File.createTempFile("startup", ".js");
+    Files.write(SOURCE, file, Charsets.UTF_8);
+  }
+
+  @TearDown(Level.Trial)
+  public void delete() {
+    file.delete();
+  }
+
+  @Benchmark
+  public Object createAndParse() {
+    if ("scanner".equals(mode)) {
+      AstScanner<EcmaScriptGrammar> scanner = JavaScriptAstScanner.create(conf);
+      scanner.scanFile(file);
+      return scanner.getIndex();
+    }
+    return "sharedGrammarParser".equals(mode)
+        ? EcmaScriptParser.createWithSharedGrammar(conf).parse(SOURCE)
+        : EcmaScriptParser.create(conf).parse(SOURCE);
+  }
+
+}
@@ -0,0 +1,47 @@
+/*
+ * Sonar JavaScript Plugin
+ * Copyright (C) 2011 Eriks Nukis and SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.javascript.benchmarks;
+
+import com.google.common.base.Charsets;
+import org.junit.Test;
+import org.sonar.javascript.EcmaScriptConfiguration;
+import org.sonar.javascript.parser.EcmaScriptParser;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class CorpusGeneratorTest {
+
+  @Test
+  public void should_be_deterministic() {
+    assertThat(CorpusGenerator.generate(10000, 4)).isEqualTo(CorpusGenerator.generate(10000, 4));
+    assertThat(CorpusGenerator.generate(10000, 4)).isNotEqualTo(CorpusGenerator.generate(10000, 8));
+  }
+
+  @Test
+  public void should_generate_given_size() {
+    assertThat(CorpusGenerator.generate(100000, 2).length()).isGreaterThanOrEqualTo(100000).isLessThan(110000);
+  }
+
+  @Test
+  public void should_generate_valid_code() {
+    EcmaScriptParser.create(new EcmaScriptConfiguration(Charsets.UTF_8)).parse(CorpusGenerator.generate(100000, 8));
+  }
+
+}
@@ -20,20 +20,22 @@
 package org.sonar.javascript.checks;
 
 import com.sonar.sslr.api.AstNode;
-import com.sonar.sslr.squid.checks.SquidCheck;
+import com.sonar.sslr.api.AstNodeType;
 import org.sonar.check.BelongsToProfile;
 import org.sonar.check.Priority;
 import org.sonar.check.Rule;
-import org.sonar.javascript.api.EcmaScriptGrammar;
+import org.sonar.javascript.api.EcmaScriptCheck;
 import org.sonar.javascript.api.EcmaScriptKeyword;
 
+import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 
 @Rule(
   key = "CurlyBraces",
   priority = Priority.MAJOR)
 @BelongsToProfile(title = CheckList.SONAR_WAY_PROFILE, priority = Priority.MAJOR)
-public class AlwaysUseCurlyBracesCheck extends SquidCheck<EcmaScriptGrammar> {
+public class AlwaysUseCurlyBracesCheck extends EcmaScriptCheck {
 
   @Override
   public void init() {
@@ -61,4 +63,8 @@ public class AlwaysUseCurlyBracesCheck extends SquidCheck<EcmaScriptGrammar> {
     }
   }
 
+  public Collection<AstNodeType> getUsedAstNodeTypes() {
+    return Collections.emptyList();
+  }
+
 }
@@ -20,18 +20,21 @@
 package org.sonar.javascript.checks;
 
 import com.sonar.sslr.api.AstNode;
-import com.sonar.sslr.squid.checks.SquidCheck;
+import com.sonar.sslr.api.AstNodeType;
 import org.sonar.check.BelongsToProfile;
 import org.sonar.check.Priority;
 import org.sonar.check.Rule;
-import org.sonar.javascript.api.EcmaScriptGrammar;
+import org.sonar.javascript.api.EcmaScriptCheck;
 import org.sonar.javascript.api.EcmaScriptKeyword;
 
+import java.util.Collection;
+import java.util.Collections;
+
 @Rule(
   key = "ArrayAndObjectConstructors",
   priority = Priority.BLOCKER)
 @BelongsToProfile(title = CheckList.SONAR_WAY_PROFILE, priority = Priority.MAJOR)
-public class ArrayAndObjectConstructorsCheck extends SquidCheck<EcmaScriptGrammar> {
+public class ArrayAndObjectConstructorsCheck extends EcmaScriptCheck {
 
   @Override
   public void init() {
@@ -48,4 +51,8 @@ public class ArrayAndObjectConstructorsCheck extends SquidCheck<EcmaScriptGramma
     }
   }
 
+  public Collection<AstNodeType> getUsedAstNodeTypes() {
+    return Collections.emptyList();
+  }
+
 }
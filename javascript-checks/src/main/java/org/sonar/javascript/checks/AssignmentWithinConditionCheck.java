@@ -20,17 +20,20 @@
 package org.sonar.javascript.checks;
 
 import com.sonar.sslr.api.AstNode;
-import com.sonar.sslr.squid.checks.SquidCheck;
+import com.sonar.sslr.api.AstNodeType;
 import org.sonar.check.BelongsToProfile;
 import org.sonar.check.Priority;
 import org.sonar.check.Rule;
-import org.sonar.javascript.api.EcmaScriptGrammar;
+import org.sonar.javascript.api.EcmaScriptCheck;
+
+import java.util.Collection;
+import java.util.Collections;
 
 @Rule(
   key = "AssignmentWithinCondition",
   priority = Priority.MAJOR)
 @BelongsToProfile(title = CheckList.SONAR_WAY_PROFILE, priority = Priority.MAJOR)
-public class AssignmentWithinConditionCheck extends SquidCheck<EcmaScriptGrammar> {
+public class AssignmentWithinConditionCheck extends EcmaScriptCheck {
 
   @Override
   public void init() {
@@ -49,4 +52,9 @@ public class AssignmentWithinConditionCheck extends SquidCheck<EcmaScriptGrammar
     }
   }
 
+  @Override
+  public Collection<AstNodeType> getUsedAstNodeTypes() {
+    return Collections.<AstNodeType> singletonList(getContext().getGrammar().expression);
+  }
+
 }
@@ -20,18 +20,21 @@
 package org.sonar.javascript.checks;
 
 import com.sonar.sslr.api.AstNode;
-import com.sonar.sslr.squid.checks.SquidCheck;
+import com.sonar.sslr.api.AstNodeType;
 import org.sonar.check.BelongsToProfile;
 import org.sonar.check.Priority;
 import org.sonar.check.Rule;
-import org.sonar.javascript.api.EcmaScriptGrammar;
+import org.sonar.javascript.api.EcmaScriptCheck;
 import org.sonar.javascript.api.EcmaScriptPunctuator;
 
+import java.util.Collection;
+import java.util.Collections;
+
 @Rule(
   key = "BitwiseOperators",
   priority = Priority.BLOCKER)
 @BelongsToProfile(title = CheckList.SONAR_WAY_PROFILE, priority = Priority.MAJOR)
-public class BitwiseOperatorsCheck extends SquidCheck<EcmaScriptGrammar> {
+public class BitwiseOperatorsCheck extends EcmaScriptCheck {
 
   @Override
   public void init() {
@@ -56,4 +59,8 @@ public class BitwiseOperatorsCheck extends SquidCheck<EcmaScriptGrammar> {
     getContext().createLineViolation(this, "Do not use bitwise operators.", astNode);
   }
 
+  public Collection<AstNodeType> getUsedAstNodeTypes() {
+    return Collections.emptyList();
+  }
+
 }
@@ -19,18 +19,23 @@
  */
 package org.sonar.javascript.checks;
 
+import com.sonar.sslr.api.AstNodeType;
 import com.sonar.sslr.squid.checks.AbstractCommentRegularExpressionCheck;
 import org.sonar.check.Cardinality;
 import org.sonar.check.Priority;
 import org.sonar.check.Rule;
 import org.sonar.check.RuleProperty;
 import org.sonar.javascript.api.EcmaScriptGrammar;
+import org.sonar.javascript.api.UsedAstNodeTypes;
+
+import java.util.Collection;
+import java.util.Collections;
 
 @Rule(
   key = "CommentRegularExpression",
   priority = Priority.MAJOR,
   cardinality = Cardinality.MULTIPLE)
-public class CommentRegularExpressionCheck extends AbstractCommentRegularExpressionCheck<EcmaScriptGrammar> {
+public class CommentRegularExpressionCheck extends AbstractCommentRegularExpressionCheck<EcmaScriptGrammar> implements UsedAstNodeTypes {
 
   private static final String DEFAULT_REGULAR_EXPRESSION = "";
   private static final String DEFAULT_MESSAGE = "The regular expression matches this comment";
@@ -55,4 +60,8 @@ public class CommentRegularExpressionCheck extends AbstractCommentRegularExpress
     return message;
   }
 
+  public Collection<AstNodeType> getUsedAstNodeTypes() {
+    return Collections.emptyList();
+  }
+
 }
@@ -21,16 +21,18 @@ package org.sonar.javascript.checks;
 
 import com.google.common.collect.ImmutableSet;
 import com.sonar.sslr.api.AstAndTokenVisitor;
+import com.sonar.sslr.api.AstNodeType;
 import com.sonar.sslr.api.Token;
 import com.sonar.sslr.api.Trivia;
-import com.sonar.sslr.squid.checks.SquidCheck;
 import org.sonar.check.BelongsToProfile;
 import org.sonar.check.Priority;
 import org.sonar.check.Rule;
-import org.sonar.javascript.api.EcmaScriptGrammar;
+import org.sonar.javascript.api.EcmaScriptCheck;
 import org.sonar.javascript.api.EcmaScriptKeyword;
 import org.sonar.squid.recognizer.*;
 
+import java.util.Collection;
+import java.util.Collections;
 import java.util.Set;
 import java.util.regex.Pattern;
 
@@ -38,7 +40,7 @@ import java.util.regex.Pattern;
   key = "CommentedCode",
   priority = Priority.BLOCKER)
 @BelongsToProfile(title = CheckList.SONAR_WAY_PROFILE, priority = Priority.MAJOR)
-public class CommentedCodeCheck extends SquidCheck<EcmaScriptGrammar> implements AstAndTokenVisitor {
+public class CommentedCodeCheck extends EcmaScriptCheck implements AstAndTokenVisitor {
 
   private static final double THRESHOLD = 0.9;
 
@@ -76,4 +78,8 @@ public class CommentedCodeCheck extends SquidCheck<EcmaScriptGrammar> implements
     return trivia.getToken().getValue().startsWith("/**");
   }
 
+  public Collection<AstNodeType> getUsedAstNodeTypes() {
+    return Collections.emptyList();
+  }
+
 }
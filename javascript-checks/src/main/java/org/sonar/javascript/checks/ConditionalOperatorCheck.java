@@ -20,16 +20,19 @@
 package org.sonar.javascript.checks;
 
 import com.sonar.sslr.api.AstNode;
-import com.sonar.sslr.squid.checks.SquidCheck;
+import com.sonar.sslr.api.AstNodeType;
 import org.sonar.check.Priority;
 import org.sonar.check.Rule;
-import org.sonar.javascript.api.EcmaScriptGrammar;
+import org.sonar.javascript.api.EcmaScriptCheck;
 import org.sonar.javascript.api.EcmaScriptPunctuator;
 
+import java.util.Collection;
+import java.util.Collections;
+
 @Rule(
   key = "ConditionalOperator",
   priority = Priority.MINOR)
-public class ConditionalOperatorCheck extends SquidCheck<EcmaScriptGrammar> {
+public class ConditionalOperatorCheck extends EcmaScriptCheck {
 
   @Override
   public void init() {
@@ -41,4 +44,8 @@ public class ConditionalOperatorCheck extends SquidCheck<EcmaScriptGrammar> {
     getContext().createLineViolation(this, "Replace this conditional operator by a standard if/else control flow statement.", node);
   }
 
+  public Collection<AstNodeType> getUsedAstNodeTypes() {
+    return Collections.emptyList();
+  }
+
 }
@@ -20,15 +20,18 @@
 package org.sonar.javascript.checks;
 
 import com.sonar.sslr.api.AstNode;
-import com.sonar.sslr.squid.checks.SquidCheck;
+import com.sonar.sslr.api.AstNodeType;
 import org.sonar.check.Priority;
 import org.sonar.check.Rule;
-import org.sonar.javascript.api.EcmaScriptGrammar;
+import org.sonar.javascript.api.EcmaScriptCheck;
+
+import java.util.Collection;
+import java.util.Collections;
 
 @Rule(
   key = "ContinueStatement",
   priority = Priority.MAJOR)
-public class ContinueStatementCheck extends SquidCheck<EcmaScriptGrammar> {
+public class ContinueStatementCheck extends EcmaScriptCheck {
 
   @Override
   public void init() {
@@ -40,4 +43,8 @@ public class ContinueStatementCheck extends SquidCheck<EcmaScriptGrammar> {
     getContext().createLineViolation(this, "Avoid using continue statement.", node);
   }
 
+  public Collection<AstNodeType> getUsedAstNodeTypes() {
+    return Collections.emptyList();
+  }
+
 }
@@ -20,17 +20,20 @@
 package org.sonar.javascript.checks;
 
 import com.sonar.sslr.api.AstNode;
-import com.sonar.sslr.squid.checks.SquidCheck;
+import com.sonar.sslr.api.AstNodeType;
 import org.sonar.check.BelongsToProfile;
 import org.sonar.check.Priority;
 import org.sonar.check.Rule;
-import org.sonar.javascript.api.EcmaScriptGrammar;
+import org.sonar.javascript.api.EcmaScriptCheck;
+
+import java.util.Collection;
+import java.util.Collections;
 
 @Rule(
   key = "DebuggerStatement",
   priority = Priority.MAJOR)
 @BelongsToProfile(title = CheckList.SONAR_WAY_PROFILE, priority = Priority.MAJOR)
-public class DebuggerStatementCheck extends SquidCheck<EcmaScriptGrammar> {
+public class DebuggerStatementCheck extends EcmaScriptCheck {
 
   @Override
   public void init() {
@@ -42,4 +45,8 @@ public class DebuggerStatementCheck extends SquidCheck<EcmaScriptGrammar> {
     getContext().createLineViolation(this, "Avoid using debugger statement.", node);
   }
 
+  public Collection<AstNodeType> getUsedAstNodeTypes() {
+    return Collections.emptyList();
+  }
+
 }
@@ -20,17 +20,20 @@
 package org.sonar.javascript.checks;
 
 import com.sonar.sslr.api.AstNode;
-import com.sonar.sslr.squid.checks.SquidCheck;
+import com.sonar.sslr.api.AstNodeType;
 import org.sonar.check.BelongsToProfile;
 import org.sonar.check.Priority;
 import org.sonar.check.Rule;
-import org.sonar.javascript.api.EcmaScriptGrammar;
+import org.sonar.javascript.api.EcmaScriptCheck;
+
+import java.util.Collection;
+import java.util.Collections;
 
 @Rule(
   key = "ElseIfWithoutElse",
   priority = Priority.MAJOR)
 @BelongsToProfile(title = CheckList.SONAR_WAY_PROFILE, priority = Priority.MAJOR)
-public class ElseIfWithoutElseCheck extends SquidCheck<EcmaScriptGrammar> {
+public class ElseIfWithoutElseCheck extends EcmaScriptCheck {
 
   @Override
   public void init() {
@@ -55,4 +58,8 @@ public class ElseIfWithoutElseCheck extends SquidCheck<EcmaScriptGrammar> {
     return node != null && node.is(getContext().getGrammar().elseClause);
   }
 
+  public Collection<AstNodeType> getUsedAstNodeTypes() {
+    return Collections.emptyList();
+  }
+
 }
@@ -20,17 +20,20 @@
 package org.sonar.javascript.checks;
 
 import com.sonar.sslr.api.AstNode;
-import com.sonar.sslr.squid.checks.SquidCheck;
+import com.sonar.sslr.api.AstNodeType;
 import org.sonar.check.BelongsToProfile;
 import org.sonar.check.Priority;
 import org.sonar.check.Rule;
-import org.sonar.javascript.api.EcmaScriptGrammar;
+import org.sonar.javascript.api.EcmaScriptCheck;
+
+import java.util.Collection;
+import java.util.Collections;
 
 @Rule(
   key = "EmptyBlock",
   priority = Priority.MAJOR)
 @BelongsToProfile(title = CheckList.SONAR_WAY_PROFILE, priority = Priority.MAJOR)
-public class EmptyBlockCheck extends SquidCheck<EcmaScriptGrammar> {
+public class EmptyBlockCheck extends EcmaScriptCheck {
 
   @Override
   public void init() {
@@ -44,4 +47,8 @@ public class EmptyBlockCheck extends SquidCheck<EcmaScriptGrammar> {
     }
   }
 
+  public Collection<AstNodeType> getUsedAstNodeTypes() {
+    return Collections.emptyList();
+  }
+
 }
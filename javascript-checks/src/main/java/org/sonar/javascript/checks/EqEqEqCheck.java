@@ -20,18 +20,21 @@
 package org.sonar.javascript.checks;
 
 import com.sonar.sslr.api.AstNode;
-import com.sonar.sslr.squid.checks.SquidCheck;
+import com.sonar.sslr.api.AstNodeType;
 import org.sonar.check.BelongsToProfile;
 import org.sonar.check.Priority;
 import org.sonar.check.Rule;
-import org.sonar.javascript.api.EcmaScriptGrammar;
+import org.sonar.javascript.api.EcmaScriptCheck;
 import org.sonar.javascript.api.EcmaScriptPunctuator;
 
+import java.util.Collection;
+import java.util.Collections;
+
 @Rule(
   key = "EqEqEq",
   priority = Priority.MAJOR)
 @BelongsToProfile(title = CheckList.SONAR_WAY_PROFILE, priority = Priority.MAJOR)
-public class EqEqEqCheck extends SquidCheck<EcmaScriptGrammar> {
+public class EqEqEqCheck extends EcmaScriptCheck {
 
   @Override
   public void init() {
@@ -43,4 +46,8 @@ public class EqEqEqCheck extends SquidCheck<EcmaScriptGrammar> {
     getContext().createLineViolation(this, "Avoid use of == and != in favor of === and !==.", node);
   }
 
+  public Collection<AstNodeType> getUsedAstNodeTypes() {
+    return Collections.emptyList();
+  }
+
 }
@@ -20,12 +20,14 @@
 package org.sonar.javascript.checks;
 
 import com.sonar.sslr.api.AstNode;
-import com.sonar.sslr.squid.checks.SquidCheck;
+import com.sonar.sslr.api.AstNodeType;
 import org.sonar.check.BelongsToProfile;
 import org.sonar.check.Priority;
 import org.sonar.check.Rule;
+import org.sonar.javascript.api.EcmaScriptCheck;
 import org.sonar.javascript.api.EcmaScriptGrammar;
 
+import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
 
@@ -33,7 +35,7 @@ import java.util.List;
   key = "ForIn",
   priority = Priority.MAJOR)
 @BelongsToProfile(title = CheckList.SONAR_WAY_PROFILE, priority = Priority.MAJOR)
-public class ForInCheck extends SquidCheck<EcmaScriptGrammar> {
+public class ForInCheck extends EcmaScriptCheck {
 
   @Override
   public void init() {
@@ -65,4 +67,8 @@ public class ForInCheck extends SquidCheck<EcmaScriptGrammar> {
     }
   }
 
+  public Collection<AstNodeType> getUsedAstNodeTypes() {
+    return Collections.emptyList();
+  }
+
 }
@@ -20,20 +20,23 @@
 package org.sonar.javascript.checks;
 
 import com.sonar.sslr.api.AstNode;
-import com.sonar.sslr.squid.checks.SquidCheck;
+import com.sonar.sslr.api.AstNodeType;
 import org.sonar.check.BelongsToProfile;
 import org.sonar.check.Priority;
 import org.sonar.check.Rule;
 import org.sonar.check.RuleProperty;
-import org.sonar.javascript.api.EcmaScriptGrammar;
+import org.sonar.javascript.api.EcmaScriptCheck;
 import org.sonar.javascript.api.EcmaScriptMetric;
 import org.sonar.squid.api.SourceFunction;
 
+import java.util.Collection;
+import java.util.Collections;
+
 @Rule(
   key = "FunctionComplexity",
   priority = Priority.MAJOR)
 @BelongsToProfile(title = CheckList.SONAR_WAY_PROFILE, priority = Priority.MAJOR)
-public class FunctionComplexityCheck extends SquidCheck<EcmaScriptGrammar> {
+public class FunctionComplexityCheck extends EcmaScriptCheck {
 
   private static final int DEFAULT_MAXIMUM_FUNCTION_COMPLEXITY_THRESHOLD = 10;
 
@@ -61,4 +64,8 @@ public class FunctionComplexityCheck extends SquidCheck<EcmaScriptGrammar> {
     this.maximumFunctionComplexityThreshold = threshold;
   }
 
+  public Collection<AstNodeType> getUsedAstNodeTypes() {
+    return Collections.emptyList();
+  }
+
 }
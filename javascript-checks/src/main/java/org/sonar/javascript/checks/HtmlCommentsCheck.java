@@ -20,19 +20,22 @@
 package org.sonar.javascript.checks;
 
 import com.sonar.sslr.api.AstAndTokenVisitor;
+import com.sonar.sslr.api.AstNodeType;
 import com.sonar.sslr.api.Token;
 import com.sonar.sslr.api.Trivia;
-import com.sonar.sslr.squid.checks.SquidCheck;
 import org.sonar.check.BelongsToProfile;
 import org.sonar.check.Priority;
 import org.sonar.check.Rule;
-import org.sonar.javascript.api.EcmaScriptGrammar;
+import org.sonar.javascript.api.EcmaScriptCheck;
+
+import java.util.Collection;
+import java.util.Collections;
 
 @Rule(
   key = "HtmlComments",
   priority = Priority.MAJOR)
 @BelongsToProfile(title = CheckList.SONAR_WAY_PROFILE, priority = Priority.MAJOR)
-public class HtmlCommentsCheck extends SquidCheck<EcmaScriptGrammar> implements AstAndTokenVisitor {
+public class HtmlCommentsCheck extends EcmaScriptCheck implements AstAndTokenVisitor {
 
   public void visitToken(Token token) {
     for (Trivia trivia : token.getTrivia()) {
@@ -42,4 +45,8 @@ public class HtmlCommentsCheck extends SquidCheck<EcmaScriptGrammar> implements
     }
   }
 
+  public Collection<AstNodeType> getUsedAstNodeTypes() {
+    return Collections.emptyList();
+  }
+
 }
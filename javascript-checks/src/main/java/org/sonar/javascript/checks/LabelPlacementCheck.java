@@ -20,17 +20,21 @@
 package org.sonar.javascript.checks;
 
 import com.sonar.sslr.api.AstNode;
-import com.sonar.sslr.squid.checks.SquidCheck;
+import com.sonar.sslr.api.AstNodeType;
 import org.sonar.check.BelongsToProfile;
 import org.sonar.check.Priority;
 import org.sonar.check.Rule;
+import org.sonar.javascript.api.EcmaScriptCheck;
 import org.sonar.javascript.api.EcmaScriptGrammar;
 
+import java.util.Collection;
+import java.util.Collections;
+
 @Rule(
   key = "LabelPlacement",
   priority = Priority.MAJOR)
 @BelongsToProfile(title = CheckList.SONAR_WAY_PROFILE, priority = Priority.MAJOR)
-public class LabelPlacementCheck extends SquidCheck<EcmaScriptGrammar> {
+public class LabelPlacementCheck extends EcmaScriptCheck {
 
   @Override
   public void init() {
@@ -46,4 +50,8 @@ public class LabelPlacementCheck extends SquidCheck<EcmaScriptGrammar> {
     }
   }
 
+  public Collection<AstNodeType> getUsedAstNodeTypes() {
+    return Collections.emptyList();
+  }
+
 }
@@ -21,17 +21,20 @@ package org.sonar.javascript.checks;
 
 import com.sonar.sslr.api.AstAndTokenVisitor;
 import com.sonar.sslr.api.AstNode;
+import com.sonar.sslr.api.AstNodeType;
 import com.sonar.sslr.api.Token;
-import com.sonar.sslr.squid.checks.SquidCheck;
 import org.sonar.check.Priority;
 import org.sonar.check.Rule;
 import org.sonar.check.RuleProperty;
-import org.sonar.javascript.api.EcmaScriptGrammar;
+import org.sonar.javascript.api.EcmaScriptCheck;
+
+import java.util.Collection;
+import java.util.Collections;
 
 @Rule(
   key = "LineLength",
   priority = Priority.MINOR)
-public class LineLengthCheck extends SquidCheck<EcmaScriptGrammar> implements AstAndTokenVisitor {
+public class LineLengthCheck extends EcmaScriptCheck implements AstAndTokenVisitor {
 
   private static final int DEFAULT_MAXIMUM_LINE_LENHGTH = 80;
 
@@ -73,4 +76,8 @@ public class LineLengthCheck extends SquidCheck<EcmaScriptGrammar> implements As
     }
   }
 
+  public Collection<AstNodeType> getUsedAstNodeTypes() {
+    return Collections.emptyList();
+  }
+
 }
@@ -20,14 +20,17 @@
 package org.sonar.javascript.checks;
 
 import com.sonar.sslr.api.AstNode;
-import com.sonar.sslr.squid.checks.SquidCheck;
+import com.sonar.sslr.api.AstNodeType;
 import org.sonar.check.BelongsToProfile;
 import org.sonar.check.Priority;
 import org.sonar.check.Rule;
 import org.sonar.check.RuleProperty;
-import org.sonar.javascript.api.EcmaScriptGrammar;
+import org.sonar.javascript.api.EcmaScriptCheck;
 import org.sonar.javascript.api.EcmaScriptKeyword;
 
+import java.util.Collection;
+import java.util.Collections;
+
 /**
  * Note that implementation differs from AbstractNestedIfCheck - see SONARPLUGINS-1855 and SONARPLUGINS-2178
  */
@@ -35,7 +38,7 @@ import org.sonar.javascript.api.EcmaScriptKeyword;
   key = "NestedIfDepth",
   priority = Priority.MINOR)
 @BelongsToProfile(title = CheckList.SONAR_WAY_PROFILE, priority = Priority.MINOR)
-public class NestedIfDepthCheck extends SquidCheck<EcmaScriptGrammar> {
+public class NestedIfDepthCheck extends EcmaScriptCheck {
 
   private int nestingLevel;
 
@@ -84,4 +87,8 @@ public class NestedIfDepthCheck extends SquidCheck<EcmaScriptGrammar> {
         && astNode.getParent().previousSibling().is(EcmaScriptKeyword.ELSE);
   }
 
+  public Collection<AstNodeType> getUsedAstNodeTypes() {
+    return Collections.emptyList();
+  }
+
 }
@@ -20,17 +20,22 @@
 package org.sonar.javascript.checks;
 
 import com.sonar.sslr.api.AstNode;
+import com.sonar.sslr.api.AstNodeType;
 import com.sonar.sslr.squid.checks.AbstractOneStatementPerLineCheck;
 import org.sonar.check.BelongsToProfile;
 import org.sonar.check.Priority;
 import org.sonar.check.Rule;
 import org.sonar.javascript.api.EcmaScriptGrammar;
+import org.sonar.javascript.api.UsedAstNodeTypes;
+
+import java.util.Collection;
+import java.util.Collections;
 
 @Rule(
   key = "OneStatementPerLine",
   priority = Priority.MAJOR)
 @BelongsToProfile(title = CheckList.SONAR_WAY_PROFILE, priority = Priority.MAJOR)
-public class OneStatementPerLineCheck extends AbstractOneStatementPerLineCheck<EcmaScriptGrammar> {
+public class OneStatementPerLineCheck extends AbstractOneStatementPerLineCheck<EcmaScriptGrammar> implements UsedAstNodeTypes {
 
   @Override
   public com.sonar.sslr.api.Rule getStatementRule() {
@@ -46,4 +51,8 @@ public class OneStatementPerLineCheck extends AbstractOneStatementPerLineCheck<E
         || statementNode.is(g.labelledStatement);
   }
 
+  public Collection<AstNodeType> getUsedAstNodeTypes() {
+    return Collections.emptyList();
+  }
+
 }
@@ -21,11 +21,13 @@ package org.sonar.javascript.checks;
 
 import com.google.common.collect.ImmutableSet;
 import com.sonar.sslr.api.AstNode;
-import com.sonar.sslr.squid.checks.SquidCheck;
+import com.sonar.sslr.api.AstNodeType;
 import org.sonar.check.Priority;
 import org.sonar.check.Rule;
-import org.sonar.javascript.api.EcmaScriptGrammar;
+import org.sonar.javascript.api.EcmaScriptCheck;
 
+import java.util.Collection;
+import java.util.Collections;
 import java.util.Set;
 
 /**
@@ -36,7 +38,7 @@ import java.util.Set;
 @Rule(
   key = "Parentheses",
   priority = Priority.MINOR)
-public class ParenthesesCheck extends SquidCheck<EcmaScriptGrammar> {
+public class ParenthesesCheck extends EcmaScriptCheck {
 
   private static final Set<String> NO_PARENTHESES_AFTER = ImmutableSet.of("delete", "typeof", "void", "return", "throw", "new", "in");
 
@@ -57,4 +59,8 @@ public class ParenthesesCheck extends SquidCheck<EcmaScriptGrammar> {
     }
   }
 
+  public Collection<AstNodeType> getUsedAstNodeTypes() {
+    return Collections.emptyList();
+  }
+
 }
@@ -19,20 +19,22 @@
  */
 package org.sonar.javascript.checks;
 
+import com.sonar.sslr.api.AstNodeType;
 import com.sonar.sslr.api.AuditListener;
 import com.sonar.sslr.api.RecognitionException;
-import com.sonar.sslr.squid.checks.SquidCheck;
 import org.sonar.check.Priority;
 import org.sonar.check.Rule;
-import org.sonar.javascript.api.EcmaScriptGrammar;
+import org.sonar.javascript.api.EcmaScriptCheck;
 
 import java.io.PrintWriter;
 import java.io.StringWriter;
+import java.util.Collection;
+import java.util.Collections;
 
 @Rule(
   key = "ParsingError",
   priority = Priority.MAJOR)
-public class ParsingErrorCheck extends SquidCheck<EcmaScriptGrammar> implements AuditListener {
+public class ParsingErrorCheck extends EcmaScriptCheck implements AuditListener {
 
   public void processException(Exception e) {
     StringWriter exception = new StringWriter();
@@ -44,4 +46,8 @@ public class ParsingErrorCheck extends SquidCheck<EcmaScriptGrammar> implements
     getContext().createLineViolation(this, e.getMessage(), e.getLine());
   }
 
+  public Collection<AstNodeType> getUsedAstNodeTypes() {
+    return Collections.emptyList();
+  }
+
 }
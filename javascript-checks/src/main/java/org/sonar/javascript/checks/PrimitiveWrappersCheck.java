@@ -21,20 +21,22 @@ package org.sonar.javascript.checks;
 
 import com.google.common.collect.ImmutableSet;
 import com.sonar.sslr.api.AstNode;
-import com.sonar.sslr.squid.checks.SquidCheck;
+import com.sonar.sslr.api.AstNodeType;
 import org.sonar.check.BelongsToProfile;
 import org.sonar.check.Priority;
 import org.sonar.check.Rule;
-import org.sonar.javascript.api.EcmaScriptGrammar;
+import org.sonar.javascript.api.EcmaScriptCheck;
 import org.sonar.javascript.api.EcmaScriptKeyword;
 
+import java.util.Collection;
+import java.util.Collections;
 import java.util.Set;
 
 @Rule(
   key = "PrimitiveWrappers",
   priority = Priority.MAJOR)
 @BelongsToProfile(title = CheckList.SONAR_WAY_PROFILE, priority = Priority.MAJOR)
-public class PrimitiveWrappersCheck extends SquidCheck<EcmaScriptGrammar> {
+public class PrimitiveWrappersCheck extends EcmaScriptCheck {
 
   private static final Set<String> WRAPPERS = ImmutableSet.of("Boolean", "Number", "String");
 
@@ -50,4 +52,8 @@ public class PrimitiveWrappersCheck extends SquidCheck<EcmaScriptGrammar> {
     }
   }
 
+  public Collection<AstNodeType> getUsedAstNodeTypes() {
+    return Collections.emptyList();
+  }
+
 }
@@ -20,15 +20,18 @@
 package org.sonar.javascript.checks;
 
 import com.sonar.sslr.api.AstNode;
-import com.sonar.sslr.squid.checks.SquidCheck;
+import com.sonar.sslr.api.AstNodeType;
 import org.sonar.check.Priority;
 import org.sonar.check.Rule;
-import org.sonar.javascript.api.EcmaScriptGrammar;
+import org.sonar.javascript.api.EcmaScriptCheck;
+
+import java.util.Collection;
+import java.util.Collections;
 
 @Rule(
   key = "SingleQuote",
   priority = Priority.MAJOR)
-public class SingleQuoteStringLiteralsCheck extends SquidCheck<EcmaScriptGrammar> {
+public class SingleQuoteStringLiteralsCheck extends EcmaScriptCheck {
 
   @Override
   public void init() {
@@ -42,4 +45,8 @@ public class SingleQuoteStringLiteralsCheck extends SquidCheck<EcmaScriptGrammar
     }
   }
 
+  public Collection<AstNodeType> getUsedAstNodeTypes() {
+    return Collections.emptyList();
+  }
+
 }
@@ -20,18 +20,21 @@
 package org.sonar.javascript.checks;
 
 import com.sonar.sslr.api.AstNode;
-import com.sonar.sslr.squid.checks.SquidCheck;
+import com.sonar.sslr.api.AstNodeType;
 import org.sonar.check.BelongsToProfile;
 import org.sonar.check.Priority;
 import org.sonar.check.Rule;
-import org.sonar.javascript.api.EcmaScriptGrammar;
+import org.sonar.javascript.api.EcmaScriptCheck;
 import org.sonar.javascript.api.EcmaScriptPunctuator;
 
+import java.util.Collection;
+import java.util.Collections;
+
 @Rule(
   key = "SwitchWithoutDefault",
   priority = Priority.MAJOR)
 @BelongsToProfile(title = CheckList.SONAR_WAY_PROFILE, priority = Priority.MAJOR)
-public class SwitchWithoutDefaultCheck extends SquidCheck<EcmaScriptGrammar> {
+public class SwitchWithoutDefaultCheck extends EcmaScriptCheck {
 
   @Override
   public void init() {
@@ -48,4 +51,8 @@ public class SwitchWithoutDefaultCheck extends SquidCheck<EcmaScriptGrammar> {
     }
   }
 
+  public Collection<AstNodeType> getUsedAstNodeTypes() {
+    return Collections.emptyList();
+  }
+
 }
@@ -20,13 +20,16 @@
 package org.sonar.javascript.checks;
 
 import com.sonar.sslr.api.AstNode;
-import com.sonar.sslr.squid.checks.SquidCheck;
+import com.sonar.sslr.api.AstNodeType;
 import org.sonar.check.BelongsToProfile;
 import org.sonar.check.Priority;
 import org.sonar.check.Rule;
-import org.sonar.javascript.api.EcmaScriptGrammar;
+import org.sonar.javascript.api.EcmaScriptCheck;
 import org.sonar.javascript.api.EcmaScriptPunctuator;
 
+import java.util.Collection;
+import java.util.Collections;
+
 /**
  * http://stackoverflow.com/questions/7246618/trailing-commas-in-javascript
  */
@@ -34,7 +37,7 @@ import org.sonar.javascript.api.EcmaScriptPunctuator;
   key = "TrailingComma",
   priority = Priority.MAJOR)
 @BelongsToProfile(title = CheckList.SONAR_WAY_PROFILE, priority = Priority.BLOCKER)
-public class TrailingCommaCheck extends SquidCheck<EcmaScriptGrammar> {
+public class TrailingCommaCheck extends EcmaScriptCheck {
 
   @Override
   public void init() {
@@ -48,4 +51,8 @@ public class TrailingCommaCheck extends SquidCheck<EcmaScriptGrammar> {
     }
   }
 
+  public Collection<AstNodeType> getUsedAstNodeTypes() {
+    return Collections.emptyList();
+  }
+
 }
@@ -24,6 +24,7 @@ import org.junit.Test;
 import org.sonar.api.rules.AnnotationRuleParser;
 import org.sonar.api.rules.Rule;
 import org.sonar.api.rules.RuleParam;
+import org.sonar.javascript.api.UsedAstNodeTypes;
 
 import java.io.File;
 import java.util.List;
@@ -86,4 +87,18 @@ public class CheckListTest {
     }
   }
 
+  /**
+   * Enforces that each check, except {@link XPathCheck}, declares used types of nodes, so that AST can be collapsed.
+   */
+  @Test
+  public void used_ast_node_types() {
+    for (Class cls : CheckList.getChecks()) {
+      if (cls != XPathCheck.class) {
+        assertThat(UsedAstNodeTypes.class.isAssignableFrom(cls))
+            .overridingErrorMessage(cls.getSimpleName() + " should implement " + UsedAstNodeTypes.class.getSimpleName())
+            .isTrue();
+      }
+    }
+  }
+
 }
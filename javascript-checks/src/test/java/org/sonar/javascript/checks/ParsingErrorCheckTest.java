@@ -19,9 +19,17 @@
  */
 package org.sonar.javascript.checks;
 
+import com.google.common.base.Charsets;
+import com.google.common.base.Strings;
+import com.google.common.io.Files;
+import com.sonar.sslr.squid.AstScanner;
 import com.sonar.sslr.squid.checks.CheckMessagesVerifier;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.sonar.javascript.EcmaScriptConfiguration;
 import org.sonar.javascript.JavaScriptAstScanner;
+import org.sonar.javascript.api.EcmaScriptGrammar;
 import org.sonar.squid.api.SourceFile;
 
 import java.io.File;
@@ -30,6 +38,9 @@ import static org.hamcrest.Matchers.containsString;
 
 public class ParsingErrorCheckTest {
 
+  @Rule
+  public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
   @Test
   public void test() {
     SourceFile file = JavaScriptAstScanner.scanSingleFile(new File("src/test/resources/checks/parsingError.js"), new ParsingErrorCheck());
@@ -38,4 +49,18 @@ public class ParsingErrorCheckTest {
         .noMore();
   }
 
+  @Test
+  public void timeout() throws Exception {
+    File file = temporaryFolder.newFile("huge.js");
+    Files.write(Strings.repeat("a = (b + c) * d;\n", 5000), file, Charsets.UTF_8);
+    EcmaScriptConfiguration conf = new EcmaScriptConfiguration(Charsets.UTF_8);
+    conf.setParseTimeout(1);
+    AstScanner<EcmaScriptGrammar> scanner = JavaScriptAstScanner.create(conf, new ParsingErrorCheck());
+    scanner.scanFile(file);
+    SourceFile sourceFile = (SourceFile) scanner.getIndex().search(file.getAbsolutePath());
+    CheckMessagesVerifier.verify(sourceFile.getCheckMessages())
+        .next().withMessageThat(containsString("takes more than 1 ms"))
+        .noMore();
+  }
+
 }
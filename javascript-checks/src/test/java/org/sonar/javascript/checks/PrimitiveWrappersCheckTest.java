@@ -19,9 +19,13 @@
  */
 package org.sonar.javascript.checks;
 
+import com.google.common.base.Charsets;
+import com.sonar.sslr.squid.AstScanner;
 import com.sonar.sslr.squid.checks.CheckMessagesVerifier;
 import org.junit.Test;
+import org.sonar.javascript.EcmaScriptConfiguration;
 import org.sonar.javascript.JavaScriptAstScanner;
+import org.sonar.javascript.api.EcmaScriptGrammar;
 import org.sonar.squid.api.SourceFile;
 
 import java.io.File;
@@ -40,4 +44,17 @@ public class PrimitiveWrappersCheckTest {
         .noMore();
   }
 
+  @Test
+  public void should_ignore_skipped_tokens() {
+    File file = new File("src/test/resources/checks/errorRecovery.js");
+    EcmaScriptConfiguration conf = new EcmaScriptConfiguration(Charsets.UTF_8);
+    conf.setErrorRecovery(true);
+    AstScanner<EcmaScriptGrammar> scanner = JavaScriptAstScanner.create(conf, new PrimitiveWrappersCheck());
+    scanner.scanFile(file);
+    SourceFile sourceFile = (SourceFile) scanner.getIndex().search(file.getAbsolutePath());
+    CheckMessagesVerifier.verify(sourceFile.getCheckMessages())
+        .next().atLine(3).withMessage("Do not use wrapper objects for primitive types.")
+        .noMore();
+  }
+
 }
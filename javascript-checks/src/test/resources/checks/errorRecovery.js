@@ -0,0 +1,3 @@
+x = new; // skipped by recovery from parsing error
+new Array(1);
+new Number(1);
@@ -19,6 +19,7 @@
  */
 package org.sonar.javascript;
 
+import org.sonar.javascript.parser.MemoizationPolicy;
 import org.sonar.squid.api.SquidConfiguration;
 
 import java.nio.charset.Charset;
@@ -26,6 +27,14 @@ import java.nio.charset.Charset;
 public class EcmaScriptConfiguration extends SquidConfiguration {
 
   private boolean ignoreHeaderComments;
+  private long parseTimeout;
+  private boolean handWrittenLexer;
+  private MemoizationPolicy memoizationPolicy = MemoizationPolicy.ALL;
+  private boolean precedenceClimbing;
+  private boolean collapseSingleChildNodes;
+  private boolean errorRecovery;
+  private boolean lazyFunctionBodies;
+  private int chunkedParsingThreads;
 
   public EcmaScriptConfiguration(Charset charset) {
     super(charset);
@@ -39,4 +48,101 @@ public class EcmaScriptConfiguration extends SquidConfiguration {
     return ignoreHeaderComments;
   }
 
+  /**
+   * @param parseTimeout maximal time in milliseconds to parse a file, 0 for no limit
+   */
+  public void setParseTimeout(long parseTimeout) {
+    this.parseTimeout = parseTimeout;
+  }
+
+  public long getParseTimeout() {
+    return parseTimeout;
+  }
+
+  /**
+   * @param handWrittenLexer whether to use {@link org.sonar.javascript.lexer.EcmaScriptHandWrittenChannel} instead of regular expressions
+   */
+  public void setHandWrittenLexer(boolean handWrittenLexer) {
+    this.handWrittenLexer = handWrittenLexer;
+  }
+
+  public boolean getHandWrittenLexer() {
+    return handWrittenLexer;
+  }
+
+  /**
+   * @param memoizationPolicy which rules of grammar memoize their matches, {@link MemoizationPolicy#ALL} by default
+   */
+  public void setMemoizationPolicy(MemoizationPolicy memoizationPolicy) {
+    this.memoizationPolicy = memoizationPolicy;
+  }
+
+  public MemoizationPolicy getMemoizationPolicy() {
+    return memoizationPolicy;
+  }
+
+  /**
+   * @param precedenceClimbing whether to parse expressions by operator-precedence climbing instead of a rule per level of precedence,
+   * which produces the same AST
+   */
+  public void setPrecedenceClimbing(boolean precedenceClimbing) {
+    this.precedenceClimbing = precedenceClimbing;
+  }
+
+  public boolean getPrecedenceClimbing() {
+    return precedenceClimbing;
+  }
+
+  /**
+   * @param collapseSingleChildNodes whether to remove from AST single-child nodes of expressions, which are not used by visitors,
+   * disabled by default, takes effect only when all visitors implement {@link org.sonar.javascript.api.UsedAstNodeTypes}
+   * @see org.sonar.javascript.parser.SingleChildNodes
+   */
+  public void setCollapseSingleChildNodes(boolean collapseSingleChildNodes) {
+    this.collapseSingleChildNodes = collapseSingleChildNodes;
+  }
+
+  public boolean getCollapseSingleChildNodes() {
+    return collapseSingleChildNodes;
+  }
+
+  /**
+   * @param errorRecovery whether to skip statements, which can't be parsed, instead of failing on the first syntax error,
+   * each skipped statement is reported as an error, which is not fatal
+   * @see org.sonar.javascript.api.EcmaScriptGrammar#recoveredStatement
+   */
+  public void setErrorRecovery(boolean errorRecovery) {
+    this.errorRecovery = errorRecovery;
+  }
+
+  public boolean getErrorRecovery() {
+    return errorRecovery;
+  }
+
+  /**
+   * @param lazyFunctionBodies whether {@link JavaScriptAstScanner} computes only metrics of lines and comments,
+   * so that function bodies are not parsed, unless visitors subscribe to nodes or tokens inside of them -
+   * in this case all metrics are computed as usual
+   * @see org.sonar.javascript.parser.LazyFunctionBodies
+   */
+  public void setLazyFunctionBodies(boolean lazyFunctionBodies) {
+    this.lazyFunctionBodies = lazyFunctionBodies;
+  }
+
+  public boolean getLazyFunctionBodies() {
+    return lazyFunctionBodies;
+  }
+
+  /**
+   * @param chunkedParsingThreads number of threads to parse chunks of huge programs, 0 or 1 to parse them sequentially
+   * @see org.sonar.javascript.parser.ChunkedParsing
+   */
+  public void setChunkedParsingThreads(int chunkedParsingThreads) {
+    this.chunkedParsingThreads = chunkedParsingThreads;
+  }
+
+  public int getChunkedParsingThreads() {
+    return chunkedParsingThreads;
+  }
+
 }
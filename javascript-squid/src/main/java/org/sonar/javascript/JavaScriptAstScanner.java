@@ -20,23 +20,41 @@
 package org.sonar.javascript;
 
 import com.google.common.base.Charsets;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+import com.sonar.sslr.api.AstAndTokenVisitor;
 import com.sonar.sslr.api.AstNode;
 import com.sonar.sslr.api.AstNodeType;
+import com.sonar.sslr.api.AuditListener;
+import com.sonar.sslr.api.RecognitionException;
+import com.sonar.sslr.api.Token;
 import com.sonar.sslr.impl.Parser;
+import com.sonar.sslr.impl.events.ParsingEventListener;
 import com.sonar.sslr.squid.*;
 import com.sonar.sslr.squid.metrics.*;
 import org.sonar.javascript.api.EcmaScriptGrammar;
 import org.sonar.javascript.api.EcmaScriptMetric;
 import org.sonar.javascript.api.EcmaScriptPunctuator;
+import org.sonar.javascript.api.UsedAstNodeTypes;
 import org.sonar.javascript.parser.EcmaScriptParser;
+import org.sonar.javascript.parser.LazyFunctionBodies;
+import org.sonar.javascript.parser.ParseTimeoutException;
+import org.sonar.javascript.parser.ParseTimeoutWatchdog;
+import org.sonar.javascript.parser.SingleChildNodes;
+import org.sonar.javascript.profiler.Profiler;
+import org.sonar.squid.api.CodeCheck;
 import org.sonar.squid.api.SourceCode;
 import org.sonar.squid.api.SourceFile;
 import org.sonar.squid.api.SourceFunction;
 import org.sonar.squid.api.SourceProject;
 import org.sonar.squid.indexer.QueryByType;
+import org.sonar.squid.measures.CalculatedMetricFormula;
+import org.sonar.squid.measures.MetricDef;
 
 import java.io.File;
 import java.util.Collection;
+import java.util.List;
+import java.util.Set;
 
 public final class JavaScriptAstScanner {
 
@@ -60,44 +78,55 @@ public final class JavaScriptAstScanner {
   }
 
   public static AstScanner<EcmaScriptGrammar> create(EcmaScriptConfiguration conf, SquidAstVisitor<EcmaScriptGrammar>... visitors) {
-    final SquidAstVisitorContextImpl<EcmaScriptGrammar> context = new SquidAstVisitorContextImpl<EcmaScriptGrammar>(new SourceProject("JavaScript Project"));
-    final Parser<EcmaScriptGrammar> parser = EcmaScriptParser.create(conf);
+    return create(conf, null, visitors);
+  }
 
-    AstScanner.Builder<EcmaScriptGrammar> builder = AstScanner.<EcmaScriptGrammar> builder(context).setBaseParser(parser);
+  /**
+   * Scanners with the same configuration share grammar, unless single-child nodes are collapsed or function bodies are skipped -
+   * see {@link EcmaScriptConfiguration#setCollapseSingleChildNodes(boolean)} and {@link EcmaScriptConfiguration#setLazyFunctionBodies(boolean)}.
+   *
+   * @param profiler records time spent in each phase, in each visitor and optionally in each grammar rule, can be null
+   */
+  public static AstScanner<EcmaScriptGrammar> create(EcmaScriptConfiguration conf, Profiler profiler, SquidAstVisitor<EcmaScriptGrammar>... visitors) {
+    List<ParsingEventListener> parsingEventListeners = Lists.newArrayList();
+    if (conf.getParseTimeout() > 0) {
+      parsingEventListeners.add(new ParseTimeoutWatchdog(conf.getParseTimeout()));
+    }
+    if (profiler != null) {
+      parsingEventListeners.add(profiler.newParsingEventListener());
+      if (profiler.getRuleProfiler() != null) {
+        parsingEventListeners.add(profiler.getRuleProfiler().newParsingEventListener());
+      }
+    }
+    ParsingEventListener[] listeners = parsingEventListeners.toArray(new ParsingEventListener[parsingEventListeners.size()]);
+    // grammar is modified depending on rules used by visitors, which are known only after their initialization
+    final Parser<EcmaScriptGrammar> parser = conf.getCollapseSingleChildNodes() || conf.getLazyFunctionBodies()
+        ? EcmaScriptParser.create(conf, listeners)
+        : EcmaScriptParser.createWithSharedGrammar(conf, listeners);
+    AstScanner.Builder<EcmaScriptGrammar> builder = builder(parser, profiler);
 
     /* Metrics */
-    builder.withMetrics(EcmaScriptMetric.values());
-
-    /* Comments */
-    builder.setCommentAnalyser(new EcmaScriptCommentAnalyser());
+    List<SquidAstVisitor<EcmaScriptGrammar>> tokenVisitors = withLinesAndComments(builder, conf);
 
-    /* Files */
-    builder.setFilesMetric(EcmaScriptMetric.FILES);
+    LazyFunctionBodiesSwitch lazyFunctionBodies = conf.getLazyFunctionBodies() ? new LazyFunctionBodiesSwitch(visitors) : null;
 
     /* Functions */
-    builder.withSquidAstVisitor(new SourceCodeBuilderVisitor<EcmaScriptGrammar>(new SourceCodeBuilderCallback() {
+    builder.withSquidAstVisitor(unlessFunctionBodiesSkipped(lazyFunctionBodies, new SourceCodeBuilderVisitor<EcmaScriptGrammar>(new SourceCodeBuilderCallback() {
       public SourceCode createSourceCode(SourceCode parentSourceCode, AstNode astNode) {
         String functionName = astNode.getChild(1).getTokenValue();
         SourceFunction function = new SourceFunction(functionName + ":" + astNode.getToken().getLine());
         function.setStartAtLine(astNode.getTokenLine());
         return function;
       }
-    }, parser.getGrammar().functionDeclaration, parser.getGrammar().functionExpression));
+    }, parser.getGrammar().functionDeclaration, parser.getGrammar().functionExpression)));
 
-    builder.withSquidAstVisitor(CounterVisitor.<EcmaScriptGrammar> builder()
+    // functions nested in skipped bodies are not parsed either
+    builder.withSquidAstVisitor(unlessFunctionBodiesSkipped(lazyFunctionBodies, CounterVisitor.<EcmaScriptGrammar> builder()
         .setMetricDef(EcmaScriptMetric.FUNCTIONS)
         .subscribeTo(parser.getGrammar().functionDeclaration, parser.getGrammar().functionExpression)
-        .build());
+        .build()));
 
-    /* Metrics */
-    builder.withSquidAstVisitor(new LinesVisitor<EcmaScriptGrammar>(EcmaScriptMetric.LINES));
-    builder.withSquidAstVisitor(new LinesOfCodeVisitor<EcmaScriptGrammar>(EcmaScriptMetric.LINES_OF_CODE));
-    builder.withSquidAstVisitor(CommentsVisitor.<EcmaScriptGrammar> builder().withCommentMetric(EcmaScriptMetric.COMMENT_LINES)
-        .withBlankCommentMetric(EcmaScriptMetric.COMMENT_BLANK_LINES)
-        .withNoSonar(true)
-        .withIgnoreHeaderComment(conf.getIgnoreHeaderComments())
-        .build());
-    builder.withSquidAstVisitor(CounterVisitor.<EcmaScriptGrammar> builder()
+    builder.withSquidAstVisitor(unlessFunctionBodiesSkipped(lazyFunctionBodies, CounterVisitor.<EcmaScriptGrammar> builder()
         .setMetricDef(EcmaScriptMetric.STATEMENTS)
         .subscribeTo(
             parser.getGrammar().variableStatement,
@@ -113,7 +142,7 @@ public final class JavaScriptAstScanner {
             parser.getGrammar().throwStatement,
             parser.getGrammar().tryStatement,
             parser.getGrammar().debuggerStatement)
-        .build());
+        .build()));
 
     AstNodeType[] complexityAstNodeType = new AstNodeType[] {
       // Entry points
@@ -135,17 +164,262 @@ public final class JavaScriptAstScanner {
       EcmaScriptPunctuator.ANDAND,
       EcmaScriptPunctuator.OROR
     };
-    builder.withSquidAstVisitor(ComplexityVisitor.<EcmaScriptGrammar> builder()
+    builder.withSquidAstVisitor(unlessFunctionBodiesSkipped(lazyFunctionBodies, ComplexityVisitor.<EcmaScriptGrammar> builder()
         .setMetricDef(EcmaScriptMetric.COMPLEXITY)
         .subscribeTo(complexityAstNodeType)
-        .build());
+        .build()));
 
     /* External visitors (typically Check ones) */
     for (SquidAstVisitor<EcmaScriptGrammar> visitor : visitors) {
       builder.withSquidAstVisitor(visitor);
+      if (visitor instanceof AstAndTokenVisitor && !(visitor instanceof CodeCheck)) {
+        tokenVisitors.add(visitor);
+      }
+    }
+
+    if (conf.getParseTimeout() > 0) {
+      builder.withSquidAstVisitor(new ParseTimeoutFallback(tokenVisitors));
+    }
+
+    if (lazyFunctionBodies != null) {
+      builder.withSquidAstVisitor(lazyFunctionBodies);
+    }
+
+    if (conf.getCollapseSingleChildNodes()) {
+      // must be initialized after all other visitors
+      builder.withSquidAstVisitor(new SingleChildNodesCollapser(visitors));
     }
 
     return builder.build();
   }
 
+  /**
+   * Creates scanner, which doesn't parse files, but only computes metrics based on tokens: lines, lines of code and comments.
+   * Visitors are given a flat list of tokens, so they should subscribe only to tokens.
+   */
+  public static AstScanner<EcmaScriptGrammar> createTokensOnly(EcmaScriptConfiguration conf, SquidAstVisitor<EcmaScriptGrammar>... visitors) {
+    return createTokensOnly(conf, null, visitors);
+  }
+
+  /**
+   * @param profiler records time spent in each phase and in each visitor, can be null
+   * @see #createTokensOnly(EcmaScriptConfiguration, SquidAstVisitor...)
+   */
+  public static AstScanner<EcmaScriptGrammar> createTokensOnly(EcmaScriptConfiguration conf, Profiler profiler,
+      SquidAstVisitor<EcmaScriptGrammar>... visitors) {
+    Parser<EcmaScriptGrammar> parser = profiler == null
+        ? EcmaScriptParser.createTokensOnly(conf)
+        : EcmaScriptParser.createTokensOnly(conf, profiler.newParsingEventListener());
+    AstScanner.Builder<EcmaScriptGrammar> builder = builder(parser, profiler);
+
+    /* Metrics */
+    withLinesAndComments(builder, conf);
+
+    /* External visitors */
+    for (SquidAstVisitor<EcmaScriptGrammar> visitor : visitors) {
+      builder.withSquidAstVisitor(visitor);
+    }
+
+    return builder.build();
+  }
+
+  /**
+   * @return true, if parsing of given file was cancelled by timeout, so its measures were computed only from tokens
+   */
+  public static boolean isParseTimedOut(SourceCode sourceCode) {
+    return Boolean.TRUE.equals(sourceCode.getData(ParseTimeoutFallback.TIMED_OUT));
+  }
+
+  private static AstScanner.Builder<EcmaScriptGrammar> builder(Parser<EcmaScriptGrammar> parser, Profiler profiler) {
+    SquidAstVisitorContextImpl<EcmaScriptGrammar> context = new SquidAstVisitorContextImpl<EcmaScriptGrammar>(new SourceProject("JavaScript Project"));
+    AstScanner.Builder<EcmaScriptGrammar> builder = profiler == null
+        ? AstScanner.<EcmaScriptGrammar> builder(context)
+        : profiler.newAstScannerBuilder(context);
+    builder.setBaseParser(parser);
+
+    /* Metrics */
+    builder.withMetrics(EcmaScriptMetric.values());
+
+    /* Comments */
+    builder.setCommentAnalyser(new EcmaScriptCommentAnalyser());
+
+    /* Files */
+    builder.setFilesMetric(EcmaScriptMetric.FILES);
+
+    return builder;
+  }
+
+  /**
+   * @return added visitors
+   */
+  private static List<SquidAstVisitor<EcmaScriptGrammar>> withLinesAndComments(AstScanner.Builder<EcmaScriptGrammar> builder, EcmaScriptConfiguration conf) {
+    List<SquidAstVisitor<EcmaScriptGrammar>> visitors = Lists.newArrayList();
+    visitors.add(new LinesVisitor<EcmaScriptGrammar>(EcmaScriptMetric.LINES));
+    visitors.add(new LinesOfCodeVisitor<EcmaScriptGrammar>(EcmaScriptMetric.LINES_OF_CODE));
+    visitors.add(CommentsVisitor.<EcmaScriptGrammar> builder().withCommentMetric(EcmaScriptMetric.COMMENT_LINES)
+        .withBlankCommentMetric(EcmaScriptMetric.COMMENT_BLANK_LINES)
+        .withNoSonar(true)
+        .withIgnoreHeaderComment(conf.getIgnoreHeaderComments())
+        .build());
+    for (SquidAstVisitor<EcmaScriptGrammar> visitor : visitors) {
+      builder.withSquidAstVisitor(visitor);
+    }
+    return visitors;
+  }
+
+  private static SquidAstVisitor<EcmaScriptGrammar> unlessFunctionBodiesSkipped(LazyFunctionBodiesSwitch lazyFunctionBodies,
+      SquidAstVisitor<EcmaScriptGrammar> visitor) {
+    return lazyFunctionBodies == null ? visitor : new FunctionBodiesDependentVisitor(visitor, lazyFunctionBodies);
+  }
+
+  /**
+   * Collapses single-child nodes, which are not used by external visitors, when all of them declare used types.
+   * Visitors of metrics subscribe only to statements, functions and tokens, which are never collapsed.
+   */
+  private static class SingleChildNodesCollapser extends SquidAstVisitor<EcmaScriptGrammar> {
+
+    private final SquidAstVisitor<EcmaScriptGrammar>[] visitors;
+
+    public SingleChildNodesCollapser(SquidAstVisitor<EcmaScriptGrammar>[] visitors) {
+      this.visitors = visitors;
+    }
+
+    @Override
+    public void init() {
+      Set<AstNodeType> usedTypes = Sets.newHashSet();
+      for (SquidAstVisitor<EcmaScriptGrammar> visitor : visitors) {
+        if (!(visitor instanceof UsedAstNodeTypes)) {
+          return;
+        }
+        usedTypes.addAll(visitor.getAstNodeTypesToVisit());
+        usedTypes.addAll(((UsedAstNodeTypes) visitor).getUsedAstNodeTypes());
+      }
+      SingleChildNodes.collapse(getContext().getGrammar(), usedTypes);
+    }
+
+  }
+
+  /**
+   * Makes parser skip contents of function bodies, unless an external visitor subscribes to or uses nodes, which can appear inside of them.
+   */
+  private static class LazyFunctionBodiesSwitch extends SquidAstVisitor<EcmaScriptGrammar> {
+
+    private final SquidAstVisitor<EcmaScriptGrammar>[] visitors;
+    private boolean applied;
+
+    public LazyFunctionBodiesSwitch(SquidAstVisitor<EcmaScriptGrammar>[] visitors) {
+      this.visitors = visitors;
+    }
+
+    @Override
+    public void init() {
+      EcmaScriptGrammar grammar = getContext().getGrammar();
+      for (SquidAstVisitor<EcmaScriptGrammar> visitor : visitors) {
+        if (LazyFunctionBodies.canAppearInFunctionBody(grammar, visitor.getAstNodeTypesToVisit())
+            || visitor instanceof UsedAstNodeTypes && LazyFunctionBodies.canAppearInFunctionBody(grammar, ((UsedAstNodeTypes) visitor).getUsedAstNodeTypes())) {
+          return;
+        }
+      }
+      LazyFunctionBodies.apply(grammar);
+      applied = true;
+    }
+
+    public boolean isApplied() {
+      return applied;
+    }
+
+  }
+
+  /**
+   * Delegates to a visitor of metrics, which need contents of function bodies - complexity, statements and nodes of functions,
+   * unless function bodies are skipped. Decision is taken by {@link LazyFunctionBodiesSwitch} after initialization of all visitors,
+   * so it is checked on each node.
+   */
+  private static class FunctionBodiesDependentVisitor extends SquidAstVisitor<EcmaScriptGrammar> {
+
+    private final SquidAstVisitor<EcmaScriptGrammar> visitor;
+    private final LazyFunctionBodiesSwitch lazyFunctionBodies;
+
+    public FunctionBodiesDependentVisitor(SquidAstVisitor<EcmaScriptGrammar> visitor, LazyFunctionBodiesSwitch lazyFunctionBodies) {
+      this.visitor = visitor;
+      this.lazyFunctionBodies = lazyFunctionBodies;
+    }
+
+    @Override
+    public void init() {
+      visitor.setContext(getContext());
+      visitor.init();
+      for (AstNodeType type : visitor.getAstNodeTypesToVisit()) {
+        subscribeTo(type);
+      }
+    }
+
+    @Override
+    public void visitNode(AstNode astNode) {
+      if (!lazyFunctionBodies.isApplied()) {
+        visitor.visitNode(astNode);
+      }
+    }
+
+    @Override
+    public void leaveNode(AstNode astNode) {
+      if (!lazyFunctionBodies.isApplied()) {
+        visitor.leaveNode(astNode);
+      }
+    }
+
+  }
+
+  /**
+   * When parsing of a file is cancelled, gives its tokens to visitors, which compute metrics based on tokens.
+   * This happens between {@link SquidAstVisitor#visitFile(AstNode)} and {@link SquidAstVisitor#leaveFile(AstNode)},
+   * which are called with null by {@link AstScanner} for a file, which can't be parsed.
+   */
+  private static class ParseTimeoutFallback extends SquidAstVisitor<EcmaScriptGrammar> implements AuditListener {
+
+    private static final MetricDef TIMED_OUT = new MetricDef() {
+      public String getName() {
+        return "parse_timed_out";
+      }
+
+      public boolean isCalculatedMetric() {
+        return false;
+      }
+
+      public boolean aggregateIfThereIsAlreadyAValue() {
+        return false;
+      }
+
+      public boolean isThereAggregationFormula() {
+        return false;
+      }
+
+      public CalculatedMetricFormula getCalculatedMetricFormula() {
+        return null;
+      }
+    };
+
+    private final List<SquidAstVisitor<EcmaScriptGrammar>> tokenVisitors;
+
+    public ParseTimeoutFallback(List<SquidAstVisitor<EcmaScriptGrammar>> tokenVisitors) {
+      this.tokenVisitors = tokenVisitors;
+    }
+
+    public void processRecognitionException(RecognitionException e) {
+      if (e instanceof ParseTimeoutException) {
+        getContext().peekSourceCode().addData(TIMED_OUT, Boolean.TRUE);
+        for (Token token : ((ParseTimeoutException) e).getTokens()) {
+          for (SquidAstVisitor<EcmaScriptGrammar> visitor : tokenVisitors) {
+            ((AstAndTokenVisitor) visitor).visitToken(token);
+          }
+        }
+      }
+    }
+
+    public void processException(Exception e) {
+      // nothing to do
+    }
+
+  }
+
 }
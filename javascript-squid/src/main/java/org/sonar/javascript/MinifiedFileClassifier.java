@@ -0,0 +1,103 @@
+/*
+ * Sonar JavaScript Plugin
+ * Copyright (C) 2011 Eriks Nukis and SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.javascript;
+
+import org.sonar.squid.api.AnalysisException;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+
+/**
+ * Detects minified and generated files (bundles) without parsing them, by looking at the beginning of file:
+ * such files have very long lines and almost no whitespaces.
+ */
+public class MinifiedFileClassifier {
+
+  private static final int SAMPLE_SIZE = 64 * 1024;
+
+  /**
+   * Ratio of whitespaces is not meaningful for small files.
+   */
+  private static final int MIN_SAMPLE_SIZE_FOR_WHITESPACE_RATIO = 1024;
+
+  private final Charset charset;
+  private final int maxAverageLineLength;
+  private final double minWhitespaceRatio;
+
+  /**
+   * @param maxAverageLineLength file is minified, if average length of its lines is greater, 0 to disable
+   * @param minWhitespaceRatio file is minified, if ratio of whitespace characters is smaller, 0 to disable
+   */
+  public MinifiedFileClassifier(Charset charset, int maxAverageLineLength, double minWhitespaceRatio) {
+    this.charset = charset;
+    this.maxAverageLineLength = maxAverageLineLength;
+    this.minWhitespaceRatio = minWhitespaceRatio;
+  }
+
+  public boolean isMinified(File file) {
+    if (maxAverageLineLength <= 0 && minWhitespaceRatio <= 0) {
+      return false;
+    }
+    try {
+      return isMinified(SourceReader.read(file, charset, SAMPLE_SIZE));
+    } catch (IOException e) {
+      throw new AnalysisException("Unable to read file: " + file, e);
+    }
+  }
+
+  boolean isMinified(Reader reader) throws IOException {
+    CharBuffer buffer = CharBuffer.allocate(SAMPLE_SIZE);
+    // Reader may return fewer characters than requested, so read until sample is full or end of input
+    int read = 0;
+    while (read != -1 && buffer.hasRemaining()) {
+      read = reader.read(buffer);
+    }
+    buffer.flip();
+    return isMinified(buffer);
+  }
+
+  private boolean isMinified(CharBuffer sample) {
+    int length = sample.remaining();
+    if (length == 0) {
+      return false;
+    }
+
+    int lines = 1;
+    int whitespaces = 0;
+    for (int i = 0; i < length; i++) {
+      char c = sample.get(i);
+      if (c == '\n' && i + 1 < length) {
+        lines++;
+      }
+      if (Character.isWhitespace(c)) {
+        whitespaces++;
+      }
+    }
+
+    if (maxAverageLineLength > 0 && length / lines > maxAverageLineLength) {
+      return true;
+    }
+    return minWhitespaceRatio > 0 && length >= MIN_SAMPLE_SIZE_FOR_WHITESPACE_RATIO && (double) whitespaces / length < minWhitespaceRatio;
+  }
+
+}
@@ -0,0 +1,224 @@
+/*
+ * Sonar JavaScript Plugin
+ * Copyright (C) 2011 Eriks Nukis and SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.javascript;
+
+import com.google.common.base.Function;
+import com.google.common.base.Preconditions;
+import com.google.common.base.Supplier;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Ordering;
+import com.sonar.sslr.squid.AstScanner;
+import org.sonar.javascript.api.EcmaScriptGrammar;
+import org.sonar.javascript.api.EcmaScriptMetric;
+import org.sonar.squid.api.AnalysisException;
+import org.sonar.squid.api.SourceCode;
+import org.sonar.squid.api.SourceCodeSearchEngine;
+import org.sonar.squid.api.SourceProject;
+import org.sonar.squid.indexer.QueryByType;
+import org.sonar.squid.indexer.SquidIndex;
+
+import java.io.File;
+import java.util.AbstractCollection;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Queue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Scans files on several threads. Each worker owns an {@link AstScanner} - and so its own parser, lexer and visitors -
+ * and pulls files from a shared queue. Once all workers are done, their results are merged into a single index.
+ * <p>
+ * Queue is ordered from the most expensive file to the cheapest one: a worker, which becomes idle, takes the next most expensive file,
+ * so that a huge file doesn't end up alone at the tail of analysis, while other workers have nothing to do.
+ * </p>
+ */
+public class ParallelAstScanner {
+
+  private final List<AstScanner<EcmaScriptGrammar>> scanners;
+  private final SquidIndex index = new SquidIndex();
+
+  /**
+   * @param workers number of threads
+   * @param scannerFactory called once per worker, must return a new scanner with new visitors each time
+   */
+  public ParallelAstScanner(int workers, Supplier<AstScanner<EcmaScriptGrammar>> scannerFactory) {
+    Preconditions.checkArgument(workers > 0, "number of workers must be greater than zero");
+    scanners = Lists.newArrayList();
+    for (int i = 0; i < workers; i++) {
+      scanners.add(scannerFactory.get());
+    }
+  }
+
+  public SourceCodeSearchEngine getIndex() {
+    return index;
+  }
+
+  /**
+   * Scans the largest files first.
+   */
+  public void scanFiles(Collection<File> files) {
+    scanFiles(files, largestFirst());
+  }
+
+  /**
+   * @param order order in which files should be scanned - the most expensive first
+   */
+  public void scanFiles(Collection<File> files, Comparator<? super File> order) {
+    List<File> sortedFiles = Lists.newArrayList(files);
+    Collections.sort(sortedFiles, order);
+    final Queue<File> queue = new ConcurrentLinkedQueue<File>(sortedFiles);
+    List<Callable<Void>> tasks = Lists.newArrayList();
+    for (final AstScanner<EcmaScriptGrammar> scanner : scanners) {
+      tasks.add(new Callable<Void>() {
+        public Void call() {
+          // Each scanner must be invoked only once, because it aggregates measures at the end of scanFiles
+          scanner.scanFiles(new FileQueue(queue));
+          return null;
+        }
+      });
+    }
+
+    ExecutorService executor = Executors.newFixedThreadPool(scanners.size());
+    try {
+      for (Future<Void> future : executor.invokeAll(tasks)) {
+        future.get();
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new AnalysisException("Interrupted while scanning files", e);
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) e.getCause();
+      }
+      throw new AnalysisException("Unable to scan files", e.getCause());
+    } finally {
+      executor.shutdownNow();
+    }
+
+    merge(files);
+  }
+
+  /**
+   * Indexes files in the order in which they were given, so that the merged index is the same as the one
+   * produced by a single scanner - keys of functions are not unique across files.
+   */
+  private void merge(Collection<File> files) {
+    SourceProject project = new SourceProject("JavaScript Project");
+    index.index(project);
+    for (AstScanner<EcmaScriptGrammar> scanner : scanners) {
+      SourceCode workerProject = scanner.getIndex().search(new QueryByType(SourceProject.class)).iterator().next();
+      for (EcmaScriptMetric metric : EcmaScriptMetric.values()) {
+        project.add(metric, workerProject);
+      }
+    }
+    for (File file : files) {
+      for (AstScanner<EcmaScriptGrammar> scanner : scanners) {
+        SourceCode sourceFile = scanner.getIndex().search(file.getAbsolutePath());
+        if (sourceFile != null) {
+          indexTree(sourceFile);
+          break;
+        }
+      }
+    }
+  }
+
+  /**
+   * @return ordering from the largest file to the smallest one, which remembers sizes of files, so that each file is queried only once
+   */
+  public static Ordering<File> largestFirst() {
+    final Map<File, Long> sizes = Maps.newHashMap();
+    return Ordering.<Long> natural().reverse().onResultOf(new Function<File, Long>() {
+      public Long apply(File file) {
+        Long size = sizes.get(file);
+        if (size == null) {
+          size = file.length();
+          sizes.put(file, size);
+        }
+        return size;
+      }
+    });
+  }
+
+  private void indexTree(SourceCode sourceCode) {
+    index.index(sourceCode);
+    if (sourceCode.hasChildren()) {
+      for (SourceCode child : sourceCode.getChildren()) {
+        indexTree(child);
+      }
+    }
+  }
+
+  /**
+   * Collection view of a queue shared between workers: iteration removes elements from the queue.
+   */
+  private static class FileQueue extends AbstractCollection<File> {
+
+    private final Queue<File> queue;
+
+    public FileQueue(Queue<File> queue) {
+      this.queue = queue;
+    }
+
+    @Override
+    public Iterator<File> iterator() {
+      return new Iterator<File>() {
+        private File next;
+
+        public boolean hasNext() {
+          if (next == null) {
+            next = queue.poll();
+          }
+          return next != null;
+        }
+
+        public File next() {
+          if (!hasNext()) {
+            throw new NoSuchElementException();
+          }
+          File result = next;
+          next = null;
+          return result;
+        }
+
+        public void remove() {
+          throw new UnsupportedOperationException();
+        }
+      };
+    }
+
+    @Override
+    public int size() {
+      return queue.size();
+    }
+
+  }
+
+}
@@ -0,0 +1,144 @@
+/*
+ * Sonar JavaScript Plugin
+ * Copyright (C) 2011 Eriks Nukis and SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.javascript;
+
+import com.sonar.sslr.api.AstNode;
+import com.sonar.sslr.api.AstNodeType;
+import com.sonar.sslr.squid.SquidAstVisitor;
+import org.sonar.javascript.api.EcmaScriptGrammar;
+import org.sonar.javascript.api.EcmaScriptMetric;
+import org.sonar.javascript.api.UsedAstNodeTypes;
+import org.sonar.squid.api.SourceCode;
+import org.sonar.squid.api.SourceCodeIndexer;
+import org.sonar.squid.api.SourceFile;
+import org.sonar.squid.api.SourceFunction;
+
+import java.util.Collection;
+import java.util.Collections;
+
+/**
+ * Hands over each {@link SourceFile} to a callback as soon as its analysis is complete, and then detaches it from project,
+ * so that memory used by scanner depends on the size of the largest file instead of the number of files.
+ * <p>
+ * Measures of files are aggregated by this visitor, so they are final when given to callback. Index of scanner
+ * contains only project.
+ * </p>
+ */
+public class SourceFileStreamer extends SquidAstVisitor<EcmaScriptGrammar> implements UsedAstNodeTypes {
+
+  public interface Callback {
+    /**
+     * @param functionComplexities complexities of all functions of file, including nested ones
+     */
+    void onSourceFile(SourceFile sourceFile, double[] functionComplexities);
+  }
+
+  private static final SourceCodeIndexer NO_INDEXER = new SourceCodeIndexer() {
+    public void index(SourceCode sourceCode) {
+      sourceCode.setSourceCodeIndexer(this);
+    }
+  };
+
+  private final Callback callback;
+  private SourceFile sourceFile;
+
+  private double[] functionComplexities = new double[64];
+  private int functionsCount;
+
+  public SourceFileStreamer(Callback callback) {
+    this.callback = callback;
+  }
+
+  @Override
+  public void init() {
+    getContext().peekSourceCode().setSourceCodeIndexer(NO_INDEXER);
+  }
+
+  /**
+   * Completion of a file is detected on next file, because {@link #leaveFile(AstNode)} of other visitors
+   * might be called after this one.
+   */
+  @Override
+  public void visitFile(AstNode astNode) {
+    complete();
+    sourceFile = (SourceFile) getContext().peekSourceCode();
+  }
+
+  @Override
+  public void destroy() {
+    complete();
+  }
+
+  /**
+   * Uses only source code tree.
+   */
+  public Collection<AstNodeType> getUsedAstNodeTypes() {
+    return Collections.emptyList();
+  }
+
+  private void complete() {
+    if (sourceFile == null) {
+      return;
+    }
+    SourceFile completed = sourceFile;
+    sourceFile = null;
+    functionsCount = 0;
+    decorate(completed);
+    completed.getParent().getChildren().remove(completed);
+
+    double[] result = new double[functionsCount];
+    System.arraycopy(functionComplexities, 0, result, 0, functionsCount);
+    callback.onSourceFile(completed, result);
+  }
+
+  /**
+   * Same as {@link org.sonar.squid.api.SourceCodeTreeDecorator}, but for a subtree.
+   * Also collects complexities of functions, once they are aggregated.
+   */
+  private void decorate(SourceCode sourceCode) {
+    if (sourceCode.hasChildren()) {
+      for (SourceCode child : sourceCode.getChildren()) {
+        decorate(child);
+      }
+      for (EcmaScriptMetric metric : EcmaScriptMetric.values()) {
+        if (metric.aggregateIfThereIsAlreadyAValue() || sourceCode.getDouble(metric) == 0) {
+          for (SourceCode child : sourceCode.getChildren()) {
+            if (!metric.isCalculatedMetric() && metric.isThereAggregationFormula()) {
+              sourceCode.add(metric, child);
+            }
+          }
+        }
+      }
+    }
+    if (sourceCode instanceof SourceFunction) {
+      addFunctionComplexity(sourceCode.getDouble(EcmaScriptMetric.COMPLEXITY));
+    }
+  }
+
+  private void addFunctionComplexity(double complexity) {
+    if (functionsCount == functionComplexities.length) {
+      double[] newFunctionComplexities = new double[functionComplexities.length * 2];
+      System.arraycopy(functionComplexities, 0, newFunctionComplexities, 0, functionsCount);
+      functionComplexities = newFunctionComplexities;
+    }
+    functionComplexities[functionsCount++] = complexity;
+  }
+
+}
@@ -0,0 +1,243 @@
+/*
+ * Sonar JavaScript Plugin
+ * Copyright (C) 2011 Eriks Nukis and SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.javascript;
+
+import com.google.common.base.Charsets;
+import com.google.common.io.Closeables;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+
+/**
+ * Reads source files using NIO: large files are memory-mapped, smaller ones are read into a buffer, which is reused by the thread,
+ * and then decoded into a {@link CharBuffer}, which is also reused by the thread unless file is large.
+ * Mapping of a file is released as soon as file is decoded, where JVM permits, so that file isn't locked until garbage collection.
+ * Files encoded in ASCII, ISO-8859-1 or UTF-8 are decoded without {@link CharsetDecoder} as long as they contain only ASCII characters.
+ * <p>
+ * Malformed input is replaced exactly like by {@link java.io.InputStreamReader}.
+ * </p>
+ * <p>
+ * Used by {@link MinifiedFileClassifier} and {@link org.sonar.javascript.lexer.EcmaScriptLexer#lexCompact(EcmaScriptConfiguration, File)}.
+ * Lexer of SSLR, which is used by scanner, accepts only files, URLs or strings, and reads files by itself.
+ * </p>
+ */
+public final class SourceReader {
+
+  /**
+   * Files of this size or larger are memory-mapped.
+   */
+  static final int MAPPING_THRESHOLD = 1024 * 1024;
+
+  private static final int INITIAL_CAPACITY = 8 * 1024;
+
+  /**
+   * Characters of larger files are decoded into a new buffer, which is not kept by the thread.
+   */
+  static final int MAX_REUSED_CAPACITY = MAPPING_THRESHOLD;
+
+  private static final Logger LOG = LoggerFactory.getLogger(SourceReader.class);
+
+  private static final Object UNSAFE;
+  private static final Method INVOKE_CLEANER;
+
+  static {
+    Object unsafe = null;
+    Method invokeCleaner = null;
+    try {
+      Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+      invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+      Field field = unsafeClass.getDeclaredField("theUnsafe");
+      field.setAccessible(true);
+      unsafe = field.get(null);
+    } catch (Exception e) {
+      // Java 8 or JVM without sun.misc.Unsafe
+      invokeCleaner = null;
+    }
+    UNSAFE = unsafe;
+    INVOKE_CLEANER = invokeCleaner;
+  }
+
+  private static volatile boolean unmapFailureLogged;
+
+  private static final ThreadLocal<SourceReader> INSTANCES = new ThreadLocal<SourceReader>() {
+    @Override
+    protected SourceReader initialValue() {
+      return new SourceReader();
+    }
+  };
+
+  private ByteBuffer bytes = ByteBuffer.allocate(INITIAL_CAPACITY);
+  private CharBuffer chars = CharBuffer.allocate(INITIAL_CAPACITY);
+  private CharsetDecoder decoder;
+
+  private SourceReader() {
+  }
+
+  /**
+   * Returned buffer remains valid only until next invocation of this method from the same thread.
+   */
+  public static CharBuffer read(File file, Charset charset) throws IOException {
+    return read(file, charset, Integer.MAX_VALUE);
+  }
+
+  /**
+   * Same as {@link #read(File, Charset)}, but decodes at most given number of characters from the beginning of file.
+   */
+  public static CharBuffer read(File file, Charset charset, int maxChars) throws IOException {
+    return INSTANCES.get().doRead(file, charset, maxChars);
+  }
+
+  private CharBuffer doRead(File file, Charset charset, int maxChars) throws IOException {
+    FileInputStream in = new FileInputStream(file);
+    try {
+      FileChannel channel = in.getChannel();
+      long size = channel.size();
+      if (size >= MAPPING_THRESHOLD) {
+        MappedByteBuffer source = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+        try {
+          return decode(source, charset, maxChars);
+        } finally {
+          unmap(source);
+        }
+      }
+      return decode(readFully(channel, (int) size), charset, maxChars);
+    } finally {
+      Closeables.closeQuietly(in);
+    }
+  }
+
+  private ByteBuffer readFully(FileChannel channel, int size) throws IOException {
+    if (bytes.capacity() < size) {
+      bytes = ByteBuffer.allocate(Math.max(size, bytes.capacity() * 2));
+    }
+    bytes.clear();
+    bytes.limit(size);
+    // Channel may return fewer bytes than requested, so read until buffer is full or end of file
+    int read = 0;
+    while (read != -1 && bytes.hasRemaining()) {
+      read = channel.read(bytes);
+    }
+    bytes.flip();
+    return bytes;
+  }
+
+  private CharBuffer decode(ByteBuffer source, Charset charset, int maxChars) {
+    // Each character takes at least one byte
+    int capacity = Math.min(maxChars, source.remaining());
+    CharBuffer target;
+    if (capacity > MAX_REUSED_CAPACITY) {
+      target = CharBuffer.allocate(capacity);
+    } else {
+      if (chars.capacity() < capacity) {
+        chars = CharBuffer.allocate(Math.min(Math.max(capacity, chars.capacity() * 2), MAX_REUSED_CAPACITY));
+      }
+      target = chars;
+    }
+    target.clear();
+    target.limit(capacity);
+
+    if (Charsets.UTF_8.equals(charset) || Charsets.US_ASCII.equals(charset)) {
+      decodeAscii(source, target, false);
+    } else if (Charsets.ISO_8859_1.equals(charset)) {
+      decodeAscii(source, target, true);
+    }
+
+    if (source.hasRemaining() && target.hasRemaining()) {
+      CharsetDecoder charsetDecoder = getDecoder(charset);
+      CoderResult result = charsetDecoder.decode(source, target, true);
+      if (result.isUnderflow()) {
+        charsetDecoder.flush(target);
+      }
+    }
+    target.flip();
+    return target;
+  }
+
+  /**
+   * Copies bytes to characters until first non-ASCII byte, unless all bytes should be copied.
+   */
+  private static void decodeAscii(ByteBuffer source, CharBuffer target, boolean latin1) {
+    char[] array = target.array();
+    int offset = source.position();
+    int length = Math.min(target.remaining(), source.remaining());
+    int i = 0;
+    while (i < length) {
+      byte b = source.get(offset + i);
+      if (b < 0 && !latin1) {
+        break;
+      }
+      array[i] = (char) (b & 0xFF);
+      i++;
+    }
+    source.position(offset + i);
+    target.position(i);
+  }
+
+  /**
+   * There is no public API to release mapping before garbage collection. Where JVM permits, mapping is released
+   * through {@code sun.misc.Unsafe.invokeCleaner} (Java 9 and later) or through cleaner of buffer (Java 8).
+   * Otherwise mapping is left to garbage collector, and this is logged once.
+   */
+  private static void unmap(MappedByteBuffer buffer) {
+    try {
+      if (INVOKE_CLEANER != null) {
+        INVOKE_CLEANER.invoke(UNSAFE, buffer);
+      } else {
+        Method cleanerMethod = buffer.getClass().getMethod("cleaner");
+        cleanerMethod.setAccessible(true);
+        Object cleaner = cleanerMethod.invoke(buffer);
+        if (cleaner != null) {
+          cleaner.getClass().getMethod("clean").invoke(cleaner);
+        }
+      }
+    } catch (Exception e) {
+      // module system of Java 9 and later throws unchecked exceptions, when access is denied
+      if (!unmapFailureLogged) {
+        unmapFailureLogged = true;
+        LOG.debug("Unable to release mapping of file, it will be released by garbage collector", e);
+      }
+    }
+  }
+
+  private CharsetDecoder getDecoder(Charset charset) {
+    if (decoder == null || !decoder.charset().equals(charset)) {
+      decoder = charset.newDecoder()
+          .onMalformedInput(CodingErrorAction.REPLACE)
+          .onUnmappableCharacter(CodingErrorAction.REPLACE);
+    } else {
+      decoder.reset();
+    }
+    return decoder;
+  }
+
+}
@@ -0,0 +1,39 @@
+/*
+ * Sonar JavaScript Plugin
+ * Copyright (C) 2011 Eriks Nukis and SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.javascript.api;
+
+import com.sonar.sslr.api.AstNodeType;
+import com.sonar.sslr.squid.checks.SquidCheck;
+
+import java.util.Collection;
+
+/**
+ * Base class for checks, which must declare nodes they use in addition to those they subscribe to,
+ * so that checks can't be broken by removal of single-child nodes they forgot to declare.
+ */
+public abstract class EcmaScriptCheck extends SquidCheck<EcmaScriptGrammar> implements UsedAstNodeTypes {
+
+  /**
+   * @return types of nodes, which are used by check in addition to those it subscribes to,
+   * or {@link org.sonar.javascript.parser.SingleChildNodes#getCollapsibleRules(EcmaScriptGrammar)}, if check can navigate to any node
+   */
+  public abstract Collection<AstNodeType> getUsedAstNodeTypes();
+
+}
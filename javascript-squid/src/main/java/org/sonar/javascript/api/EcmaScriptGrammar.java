@@ -126,6 +126,18 @@ public class EcmaScriptGrammar extends Grammar {
   public Rule sourceElements;
   public Rule sourceElement;
 
+  /**
+   * Tokens of a statement, which can't be parsed, when parser recovers from errors.
+   */
+  public Rule recoveredStatement;
+
+  /**
+   * Token, which is not parsed: token of {@link #recoveredStatement} or of {@link #functionBody} skipped by
+   * {@link org.sonar.javascript.parser.LazyFunctionBodies}. Nodes of this type are created only by recovery and by skipping,
+   * so that visitors of tokens of particular types, e.g. {@link EcmaScriptKeyword#NEW}, do not see tokens, which were not parsed.
+   */
+  public Rule skippedToken;
+
   @Override
   public Rule getRootRule() {
     return program;
@@ -0,0 +1,40 @@
+/*
+ * Sonar JavaScript Plugin
+ * Copyright (C) 2011 Eriks Nukis and SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.javascript.api;
+
+import com.sonar.sslr.api.AstNodeType;
+
+import java.util.Collection;
+
+/**
+ * Implemented by visitors, which declare types of nodes they navigate to from nodes they subscribe to.
+ * Single-child nodes of other types can be removed from AST, when all visitors make such declaration -
+ * see {@link org.sonar.javascript.EcmaScriptConfiguration#setCollapseSingleChildNodes(boolean)}.
+ */
+public interface UsedAstNodeTypes {
+
+  /**
+   * Called after initialization of visitor.
+   *
+   * @return types of nodes, which are used by visitor in addition to those it subscribes to
+   */
+  Collection<AstNodeType> getUsedAstNodeTypes();
+
+}
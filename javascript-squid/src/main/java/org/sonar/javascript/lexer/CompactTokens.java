@@ -0,0 +1,260 @@
+/*
+ * Sonar JavaScript Plugin
+ * Copyright (C) 2011 Eriks Nukis and SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.javascript.lexer;
+
+import com.sonar.sslr.api.GenericTokenType;
+import com.sonar.sslr.api.Token;
+import com.sonar.sslr.api.TokenType;
+import com.sonar.sslr.api.Trivia;
+import org.sonar.javascript.api.EcmaScriptKeyword;
+import org.sonar.javascript.api.EcmaScriptPunctuator;
+import org.sonar.javascript.api.EcmaScriptTokenType;
+
+import java.net.URI;
+
+/**
+ * Compact representation of tokens of a file: instead of an object per token, types and positions of tokens are stored in parallel arrays,
+ * and values refer to the source code, which is shared by all tokens.
+ * Values, {@link Token}s and {@link Trivia} are created only on demand, so consumers, which need only types and positions, do not create them at all.
+ *
+ * @see EcmaScriptLexer#lexCompact(org.sonar.javascript.EcmaScriptConfiguration, java.io.File)
+ */
+public final class CompactTokens {
+
+  private static final int GENERIC_TYPES = 0;
+  private static final int ECMASCRIPT_TYPES = GENERIC_TYPES + GenericTokenType.values().length;
+  private static final int PUNCTUATORS = ECMASCRIPT_TYPES + EcmaScriptTokenType.values().length;
+  private static final int KEYWORDS = PUNCTUATORS + EcmaScriptPunctuator.values().length;
+  private static final TokenType[] TYPES = new TokenType[KEYWORDS + EcmaScriptKeyword.values().length];
+
+  static {
+    for (GenericTokenType type : GenericTokenType.values()) {
+      TYPES[GENERIC_TYPES + type.ordinal()] = type;
+    }
+    for (EcmaScriptTokenType type : EcmaScriptTokenType.values()) {
+      TYPES[ECMASCRIPT_TYPES + type.ordinal()] = type;
+    }
+    for (EcmaScriptPunctuator type : EcmaScriptPunctuator.values()) {
+      TYPES[PUNCTUATORS + type.ordinal()] = type;
+    }
+    for (EcmaScriptKeyword type : EcmaScriptKeyword.values()) {
+      TYPES[KEYWORDS + type.ordinal()] = type;
+    }
+  }
+
+  private static final int INITIAL_CAPACITY = 64;
+
+  private final URI uri;
+  private final String source;
+
+  /**
+   * Offset of first character of each line.
+   */
+  private final int[] lineStarts;
+
+  private int size;
+  private int[] types = new int[INITIAL_CAPACITY];
+  private int[] offsets = new int[INITIAL_CAPACITY];
+  private int[] lengths = new int[INITIAL_CAPACITY];
+  private int[] lines = new int[INITIAL_CAPACITY];
+  private int[] columns = new int[INITIAL_CAPACITY];
+
+  /**
+   * Number of comments, which precede token or any of previous tokens.
+   */
+  private int[] commentsEnds = new int[INITIAL_CAPACITY];
+
+  private int commentsSize;
+  private int[] commentOffsets = new int[INITIAL_CAPACITY];
+  private int[] commentLengths = new int[INITIAL_CAPACITY];
+  private int[] commentLines = new int[INITIAL_CAPACITY];
+  private int[] commentColumns = new int[INITIAL_CAPACITY];
+
+  CompactTokens(URI uri, String source) {
+    this.uri = uri;
+    this.source = source;
+    this.lineStarts = computeLineStarts(source);
+  }
+
+  /**
+   * Line terminators are the same as in {@link org.sonar.channel.CodeReader}: LF, CR LF and CR.
+   */
+  private static int[] computeLineStarts(String source) {
+    int count = 1;
+    for (int i = 0; i < source.length(); i++) {
+      if (isLineEnd(source, i)) {
+        count++;
+      }
+    }
+    int[] result = new int[count];
+    int line = 1;
+    for (int i = 0; i < source.length(); i++) {
+      if (isLineEnd(source, i)) {
+        result[line] = i + 1;
+        line++;
+      }
+    }
+    return result;
+  }
+
+  private static boolean isLineEnd(String source, int i) {
+    char c = source.charAt(i);
+    return c == '\n' || (c == '\r' && (i + 1 == source.length() || source.charAt(i + 1) != '\n'));
+  }
+
+  void addToken(TokenType type, int line, int column, int length) {
+    if (size == types.length) {
+      types = grow(types);
+      offsets = grow(offsets);
+      lengths = grow(lengths);
+      lines = grow(lines);
+      columns = grow(columns);
+      commentsEnds = grow(commentsEnds);
+    }
+    types[size] = indexOf(type);
+    offsets[size] = lineStarts[line - 1] + column;
+    lengths[size] = length;
+    lines[size] = line;
+    columns[size] = column;
+    commentsEnds[size] = commentsSize;
+    size++;
+  }
+
+  void addComment(int line, int column, int length) {
+    if (commentsSize == commentOffsets.length) {
+      commentOffsets = grow(commentOffsets);
+      commentLengths = grow(commentLengths);
+      commentLines = grow(commentLines);
+      commentColumns = grow(commentColumns);
+    }
+    commentOffsets[commentsSize] = lineStarts[line - 1] + column;
+    commentLengths[commentsSize] = length;
+    commentLines[commentsSize] = line;
+    commentColumns[commentsSize] = column;
+    commentsSize++;
+  }
+
+  private static int[] grow(int[] array) {
+    int[] result = new int[array.length * 2];
+    System.arraycopy(array, 0, result, 0, array.length);
+    return result;
+  }
+
+  private static int indexOf(TokenType type) {
+    if (type instanceof EcmaScriptPunctuator) {
+      return PUNCTUATORS + ((EcmaScriptPunctuator) type).ordinal();
+    } else if (type instanceof EcmaScriptKeyword) {
+      return KEYWORDS + ((EcmaScriptKeyword) type).ordinal();
+    } else if (type instanceof EcmaScriptTokenType) {
+      return ECMASCRIPT_TYPES + ((EcmaScriptTokenType) type).ordinal();
+    } else if (type instanceof GenericTokenType) {
+      return GENERIC_TYPES + ((GenericTokenType) type).ordinal();
+    }
+    throw new IllegalArgumentException("Unsupported token type: " + type);
+  }
+
+  public URI getURI() {
+    return uri;
+  }
+
+  /**
+   * @return number of tokens, including the last one of type {@link GenericTokenType#EOF}
+   */
+  public int size() {
+    return size;
+  }
+
+  public TokenType getType(int i) {
+    return TYPES[types[i]];
+  }
+
+  public int getLine(int i) {
+    return lines[i];
+  }
+
+  public int getColumn(int i) {
+    return columns[i];
+  }
+
+  /**
+   * @return offset of the first character of token in source code
+   */
+  public int getOffset(int i) {
+    return offsets[i];
+  }
+
+  public int getLength(int i) {
+    return lengths[i];
+  }
+
+  public String getValue(int i) {
+    if (getType(i) == GenericTokenType.EOF) {
+      return "EOF";
+    }
+    return source.substring(offsets[i], offsets[i] + lengths[i]);
+  }
+
+  /**
+   * @return number of comments, which precede token
+   */
+  public int getCommentsCount(int i) {
+    return commentsEnds[i] - firstComment(i);
+  }
+
+  private int firstComment(int i) {
+    return i == 0 ? 0 : commentsEnds[i - 1];
+  }
+
+  /**
+   * @return line of j-th comment, which precedes token
+   */
+  public int getCommentLine(int i, int j) {
+    return commentLines[firstComment(i) + j];
+  }
+
+  public String getCommentValue(int i, int j) {
+    int comment = firstComment(i) + j;
+    return source.substring(commentOffsets[comment], commentOffsets[comment] + commentLengths[comment]);
+  }
+
+  /**
+   * Creates token with its trivia. Tokens are not cached, so each invocation returns a new instance.
+   */
+  public Token getToken(int i) {
+    Token.Builder builder = Token.builder()
+        .setType(getType(i))
+        .setValueAndOriginalValue(getValue(i))
+        .setURI(uri)
+        .setLine(lines[i])
+        .setColumn(columns[i]);
+    for (int j = 0; j < getCommentsCount(i); j++) {
+      int comment = firstComment(i) + j;
+      builder.addTrivia(Trivia.createComment(Token.builder()
+          .setType(GenericTokenType.COMMENT)
+          .setValueAndOriginalValue(getCommentValue(i, j))
+          .setURI(uri)
+          .setLine(commentLines[comment])
+          .setColumn(commentColumns[comment])
+          .build()));
+    }
+    return builder.build();
+  }
+
+}
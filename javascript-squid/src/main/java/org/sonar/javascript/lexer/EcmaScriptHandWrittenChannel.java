@@ -0,0 +1,467 @@
+/*
+ * Sonar JavaScript Plugin
+ * Copyright (C) 2011 Eriks Nukis and SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.javascript.lexer;
+
+import com.sonar.sslr.api.GenericTokenType;
+import com.sonar.sslr.api.Token;
+import com.sonar.sslr.api.TokenType;
+import com.sonar.sslr.api.Trivia;
+import com.sonar.sslr.impl.Lexer;
+import org.sonar.channel.Channel;
+import org.sonar.channel.CodeReader;
+import org.sonar.javascript.api.EcmaScriptPunctuator;
+import org.sonar.javascript.api.EcmaScriptTokenType;
+
+
+/**
+ * Replaces all channels of {@link EcmaScriptLexer} except the one for unknown characters: dispatches on the current character
+ * and recognizes tokens without regular expressions, but exactly as described by {@link EcmaScriptLexer#NUMERIC_LITERAL},
+ * {@link EcmaScriptLexer#LITERAL}, {@link EcmaScriptLexer#COMMENT}, {@link EcmaScriptLexer#IDENTIFIER} and {@link EcmaScriptRegexpChannel}.
+ * <p>
+ * Character U+FFFF is treated as end of input, because this is how {@link CodeReader#charAt(int)} reports it.
+ * </p>
+ * <p>
+ * When created for {@link CompactTokens}, tokens and comments are added to them instead of {@link Lexer}, which is not used at all.
+ * </p>
+ */
+public class EcmaScriptHandWrittenChannel extends Channel<Lexer> {
+
+  private static final char EOF = (char) -1;
+
+  private final StringBuilder sb = new StringBuilder();
+
+  private final CompactTokens compactTokens;
+
+  public EcmaScriptHandWrittenChannel() {
+    this(null);
+  }
+
+  EcmaScriptHandWrittenChannel(CompactTokens compactTokens) {
+    this.compactTokens = compactTokens;
+  }
+
+  @Override
+  public boolean consume(CodeReader code, Lexer lexer) {
+    char c = code.charAt(0);
+    switch (c) {
+      case ' ':
+      case '\t':
+      case '\n':
+      case '\u000B':
+      case '\f':
+      case '\r':
+        do {
+          code.pop();
+          c = code.charAt(0);
+        } while (c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r');
+        return true;
+      case '/':
+        char next = code.charAt(1);
+        if (next == '/') {
+          return comment(code, lexer, lineCommentLength(code, 2));
+        } else if (next == '*') {
+          int length = blockCommentLength(code);
+          if (length > 0) {
+            return comment(code, lexer, length);
+          }
+        } else if (guessNextIsRegexp(lexer)) {
+          int length = regexpLength(code);
+          if (length > 0) {
+            return token(code, lexer, EcmaScriptTokenType.REGULAR_EXPRESSION_LITERAL, length);
+          }
+        }
+        return punctuator(code, lexer);
+      case '<':
+        if (code.charAt(1) == '!' && code.charAt(2) == '-' && code.charAt(3) == '-') {
+          return comment(code, lexer, lineCommentLength(code, 4));
+        }
+        return punctuator(code, lexer);
+      case '"':
+      case '\'':
+        int stringLength = stringLength(code, c);
+        if (stringLength > 0) {
+          return token(code, lexer, GenericTokenType.LITERAL, stringLength);
+        }
+        return punctuator(code, lexer);
+      case '.':
+        if (isDigit(code.charAt(1))) {
+          return token(code, lexer, EcmaScriptTokenType.NUMERIC_LITERAL, numericLiteralLength(code));
+        }
+        return punctuator(code, lexer);
+      case '0':
+      case '1':
+      case '2':
+      case '3':
+      case '4':
+      case '5':
+      case '6':
+      case '7':
+      case '8':
+      case '9':
+        return token(code, lexer, EcmaScriptTokenType.NUMERIC_LITERAL, numericLiteralLength(code));
+      default:
+        int identifierLength = EcmaScriptIdentifierChannel.identifierLength(code);
+        if (identifierLength > 0) {
+          return identifier(code, lexer, identifierLength);
+        }
+        return punctuator(code, lexer);
+    }
+  }
+
+  private boolean guessNextIsRegexp(Lexer lexer) {
+    if (compactTokens == null) {
+      return EcmaScriptRegexpChannel.guessNextIsRegexp(lexer);
+    }
+    int last = compactTokens.size() - 1;
+    return last < 0 || EcmaScriptRegexpChannel.guessNextIsRegexp(compactTokens.getType(last), compactTokens.getValue(last));
+  }
+
+  private boolean comment(CodeReader code, Lexer lexer, int length) {
+    int line = code.getLinePosition();
+    int column = code.getColumnPosition();
+    if (compactTokens != null) {
+      compactTokens.addComment(line, column, length);
+      skip(code, length);
+      return true;
+    }
+    Token token = Token.builder()
+        .setType(GenericTokenType.COMMENT)
+        .setValueAndOriginalValue(pop(code, length))
+        .setURI(lexer.getURI())
+        .setLine(line)
+        .setColumn(column)
+        .build();
+    lexer.addTrivia(Trivia.createComment(token));
+    return true;
+  }
+
+  private boolean token(CodeReader code, Lexer lexer, TokenType type, int length) {
+    int line = code.getLinePosition();
+    int column = code.getColumnPosition();
+    if (compactTokens != null) {
+      compactTokens.addToken(type, line, column, length);
+      skip(code, length);
+      return true;
+    }
+    Token token = Token.builder()
+        .setType(type)
+        .setValueAndOriginalValue(pop(code, length))
+        .setURI(lexer.getURI())
+        .setLine(line)
+        .setColumn(column)
+        .build();
+    lexer.addToken(token);
+    return true;
+  }
+
+  private boolean identifier(CodeReader code, Lexer lexer, int length) {
+    TokenType keyword = EcmaScriptIdentifierChannel.keyword(code, length);
+    if (keyword != null) {
+      return token(code, lexer, keyword, length);
+    }
+    return token(code, lexer, GenericTokenType.IDENTIFIER, length);
+  }
+
+  private boolean punctuator(CodeReader code, Lexer lexer) {
+    EcmaScriptPunctuator punctuator = EcmaScriptPunctuatorChannel.match(code);
+    if (punctuator == null) {
+      return false;
+    }
+    return token(code, lexer, punctuator, punctuator.getValue().length());
+  }
+
+  private static void skip(CodeReader code, int length) {
+    for (int i = 0; i < length; i++) {
+      code.pop();
+    }
+  }
+
+  private String pop(CodeReader code, int length) {
+    sb.setLength(0);
+    for (int i = 0; i < length; i++) {
+      code.pop(sb);
+    }
+    return sb.toString();
+  }
+
+  /**
+   * {@code //[^\n\r]*+} or {@code <!--[^\n\r]*+}
+   */
+  private static int lineCommentLength(CodeReader code, int start) {
+    int i = start;
+    char c = code.charAt(i);
+    while (c != '\n' && c != '\r' && c != EOF) {
+      i++;
+      c = code.charAt(i);
+    }
+    return i;
+  }
+
+  /**
+   * {@code /\*[\s\S]*?\*&#47;}
+   *
+   * @return length or -1, if comment is not closed
+   */
+  private static int blockCommentLength(CodeReader code) {
+    int i = 2;
+    char c = code.charAt(i);
+    while (c != EOF) {
+      if (c == '*' && code.charAt(i + 1) == '/') {
+        return i + 2;
+      }
+      i++;
+      c = code.charAt(i);
+    }
+    return -1;
+  }
+
+  /**
+   * {@code "([^"\\]*+(\\[\s\S])?+)*+"} or the same with single quotes.
+   *
+   * @return length or -1, if literal is not closed
+   */
+  private static int stringLength(CodeReader code, char quote) {
+    int i = 1;
+    char c = code.charAt(i);
+    while (c != EOF) {
+      if (c == quote) {
+        return i + 1;
+      } else if (c == '\\') {
+        if (code.charAt(i + 1) == EOF) {
+          return -1;
+        }
+        i += 2;
+      } else {
+        i++;
+      }
+      c = code.charAt(i);
+    }
+    return -1;
+  }
+
+  /**
+   * @return length or -1, if there is no regular expression literal
+   * @see EcmaScriptRegexpChannel
+   */
+  private static int regexpLength(CodeReader code) {
+    int i = 1;
+    while (true) {
+      char c = code.charAt(i);
+      switch (c) {
+        case '/':
+          return EcmaScriptIdentifierChannel.identifierPartEnd(code, i + 1);
+        case '\\':
+          int escapeLength = regexpEscapeLength(code, i);
+          if (escapeLength < 0) {
+            return -1;
+          }
+          i += escapeLength;
+          break;
+        case '[':
+          int classLength = regexpClassLength(code, i);
+          if (classLength < 0) {
+            return -1;
+          }
+          i += classLength;
+          break;
+        case '\r':
+        case '\n':
+        case '\u2028':
+        case '\u2029':
+        case EOF:
+          return -1;
+        default:
+          i++;
+          break;
+      }
+    }
+  }
+
+  /**
+   * Class must contain at least one character.
+   */
+  private static int regexpClassLength(CodeReader code, int start) {
+    int i = start + 1;
+    while (true) {
+      char c = code.charAt(i);
+      switch (c) {
+        case ']':
+          return i == start + 1 ? -1 : i + 1 - start;
+        case '\\':
+          int escapeLength = regexpEscapeLength(code, i);
+          if (escapeLength < 0) {
+            return -1;
+          }
+          i += escapeLength;
+          break;
+        case '\r':
+        case '\n':
+        case '\u2028':
+        case '\u2029':
+        case EOF:
+          return -1;
+        default:
+          i++;
+          break;
+      }
+    }
+  }
+
+  /**
+   * {@code \\(?:[^\r\n\u2028\u2029ux]|u[0-9A-Fa-f]{1,4}|x[0-9A-Fa-f]{2})}
+   */
+  private static int regexpEscapeLength(CodeReader code, int start) {
+    char c = code.charAt(start + 1);
+    switch (c) {
+      case '\r':
+      case '\n':
+      case '\u2028':
+      case '\u2029':
+      case EOF:
+        return -1;
+      case 'u':
+        int digits = 0;
+        while (digits < 4 && isHexDigit(code.charAt(start + 2 + digits))) {
+          digits++;
+        }
+        return digits == 0 ? -1 : 2 + digits;
+      case 'x':
+        return isHexDigit(code.charAt(start + 2)) && isHexDigit(code.charAt(start + 3)) ? 4 : -1;
+      default:
+        return 2;
+    }
+  }
+
+  /**
+   * Alternatives of {@link EcmaScriptLexer#NUMERIC_LITERAL} are tried in the same order.
+   * Current character must be a digit, or a dot followed by a digit.
+   */
+  private static int numericLiteralLength(CodeReader code) {
+    if (code.charAt(0) == '.') {
+      return floatSuffixEnd(code, exponentEnd(code, digitsEnd(code, 1), 'e', 'E'));
+    }
+    int digitsEnd = digitsEnd(code, 0);
+    char c = code.charAt(digitsEnd);
+    if (c == '.') {
+      return floatSuffixEnd(code, exponentEnd(code, digitsEnd(code, digitsEnd + 1), 'e', 'E'));
+    }
+    if (isFloatSuffix(c)) {
+      return digitsEnd + 1;
+    }
+    int i = exponentEnd(code, digitsEnd, 'e', 'E');
+    if (i != digitsEnd) {
+      return floatSuffixEnd(code, i);
+    }
+    if (digitsEnd == 1 && code.charAt(0) == '0') {
+      if (c == 'x' || c == 'X') {
+        int hexDigitsEnd = hexDigitsEnd(code, 2);
+        if (hexDigitsEnd != 2) {
+          return hexLiteralLength(code, hexDigitsEnd);
+        }
+      } else if (c == 'b' || c == 'B') {
+        i = 2;
+        while (code.charAt(i) == '0' || code.charAt(i) == '1') {
+          i++;
+        }
+        if (i != 2) {
+          return intSuffixEnd(code, i);
+        }
+      }
+    }
+    return intSuffixEnd(code, digitsEnd);
+  }
+
+  private static int hexLiteralLength(CodeReader code, int hexDigitsEnd) {
+    if (code.charAt(hexDigitsEnd) == '.') {
+      int i = hexDigitsEnd + 1;
+      char c = code.charAt(i);
+      while (isHexDigit(c) || c == '_') {
+        i++;
+        c = code.charAt(i);
+      }
+      return floatSuffixEnd(code, exponentEnd(code, i, 'p', 'P'));
+    }
+    int i = exponentEnd(code, hexDigitsEnd, 'p', 'P');
+    if (i != hexDigitsEnd) {
+      return floatSuffixEnd(code, i);
+    }
+    return intSuffixEnd(code, hexDigitsEnd);
+  }
+
+  private static int digitsEnd(CodeReader code, int start) {
+    int i = start;
+    while (isDigit(code.charAt(i))) {
+      i++;
+    }
+    return i;
+  }
+
+  private static int hexDigitsEnd(CodeReader code, int start) {
+    int i = start;
+    while (isHexDigit(code.charAt(i))) {
+      i++;
+    }
+    return i;
+  }
+
+  /**
+   * {@code ([Ee][+-]?+[0-9_]++)?+}
+   */
+  private static int exponentEnd(CodeReader code, int start, char lower, char upper) {
+    char c = code.charAt(start);
+    if (c != lower && c != upper) {
+      return start;
+    }
+    int i = start + 1;
+    c = code.charAt(i);
+    if (c == '+' || c == '-') {
+      i++;
+      c = code.charAt(i);
+    }
+    int digitsStart = i;
+    while (isDigit(c) || c == '_') {
+      i++;
+      c = code.charAt(i);
+    }
+    return i == digitsStart ? start : i;
+  }
+
+  private static int floatSuffixEnd(CodeReader code, int i) {
+    return isFloatSuffix(code.charAt(i)) ? i + 1 : i;
+  }
+
+  private static int intSuffixEnd(CodeReader code, int i) {
+    char c = code.charAt(i);
+    return c == 'l' || c == 'L' ? i + 1 : i;
+  }
+
+  private static boolean isFloatSuffix(char c) {
+    return c == 'f' || c == 'F' || c == 'd' || c == 'D';
+  }
+
+  private static boolean isDigit(char c) {
+    return c >= '0' && c <= '9';
+  }
+
+  private static boolean isHexDigit(char c) {
+    return isDigit(c) || (c >= 'a' && c <= 'f') || (c >= 'A' && c <= 'F');
+  }
+
+}
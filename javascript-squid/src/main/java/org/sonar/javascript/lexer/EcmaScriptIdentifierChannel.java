@@ -0,0 +1,192 @@
+/*
+ * Sonar JavaScript Plugin
+ * Copyright (C) 2011 Eriks Nukis and SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.javascript.lexer;
+
+import com.sonar.sslr.api.GenericTokenType;
+import com.sonar.sslr.api.Token;
+import com.sonar.sslr.api.TokenType;
+import com.sonar.sslr.impl.Lexer;
+import org.sonar.channel.Channel;
+import org.sonar.channel.CodeReader;
+import org.sonar.javascript.api.EcmaScriptKeyword;
+
+/**
+ * Recognizes {@link EcmaScriptLexer#IDENTIFIER} and {@link EcmaScriptKeyword}s exactly like
+ * {@link com.sonar.sslr.impl.channel.IdentifierAndKeywordChannel}, but without regular expression:
+ * ASCII characters are classified using lookup tables, and only others using {@link Character}.
+ * Keywords are found using perfect hash, so that no string is created for them.
+ */
+public class EcmaScriptIdentifierChannel extends Channel<Lexer> {
+
+  private static final boolean[] ASCII_IDENTIFIER_START = new boolean[128];
+  private static final boolean[] ASCII_IDENTIFIER_PART = new boolean[128];
+
+  static {
+    for (char c = 0; c < 128; c++) {
+      ASCII_IDENTIFIER_START[c] = Character.isJavaIdentifierStart(c);
+      ASCII_IDENTIFIER_PART[c] = Character.isJavaIdentifierPart(c);
+    }
+  }
+
+  /**
+   * Size of hash table, must be a power of two.
+   */
+  private static final int KEYWORDS_TABLE_SIZE = 128;
+
+  private static final EcmaScriptKeyword[] KEYWORDS = new EcmaScriptKeyword[KEYWORDS_TABLE_SIZE];
+
+  static {
+    for (EcmaScriptKeyword keyword : EcmaScriptKeyword.values()) {
+      String value = keyword.getValue();
+      int hash = hash(value.charAt(0), value.charAt(1), value.charAt(value.length() - 1), value.length());
+      if (KEYWORDS[hash] != null) {
+        throw new IllegalStateException("Hash collision between keywords " + KEYWORDS[hash] + " and " + keyword);
+      }
+      KEYWORDS[hash] = keyword;
+    }
+  }
+
+  private static final char EOF = (char) -1;
+
+  private final StringBuilder sb = new StringBuilder();
+
+  @Override
+  public boolean consume(CodeReader code, Lexer lexer) {
+    int length = identifierLength(code);
+    if (length == 0) {
+      return false;
+    }
+    int line = code.getLinePosition();
+    int column = code.getColumnPosition();
+    TokenType keyword = keyword(code, length);
+    String value;
+    if (keyword == null) {
+      sb.setLength(0);
+      for (int i = 0; i < length; i++) {
+        code.pop(sb);
+      }
+      value = sb.toString();
+    } else {
+      for (int i = 0; i < length; i++) {
+        code.pop();
+      }
+      value = keyword.getValue();
+    }
+    Token token = Token.builder()
+        .setType(keyword == null ? GenericTokenType.IDENTIFIER : keyword)
+        .setValueAndOriginalValue(value)
+        .setURI(lexer.getURI())
+        .setLine(line)
+        .setColumn(column)
+        .build();
+    lexer.addToken(token);
+    return true;
+  }
+
+  /**
+   * Function, which is perfect for values of {@link EcmaScriptKeyword}.
+   */
+  private static int hash(char first, char second, char last, int length) {
+    return (first * 9 + second * 5 + last * 4 + length) & (KEYWORDS_TABLE_SIZE - 1);
+  }
+
+  /**
+   * @param length length of identifier at current position
+   * @return keyword at current position or null
+   */
+  static EcmaScriptKeyword keyword(CodeReader code, int length) {
+    if (length < 2) {
+      return null;
+    }
+    EcmaScriptKeyword keyword = KEYWORDS[hash(code.charAt(0), code.charAt(1), code.charAt(length - 1), length)];
+    if (keyword == null) {
+      return null;
+    }
+    String value = keyword.getValue();
+    if (value.length() != length) {
+      return null;
+    }
+    for (int i = 0; i < length; i++) {
+      if (code.charAt(i) != value.charAt(i)) {
+        return null;
+      }
+    }
+    return keyword;
+  }
+
+  /**
+   * {@code \p{javaJavaIdentifierStart}++\p{javaJavaIdentifierPart}*+}
+   *
+   * @return length or 0, if there is no identifier at current position
+   */
+  static int identifierLength(CodeReader code) {
+    char c = code.charAt(0);
+    if (c < 128) {
+      return ASCII_IDENTIFIER_START[c] ? identifierPartEnd(code, 1) : 0;
+    }
+    int codePoint = codePointAt(code, 0);
+    if (!Character.isJavaIdentifierStart(codePoint)) {
+      return 0;
+    }
+    return identifierPartEnd(code, Character.charCount(codePoint));
+  }
+
+  /**
+   * {@code \p{javaJavaIdentifierPart}*+}
+   *
+   * @return index of first character after identifier part, which starts at given index
+   */
+  static int identifierPartEnd(CodeReader code, int start) {
+    int i = start;
+    while (true) {
+      char c = code.charAt(i);
+      if (c < 128) {
+        if (!ASCII_IDENTIFIER_PART[c]) {
+          return i;
+        }
+        i++;
+      } else {
+        int codePoint = codePointAt(code, i);
+        if (!Character.isJavaIdentifierPart(codePoint)) {
+          return i;
+        }
+        i += Character.charCount(codePoint);
+      }
+    }
+  }
+
+  /**
+   * @return code point at given index or -1 at end of input
+   */
+  static int codePointAt(CodeReader code, int i) {
+    char c = code.charAt(i);
+    if (c == EOF) {
+      return -1;
+    }
+    if (Character.isHighSurrogate(c)) {
+      char low = code.charAt(i + 1);
+      if (Character.isLowSurrogate(low)) {
+        return Character.toCodePoint(c, low);
+      }
+    }
+    return c;
+  }
+
+}
@@ -21,17 +21,18 @@ package org.sonar.javascript.lexer;
 
 import com.sonar.sslr.api.GenericTokenType;
 import com.sonar.sslr.impl.Lexer;
+import com.sonar.sslr.impl.LexerException;
 import com.sonar.sslr.impl.channel.BlackHoleChannel;
-import com.sonar.sslr.impl.channel.IdentifierAndKeywordChannel;
-import com.sonar.sslr.impl.channel.PunctuatorChannel;
 import com.sonar.sslr.impl.channel.UnknownCharacterChannel;
+import org.sonar.channel.CodeReader;
 import org.sonar.javascript.EcmaScriptConfiguration;
-import org.sonar.javascript.api.EcmaScriptKeyword;
-import org.sonar.javascript.api.EcmaScriptPunctuator;
+import org.sonar.javascript.SourceReader;
 import org.sonar.javascript.api.EcmaScriptTokenType;
 
-import static com.sonar.sslr.impl.channel.RegexpChannelBuilder.commentRegexp;
-import static com.sonar.sslr.impl.channel.RegexpChannelBuilder.regexp;
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.util.regex.Pattern;
 
 public final class EcmaScriptLexer {
 
@@ -79,7 +80,23 @@ public final class EcmaScriptLexer {
 
   public static String IDENTIFIER = "\\p{javaJavaIdentifierStart}++\\p{javaJavaIdentifierPart}*+";
 
+  /**
+   * Compiled once per JVM and shared by all lexers, see {@link SharedPatternChannel}.
+   */
+  private static final Pattern COMMENT_PATTERN = Pattern.compile(COMMENT);
+  private static final Pattern LITERAL_PATTERN = Pattern.compile(LITERAL);
+  private static final Pattern NUMERIC_LITERAL_PATTERN = Pattern.compile(NUMERIC_LITERAL);
+
   public static Lexer create(EcmaScriptConfiguration conf) {
+    if (conf.getHandWrittenLexer()) {
+      return Lexer.builder()
+          .withCharset(conf.getCharset())
+          .withFailIfNoChannelToConsumeOneCharacter(true)
+          .withChannel(new EcmaScriptHandWrittenChannel())
+          .withChannel(new UnknownCharacterChannel(true))
+          .build();
+    }
+
     return Lexer.builder()
         .withCharset(conf.getCharset())
 
@@ -90,21 +107,52 @@ public final class EcmaScriptLexer {
         .withChannel(new BlackHoleChannel("\\s++"))
 
         // Comments
-        .withChannel(commentRegexp(COMMENT))
+        .withChannel(SharedPatternChannel.comment(COMMENT_PATTERN))
 
         // String Literals
-        .withChannel(regexp(GenericTokenType.LITERAL, LITERAL))
+        .withChannel(SharedPatternChannel.token(GenericTokenType.LITERAL, LITERAL_PATTERN))
 
         // Regular Expression Literals
         .withChannel(new EcmaScriptRegexpChannel())
 
-        .withChannel(regexp(EcmaScriptTokenType.NUMERIC_LITERAL, NUMERIC_LITERAL))
+        .withChannel(SharedPatternChannel.token(EcmaScriptTokenType.NUMERIC_LITERAL, NUMERIC_LITERAL_PATTERN))
 
-        .withChannel(new IdentifierAndKeywordChannel(IDENTIFIER, true, EcmaScriptKeyword.values()))
-        .withChannel(new PunctuatorChannel(EcmaScriptPunctuator.values()))
+        .withChannel(new EcmaScriptIdentifierChannel())
+        .withChannel(new EcmaScriptPunctuatorChannel())
 
         .withChannel(new UnknownCharacterChannel(true))
 
         .build();
   }
+
+  /**
+   * Lexes given file into {@link CompactTokens} using {@link EcmaScriptHandWrittenChannel}, regardless of {@link EcmaScriptConfiguration#getHandWrittenLexer()}.
+   * Resulting tokens are the same as produced by {@link #create(EcmaScriptConfiguration)}.
+   */
+  public static CompactTokens lexCompact(EcmaScriptConfiguration conf, File file) {
+    try {
+      return lexCompact(file.toURI(), SourceReader.read(file, conf.getCharset()).toString());
+    } catch (IOException e) {
+      throw new LexerException("Unable to lex file: " + file.getAbsolutePath(), e);
+    }
+  }
+
+  static CompactTokens lexCompact(URI uri, String source) {
+    CompactTokens tokens = new CompactTokens(uri, source);
+    EcmaScriptHandWrittenChannel channel = new EcmaScriptHandWrittenChannel(tokens);
+    CodeReader code = new CodeReader(source);
+    while (code.peek() != -1) {
+      if (!channel.consume(code, null)) {
+        // Same as UnknownCharacterChannel
+        int line = code.getLinePosition();
+        int column = code.getColumnPosition();
+        if (code.pop() != UnknownCharacterChannel.BOM_CHAR) {
+          tokens.addToken(GenericTokenType.UNKNOWN_CHAR, line, column, 1);
+        }
+      }
+    }
+    tokens.addToken(GenericTokenType.EOF, code.getLinePosition(), code.getColumnPosition(), 0);
+    return tokens;
+  }
+
 }
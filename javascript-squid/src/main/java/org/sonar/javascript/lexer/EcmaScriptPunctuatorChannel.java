@@ -0,0 +1,121 @@
+/*
+ * Sonar JavaScript Plugin
+ * Copyright (C) 2011 Eriks Nukis and SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.javascript.lexer;
+
+import com.google.common.collect.Lists;
+import com.sonar.sslr.api.Token;
+import com.sonar.sslr.impl.Lexer;
+import org.sonar.channel.Channel;
+import org.sonar.channel.CodeReader;
+import org.sonar.javascript.api.EcmaScriptPunctuator;
+
+import java.util.List;
+
+/**
+ * Recognizes {@link EcmaScriptPunctuator}s exactly like {@link com.sonar.sslr.impl.channel.PunctuatorChannel} - longest first,
+ * but in one pass over characters using a precomputed trie instead of comparing each candidate.
+ */
+public class EcmaScriptPunctuatorChannel extends Channel<Lexer> {
+
+  /**
+   * Range of characters, which appear in punctuators.
+   */
+  private static final char MIN_CHAR = '!';
+  private static final char MAX_CHAR = '~';
+
+  /**
+   * Transitions between nodes of trie: index of next node for each node and character, 0 if there is no transition.
+   * Root of trie has index 0.
+   */
+  private static final int[][] TRANSITIONS;
+
+  /**
+   * Punctuator, which ends at node, or null.
+   */
+  private static final EcmaScriptPunctuator[] PUNCTUATORS;
+
+  static {
+    List<int[]> transitions = Lists.newArrayList();
+    List<EcmaScriptPunctuator> punctuators = Lists.newArrayList();
+    transitions.add(new int[MAX_CHAR - MIN_CHAR + 1]);
+    punctuators.add(null);
+    for (EcmaScriptPunctuator punctuator : EcmaScriptPunctuator.values()) {
+      int node = 0;
+      for (char c : punctuator.getValue().toCharArray()) {
+        int next = transitions.get(node)[c - MIN_CHAR];
+        if (next == 0) {
+          next = transitions.size();
+          transitions.add(new int[MAX_CHAR - MIN_CHAR + 1]);
+          punctuators.add(null);
+          transitions.get(node)[c - MIN_CHAR] = next;
+        }
+        node = next;
+      }
+      punctuators.set(node, punctuator);
+    }
+    TRANSITIONS = transitions.toArray(new int[transitions.size()][]);
+    PUNCTUATORS = punctuators.toArray(new EcmaScriptPunctuator[punctuators.size()]);
+  }
+
+  @Override
+  public boolean consume(CodeReader code, Lexer lexer) {
+    EcmaScriptPunctuator punctuator = match(code);
+    if (punctuator == null) {
+      return false;
+    }
+    String value = punctuator.getValue();
+    Token token = Token.builder()
+        .setType(punctuator)
+        .setValueAndOriginalValue(value)
+        .setURI(lexer.getURI())
+        .setLine(code.getLinePosition())
+        .setColumn(code.getColumnPosition())
+        .build();
+    lexer.addToken(token);
+    for (int i = 0; i < value.length(); i++) {
+      code.pop();
+    }
+    return true;
+  }
+
+  /**
+   * @return longest punctuator at current position or null
+   */
+  static EcmaScriptPunctuator match(CodeReader code) {
+    EcmaScriptPunctuator result = null;
+    int node = 0;
+    int i = 0;
+    while (true) {
+      char c = code.charAt(i);
+      if (c < MIN_CHAR || c > MAX_CHAR) {
+        return result;
+      }
+      node = TRANSITIONS[node][c - MIN_CHAR];
+      if (node == 0) {
+        return result;
+      }
+      if (PUNCTUATORS[node] != null) {
+        result = PUNCTUATORS[node];
+      }
+      i++;
+    }
+  }
+
+}
@@ -19,17 +19,21 @@
  */
 package org.sonar.javascript.lexer;
 
-import com.google.common.annotations.VisibleForTesting;
 import com.google.common.collect.ImmutableSet;
+import com.sonar.sslr.api.GenericTokenType;
 import com.sonar.sslr.api.Token;
+import com.sonar.sslr.api.TokenType;
 import com.sonar.sslr.impl.Lexer;
 import org.sonar.channel.Channel;
 import org.sonar.channel.CodeReader;
+import org.sonar.javascript.api.EcmaScriptKeyword;
+import org.sonar.javascript.api.EcmaScriptPunctuator;
+import org.sonar.javascript.api.EcmaScriptTokenType;
 
 import java.util.List;
 import java.util.Set;
+import java.util.regex.Pattern;
 
-import static com.sonar.sslr.impl.channel.RegexpChannelBuilder.regexp;
 import static org.sonar.javascript.api.EcmaScriptTokenType.REGULAR_EXPRESSION_LITERAL;
 
 /**
@@ -61,26 +65,52 @@ public class EcmaScriptRegexpChannel extends Channel<Lexer> {
       + "\\/"
       + "\\p{javaJavaIdentifierPart}*+";
 
+  private static final Pattern PATTERN = Pattern.compile(REGEXP);
+
   private final Channel<Lexer> delegate;
 
   public EcmaScriptRegexpChannel() {
-    this.delegate = regexp(REGULAR_EXPRESSION_LITERAL, REGEXP);
+    this.delegate = SharedPatternChannel.token(REGULAR_EXPRESSION_LITERAL, PATTERN);
   }
 
   @Override
   public boolean consume(CodeReader code, Lexer output) {
     if (code.peek() == '/') {
-      Token lastToken = getLastToken(output);
-      if (lastToken == null || guessNextIsRegexp(lastToken.getValue())) {
+      if (guessNextIsRegexp(output)) {
         return delegate.consume(code, output);
       }
     }
     return false;
   }
 
-  private static Token getLastToken(Lexer output) {
+  /**
+   * Returns true if a slash at current position of given lexer starts a regular expression instead of div operator.
+   */
+  static boolean guessNextIsRegexp(Lexer output) {
     List<Token> tokens = output.getTokens();
-    return tokens.isEmpty() ? null : tokens.get(tokens.size() - 1);
+    return tokens.isEmpty() || guessNextIsRegexp(tokens.get(tokens.size() - 1));
+  }
+
+  /**
+   * Same as {@link #guessNextIsRegexp(String)}, but uses type of token to avoid string comparisons in most cases.
+   */
+  static boolean guessNextIsRegexp(Token preceder) {
+    return guessNextIsRegexp(preceder.getType(), preceder.getValue());
+  }
+
+  static boolean guessNextIsRegexp(TokenType type, String value) {
+    if (type instanceof EcmaScriptPunctuator) {
+      return PUNCTUATOR_PRECEDERS[((EcmaScriptPunctuator) type).ordinal()];
+    } else if (type instanceof EcmaScriptKeyword) {
+      return KEYWORD_PRECEDERS[((EcmaScriptKeyword) type).ordinal()];
+    } else if (type == GenericTokenType.IDENTIFIER
+      || type == GenericTokenType.LITERAL
+      || type == EcmaScriptTokenType.NUMERIC_LITERAL
+      || type == EcmaScriptTokenType.REGULAR_EXPRESSION_LITERAL) {
+      // None of those can be equal to or end with a preceder
+      return false;
+    }
+    return guessNextIsRegexp(value);
   }
 
   private static final Set<String> WHOLE_TOKENS = ImmutableSet.of(
@@ -135,6 +165,18 @@ public class EcmaScriptRegexpChannel extends Channel<Lexer> {
     , "~" // ~ ditto binary operand
   };
 
+  private static final boolean[] PUNCTUATOR_PRECEDERS = new boolean[EcmaScriptPunctuator.values().length];
+  private static final boolean[] KEYWORD_PRECEDERS = new boolean[EcmaScriptKeyword.values().length];
+
+  static {
+    for (EcmaScriptPunctuator punctuator : EcmaScriptPunctuator.values()) {
+      PUNCTUATOR_PRECEDERS[punctuator.ordinal()] = guessNextIsRegexp(punctuator.getValue());
+    }
+    for (EcmaScriptKeyword keyword : EcmaScriptKeyword.values()) {
+      KEYWORD_PRECEDERS[keyword.ordinal()] = guessNextIsRegexp(keyword.getValue());
+    }
+  }
+
   // The exclusion of ++ and -- from the above is also problematic.
   // Both are prefix and postfix operators.
   // Given that there is rarely a good reason to increment a regular expression
@@ -151,7 +193,6 @@ public class EcmaScriptRegexpChannel extends Channel<Lexer> {
    *
    * @param preceder non-whitespace, non comment token preceding the slash
    */
-  @VisibleForTesting
   static boolean guessNextIsRegexp(String preceder) {
     if (WHOLE_TOKENS.contains(preceder)) {
       return true;
@@ -0,0 +1,89 @@
+/*
+ * Sonar JavaScript Plugin
+ * Copyright (C) 2011 Eriks Nukis and SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.javascript.lexer;
+
+import com.sonar.sslr.api.GenericTokenType;
+import com.sonar.sslr.api.Token;
+import com.sonar.sslr.api.TokenType;
+import com.sonar.sslr.api.Trivia;
+import com.sonar.sslr.impl.Lexer;
+import com.sonar.sslr.impl.LexerException;
+import org.sonar.channel.Channel;
+import org.sonar.channel.CodeReader;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Same as channels of {@link com.sonar.sslr.impl.channel.RegexpChannelBuilder}, but created from a {@link Pattern}, which is compiled once per JVM and shared by all lexers.
+ * Only {@link Matcher} and builders, which are not thread-safe, belong to the channel.
+ */
+final class SharedPatternChannel extends Channel<Lexer> {
+
+  private final StringBuilder tmpBuilder = new StringBuilder();
+  private final Token.Builder tokenBuilder = Token.builder();
+  private final Pattern pattern;
+  private final Matcher matcher;
+
+  /**
+   * Type of produced tokens, or {@link GenericTokenType#COMMENT} for trivia.
+   */
+  private final TokenType type;
+
+  private SharedPatternChannel(Pattern pattern, TokenType type) {
+    this.pattern = pattern;
+    this.matcher = pattern.matcher("");
+    this.type = type;
+  }
+
+  static SharedPatternChannel comment(Pattern pattern) {
+    return new SharedPatternChannel(pattern, GenericTokenType.COMMENT);
+  }
+
+  static SharedPatternChannel token(TokenType type, Pattern pattern) {
+    return new SharedPatternChannel(pattern, type);
+  }
+
+  @Override
+  public boolean consume(CodeReader code, Lexer lexer) {
+    try {
+      if (code.popTo(matcher, tmpBuilder) > 0) {
+        Token token = tokenBuilder
+            .setType(type)
+            .setValueAndOriginalValue(tmpBuilder.toString())
+            .setURI(lexer.getURI())
+            .setLine(code.getPreviousCursor().getLine())
+            .setColumn(code.getPreviousCursor().getColumn())
+            .build();
+        if (type == GenericTokenType.COMMENT) {
+          lexer.addTrivia(Trivia.createComment(token));
+        } else {
+          lexer.addToken(token);
+        }
+        tmpBuilder.setLength(0);
+        return true;
+      }
+      return false;
+    } catch (StackOverflowError e) {
+      throw new LexerException("The regular expression " + pattern.pattern() + " has led to a stack overflow error.", e);
+    }
+  }
+
+}
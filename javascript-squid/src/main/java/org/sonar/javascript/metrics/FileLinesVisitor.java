@@ -29,14 +29,17 @@ import org.sonar.api.resources.File;
 import org.sonar.api.resources.Project;
 import org.sonar.javascript.api.EcmaScriptGrammar;
 import org.sonar.javascript.api.EcmaScriptMetric;
+import org.sonar.javascript.api.UsedAstNodeTypes;
 
+import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 import java.util.Set;
 
 /**
  * Visitor that computes {@link CoreMetrics#NCLOC_DATA_KEY} and {@link CoreMetrics#COMMENT_LINES_DATA_KEY} metrics used by the DevCockpit.
  */
-public class FileLinesVisitor extends SquidAstVisitor<EcmaScriptGrammar> implements AstAndTokenVisitor {
+public class FileLinesVisitor extends SquidAstVisitor<EcmaScriptGrammar> implements AstAndTokenVisitor, UsedAstNodeTypes {
 
   private final Project project;
   private final FileLinesContextFactory fileLinesContextFactory;
@@ -79,4 +82,11 @@ public class FileLinesVisitor extends SquidAstVisitor<EcmaScriptGrammar> impleme
     linesOfComments.clear();
   }
 
+  /**
+   * Uses only tokens.
+   */
+  public Collection<AstNodeType> getUsedAstNodeTypes() {
+    return Collections.emptyList();
+  }
+
 }
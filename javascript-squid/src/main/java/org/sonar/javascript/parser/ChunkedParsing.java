@@ -0,0 +1,59 @@
+/*
+ * Sonar JavaScript Plugin
+ * Copyright (C) 2011 Eriks Nukis and SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.javascript.parser;
+
+import org.sonar.javascript.api.EcmaScriptGrammar;
+
+import static com.sonar.sslr.api.GenericTokenType.EOF;
+import static com.sonar.sslr.impl.matcher.GrammarFunctions.Standard.firstOf;
+import static com.sonar.sslr.impl.matcher.GrammarFunctions.Standard.opt;
+
+/**
+ * Makes parser split huge programs into chunks at top-level boundaries of source elements and parse chunks in parallel,
+ * while producing the same tree as sequential parsing.
+ *
+ * @see ChunkedSourceElementsMatcher
+ */
+public final class ChunkedParsing {
+
+  /**
+   * Smaller files are not worth the overhead of threads.
+   */
+  static final int MIN_CHUNK_TOKENS = 10000;
+
+  private ChunkedParsing() {
+  }
+
+  public static void apply(EcmaScriptGrammar grammar, int threads) {
+    apply(grammar, threads, MIN_CHUNK_TOKENS);
+  }
+
+  static void apply(EcmaScriptGrammar grammar, int threads, int minChunkTokens) {
+    grammar.program.override(opt(firstOf(new ChunkedSourceElementsMatcher(grammar, threads, minChunkTokens), grammar.sourceElements)), EOF);
+  }
+
+  /**
+   * Implemented by parsing event listeners, which don't observe rules, so don't need to be notified by threads, which parse chunks.
+   * Any other listener, except {@link ParseTimeoutWatchdog}, makes parser parse sequentially.
+   */
+  public interface CompatibleListener {
+  }
+
+}
@@ -0,0 +1,355 @@
+/*
+ * Sonar JavaScript Plugin
+ * Copyright (C) 2011 Eriks Nukis and SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.javascript.parser;
+
+import com.google.common.collect.Lists;
+import com.sonar.sslr.api.AstNode;
+import com.sonar.sslr.api.GenericTokenType;
+import com.sonar.sslr.api.RecognitionException;
+import com.sonar.sslr.api.RecognitionExceptionListener;
+import com.sonar.sslr.api.Token;
+import com.sonar.sslr.api.TokenType;
+import com.sonar.sslr.impl.BacktrackingEvent;
+import com.sonar.sslr.impl.ParsingState;
+import com.sonar.sslr.impl.events.ParsingEventListener;
+import com.sonar.sslr.impl.matcher.Matcher;
+import com.sonar.sslr.impl.matcher.RuleDefinition;
+import com.sonar.sslr.impl.matcher.RuleMatcher;
+import org.sonar.javascript.api.EcmaScriptGrammar;
+import org.sonar.javascript.api.EcmaScriptKeyword;
+import org.sonar.javascript.api.EcmaScriptPunctuator;
+
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Matches {@link EcmaScriptGrammar#sourceElements} of a program by splitting its tokens into chunks at top-level boundaries
+ * of source elements, and by parsing chunks on separate threads. Nodes of source elements of all chunks are children of a single node,
+ * so tree is the same as produced by {@link EcmaScriptGrammar#sourceElements} itself.
+ * <p>
+ * Boundaries are found by a scan of tokens, which tracks nesting of parentheses, brackets and curly braces: at nesting level 0
+ * a source element can start after a semicolon, unless it is followed by a keyword, which continues a statement (like "else"),
+ * or after a closing curly brace, if it is followed by a token, which can't continue an expression.
+ * </p>
+ * <p>
+ * Doesn't match, so that program is parsed sequentially, when file is too small, when there are no boundaries,
+ * when rules are observed by parsing event listeners or by extended stack trace, which are not thread-safe,
+ * and when parsing of some chunk fails or recovers from an error, so that errors are reported exactly as without chunks.
+ * Once some chunk fails, parsing of other chunks is cancelled at the next rule they enter, because interruption of threads
+ * doesn't stop matchers.
+ * </p>
+ * <p>
+ * {@link ParseTimeoutWatchdog} doesn't prevent parsing in chunks: threads, which parse chunks, check its clock,
+ * so that parsing of all chunks is cancelled by timeout, and {@link ParseTimeoutException} is thrown as without chunks.
+ * </p>
+ */
+final class ChunkedSourceElementsMatcher extends Matcher {
+
+  private final Matcher sourceElements;
+  private final int threads;
+  private final int minChunkTokens;
+
+  ChunkedSourceElementsMatcher(EcmaScriptGrammar grammar, int threads, int minChunkTokens) {
+    this.sourceElements = ((RuleDefinition) grammar.sourceElements).getRule();
+    this.threads = threads;
+    this.minChunkTokens = minChunkTokens;
+  }
+
+  @Override
+  public AstNode match(ParsingState parsingState) {
+    if (parsingState.extendedStackTrace != null) {
+      throw BacktrackingEvent.create();
+    }
+    ParseTimeoutWatchdog watchdog = getWatchdog(parsingState);
+    int startIndex = parsingState.lexerIndex;
+    int endIndex = parsingState.lexerSize - 1;
+    int[] starts = split(parsingState, startIndex, endIndex, threads, minChunkTokens);
+    if (starts.length < 2) {
+      throw BacktrackingEvent.create();
+    }
+    List<AstNode> chunks = parseChunks(parsingState, starts, endIndex, watchdog);
+    if (chunks == null) {
+      if (watchdog != null && watchdog.isExpired()) {
+        throw new ParseTimeoutException(watchdog.getTimeout(), parsingState);
+      }
+      throw BacktrackingEvent.create();
+    }
+    AstNode first = chunks.get(0);
+    AstNode node = new AstNode(first.getType(), first.getName(), first.getToken());
+    for (AstNode chunk : chunks) {
+      for (AstNode child : chunk.getChildren()) {
+        node.addChild(child);
+      }
+    }
+    node.setFromIndex(startIndex);
+    node.setToIndex(endIndex);
+    parsingState.lexerIndex = endIndex;
+    return node;
+  }
+
+  /**
+   * @return watchdog, which observes parse, or null
+   * @throws BacktrackingEvent if parse is observed by a listener, which is not compatible with chunks
+   */
+  private static ParseTimeoutWatchdog getWatchdog(ParsingState parsingState) {
+    ParseTimeoutWatchdog watchdog = null;
+    if (parsingState.parsingEventListeners != null) {
+      for (ParsingEventListener listener : parsingState.parsingEventListeners) {
+        if (listener instanceof ParseTimeoutWatchdog) {
+          watchdog = (ParseTimeoutWatchdog) listener;
+        } else if (!(listener instanceof ChunkedParsing.CompatibleListener)) {
+          throw BacktrackingEvent.create();
+        }
+      }
+    }
+    return watchdog;
+  }
+
+  /**
+   * @param watchdog can be null
+   * @return null, if parsing of some chunk failed, recovered from an error or was cancelled by timeout
+   */
+  private List<AstNode> parseChunks(ParsingState parsingState, int[] starts, int endIndex, ParseTimeoutWatchdog watchdog) {
+    ExecutorService executor = Executors.newFixedThreadPool(Math.min(threads, starts.length));
+    AtomicBoolean failed = new AtomicBoolean();
+    try {
+      List<Future<AstNode>> futures = Lists.newArrayList();
+      for (int i = 0; i < starts.length; i++) {
+        List<Token> tokens = chunkTokens(parsingState, starts[i], i + 1 < starts.length ? starts[i + 1] : endIndex);
+        futures.add(executor.submit(new ChunkParser(tokens, starts[i], failed, watchdog)));
+      }
+      List<AstNode> result = Lists.newArrayList();
+      for (Future<AstNode> future : futures) {
+        AstNode chunk = future.get();
+        if (chunk == null) {
+          return null;
+        }
+        result.add(chunk);
+      }
+      return result;
+    } catch (InterruptedException e) {
+      failed.set(true);
+      Thread.currentThread().interrupt();
+      return null;
+    } catch (ExecutionException e) {
+      // e.g. StackOverflowError, which will be reproduced by sequential parsing
+      return null;
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  /**
+   * @return tokens from start (inclusive) to end (exclusive) followed by end of file
+   */
+  private static List<Token> chunkTokens(ParsingState parsingState, int start, int end) {
+    List<Token> tokens = Lists.newArrayListWithCapacity(end - start + 1);
+    for (int i = start; i < end; i++) {
+      tokens.add(parsingState.readToken(i));
+    }
+    Token next = parsingState.readToken(end);
+    if (next.getType() == GenericTokenType.EOF) {
+      tokens.add(next);
+    } else {
+      tokens.add(Token.builder()
+          .setType(GenericTokenType.EOF)
+          .setValueAndOriginalValue("EOF")
+          .setURI(next.getURI())
+          .setLine(next.getLine())
+          .setColumn(next.getColumn())
+          .build());
+    }
+    return tokens;
+  }
+
+  private class ChunkParser implements Callable<AstNode>, RecognitionExceptionListener {
+
+    private final List<Token> tokens;
+    private final int offset;
+    private final AtomicBoolean failed;
+    private final ParseTimeoutWatchdog watchdog;
+    private boolean recovered;
+
+    /**
+     * @param offset index of first token of chunk in program
+     * @param failed shared by all chunks of program
+     * @param watchdog of program, can be null
+     */
+    public ChunkParser(List<Token> tokens, int offset, AtomicBoolean failed, ParseTimeoutWatchdog watchdog) {
+      this.tokens = tokens;
+      this.offset = offset;
+      this.failed = failed;
+      this.watchdog = watchdog;
+    }
+
+    public AstNode call() {
+      AstNode node = null;
+      try {
+        node = parse();
+        return node;
+      } finally {
+        if (node == null) {
+          failed.set(true);
+        }
+      }
+    }
+
+    private AstNode parse() {
+      if (failed.get()) {
+        return null;
+      }
+      ParsingState chunkState = new ParsingState(tokens);
+      chunkState.addListeners(this);
+      chunkState.parsingEventListeners = new ParsingEventListener[] {new CancellationListener(failed, watchdog)};
+      AstNode node;
+      try {
+        node = sourceElements.match(chunkState);
+      } catch (BacktrackingEvent e) {
+        return null;
+      } catch (ChunkCancelledException e) {
+        return null;
+      }
+      if (chunkState.lexerIndex != tokens.size() - 1 || recovered) {
+        return null;
+      }
+      shiftIndexes(node, offset);
+      return node;
+    }
+
+    public void processRecognitionException(RecognitionException e) {
+      recovered = true;
+      failed.set(true);
+    }
+
+  }
+
+  /**
+   * Makes token indexes of nodes of a chunk relative to the beginning of program instead of the beginning of chunk.
+   */
+  private static void shiftIndexes(AstNode node, int offset) {
+    node.setFromIndex(node.getFromIndex() + offset);
+    node.setToIndex(node.getToIndex() + offset);
+    for (AstNode child : node.getChildren()) {
+      shiftIndexes(child, offset);
+    }
+  }
+
+  /**
+   * Stops parsing of a chunk, once parsing of another chunk of the same program has failed, or once time allowed to parse program is over.
+   * Flag and clock are checked only once in a while, so that overhead is negligible.
+   */
+  static class CancellationListener extends ParsingEventListener {
+
+    static final int CHECK_INTERVAL = 1024;
+
+    private final AtomicBoolean failed;
+    private final ParseTimeoutWatchdog watchdog;
+    private int countdown = CHECK_INTERVAL;
+
+    /**
+     * @param watchdog can be null
+     */
+    public CancellationListener(AtomicBoolean failed, ParseTimeoutWatchdog watchdog) {
+      this.failed = failed;
+      this.watchdog = watchdog;
+    }
+
+    @Override
+    public void enterRule(RuleMatcher rule, ParsingState parsingState) {
+      if (--countdown == 0) {
+        countdown = CHECK_INTERVAL;
+        if (failed.get()) {
+          throw new ChunkCancelledException();
+        }
+        if (watchdog != null && watchdog.isExpired()) {
+          failed.set(true);
+          throw new ChunkCancelledException();
+        }
+      }
+    }
+
+  }
+
+  static class ChunkCancelledException extends RuntimeException {
+  }
+
+  /**
+   * @return indexes of first tokens of chunks, which contain at least given number of tokens, at most given number of chunks
+   */
+  static int[] split(ParsingState parsingState, int startIndex, int endIndex, int maxChunks, int minChunkTokens) {
+    int chunkTokens = Math.max(minChunkTokens, (endIndex - startIndex) / maxChunks);
+    List<Integer> starts = Lists.newArrayList();
+    starts.add(startIndex);
+    int depth = 0;
+    for (int i = startIndex; i < endIndex - minChunkTokens && starts.size() < maxChunks; i++) {
+      TokenType type = parsingState.readToken(i).getType();
+      if (type == EcmaScriptPunctuator.LPARENTHESIS || type == EcmaScriptPunctuator.LBRACKET || type == EcmaScriptPunctuator.LCURLYBRACE) {
+        depth++;
+      } else if (type == EcmaScriptPunctuator.RPARENTHESIS || type == EcmaScriptPunctuator.RBRACKET || type == EcmaScriptPunctuator.RCURLYBRACE) {
+        depth--;
+        if (depth < 0) {
+          break;
+        }
+      }
+      // chunk ends at the first boundary after its ideal end, so that deviations do not accumulate
+      int next = i + 1;
+      if (depth == 0 && next >= startIndex + starts.size() * chunkTokens && next - starts.get(starts.size() - 1) >= minChunkTokens
+          && isBoundary(type, parsingState.readToken(next).getType())) {
+        starts.add(next);
+      }
+    }
+    int[] result = new int[starts.size()];
+    for (int i = 0; i < result.length; i++) {
+      result[i] = starts.get(i);
+    }
+    return result;
+  }
+
+  /**
+   * @return true, if source element can start between tokens of given types at top level
+   */
+  static boolean isBoundary(TokenType previous, TokenType next) {
+    if (next == EcmaScriptKeyword.ELSE || next == EcmaScriptKeyword.WHILE || next == EcmaScriptKeyword.CATCH || next == EcmaScriptKeyword.FINALLY) {
+      return false;
+    }
+    if (previous == EcmaScriptPunctuator.SEMI) {
+      return true;
+    }
+    if (previous == EcmaScriptPunctuator.RCURLYBRACE) {
+      if (next instanceof EcmaScriptPunctuator) {
+        // semicolon belongs to the statement, which ends with the curly brace
+        return next == EcmaScriptPunctuator.LCURLYBRACE;
+      }
+      return next != EcmaScriptKeyword.IN && next != EcmaScriptKeyword.INSTANCEOF;
+    }
+    return false;
+  }
+
+  @Override
+  public String toString() {
+    return "chunkedSourceElements";
+  }
+
+}
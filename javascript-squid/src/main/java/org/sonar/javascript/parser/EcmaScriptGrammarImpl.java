@@ -19,12 +19,12 @@
  */
 package org.sonar.javascript.parser;
 
-import com.sonar.sslr.impl.matcher.GrammarFunctions;
 import org.sonar.javascript.api.EcmaScriptGrammar;
 
 import static com.sonar.sslr.api.GenericTokenType.EOF;
 import static com.sonar.sslr.api.GenericTokenType.IDENTIFIER;
 import static com.sonar.sslr.api.GenericTokenType.LITERAL;
+import static com.sonar.sslr.impl.matcher.GrammarFunctions.Advanced.anyToken;
 import static com.sonar.sslr.impl.matcher.GrammarFunctions.Predicate.next;
 import static com.sonar.sslr.impl.matcher.GrammarFunctions.Predicate.not;
 import static com.sonar.sslr.impl.matcher.GrammarFunctions.Standard.and;
@@ -120,6 +120,22 @@ import static org.sonar.javascript.api.EcmaScriptTokenType.REGULAR_EXPRESSION_LI
 public class EcmaScriptGrammarImpl extends EcmaScriptGrammar {
 
   public EcmaScriptGrammarImpl() {
+    this(MemoizationPolicy.ALL);
+  }
+
+  public EcmaScriptGrammarImpl(MemoizationPolicy memoizationPolicy) {
+    this(memoizationPolicy, false);
+  }
+
+  public EcmaScriptGrammarImpl(MemoizationPolicy memoizationPolicy, boolean precedenceClimbing) {
+    this(memoizationPolicy, precedenceClimbing, false);
+  }
+
+  /**
+   * @param precedenceClimbing whether to match assignment expressions by {@link PrecedenceClimbingMatcher} instead of a rule per level of precedence
+   * @param errorRecovery whether to skip statements, which can't be parsed - see {@link EcmaScriptGrammar#recoveredStatement}
+   */
+  public EcmaScriptGrammarImpl(MemoizationPolicy memoizationPolicy, boolean precedenceClimbing, boolean errorRecovery) {
     eos.is(firstOf(
         opt(SEMI),
         next(RCURLYBRACE),
@@ -144,17 +160,17 @@ public class EcmaScriptGrammarImpl extends EcmaScriptGrammar {
     stringLiteral.is(LITERAL);
     regularExpressionLiteral.is(REGULAR_EXPRESSION_LITERAL);
 
-    expressions();
-    statements();
-    functionsAndPrograms();
+    expressions(precedenceClimbing);
+    statements(errorRecovery);
+    functionsAndPrograms(errorRecovery);
 
-    GrammarFunctions.enableMemoizationOfMatchesForAllRules(this);
+    memoizationPolicy.apply(this);
   }
 
   /**
    * A.3 Expressions
    */
-  private void expressions() {
+  private void expressions(boolean precedenceClimbing) {
     primaryExpression.is(firstOf(
         THIS,
         IDENTIFIER,
@@ -234,12 +250,17 @@ public class EcmaScriptGrammarImpl extends EcmaScriptGrammar {
     conditionalExpression.is(logicalOrExpression, opt(QUERY, assignmentExpression, COLON, assignmentExpression)).skipIfOneChild();
     conditionalExpressionNoIn.is(logicalOrExpressionNoIn, opt(QUERY, assignmentExpression, COLON, assignmentExpressionNoIn)).skipIfOneChild();
 
-    assignmentExpression.is(firstOf(
-        and(leftHandSideExpression, assignmentOperator, assignmentExpression),
-        conditionalExpression)).skipIfOneChild();
-    assignmentExpressionNoIn.is(firstOf(
-        and(leftHandSideExpression, assignmentOperator, assignmentExpressionNoIn),
-        conditionalExpressionNoIn)).skipIfOneChild();
+    if (precedenceClimbing) {
+      assignmentExpression.is(new PrecedenceClimbingMatcher(this, false)).skipIfOneChild();
+      assignmentExpressionNoIn.is(new PrecedenceClimbingMatcher(this, true)).skipIfOneChild();
+    } else {
+      assignmentExpression.is(firstOf(
+          and(leftHandSideExpression, assignmentOperator, assignmentExpression),
+          conditionalExpression)).skipIfOneChild();
+      assignmentExpressionNoIn.is(firstOf(
+          and(leftHandSideExpression, assignmentOperator, assignmentExpressionNoIn),
+          conditionalExpressionNoIn)).skipIfOneChild();
+    }
 
     assignmentOperator.is(firstOf(
         EQU,
@@ -262,7 +283,7 @@ public class EcmaScriptGrammarImpl extends EcmaScriptGrammar {
   /**
    * A.4 Statement
    */
-  private void statements() {
+  private void statements(boolean errorRecovery) {
     statement.is(firstOf(
         block,
         variableStatement,
@@ -280,7 +301,13 @@ public class EcmaScriptGrammarImpl extends EcmaScriptGrammar {
         tryStatement,
         debuggerStatement));
     block.is(LCURLYBRACE, opt(statementList), RCURLYBRACE);
-    statementList.is(one2n(firstOf(statement, permissive(functionDeclaration))));
+    if (errorRecovery) {
+      statementList.is(one2n(firstOf(statement, permissive(functionDeclaration), recoveredStatement)));
+    } else {
+      statementList.is(one2n(firstOf(statement, permissive(functionDeclaration))));
+    }
+    recoveredStatement.is(new StatementRecoveryMatcher(skippedToken)).recoveryRule();
+    skippedToken.is(anyToken());
     variableStatement.is(VAR, variableDeclarationList, eos);
     variableDeclarationList.is(variableDeclaration, o2n(COMMA, variableDeclaration));
     variableDeclarationListNoIn.is(variableDeclarationNoIn, o2n(COMMA, variableDeclarationNoIn));
@@ -332,13 +359,17 @@ public class EcmaScriptGrammarImpl extends EcmaScriptGrammar {
   /**
    * A.5 Functions and Programs
    */
-  private void functionsAndPrograms() {
+  private void functionsAndPrograms(boolean errorRecovery) {
     functionDeclaration.is(FUNCTION, IDENTIFIER, LPARENTHESIS, opt(formalParameterList), RPARENTHESIS, LCURLYBRACE, functionBody, RCURLYBRACE);
     functionExpression.is(FUNCTION, opt(IDENTIFIER), LPARENTHESIS, opt(formalParameterList), RPARENTHESIS, LCURLYBRACE, functionBody, RCURLYBRACE);
     formalParameterList.is(IDENTIFIER, o2n(COMMA, IDENTIFIER));
     functionBody.is(opt(sourceElements));
     program.is(opt(sourceElements), EOF);
-    sourceElements.is(one2n(sourceElement));
+    if (errorRecovery) {
+      sourceElements.is(one2n(firstOf(sourceElement, recoveredStatement)));
+    } else {
+      sourceElements.is(one2n(sourceElement));
+    }
     sourceElement.is(firstOf(
         statement,
         functionDeclaration));
@@ -19,19 +19,74 @@
  */
 package org.sonar.javascript.parser;
 
+import com.google.common.collect.Maps;
 import com.sonar.sslr.impl.Parser;
 import com.sonar.sslr.impl.events.ParsingEventListener;
 import org.sonar.javascript.EcmaScriptConfiguration;
 import org.sonar.javascript.api.EcmaScriptGrammar;
 import org.sonar.javascript.lexer.EcmaScriptLexer;
 
+import java.util.Map;
+
 public final class EcmaScriptParser {
 
+  /**
+   * Guards {@link #SHARED_GRAMMARS}, so that shared grammar is built only once. Construction of grammars and parsers needs no lock,
+   * because cache of {@link com.sonar.sslr.impl.matcher.GrammarFunctions}, which is reset and filled by it, is local to thread.
+   */
+  private static final Object LOCK = new Object();
+
+  private static final Map<String, EcmaScriptGrammar> SHARED_GRAMMARS = Maps.newHashMap();
+
   private EcmaScriptParser() {
   }
 
+  /**
+   * Creates parser with its own grammar, which can be modified, for example by {@link SingleChildNodes} or {@link LazyFunctionBodies}.
+   * Used by {@link org.sonar.javascript.JavaScriptAstScanner}, when it modifies grammar depending on rules used by its visitors,
+   * so pays for construction of grammar once per scanner - see StartupBenchmark.
+   */
   public static Parser<EcmaScriptGrammar> create(EcmaScriptConfiguration conf, ParsingEventListener... parsingEventListeners) {
-    return Parser.builder((EcmaScriptGrammar) new EcmaScriptGrammarImpl())
+    return Parser.builder(createGrammar(conf))
+        .withLexer(EcmaScriptLexer.create(conf))
+        .setParsingEventListeners(parsingEventListeners).build();
+  }
+
+  /**
+   * Creates parser with grammar, which is built once per JVM for given memoization policy, precedence climbing, error recovery and chunked parsing,
+   * and shared by all parsers created by this method with the same settings, including parsers used concurrently.
+   * Matchers of grammar keep no state between matches, but shared grammar must not be modified.
+   */
+  public static Parser<EcmaScriptGrammar> createWithSharedGrammar(EcmaScriptConfiguration conf, ParsingEventListener... parsingEventListeners) {
+    String key = conf.getMemoizationPolicy() + ":" + conf.getPrecedenceClimbing() + ":" + conf.getErrorRecovery() + ":" + conf.getChunkedParsingThreads();
+    EcmaScriptGrammar grammar;
+    synchronized (LOCK) {
+      grammar = SHARED_GRAMMARS.get(key);
+      if (grammar == null) {
+        grammar = createGrammar(conf);
+        SHARED_GRAMMARS.put(key, grammar);
+      }
+    }
+    return Parser.builder(grammar)
+        .withLexer(EcmaScriptLexer.create(conf))
+        .setParsingEventListeners(parsingEventListeners).build();
+  }
+
+  private static EcmaScriptGrammar createGrammar(EcmaScriptConfiguration conf) {
+    EcmaScriptGrammar grammar = new EcmaScriptGrammarImpl(conf.getMemoizationPolicy(), conf.getPrecedenceClimbing(), conf.getErrorRecovery());
+    if (conf.getChunkedParsingThreads() > 1) {
+      ChunkedParsing.apply(grammar, conf.getChunkedParsingThreads());
+    }
+    return grammar;
+  }
+
+  /**
+   * Creates parser, which doesn't recognize syntax, but only produces a flat list of tokens.
+   *
+   * @see EcmaScriptTokensGrammarImpl
+   */
+  public static Parser<EcmaScriptGrammar> createTokensOnly(EcmaScriptConfiguration conf, ParsingEventListener... parsingEventListeners) {
+    return Parser.builder((EcmaScriptGrammar) new EcmaScriptTokensGrammarImpl())
         .withLexer(EcmaScriptLexer.create(conf))
         .setParsingEventListeners(parsingEventListeners).build();
   }
@@ -0,0 +1,38 @@
+/*
+ * Sonar JavaScript Plugin
+ * Copyright (C) 2011 Eriks Nukis and SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.javascript.parser;
+
+import org.sonar.javascript.api.EcmaScriptGrammar;
+
+import static com.sonar.sslr.api.GenericTokenType.EOF;
+import static com.sonar.sslr.impl.matcher.GrammarFunctions.Advanced.anyTokenButNot;
+import static com.sonar.sslr.impl.matcher.GrammarFunctions.Standard.o2n;
+
+/**
+ * Grammar, which accepts any sequence of tokens: {@link #program} is a flat list of tokens, and other rules never match.
+ * Used to compute metrics based on tokens for files, which are too expensive to parse.
+ */
+public class EcmaScriptTokensGrammarImpl extends EcmaScriptGrammar {
+
+  public EcmaScriptTokensGrammarImpl() {
+    program.is(o2n(anyTokenButNot(EOF)), EOF);
+  }
+
+}
@@ -0,0 +1,82 @@
+/*
+ * Sonar JavaScript Plugin
+ * Copyright (C) 2011 Eriks Nukis and SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.javascript.parser;
+
+import com.sonar.sslr.api.AstNode;
+import com.sonar.sslr.api.AstNodeType;
+import com.sonar.sslr.api.GenericTokenType;
+import com.sonar.sslr.api.Token;
+import com.sonar.sslr.impl.BacktrackingEvent;
+import com.sonar.sslr.impl.ParsingState;
+import com.sonar.sslr.impl.matcher.Matcher;
+import org.sonar.javascript.api.EcmaScriptGrammar;
+import org.sonar.javascript.api.EcmaScriptPunctuator;
+
+/**
+ * Matches {@link EcmaScriptGrammar#functionBody} without parsing it: consumes tokens up to the closing curly brace,
+ * which balances the opening one, so that node of function body contains only tokens, each in a node of {@link EcmaScriptGrammar#skippedToken}.
+ */
+final class FunctionBodySkippingMatcher extends Matcher {
+
+  private final AstNodeType skippedToken;
+
+  public FunctionBodySkippingMatcher(AstNodeType skippedToken) {
+    this.skippedToken = skippedToken;
+  }
+
+  @Override
+  public AstNode match(ParsingState parsingState) {
+    int startIndex = parsingState.lexerIndex;
+    int endIndex = startIndex;
+    int braces = 0;
+    Token token;
+    while ((token = parsingState.readToken(endIndex)) != null && token.getType() != GenericTokenType.EOF) {
+      if (token.getType() == EcmaScriptPunctuator.RCURLYBRACE) {
+        if (braces == 0) {
+          // node without type is replaced by its children in the node of functionBody
+          AstNode node = new AstNode(null, "skippedFunctionBody", parsingState.readToken(startIndex));
+          for (int i = startIndex; i < endIndex; i++) {
+            AstNode child = new AstNode(skippedToken, "skippedToken", parsingState.readToken(i));
+            child.setFromIndex(i);
+            child.setToIndex(i + 1);
+            node.addChild(child);
+          }
+          node.setFromIndex(startIndex);
+          node.setToIndex(endIndex);
+          parsingState.lexerIndex = endIndex;
+          return node;
+        }
+        braces--;
+      } else if (token.getType() == EcmaScriptPunctuator.LCURLYBRACE) {
+        braces++;
+      }
+      endIndex++;
+    }
+    // moves outpost, so that error is reported at the end of file
+    parsingState.peekTokenIfExists(endIndex, this);
+    throw BacktrackingEvent.create();
+  }
+
+  @Override
+  public String toString() {
+    return "functionBody";
+  }
+
+}
@@ -0,0 +1,57 @@
+/*
+ * Sonar JavaScript Plugin
+ * Copyright (C) 2011 Eriks Nukis and SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.javascript.parser;
+
+import com.sonar.sslr.api.AstNodeType;
+import com.sonar.sslr.api.GenericTokenType;
+import com.sonar.sslr.api.Rule;
+import org.sonar.javascript.api.EcmaScriptGrammar;
+
+import java.util.Collection;
+
+/**
+ * Makes parser skip contents of function bodies: node of {@link EcmaScriptGrammar#functionBody} contains only nodes of
+ * {@link EcmaScriptGrammar#skippedToken},
+ * so that metrics based on tokens - lines, lines of code and comments - can be computed much cheaper on code,
+ * which is mostly inside of functions, e.g. wrapped in an immediately invoked function expression.
+ */
+public final class LazyFunctionBodies {
+
+  private LazyFunctionBodies() {
+  }
+
+  public static void apply(EcmaScriptGrammar grammar) {
+    grammar.functionBody.override(new FunctionBodySkippingMatcher(grammar.skippedToken));
+  }
+
+  /**
+   * @return true, if nodes of some of given types can appear inside of function body, which is the case for all rules except {@link EcmaScriptGrammar#program}
+   * and for all tokens except end of file
+   */
+  public static boolean canAppearInFunctionBody(EcmaScriptGrammar grammar, Collection<? extends AstNodeType> types) {
+    for (AstNodeType type : types) {
+      if (type instanceof Rule ? type != grammar.program : type != GenericTokenType.EOF) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+}
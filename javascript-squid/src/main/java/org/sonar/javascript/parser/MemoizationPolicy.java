@@ -0,0 +1,99 @@
+/*
+ * Sonar JavaScript Plugin
+ * Copyright (C) 2011 Eriks Nukis and SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.javascript.parser;
+
+import com.google.common.collect.ImmutableList;
+import com.sonar.sslr.api.Rule;
+import com.sonar.sslr.impl.matcher.GrammarFunctions;
+import com.sonar.sslr.impl.matcher.RuleDefinition;
+import com.sonar.sslr.impl.matcher.RuleMatcher;
+import org.sonar.javascript.api.EcmaScriptGrammar;
+
+import java.util.List;
+
+/**
+ * Defines which rules of {@link EcmaScriptGrammarImpl} memoize their matches.
+ * <p>
+ * Parser has a single memoization slot per token, so memoizing all rules is not only costly, but also counterproductive:
+ * rules, which start at the same token, evict each other. {@link MemoizationStatistics} reports which rules are
+ * actually re-entered at the same token after a successful match.
+ * </p>
+ */
+public enum MemoizationPolicy {
+
+  /**
+   * Memoizes matches of all rules.
+   */
+  ALL {
+    @Override
+    public void apply(EcmaScriptGrammar grammar) {
+      GrammarFunctions.enableMemoizationOfMatchesForAllRules(grammar);
+    }
+  },
+
+  /**
+   * Memoizes matches only of rules, which are re-entered at the same token while backtracking - see {@link #getSelectedRules(EcmaScriptGrammar)}.
+   */
+  SELECTED {
+    @Override
+    public void apply(EcmaScriptGrammar grammar) {
+      for (Rule rule : getSelectedRules(grammar)) {
+        memoize(rule);
+      }
+    }
+  },
+
+  /**
+   * Disables memoization.
+   */
+  NONE {
+    @Override
+    public void apply(EcmaScriptGrammar grammar) {
+      // nothing to do
+    }
+  };
+
+  public abstract void apply(EcmaScriptGrammar grammar);
+
+  /**
+   * Rules memoized by {@link #SELECTED}.
+   * <ul>
+   * <li>{@link EcmaScriptGrammar#memberExpression} is matched by {@link EcmaScriptGrammar#callExpression} and matched again by
+   * {@link EcmaScriptGrammar#newExpression}, when not followed by arguments.</li>
+   * <li>{@link EcmaScriptGrammar#leftHandSideExpression} is matched by first alternative of {@link EcmaScriptGrammar#assignmentExpression}
+   * and matched again by second one, when not followed by assignment operator, which is the case for most of expressions.</li>
+   * <li>{@link EcmaScriptGrammar#callExpression} is re-entered from {@link EcmaScriptGrammar#leftHandSideExpression} in the same situation.</li>
+   * </ul>
+   */
+  public static List<Rule> getSelectedRules(EcmaScriptGrammar grammar) {
+    return ImmutableList.of(
+        grammar.memberExpression,
+        grammar.callExpression,
+        grammar.leftHandSideExpression);
+  }
+
+  private static void memoize(Rule rule) {
+    RuleMatcher matcher = ((RuleDefinition) rule).getRule();
+    if (matcher.children.length > 0) {
+      matcher.children[0] = GrammarFunctions.Advanced.memoizeMatches(matcher.children[0]);
+    }
+  }
+
+}
@@ -0,0 +1,185 @@
+/*
+ * Sonar JavaScript Plugin
+ * Copyright (C) 2011 Eriks Nukis and SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.javascript.parser;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.sonar.sslr.api.AstNode;
+import com.sonar.sslr.impl.ParsingState;
+import com.sonar.sslr.impl.events.ParsingEventListener;
+import com.sonar.sslr.impl.matcher.RuleMatcher;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Measures for each rule how many of its invocations could be served from a memoization table: an invocation is a hit,
+ * when the same rule has already matched at the same token during parsing of the current file.
+ * Hits are counted as if the table was unbounded, so statistics should be collected with {@link MemoizationPolicy#NONE}
+ * to see how much work each rule repeats, independently of which rules are currently memoized.
+ * <p>
+ * Not thread-safe: each parser should have its own instance.
+ * </p>
+ */
+public class MemoizationStatistics extends ParsingEventListener {
+
+  /**
+   * For each rule: start index of each successful match of this rule in the current file mapped to its end index.
+   */
+  private final Map<RuleMatcher, Map<Integer, Integer>> matches = Maps.newHashMap();
+  private final Map<String, RuleStatistics> rules = Maps.newHashMap();
+
+  /**
+   * Start indexes of rules being matched.
+   */
+  private int[] stack = new int[64];
+  private int depth;
+
+  @Override
+  public void beginParse() {
+    matches.clear();
+    depth = 0;
+  }
+
+  @Override
+  public void enterRule(RuleMatcher rule, ParsingState parsingState) {
+    if (depth == stack.length) {
+      int[] newStack = new int[depth * 2];
+      System.arraycopy(stack, 0, newStack, 0, depth);
+      stack = newStack;
+    }
+    stack[depth++] = parsingState.lexerIndex;
+
+    RuleStatistics statistics = getOrCreate(rule.getName());
+    statistics.invocations++;
+    Map<Integer, Integer> ruleMatches = matches.get(rule);
+    if (ruleMatches != null) {
+      Integer toIndex = ruleMatches.get(parsingState.lexerIndex);
+      if (toIndex != null) {
+        statistics.hits++;
+        statistics.tokens += toIndex - parsingState.lexerIndex;
+      }
+    }
+  }
+
+  @Override
+  public void exitWithMatchRule(RuleMatcher rule, ParsingState parsingState, AstNode astNode) {
+    int fromIndex = stack[--depth];
+    Map<Integer, Integer> ruleMatches = matches.get(rule);
+    if (ruleMatches == null) {
+      ruleMatches = Maps.newHashMap();
+      matches.put(rule, ruleMatches);
+    }
+    ruleMatches.put(fromIndex, parsingState.lexerIndex);
+  }
+
+  @Override
+  public void exitWithoutMatchRule(RuleMatcher rule, ParsingState parsingState) {
+    depth--;
+  }
+
+  private RuleStatistics getOrCreate(String name) {
+    RuleStatistics statistics = rules.get(name);
+    if (statistics == null) {
+      statistics = new RuleStatistics(name);
+      rules.put(name, statistics);
+    }
+    return statistics;
+  }
+
+  /**
+   * @return statistics of all invoked rules, sorted by number of tokens, which would not be re-matched thanks to memoization
+   */
+  public List<RuleStatistics> getRules() {
+    List<RuleStatistics> result = Lists.newArrayList(rules.values());
+    Collections.sort(result, new Comparator<RuleStatistics>() {
+      public int compare(RuleStatistics o1, RuleStatistics o2) {
+        if (o1.tokens != o2.tokens) {
+          return o1.tokens > o2.tokens ? -1 : 1;
+        }
+        return o1.name.compareTo(o2.name);
+      }
+    });
+    return result;
+  }
+
+  public RuleStatistics getRule(String name) {
+    return rules.get(name);
+  }
+
+  /**
+   * Writes table of statistics of rules with at least one hit.
+   */
+  public void report(Writer writer) throws IOException {
+    writer.write(String.format(Locale.ENGLISH, "%-32s %12s %12s %8s %12s%n", "rule", "invocations", "hits", "rate", "tokens"));
+    for (RuleStatistics rule : getRules()) {
+      if (rule.hits > 0) {
+        writer.write(String.format(Locale.ENGLISH, "%-32s %12d %12d %7.1f%% %12d%n",
+            rule.name, rule.invocations, rule.hits, rule.getHitRate() * 100, rule.tokens));
+      }
+    }
+    writer.flush();
+  }
+
+  public static final class RuleStatistics {
+
+    private final String name;
+    private long invocations;
+    private long hits;
+    private long tokens;
+
+    private RuleStatistics(String name) {
+      this.name = name;
+    }
+
+    public String getName() {
+      return name;
+    }
+
+    public long getInvocations() {
+      return invocations;
+    }
+
+    /**
+     * @return number of invocations at a token, where this rule has already matched
+     */
+    public long getHits() {
+      return hits;
+    }
+
+    public double getHitRate() {
+      return invocations == 0 ? 0 : (double) hits / invocations;
+    }
+
+    /**
+     * @return total number of tokens covered by hits, i.e. how much work memoization of this rule would save
+     */
+    public long getTokens() {
+      return tokens;
+    }
+
+  }
+
+}
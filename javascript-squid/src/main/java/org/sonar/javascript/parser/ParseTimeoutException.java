@@ -0,0 +1,57 @@
+/*
+ * Sonar JavaScript Plugin
+ * Copyright (C) 2011 Eriks Nukis and SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.javascript.parser;
+
+import com.google.common.collect.Lists;
+import com.sonar.sslr.api.RecognitionException;
+import com.sonar.sslr.api.Token;
+import com.sonar.sslr.impl.ParsingState;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Thrown by {@link ParseTimeoutWatchdog}. Keeps tokens of file, so that metrics based on tokens can still be computed.
+ */
+public class ParseTimeoutException extends RecognitionException {
+
+  private static final long serialVersionUID = 1L;
+
+  private final transient List<Token> tokens;
+
+  public ParseTimeoutException(long timeout, ParsingState parsingState) {
+    super(getLine(parsingState), "Parsing of file has been cancelled, because it takes more than " + timeout + " ms");
+    List<Token> list = Lists.newArrayListWithCapacity(parsingState.lexerSize);
+    for (int i = 0; i < parsingState.lexerSize; i++) {
+      list.add(parsingState.readToken(i));
+    }
+    this.tokens = Collections.unmodifiableList(list);
+  }
+
+  private static int getLine(ParsingState parsingState) {
+    Token token = parsingState.getOutpostMatcherToken();
+    return token == null ? 0 : token.getLine();
+  }
+
+  public List<Token> getTokens() {
+    return tokens;
+  }
+
+}
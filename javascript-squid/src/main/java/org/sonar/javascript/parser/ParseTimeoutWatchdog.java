@@ -0,0 +1,77 @@
+/*
+ * Sonar JavaScript Plugin
+ * Copyright (C) 2011 Eriks Nukis and SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.javascript.parser;
+
+import com.sonar.sslr.impl.ParsingState;
+import com.sonar.sslr.impl.events.ParsingEventListener;
+import com.sonar.sslr.impl.matcher.RuleMatcher;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cancels parsing of a file, which takes more time than allowed, by throwing {@link ParseTimeoutException} from the parser thread.
+ * Clock is checked only once in a while, so that overhead is negligible.
+ * When program is parsed in chunks, clock is checked by threads, which parse chunks - see {@link ChunkedSourceElementsMatcher}.
+ */
+public class ParseTimeoutWatchdog extends ParsingEventListener {
+
+  private static final int CHECK_INTERVAL = 1024;
+
+  private final long timeout;
+  private volatile long deadline;
+  private int countdown;
+
+  /**
+   * @param timeout in milliseconds
+   */
+  public ParseTimeoutWatchdog(long timeout) {
+    this.timeout = timeout;
+  }
+
+  @Override
+  public void beginParse() {
+    deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeout);
+    countdown = CHECK_INTERVAL;
+  }
+
+  @Override
+  public void enterRule(RuleMatcher rule, ParsingState parsingState) {
+    if (--countdown == 0) {
+      countdown = CHECK_INTERVAL;
+      if (isExpired()) {
+        throw new ParseTimeoutException(timeout, parsingState);
+      }
+    }
+  }
+
+  /**
+   * Can be called from any thread, in particular from threads, which parse chunks of the current file - see {@link ChunkedParsing}.
+   *
+   * @return true, if parsing of the current file takes more time than allowed
+   */
+  boolean isExpired() {
+    return System.nanoTime() - deadline > 0;
+  }
+
+  long getTimeout() {
+    return timeout;
+  }
+
+}
@@ -0,0 +1,299 @@
+/*
+ * Sonar JavaScript Plugin
+ * Copyright (C) 2011 Eriks Nukis and SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.javascript.parser;
+
+import com.sonar.sslr.api.AstNode;
+import com.sonar.sslr.api.Rule;
+import com.sonar.sslr.api.Token;
+import com.sonar.sslr.api.TokenType;
+import com.sonar.sslr.impl.BacktrackingEvent;
+import com.sonar.sslr.impl.ParsingState;
+import com.sonar.sslr.impl.matcher.Matcher;
+import com.sonar.sslr.impl.matcher.RuleDefinition;
+import org.sonar.javascript.api.EcmaScriptGrammar;
+import org.sonar.javascript.api.EcmaScriptKeyword;
+import org.sonar.javascript.api.EcmaScriptPunctuator;
+
+/**
+ * Matches {@link EcmaScriptGrammar#assignmentExpression} or {@link EcmaScriptGrammar#assignmentExpressionNoIn}
+ * using operator-precedence climbing instead of descending through a rule per level of precedence:
+ * an operand, which is not followed by a binary operator, is matched by a single call of {@link EcmaScriptGrammar#postfixExpression}.
+ * <p>
+ * Produces the same AST as rules of {@link EcmaScriptGrammarImpl}: nodes of binary expressions have types of corresponding rules,
+ * and contain all operands of the same level of precedence, nodes of levels with a single operand are omitted,
+ * and {@link EcmaScriptGrammar#leftHandSideExpression} of an assignment is not wrapped into unary and postfix expressions.
+ * Parsing events are fired only for rules, which are matched by the parser - not for nodes built by this matcher.
+ * </p>
+ */
+final class PrecedenceClimbingMatcher extends Matcher {
+
+  private static final int MULTIPLICATIVE = 1;
+  private static final int ADDITIVE = 2;
+  private static final int SHIFT = 3;
+  private static final int RELATIONAL = 4;
+  private static final int EQUALITY = 5;
+  private static final int BITWISE_AND = 6;
+  private static final int BITWISE_XOR = 7;
+  private static final int BITWISE_OR = 8;
+  private static final int LOGICAL_AND = 9;
+  private static final int LOGICAL_OR = 10;
+
+  /**
+   * Level of precedence of binary operators by ordinal of punctuator, 0 for other punctuators.
+   */
+  private static final int[] LEVELS = new int[EcmaScriptPunctuator.values().length];
+
+  private static final boolean[] UNARY_OPERATORS = new boolean[EcmaScriptPunctuator.values().length];
+
+  private static final boolean[] ASSIGNMENT_OPERATORS = new boolean[EcmaScriptPunctuator.values().length];
+
+  static {
+    level(MULTIPLICATIVE, EcmaScriptPunctuator.STAR, EcmaScriptPunctuator.DIV, EcmaScriptPunctuator.MOD);
+    level(ADDITIVE, EcmaScriptPunctuator.PLUS, EcmaScriptPunctuator.MINUS);
+    level(SHIFT, EcmaScriptPunctuator.SL, EcmaScriptPunctuator.SR, EcmaScriptPunctuator.SR2);
+    level(RELATIONAL, EcmaScriptPunctuator.LT, EcmaScriptPunctuator.GT, EcmaScriptPunctuator.LE, EcmaScriptPunctuator.GE);
+    level(EQUALITY, EcmaScriptPunctuator.EQUAL, EcmaScriptPunctuator.NOTEQUAL, EcmaScriptPunctuator.EQUAL2, EcmaScriptPunctuator.NOTEQUAL2);
+    level(BITWISE_AND, EcmaScriptPunctuator.AND);
+    level(BITWISE_XOR, EcmaScriptPunctuator.XOR);
+    level(BITWISE_OR, EcmaScriptPunctuator.OR);
+    level(LOGICAL_AND, EcmaScriptPunctuator.ANDAND);
+    level(LOGICAL_OR, EcmaScriptPunctuator.OROR);
+
+    for (EcmaScriptPunctuator punctuator : new EcmaScriptPunctuator[] {
+      EcmaScriptPunctuator.INC, EcmaScriptPunctuator.DEC, EcmaScriptPunctuator.PLUS, EcmaScriptPunctuator.MINUS,
+      EcmaScriptPunctuator.TILDA, EcmaScriptPunctuator.BANG}) {
+      UNARY_OPERATORS[punctuator.ordinal()] = true;
+    }
+
+    for (EcmaScriptPunctuator punctuator : new EcmaScriptPunctuator[] {
+      EcmaScriptPunctuator.EQU, EcmaScriptPunctuator.STAR_EQU, EcmaScriptPunctuator.DIV_EQU, EcmaScriptPunctuator.MOD_EQU,
+      EcmaScriptPunctuator.PLUS_EQU, EcmaScriptPunctuator.MINUS_EQU, EcmaScriptPunctuator.SL_EQU, EcmaScriptPunctuator.SR_EQU,
+      EcmaScriptPunctuator.SR_EQU2, EcmaScriptPunctuator.AND_EQU, EcmaScriptPunctuator.XOR_EQU, EcmaScriptPunctuator.OR_EQU}) {
+      ASSIGNMENT_OPERATORS[punctuator.ordinal()] = true;
+    }
+  }
+
+  private static void level(int level, EcmaScriptPunctuator... punctuators) {
+    for (EcmaScriptPunctuator punctuator : punctuators) {
+      LEVELS[punctuator.ordinal()] = level;
+    }
+  }
+
+  private final boolean noIn;
+
+  /**
+   * Rules of binary expressions by level of precedence.
+   */
+  private final RuleDefinition[] binaryExpressions = new RuleDefinition[LOGICAL_OR + 1];
+  private final RuleDefinition conditionalExpression;
+  private final RuleDefinition unaryExpression;
+  private final RuleDefinition postfixExpression;
+  private final RuleDefinition assignmentOperator;
+
+  /**
+   * Rule for the second branch of conditional expression and for the right-hand side of assignment.
+   */
+  private final RuleDefinition assignmentExpression;
+
+  /**
+   * Rule for the first branch of conditional expression, which is never restricted.
+   */
+  private final RuleDefinition assignmentExpressionWithIn;
+
+  public PrecedenceClimbingMatcher(EcmaScriptGrammar g, boolean noIn) {
+    this.noIn = noIn;
+    binaryExpressions[MULTIPLICATIVE] = rule(g.multiplicativeExpression);
+    binaryExpressions[ADDITIVE] = rule(g.additiveExpression);
+    binaryExpressions[SHIFT] = rule(g.shiftExpression);
+    binaryExpressions[RELATIONAL] = rule(noIn ? g.relationalExpressionNoIn : g.relationalExpression);
+    binaryExpressions[EQUALITY] = rule(noIn ? g.equalityExpressionNoIn : g.equalityExpression);
+    binaryExpressions[BITWISE_AND] = rule(noIn ? g.bitwiseAndExpressionNoIn : g.bitwiseAndExpression);
+    binaryExpressions[BITWISE_XOR] = rule(noIn ? g.bitwiseXorExpressionNoIn : g.bitwiseXorExpression);
+    binaryExpressions[BITWISE_OR] = rule(noIn ? g.bitwiseOrExpressionNoIn : g.bitwiseOrExpression);
+    binaryExpressions[LOGICAL_AND] = rule(noIn ? g.logicalAndExpressionNoIn : g.logicalAndExpression);
+    binaryExpressions[LOGICAL_OR] = rule(noIn ? g.logicalOrExpressionNoIn : g.logicalOrExpression);
+    conditionalExpression = rule(noIn ? g.conditionalExpressionNoIn : g.conditionalExpression);
+    unaryExpression = rule(g.unaryExpression);
+    postfixExpression = rule(g.postfixExpression);
+    assignmentOperator = rule(g.assignmentOperator);
+    assignmentExpression = rule(noIn ? g.assignmentExpressionNoIn : g.assignmentExpression);
+    assignmentExpressionWithIn = rule(g.assignmentExpression);
+  }
+
+  private static RuleDefinition rule(Rule rule) {
+    return (RuleDefinition) rule;
+  }
+
+  @Override
+  public AstNode match(ParsingState parsingState) {
+    AstNode expression = conditional(parsingState);
+    int operatorIndex = parsingState.lexerIndex;
+    Token token = parsingState.readToken(operatorIndex);
+    AstNode leftHandSide = token != null && isAssignmentOperator(token.getType()) ? leftHandSide(expression) : null;
+    if (leftHandSide != null) {
+      AstNode operator = node(parsingState, assignmentOperator, operatorIndex);
+      operator.addChild(new AstNode(parsingState.popToken(this)));
+      indexes(operator, operatorIndex, parsingState.lexerIndex);
+      try {
+        AstNode right = assignmentExpression.getRule().match(parsingState);
+        AstNode result = new AstNode(null, "assignment", expression.getToken());
+        result.addChild(leftHandSide);
+        result.addChild(operator);
+        result.addChild(right);
+        return result;
+      } catch (BacktrackingEvent e) {
+        parsingState.lexerIndex = operatorIndex;
+      }
+    }
+    return expression;
+  }
+
+  /**
+   * @return left-hand side expression, which is the only operand of given unary expression, or null
+   */
+  private AstNode leftHandSide(AstNode node) {
+    if (node.getType() != unaryExpression || node.getNumberOfChildren() != 1) {
+      return null;
+    }
+    AstNode postfix = node.getFirstChild();
+    if (postfix.getType() != postfixExpression) {
+      // postfix expression without operator, which has been collapsed
+      return postfix;
+    }
+    return postfix.getNumberOfChildren() == 1 ? postfix.getFirstChild() : null;
+  }
+
+  private AstNode conditional(ParsingState parsingState) {
+    int startIndex = parsingState.lexerIndex;
+    AstNode condition = binary(parsingState, startIndex, unary(parsingState), LOGICAL_OR);
+    int queryIndex = parsingState.lexerIndex;
+    Token token = parsingState.readToken(queryIndex);
+    if (token == null || token.getType() != EcmaScriptPunctuator.QUERY) {
+      return condition;
+    }
+    try {
+      AstNode node = node(parsingState, conditionalExpression, startIndex);
+      node.addChild(condition);
+      node.addChild(new AstNode(parsingState.popToken(this)));
+      node.addChild(assignmentExpressionWithIn.getRule().match(parsingState));
+      Token colon = parsingState.peekToken(this);
+      if (colon.getType() != EcmaScriptPunctuator.COLON) {
+        throw BacktrackingEvent.create();
+      }
+      node.addChild(new AstNode(parsingState.popToken(this)));
+      node.addChild(assignmentExpression.getRule().match(parsingState));
+      indexes(node, startIndex, parsingState.lexerIndex);
+      return node;
+    } catch (BacktrackingEvent e) {
+      parsingState.lexerIndex = queryIndex;
+      return condition;
+    }
+  }
+
+  /**
+   * Extends given operand by binary operators with level of precedence up to given one:
+   * operators of a lower level are consumed by operands, which are matched recursively.
+   */
+  private AstNode binary(ParsingState parsingState, int startIndex, AstNode operand, int maxLevel) {
+    AstNode left = operand;
+    while (true) {
+      int level = level(parsingState.readToken(parsingState.lexerIndex));
+      if (level == 0 || level > maxLevel) {
+        return left;
+      }
+      AstNode node = node(parsingState, binaryExpressions[level], startIndex);
+      node.addChild(left);
+      do {
+        int operatorIndex = parsingState.lexerIndex;
+        AstNode operator = new AstNode(parsingState.popToken(this));
+        int operandIndex = parsingState.lexerIndex;
+        AstNode right;
+        try {
+          right = binary(parsingState, operandIndex, unary(parsingState), level - 1);
+        } catch (BacktrackingEvent e) {
+          parsingState.lexerIndex = operatorIndex;
+          break;
+        }
+        node.addChild(operator);
+        node.addChild(right);
+      } while (level(parsingState.readToken(parsingState.lexerIndex)) == level);
+      if (node.getNumberOfChildren() == 1) {
+        // operator is not followed by operand
+        return left;
+      }
+      indexes(node, startIndex, parsingState.lexerIndex);
+      left = node;
+    }
+  }
+
+  private int level(Token token) {
+    if (token == null) {
+      return 0;
+    }
+    TokenType type = token.getType();
+    if (type instanceof EcmaScriptPunctuator) {
+      return LEVELS[((EcmaScriptPunctuator) type).ordinal()];
+    }
+    if (type == EcmaScriptKeyword.INSTANCEOF || (type == EcmaScriptKeyword.IN && !noIn)) {
+      return RELATIONAL;
+    }
+    return 0;
+  }
+
+  private AstNode unary(ParsingState parsingState) {
+    int startIndex = parsingState.lexerIndex;
+    AstNode node = node(parsingState, unaryExpression, startIndex);
+    Token token = parsingState.readToken(startIndex);
+    if (token != null && isUnaryOperator(token.getType())) {
+      node.addChild(new AstNode(parsingState.popToken(this)));
+      node.addChild(unary(parsingState));
+    } else {
+      node.addChild(postfixExpression.getRule().match(parsingState));
+    }
+    indexes(node, startIndex, parsingState.lexerIndex);
+    return node;
+  }
+
+  private static boolean isUnaryOperator(TokenType type) {
+    if (type instanceof EcmaScriptPunctuator) {
+      return UNARY_OPERATORS[((EcmaScriptPunctuator) type).ordinal()];
+    }
+    return type == EcmaScriptKeyword.DELETE || type == EcmaScriptKeyword.VOID || type == EcmaScriptKeyword.TYPEOF;
+  }
+
+  private static boolean isAssignmentOperator(TokenType type) {
+    return type instanceof EcmaScriptPunctuator && ASSIGNMENT_OPERATORS[((EcmaScriptPunctuator) type).ordinal()];
+  }
+
+  private static AstNode node(ParsingState parsingState, RuleDefinition rule, int startIndex) {
+    return new AstNode(rule, rule.getRule().getName(), parsingState.readToken(startIndex));
+  }
+
+  private static void indexes(AstNode node, int fromIndex, int toIndex) {
+    node.setFromIndex(fromIndex);
+    node.setToIndex(toIndex);
+  }
+
+  @Override
+  public String toString() {
+    return noIn ? "assignmentExpressionNoIn" : "assignmentExpression";
+  }
+
+}
@@ -0,0 +1,79 @@
+/*
+ * Sonar JavaScript Plugin
+ * Copyright (C) 2011 Eriks Nukis and SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.javascript.parser;
+
+import com.google.common.collect.ImmutableList;
+import com.sonar.sslr.api.AstNodeType;
+import com.sonar.sslr.api.Rule;
+import com.sonar.sslr.impl.matcher.RuleDefinition;
+import org.sonar.javascript.api.EcmaScriptGrammar;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Removes from AST nodes of expression rules, which have a single child - the child takes place of the node.
+ * Most of expressions are chains of such nodes, e.g. identifier in a statement {@code a;} is wrapped by
+ * {@code expression}, {@code unaryExpression}, {@code postfixExpression}, {@code leftHandSideExpression}, {@code newExpression},
+ * {@code memberExpression} and {@code primaryExpression}.
+ * <p>
+ * Levels of binary operators are collapsed by {@link EcmaScriptGrammarImpl} unconditionally.
+ * </p>
+ */
+public final class SingleChildNodes {
+
+  private SingleChildNodes() {
+  }
+
+  /**
+   * Rules, which can be collapsed.
+   */
+  public static List<Rule> getCollapsibleRules(EcmaScriptGrammar grammar) {
+    return ImmutableList.of(
+        grammar.identifierName,
+        grammar.literal,
+        grammar.propertyName,
+        grammar.primaryExpression,
+        grammar.memberExpression,
+        grammar.newExpression,
+        grammar.leftHandSideExpression,
+        grammar.postfixExpression,
+        grammar.unaryExpression,
+        grammar.expression,
+        grammar.expressionNoIn);
+  }
+
+  /**
+   * Collapses all collapsible rules except given ones.
+   *
+   * @return number of collapsed rules
+   */
+  public static int collapse(EcmaScriptGrammar grammar, Collection<? extends AstNodeType> usedTypes) {
+    int collapsed = 0;
+    for (Rule rule : getCollapsibleRules(grammar)) {
+      if (!usedTypes.contains(rule)) {
+        ((RuleDefinition) rule).skipIfOneChild();
+        collapsed++;
+      }
+    }
+    return collapsed;
+  }
+
+}
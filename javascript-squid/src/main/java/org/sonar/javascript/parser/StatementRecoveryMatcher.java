@@ -0,0 +1,113 @@
+/*
+ * Sonar JavaScript Plugin
+ * Copyright (C) 2011 Eriks Nukis and SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.javascript.parser;
+
+import com.sonar.sslr.api.AstNode;
+import com.sonar.sslr.api.AstNodeType;
+import com.sonar.sslr.api.GenericTokenType;
+import com.sonar.sslr.api.Token;
+import com.sonar.sslr.api.TokenType;
+import com.sonar.sslr.impl.BacktrackingEvent;
+import com.sonar.sslr.impl.ParsingState;
+import com.sonar.sslr.impl.matcher.Matcher;
+import org.sonar.javascript.api.EcmaScriptGrammar;
+import org.sonar.javascript.api.EcmaScriptKeyword;
+import org.sonar.javascript.api.EcmaScriptPunctuator;
+
+/**
+ * Matches {@link EcmaScriptGrammar#recoveredStatement} by skipping tokens of a statement, which can't be parsed,
+ * so that parsing can continue with the next one: up to and including the first semicolon, or up to the first token on another line,
+ * but not inside of parentheses, brackets or curly braces. Never skips closing curly brace, {@code case} or {@code default}
+ * of an enclosing block, function, or switch, and fails, when there is nothing to skip.
+ * <p>
+ * Tokens are only read, so that the outpost of {@link ParsingState} stays at the token, which has caused the failure,
+ * and the error is reported at its line.
+ * </p>
+ * <p>
+ * Each skipped token becomes a child of {@link EcmaScriptGrammar#recoveredStatement} of type {@link EcmaScriptGrammar#skippedToken}.
+ * </p>
+ */
+final class StatementRecoveryMatcher extends Matcher {
+
+  private final AstNodeType skippedToken;
+
+  public StatementRecoveryMatcher(AstNodeType skippedToken) {
+    this.skippedToken = skippedToken;
+  }
+
+  @Override
+  public AstNode match(ParsingState parsingState) {
+    int startIndex = parsingState.lexerIndex;
+    int endIndex = startIndex;
+    int braces = 0;
+    int parentheses = 0;
+    Token previous = null;
+    Token token;
+    while ((token = parsingState.readToken(endIndex)) != null && token.getType() != GenericTokenType.EOF) {
+      TokenType type = token.getType();
+      if (braces == 0) {
+        if (type == EcmaScriptPunctuator.RCURLYBRACE || type == EcmaScriptKeyword.CASE || type == EcmaScriptKeyword.DEFAULT) {
+          break;
+        }
+        if (parentheses == 0 && previous != null && previous.getLine() != token.getLine()) {
+          break;
+        }
+        if (parentheses == 0 && type == EcmaScriptPunctuator.SEMI) {
+          endIndex++;
+          break;
+        }
+        if (type == EcmaScriptPunctuator.LPARENTHESIS || type == EcmaScriptPunctuator.LBRACKET) {
+          parentheses++;
+        } else if ((type == EcmaScriptPunctuator.RPARENTHESIS || type == EcmaScriptPunctuator.RBRACKET) && parentheses > 0) {
+          parentheses--;
+        }
+      }
+      if (type == EcmaScriptPunctuator.LCURLYBRACE) {
+        braces++;
+      } else if (type == EcmaScriptPunctuator.RCURLYBRACE) {
+        braces--;
+      }
+      previous = token;
+      endIndex++;
+    }
+    if (endIndex == startIndex) {
+      throw BacktrackingEvent.create();
+    }
+
+    // node without type is replaced by its children in the node of recoveredStatement
+    AstNode node = new AstNode(null, "skippedTokens", parsingState.readToken(startIndex));
+    for (int i = startIndex; i < endIndex; i++) {
+      AstNode child = new AstNode(skippedToken, "skippedToken", parsingState.readToken(i));
+      child.setFromIndex(i);
+      child.setToIndex(i + 1);
+      node.addChild(child);
+    }
+    node.setFromIndex(startIndex);
+    node.setToIndex(endIndex);
+    parsingState.lexerIndex = endIndex;
+    return node;
+  }
+
+  @Override
+  public String toString() {
+    return "recoveredStatement";
+  }
+
+}
@@ -0,0 +1,86 @@
+/*
+ * Sonar JavaScript Plugin
+ * Copyright (C) 2011 Eriks Nukis and SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.javascript.profiler;
+
+import com.google.common.collect.Maps;
+
+import java.util.Map;
+
+/**
+ * Times of phases of analysis of a file and wall times of visitors on this file. Thread-safe.
+ */
+class FileProfile {
+
+  private final String key;
+  private final long[] wallTimes = new long[Profiler.Phase.values().length];
+  private final long[] cpuTimes = new long[Profiler.Phase.values().length];
+  private final Map<String, Long> visitorWallTimes = Maps.newHashMap();
+
+  public FileProfile(String key) {
+    this.key = key;
+  }
+
+  public String getKey() {
+    return key;
+  }
+
+  public synchronized void add(Profiler.Phase phase, long wallTime, long cpuTime) {
+    wallTimes[phase.ordinal()] += wallTime;
+    cpuTimes[phase.ordinal()] += cpuTime;
+  }
+
+  public synchronized void addVisitor(String name, long wallTime) {
+    Long previous = visitorWallTimes.get(name);
+    visitorWallTimes.put(name, previous == null ? wallTime : previous + wallTime);
+  }
+
+  public void add(FileProfile other) {
+    for (Profiler.Phase phase : Profiler.Phase.values()) {
+      add(phase, other.getWallTime(phase), other.getCpuTime(phase));
+    }
+    for (Map.Entry<String, Long> entry : other.getVisitorWallTimes().entrySet()) {
+      addVisitor(entry.getKey(), entry.getValue());
+    }
+  }
+
+  /**
+   * @return copy of wall times of visitors by their names
+   */
+  public synchronized Map<String, Long> getVisitorWallTimes() {
+    return Maps.newHashMap(visitorWallTimes);
+  }
+
+  public synchronized long getWallTime(Profiler.Phase phase) {
+    return wallTimes[phase.ordinal()];
+  }
+
+  public synchronized long getCpuTime(Profiler.Phase phase) {
+    return cpuTimes[phase.ordinal()];
+  }
+
+  public synchronized long getTotalWallTime() {
+    long result = 0;
+    for (long wallTime : wallTimes) {
+      result += wallTime;
+    }
+    return result;
+  }
+
+}
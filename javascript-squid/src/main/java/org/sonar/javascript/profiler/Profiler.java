@@ -0,0 +1,415 @@
+/*
+ * Sonar JavaScript Plugin
+ * Copyright (C) 2011 Eriks Nukis and SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.javascript.profiler;
+
+import com.google.common.base.Charsets;
+import com.google.common.base.Preconditions;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.io.Closeables;
+import com.google.common.io.Files;
+import com.sonar.sslr.api.AstNode;
+import com.sonar.sslr.api.Grammar;
+import com.sonar.sslr.impl.events.ParsingEventListener;
+import com.sonar.sslr.squid.AstScanner;
+import com.sonar.sslr.squid.SquidAstVisitor;
+import com.sonar.sslr.squid.SquidAstVisitorContextImpl;
+import org.sonar.javascript.parser.ChunkedParsing;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Records time spent in each phase of analysis of each file, and time spent in each visitor - in total and on each file.
+ * Wall and CPU time are recorded for phases, whereas only wall time is recorded for visitors,
+ * because querying CPU time of a thread on each callback would take more time than most of visitors.
+ * <p>
+ * Thread-safe: can be shared between scanners, which run concurrently.
+ * </p>
+ */
+public class Profiler {
+
+  public enum Phase {
+    LEX, PARSE, VISIT, SAVE
+  }
+
+  private static final ThreadMXBean THREAD_MX_BEAN = ManagementFactory.getThreadMXBean();
+
+  private final ConcurrentMap<String, FileProfile> files = new ConcurrentHashMap<String, FileProfile>();
+  private final Map<String, Long> visitors = Maps.newHashMap();
+  private final RuleProfiler ruleProfiler;
+
+  /**
+   * Times of lexing and parsing of the current file of each thread, which are recorded before the name of the file is known.
+   */
+  private final ThreadLocal<long[]> pending = new ThreadLocal<long[]>() {
+    @Override
+    protected long[] initialValue() {
+      return new long[Phase.values().length * 2];
+    }
+  };
+
+  public Profiler() {
+    this(null);
+  }
+
+  /**
+   * @param ruleProfiler records time spent in each grammar rule, can be null
+   */
+  public Profiler(RuleProfiler ruleProfiler) {
+    this.ruleProfiler = ruleProfiler;
+  }
+
+  /**
+   * @return profiler of grammar rules, or null if rules are not profiled
+   */
+  public RuleProfiler getRuleProfiler() {
+    return ruleProfiler;
+  }
+
+  /**
+   * @return CPU time of the current thread in nanoseconds, or 0 if not supported by JVM
+   */
+  public static long cpuTime() {
+    return THREAD_MX_BEAN.isCurrentThreadCpuTimeSupported() ? THREAD_MX_BEAN.getCurrentThreadCpuTime() : 0;
+  }
+
+  /**
+   * @return listener, which must be registered in the parser of scanner created by {@link #newAstScannerBuilder(SquidAstVisitorContextImpl)}
+   */
+  public ParsingEventListener newParsingEventListener() {
+    return new PhasesListener();
+  }
+
+  /**
+   * @return builder, which profiles all visitors given to it
+   */
+  public <G extends Grammar> AstScanner.Builder<G> newAstScannerBuilder(SquidAstVisitorContextImpl<G> context) {
+    return new ProfilingBuilder<G>(context, this);
+  }
+
+  public void record(String fileKey, Phase phase, long wallTime, long cpuTime) {
+    fileProfile(fileKey).add(phase, wallTime, cpuTime);
+  }
+
+  private FileProfile fileProfile(String fileKey) {
+    FileProfile fileProfile = files.get(fileKey);
+    if (fileProfile == null) {
+      FileProfile newFileProfile = new FileProfile(fileKey);
+      fileProfile = files.putIfAbsent(fileKey, newFileProfile);
+      if (fileProfile == null) {
+        fileProfile = newFileProfile;
+      }
+    }
+    return fileProfile;
+  }
+
+  void recordVisitor(String name, long wallTime) {
+    synchronized (visitors) {
+      Long previous = visitors.get(name);
+      visitors.put(name, previous == null ? wallTime : previous + wallTime);
+    }
+  }
+
+  void recordVisitor(String fileKey, String name, long wallTime) {
+    fileProfile(fileKey).addVisitor(name, wallTime);
+  }
+
+  private void recordPending(Phase phase, long wallTime, long cpuTime) {
+    long[] times = pending.get();
+    times[phase.ordinal() * 2] += wallTime;
+    times[phase.ordinal() * 2 + 1] += cpuTime;
+  }
+
+  private void flushPending(String fileKey) {
+    long[] times = pending.get();
+    for (Phase phase : Phase.values()) {
+      int i = phase.ordinal() * 2;
+      if (times[i] != 0 || times[i + 1] != 0) {
+        record(fileKey, phase, times[i], times[i + 1]);
+        times[i] = 0;
+        times[i + 1] = 0;
+      }
+    }
+  }
+
+  /**
+   * Writes report in JSON format: total time of each phase, slowest files with time of each visitor on them and all visitors - slowest first.
+   *
+   * @param maxFiles maximal number of files to list
+   */
+  public void writeReport(File file, int maxFiles) throws IOException {
+    Preconditions.checkArgument(maxFiles >= 0, "maxFiles must be positive");
+    List<FileProfile> sortedFiles = sortedFiles();
+    Map<String, Long> visitorsCopy;
+    synchronized (visitors) {
+      visitorsCopy = Maps.newHashMap(visitors);
+    }
+
+    FileProfile total = new FileProfile(null);
+    for (FileProfile fileProfile : sortedFiles) {
+      total.add(fileProfile);
+    }
+
+    Writer writer = Files.newWriter(file, Charsets.UTF_8);
+    try {
+      writer.append("{\n  \"files\": ").append(Integer.toString(sortedFiles.size())).append(",\n");
+      writer.append("  \"phases\": ");
+      writePhases(writer, total);
+      writer.append(",\n  \"slowestFiles\": [");
+      for (int i = 0; i < Math.min(maxFiles, sortedFiles.size()); i++) {
+        FileProfile fileProfile = sortedFiles.get(i);
+        writer.append(i == 0 ? "\n" : ",\n");
+        writer.append("    {\"file\": ").append(quote(fileProfile.getKey()))
+            .append(", \"wall\": ").append(Long.toString(toMillis(fileProfile.getTotalWallTime())))
+            .append(", \"phases\": ");
+        writePhases(writer, fileProfile);
+        writer.append(", \"visitors\": [");
+        List<Map.Entry<String, Long>> fileVisitors = sortDescending(fileProfile.getVisitorWallTimes());
+        for (int j = 0; j < fileVisitors.size(); j++) {
+          writer.append(j == 0 ? "" : ", ");
+          writeVisitor(writer, fileVisitors.get(j));
+        }
+        writer.append("]}");
+      }
+      writer.append("\n  ],\n  \"visitors\": [");
+      List<Map.Entry<String, Long>> sortedVisitors = sortDescending(visitorsCopy);
+      for (int i = 0; i < sortedVisitors.size(); i++) {
+        writer.append(i == 0 ? "\n    " : ",\n    ");
+        writeVisitor(writer, sortedVisitors.get(i));
+      }
+      writer.append("\n  ]\n}\n");
+    } finally {
+      Closeables.closeQuietly(writer);
+    }
+  }
+
+  /**
+   * Writes wall time in milliseconds of the slowest files in format of {@link Properties}, which can be read by {@link #readWallTimes(File)}.
+   *
+   * @param maxFiles maximal number of files to list
+   */
+  public void writeWallTimes(File file, int maxFiles) throws IOException {
+    Preconditions.checkArgument(maxFiles >= 0, "maxFiles must be positive");
+    List<FileProfile> sortedFiles = sortedFiles();
+    Properties properties = new Properties();
+    for (int i = 0; i < Math.min(maxFiles, sortedFiles.size()); i++) {
+      FileProfile fileProfile = sortedFiles.get(i);
+      properties.setProperty(fileProfile.getKey(), Long.toString(toMillis(fileProfile.getTotalWallTime())));
+    }
+    OutputStream out = new BufferedOutputStream(new FileOutputStream(file));
+    try {
+      properties.store(out, "Wall time in milliseconds of the slowest files");
+    } finally {
+      Closeables.closeQuietly(out);
+    }
+  }
+
+  /**
+   * Reads wall times written by {@link #writeWallTimes(File, int)}.
+   *
+   * @return wall time in milliseconds of each listed file by its key
+   */
+  public static Map<String, Long> readWallTimes(File file) throws IOException {
+    Properties properties = new Properties();
+    InputStream in = new BufferedInputStream(new FileInputStream(file));
+    try {
+      properties.load(in);
+    } finally {
+      Closeables.closeQuietly(in);
+    }
+    Map<String, Long> result = Maps.newHashMap();
+    for (Map.Entry<Object, Object> entry : properties.entrySet()) {
+      try {
+        result.put((String) entry.getKey(), Long.parseLong((String) entry.getValue()));
+      } catch (NumberFormatException e) {
+        throw new IOException("Invalid wall time of " + entry.getKey() + " in " + file);
+      }
+    }
+    return result;
+  }
+
+  /**
+   * @return profiles of all files - the slowest first
+   */
+  private List<FileProfile> sortedFiles() {
+    List<FileProfile> result = Lists.newArrayList(files.values());
+    Collections.sort(result, new Comparator<FileProfile>() {
+      public int compare(FileProfile o1, FileProfile o2) {
+        return compareDescending(o1.getTotalWallTime(), o2.getTotalWallTime());
+      }
+    });
+    return result;
+  }
+
+  private static List<Map.Entry<String, Long>> sortDescending(Map<String, Long> wallTimes) {
+    List<Map.Entry<String, Long>> result = Lists.newArrayList(wallTimes.entrySet());
+    Collections.sort(result, new Comparator<Map.Entry<String, Long>>() {
+      public int compare(Map.Entry<String, Long> o1, Map.Entry<String, Long> o2) {
+        return compareDescending(o1.getValue(), o2.getValue());
+      }
+    });
+    return result;
+  }
+
+  private static void writeVisitor(Writer writer, Map.Entry<String, Long> entry) throws IOException {
+    writer.append("{\"visitor\": ").append(quote(entry.getKey()))
+        .append(", \"wall\": ").append(Long.toString(toMillis(entry.getValue()))).append("}");
+  }
+
+  private static void writePhases(Writer writer, FileProfile fileProfile) throws IOException {
+    writer.append("{");
+    for (Phase phase : Phase.values()) {
+      writer.append(phase.ordinal() == 0 ? "" : ", ")
+          .append(quote(phase.name().toLowerCase(Locale.ENGLISH)))
+          .append(": {\"wall\": ").append(Long.toString(toMillis(fileProfile.getWallTime(phase))))
+          .append(", \"cpu\": ").append(Long.toString(toMillis(fileProfile.getCpuTime(phase))))
+          .append("}");
+    }
+    writer.append("}");
+  }
+
+  private static long toMillis(long nanos) {
+    return TimeUnit.NANOSECONDS.toMillis(nanos);
+  }
+
+  private static int compareDescending(long a, long b) {
+    return a > b ? -1 : (a == b ? 0 : 1);
+  }
+
+  static String quote(String s) {
+    StringBuilder sb = new StringBuilder(s.length() + 2).append('"');
+    for (int i = 0; i < s.length(); i++) {
+      char c = s.charAt(i);
+      if (c == '"' || c == '\\') {
+        sb.append('\\').append(c);
+      } else if (c < ' ') {
+        sb.append(String.format("\\u%04x", (int) c));
+      } else {
+        sb.append(c);
+      }
+    }
+    return sb.append('"').toString();
+  }
+
+  /**
+   * Times lexing and parsing.
+   */
+  private class PhasesListener extends ParsingEventListener implements ChunkedParsing.CompatibleListener {
+
+    private long wallTime;
+    private long cpuTime;
+
+    private void start() {
+      wallTime = System.nanoTime();
+      cpuTime = cpuTime();
+    }
+
+    private void stop(Phase phase) {
+      recordPending(phase, System.nanoTime() - wallTime, cpuTime() - cpuTime);
+    }
+
+    @Override
+    public void beginLex() {
+      start();
+    }
+
+    @Override
+    public void endLex() {
+      stop(Phase.LEX);
+    }
+
+    @Override
+    public void beginParse() {
+      start();
+    }
+
+    @Override
+    public void endParse() {
+      stop(Phase.PARSE);
+    }
+
+  }
+
+  private static class ProfilingBuilder<G extends Grammar> extends AstScanner.Builder<G> {
+
+    private final Profiler profiler;
+
+    public ProfilingBuilder(SquidAstVisitorContextImpl<G> context, Profiler profiler) {
+      super(context);
+      this.profiler = profiler;
+      super.withSquidAstVisitor(new FileTracker<G>(profiler));
+    }
+
+    @Override
+    public AstScanner.Builder<G> withSquidAstVisitor(SquidAstVisitor<G> visitor) {
+      return super.withSquidAstVisitor(new ProfilingVisitor<G>(profiler, visitor));
+    }
+
+  }
+
+  /**
+   * Visits file before and leaves file after all other visitors, so measures the whole visit of file.
+   */
+  private static class FileTracker<G extends Grammar> extends SquidAstVisitor<G> {
+
+    private final Profiler profiler;
+    private String fileKey;
+    private long wallTime;
+    private long cpuTime;
+
+    public FileTracker(Profiler profiler) {
+      this.profiler = profiler;
+    }
+
+    @Override
+    public void visitFile(AstNode astNode) {
+      fileKey = getContext().getFile().getAbsolutePath();
+      profiler.flushPending(fileKey);
+      wallTime = System.nanoTime();
+      cpuTime = cpuTime();
+    }
+
+    @Override
+    public void leaveFile(AstNode astNode) {
+      profiler.record(fileKey, Phase.VISIT, System.nanoTime() - wallTime, cpuTime() - cpuTime);
+    }
+
+  }
+
+}
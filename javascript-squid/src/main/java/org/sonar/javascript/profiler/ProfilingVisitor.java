@@ -0,0 +1,128 @@
+/*
+ * Sonar JavaScript Plugin
+ * Copyright (C) 2011 Eriks Nukis and SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.javascript.profiler;
+
+import com.sonar.sslr.api.AstAndTokenVisitor;
+import com.sonar.sslr.api.AstNode;
+import com.sonar.sslr.api.AstNodeType;
+import com.sonar.sslr.api.AuditListener;
+import com.sonar.sslr.api.Grammar;
+import com.sonar.sslr.api.RecognitionException;
+import com.sonar.sslr.api.Token;
+import com.sonar.sslr.squid.SquidAstVisitor;
+
+/**
+ * Measures wall time spent in a visitor, in total and on each file. Subscribes to the same node types as the visitor, once it has been initialized.
+ */
+class ProfilingVisitor<G extends Grammar> extends SquidAstVisitor<G> implements AstAndTokenVisitor, AuditListener {
+
+  private final Profiler profiler;
+  private final SquidAstVisitor<G> delegate;
+  private final String name;
+  private long time;
+  private long fileTime;
+
+  public ProfilingVisitor(Profiler profiler, SquidAstVisitor<G> delegate) {
+    this.profiler = profiler;
+    this.delegate = delegate;
+    this.name = delegate.getClass().getName();
+  }
+
+  @Override
+  public void init() {
+    if (delegate.getContext() == null) {
+      delegate.setContext(getContext());
+    }
+    long start = System.nanoTime();
+    delegate.init();
+    time += System.nanoTime() - start;
+    for (AstNodeType type : delegate.getAstNodeTypesToVisit()) {
+      if (!getAstNodeTypesToVisit().contains(type)) {
+        subscribeTo(type);
+      }
+    }
+  }
+
+  @Override
+  public void visitFile(AstNode astNode) {
+    fileTime = 0;
+    long start = System.nanoTime();
+    delegate.visitFile(astNode);
+    fileTime += System.nanoTime() - start;
+  }
+
+  @Override
+  public void visitNode(AstNode astNode) {
+    long start = System.nanoTime();
+    delegate.visitNode(astNode);
+    fileTime += System.nanoTime() - start;
+  }
+
+  public void visitToken(Token token) {
+    if (delegate instanceof AstAndTokenVisitor) {
+      long start = System.nanoTime();
+      ((AstAndTokenVisitor) delegate).visitToken(token);
+      fileTime += System.nanoTime() - start;
+    }
+  }
+
+  @Override
+  public void leaveNode(AstNode astNode) {
+    long start = System.nanoTime();
+    delegate.leaveNode(astNode);
+    fileTime += System.nanoTime() - start;
+  }
+
+  @Override
+  public void leaveFile(AstNode astNode) {
+    long start = System.nanoTime();
+    delegate.leaveFile(astNode);
+    fileTime += System.nanoTime() - start;
+    profiler.recordVisitor(getContext().getFile().getAbsolutePath(), name, fileTime);
+    time += fileTime;
+    fileTime = 0;
+  }
+
+  public void processRecognitionException(RecognitionException e) {
+    if (delegate instanceof AuditListener) {
+      long start = System.nanoTime();
+      ((AuditListener) delegate).processRecognitionException(e);
+      fileTime += System.nanoTime() - start;
+    }
+  }
+
+  public void processException(Exception e) {
+    if (delegate instanceof AuditListener) {
+      long start = System.nanoTime();
+      ((AuditListener) delegate).processException(e);
+      fileTime += System.nanoTime() - start;
+    }
+  }
+
+  @Override
+  public void destroy() {
+    long start = System.nanoTime();
+    delegate.destroy();
+    time += System.nanoTime() - start;
+    profiler.recordVisitor(name, time);
+    time = 0;
+  }
+
+}
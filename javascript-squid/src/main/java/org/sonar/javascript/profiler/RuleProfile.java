@@ -0,0 +1,58 @@
+/*
+ * Sonar JavaScript Plugin
+ * Copyright (C) 2011 Eriks Nukis and SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.javascript.profiler;
+
+/**
+ * Counters and times of a grammar rule. Not thread-safe: {@link RuleProfiler} merges them under lock.
+ */
+class RuleProfile {
+
+  private final String name;
+  long invocations;
+  long matches;
+  long backtracks;
+  long selfTime;
+  long totalTime;
+
+  public RuleProfile(String name) {
+    this.name = name;
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  public void add(RuleProfile other) {
+    invocations += other.invocations;
+    matches += other.matches;
+    backtracks += other.backtracks;
+    selfTime += other.selfTime;
+    totalTime += other.totalTime;
+  }
+
+  public void reset() {
+    invocations = 0;
+    matches = 0;
+    backtracks = 0;
+    selfTime = 0;
+    totalTime = 0;
+  }
+
+}
@@ -0,0 +1,224 @@
+/*
+ * Sonar JavaScript Plugin
+ * Copyright (C) 2011 Eriks Nukis and SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.javascript.profiler;
+
+import com.google.common.base.Charsets;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.io.Closeables;
+import com.google.common.io.Files;
+import com.sonar.sslr.api.AstNode;
+import com.sonar.sslr.impl.ParsingState;
+import com.sonar.sslr.impl.events.ParsingEventListener;
+import com.sonar.sslr.impl.matcher.RuleMatcher;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Records for each grammar rule number of invocations, successful matches and backtracks (invocations without match),
+ * as well as wall time spent in the rule: self time excludes time spent in nested rules,
+ * whereas total time includes it, but counts recursive invocations of the same rule only once.
+ * <p>
+ * Thread-safe: each parser should be given its own {@link #newParsingEventListener() listener}, which accumulates counters
+ * of a file and merges them at the end of parsing.
+ * </p>
+ */
+public class RuleProfiler {
+
+  private final Map<String, RuleProfile> rules = Maps.newHashMap();
+
+  /**
+   * @return listener, which must be registered in a single parser
+   */
+  public ParsingEventListener newParsingEventListener() {
+    return new RulesListener();
+  }
+
+  private synchronized void merge(Iterable<RuleProfile> profiles) {
+    for (RuleProfile profile : profiles) {
+      if (profile.invocations > 0) {
+        RuleProfile total = rules.get(profile.getName());
+        if (total == null) {
+          total = new RuleProfile(profile.getName());
+          rules.put(profile.getName(), total);
+        }
+        total.add(profile);
+        profile.reset();
+      }
+    }
+  }
+
+  /**
+   * @return copy of profiles of all invoked rules, the highest self time first
+   */
+  synchronized List<RuleProfile> getRules() {
+    List<RuleProfile> result = Lists.newArrayList();
+    for (RuleProfile profile : rules.values()) {
+      RuleProfile copy = new RuleProfile(profile.getName());
+      copy.add(profile);
+      result.add(copy);
+    }
+    Collections.sort(result, new Comparator<RuleProfile>() {
+      public int compare(RuleProfile o1, RuleProfile o2) {
+        if (o1.selfTime != o2.selfTime) {
+          return o1.selfTime > o2.selfTime ? -1 : 1;
+        }
+        return o1.getName().compareTo(o2.getName());
+      }
+    });
+    return result;
+  }
+
+  public void writeReport(File file) throws IOException {
+    Writer writer = Files.newWriter(file, Charsets.UTF_8);
+    try {
+      writeReport(writer);
+    } finally {
+      Closeables.closeQuietly(writer);
+    }
+  }
+
+  /**
+   * Writes report in JSON format: all invoked rules, the highest self time first. Times are in microseconds.
+   */
+  public void writeReport(Writer writer) throws IOException {
+    List<RuleProfile> sortedRules = getRules();
+    writer.append("{\n  \"rules\": [");
+    for (int i = 0; i < sortedRules.size(); i++) {
+      RuleProfile profile = sortedRules.get(i);
+      writer.append(i == 0 ? "\n" : ",\n");
+      writer.append("    {\"rule\": ").append(Profiler.quote(profile.getName()))
+          .append(", \"invocations\": ").append(Long.toString(profile.invocations))
+          .append(", \"matches\": ").append(Long.toString(profile.matches))
+          .append(", \"backtracks\": ").append(Long.toString(profile.backtracks))
+          .append(", \"self\": ").append(Long.toString(toMicros(profile.selfTime)))
+          .append(", \"total\": ").append(Long.toString(toMicros(profile.totalTime)))
+          .append("}");
+    }
+    writer.append("\n  ]\n}\n");
+    writer.flush();
+  }
+
+  private static long toMicros(long nanos) {
+    return TimeUnit.NANOSECONDS.toMicros(nanos);
+  }
+
+  private class RulesListener extends ParsingEventListener {
+
+    private final Map<RuleMatcher, RuleProfile> profiles = new IdentityHashMap<RuleMatcher, RuleProfile>();
+
+    /**
+     * Rules being matched with their start times and time spent in nested rules.
+     */
+    private RuleProfile[] stack = new RuleProfile[64];
+    private long[] startTimes = new long[64];
+    private long[] nestedTimes = new long[64];
+    private int depth;
+
+    /**
+     * Number of invocations of each rule on the stack, so that total time of recursive rules is counted once.
+     */
+    private final Map<RuleProfile, int[]> active = new IdentityHashMap<RuleProfile, int[]>();
+
+    @Override
+    public void beginParse() {
+      depth = 0;
+      active.clear();
+    }
+
+    @Override
+    public void endParse() {
+      merge(profiles.values());
+    }
+
+    @Override
+    public void enterRule(RuleMatcher rule, ParsingState parsingState) {
+      RuleProfile profile = profiles.get(rule);
+      if (profile == null) {
+        profile = new RuleProfile(rule.getName());
+        profiles.put(rule, profile);
+      }
+      profile.invocations++;
+      int[] count = active.get(profile);
+      if (count == null) {
+        count = new int[1];
+        active.put(profile, count);
+      }
+      count[0]++;
+
+      if (depth == stack.length) {
+        stack = copyOf(stack, depth * 2);
+        startTimes = copyOf(startTimes, depth * 2);
+        nestedTimes = copyOf(nestedTimes, depth * 2);
+      }
+      stack[depth] = profile;
+      nestedTimes[depth] = 0;
+      startTimes[depth] = System.nanoTime();
+      depth++;
+    }
+
+    @Override
+    public void exitWithMatchRule(RuleMatcher rule, ParsingState parsingState, AstNode astNode) {
+      exit().matches++;
+    }
+
+    @Override
+    public void exitWithoutMatchRule(RuleMatcher rule, ParsingState parsingState) {
+      exit().backtracks++;
+    }
+
+    private RuleProfile exit() {
+      long time = System.nanoTime();
+      depth--;
+      RuleProfile profile = stack[depth];
+      long elapsed = time - startTimes[depth];
+      profile.selfTime += elapsed - nestedTimes[depth];
+      if (depth > 0) {
+        nestedTimes[depth - 1] += elapsed;
+      }
+      if (--active.get(profile)[0] == 0) {
+        profile.totalTime += elapsed;
+      }
+      return profile;
+    }
+
+  }
+
+  private static RuleProfile[] copyOf(RuleProfile[] array, int length) {
+    RuleProfile[] result = new RuleProfile[length];
+    System.arraycopy(array, 0, result, 0, array.length);
+    return result;
+  }
+
+  private static long[] copyOf(long[] array, int length) {
+    long[] result = new long[length];
+    System.arraycopy(array, 0, result, 0, array.length);
+    return result;
+  }
+
+}
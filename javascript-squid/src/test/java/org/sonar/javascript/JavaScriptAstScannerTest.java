@@ -20,21 +20,43 @@
 package org.sonar.javascript;
 
 import com.google.common.base.Charsets;
+import com.google.common.base.Strings;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+import com.google.common.io.Files;
+import com.sonar.sslr.api.AstAndTokenVisitor;
+import com.sonar.sslr.api.AstNode;
+import com.sonar.sslr.api.AstNodeType;
+import com.sonar.sslr.api.AuditListener;
+import com.sonar.sslr.api.RecognitionException;
+import com.sonar.sslr.api.Token;
 import com.sonar.sslr.squid.AstScanner;
+import com.sonar.sslr.squid.SquidAstVisitor;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 import org.sonar.javascript.api.EcmaScriptGrammar;
 import org.sonar.javascript.api.EcmaScriptMetric;
+import org.sonar.javascript.api.EcmaScriptPunctuator;
+import org.sonar.javascript.api.UsedAstNodeTypes;
 import org.sonar.squid.api.SourceFile;
 import org.sonar.squid.api.SourceProject;
 import org.sonar.squid.indexer.QueryByType;
 
 import java.io.File;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
 
 import static org.fest.assertions.Assertions.assertThat;
 
 public class JavaScriptAstScannerTest {
 
+  @Rule
+  public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
   @Test
   public void files() {
     AstScanner<EcmaScriptGrammar> scanner = JavaScriptAstScanner.create(new EcmaScriptConfiguration(Charsets.UTF_8));
@@ -82,4 +104,252 @@ public class JavaScriptAstScannerTest {
     assertThat(file.getInt(EcmaScriptMetric.COMPLEXITY)).isEqualTo(16);
   }
 
+  @Test
+  public void tokens_only() {
+    File file = new File("src/test/resources/metrics/complexity.js");
+    SourceFile expected = JavaScriptAstScanner.scanSingleFile(file);
+    AstScanner<EcmaScriptGrammar> scanner = JavaScriptAstScanner.createTokensOnly(new EcmaScriptConfiguration(Charsets.UTF_8));
+    scanner.scanFile(file);
+    SourceFile actual = (SourceFile) scanner.getIndex().search(file.getAbsolutePath());
+
+    assertThat(actual.getInt(EcmaScriptMetric.FILES)).isEqualTo(1);
+    assertThat(actual.getInt(EcmaScriptMetric.LINES)).isEqualTo(expected.getInt(EcmaScriptMetric.LINES));
+    assertThat(actual.getInt(EcmaScriptMetric.LINES_OF_CODE)).isEqualTo(expected.getInt(EcmaScriptMetric.LINES_OF_CODE));
+    assertThat(actual.getInt(EcmaScriptMetric.COMMENT_LINES)).isEqualTo(expected.getInt(EcmaScriptMetric.COMMENT_LINES));
+    assertThat(actual.getInt(EcmaScriptMetric.COMPLEXITY)).isEqualTo(0);
+    assertThat(actual.getInt(EcmaScriptMetric.FUNCTIONS)).isEqualTo(0);
+    assertThat(actual.getInt(EcmaScriptMetric.STATEMENTS)).isEqualTo(0);
+    assertThat(JavaScriptAstScanner.isParseTimedOut(actual)).isFalse();
+  }
+
+  @Test
+  public void parse_timeout() throws Exception {
+    File file = temporaryFolder.newFile("huge.js");
+    Files.write("// comment\n" + Strings.repeat("a = (b + c) * d;\n", 5000), file, Charsets.UTF_8);
+    EcmaScriptConfiguration conf = new EcmaScriptConfiguration(Charsets.UTF_8);
+    conf.setParseTimeout(1);
+    AstScanner<EcmaScriptGrammar> scanner = JavaScriptAstScanner.create(conf);
+    scanner.scanFile(file);
+    SourceFile actual = (SourceFile) scanner.getIndex().search(file.getAbsolutePath());
+
+    assertThat(actual.getInt(EcmaScriptMetric.LINES)).isEqualTo(5002);
+    assertThat(actual.getInt(EcmaScriptMetric.LINES_OF_CODE)).isEqualTo(5000);
+    assertThat(actual.getInt(EcmaScriptMetric.COMMENT_LINES)).isEqualTo(1);
+    assertThat(actual.getInt(EcmaScriptMetric.STATEMENTS)).isEqualTo(0);
+    assertThat(JavaScriptAstScanner.isParseTimedOut(actual)).isTrue();
+  }
+
+  @Test
+  public void error_recovery() throws Exception {
+    File file = temporaryFolder.newFile("error.js");
+    Files.write("function f() {\n  var = 1;\n  return 1;\n}\nif (a) {\n  b();\n}\n", file, Charsets.UTF_8);
+    EcmaScriptConfiguration conf = new EcmaScriptConfiguration(Charsets.UTF_8);
+    conf.setErrorRecovery(true);
+    ErrorsVisitor visitor = new ErrorsVisitor();
+    AstScanner<EcmaScriptGrammar> scanner = JavaScriptAstScanner.create(conf, visitor);
+    scanner.scanFile(file);
+    SourceFile actual = (SourceFile) scanner.getIndex().search(file.getAbsolutePath());
+
+    assertThat(visitor.errors).containsExactly(2);
+    assertThat(actual.getInt(EcmaScriptMetric.LINES_OF_CODE)).isEqualTo(7);
+    assertThat(actual.getInt(EcmaScriptMetric.FUNCTIONS)).isEqualTo(1);
+    assertThat(actual.getInt(EcmaScriptMetric.STATEMENTS)).isEqualTo(3);
+    assertThat(actual.getInt(EcmaScriptMetric.COMPLEXITY)).isEqualTo(3);
+  }
+
+  @Test
+  public void lazy_function_bodies() {
+    File file = new File("src/test/resources/metrics/complexity.js");
+    SourceFile expected = JavaScriptAstScanner.scanSingleFile(file);
+    EcmaScriptConfiguration conf = new EcmaScriptConfiguration(Charsets.UTF_8);
+    conf.setLazyFunctionBodies(true);
+    TokensVisitor tokensVisitor = new TokensVisitor();
+    AstScanner<EcmaScriptGrammar> scanner = JavaScriptAstScanner.create(conf, tokensVisitor);
+    scanner.scanFile(file);
+    SourceFile actual = (SourceFile) scanner.getIndex().search(file.getAbsolutePath());
+
+    assertThat(actual.getInt(EcmaScriptMetric.LINES)).isEqualTo(expected.getInt(EcmaScriptMetric.LINES));
+    assertThat(actual.getInt(EcmaScriptMetric.LINES_OF_CODE)).isEqualTo(expected.getInt(EcmaScriptMetric.LINES_OF_CODE));
+    assertThat(actual.getInt(EcmaScriptMetric.COMMENT_LINES)).isEqualTo(expected.getInt(EcmaScriptMetric.COMMENT_LINES));
+    assertThat(actual.getInt(EcmaScriptMetric.FUNCTIONS)).isEqualTo(0);
+    assertThat(actual.getInt(EcmaScriptMetric.STATEMENTS)).isEqualTo(0);
+    assertThat(actual.getInt(EcmaScriptMetric.COMPLEXITY)).isEqualTo(0);
+    assertThat(actual.hasChildren()).isFalse();
+    assertThat(tokensVisitor.questionMarks).isEqualTo(1);
+    assertThat(tokensVisitor.functionBodies).isEqualTo(1);
+  }
+
+  @Test
+  public void should_parse_function_bodies_when_visitor_subscribes_to_rule() {
+    assertFunctionBodiesParsed(new ExpressionStatementVisitor());
+  }
+
+  @Test
+  public void should_parse_function_bodies_when_visitor_subscribes_to_token() {
+    assertFunctionBodiesParsed(new QuestionMarksVisitor());
+  }
+
+  private static void assertFunctionBodiesParsed(SquidAstVisitor<EcmaScriptGrammar> visitor) {
+    File file = new File("src/test/resources/metrics/complexity.js");
+    SourceFile expected = JavaScriptAstScanner.scanSingleFile(file);
+    EcmaScriptConfiguration conf = new EcmaScriptConfiguration(Charsets.UTF_8);
+    conf.setLazyFunctionBodies(true);
+    TokensVisitor tokensVisitor = new TokensVisitor();
+    AstScanner<EcmaScriptGrammar> scanner = JavaScriptAstScanner.create(conf, tokensVisitor, visitor);
+    scanner.scanFile(file);
+    SourceFile actual = (SourceFile) scanner.getIndex().search(file.getAbsolutePath());
+
+    assertThat(tokensVisitor.functionBodies).isEqualTo(0);
+    for (EcmaScriptMetric metric : EcmaScriptMetric.values()) {
+      assertThat(actual.getInt(metric)).as(metric.getName()).isEqualTo(expected.getInt(metric));
+    }
+    assertThat(actual.getChildren()).hasSize(expected.getChildren().size());
+  }
+
+  @Test
+  public void should_share_grammar_between_scanners_with_equal_configuration() {
+    EcmaScriptGrammar grammar = grammar(new EcmaScriptConfiguration(Charsets.UTF_8));
+    assertThat(grammar(new EcmaScriptConfiguration(Charsets.UTF_8))).isSameAs(grammar);
+
+    EcmaScriptConfiguration conf = new EcmaScriptConfiguration(Charsets.UTF_8);
+    conf.setPrecedenceClimbing(true);
+    assertThat(grammar(conf)).isNotSameAs(grammar);
+  }
+
+  @Test
+  public void should_not_share_grammar_between_scanners_which_modify_it() {
+    assertThat(grammar(collapsingConfiguration())).isNotSameAs(grammar(collapsingConfiguration()));
+  }
+
+  private static EcmaScriptGrammar grammar(EcmaScriptConfiguration conf) {
+    SquidAstVisitor<EcmaScriptGrammar> visitor = new SquidAstVisitor<EcmaScriptGrammar>() {
+    };
+    JavaScriptAstScanner.create(conf, visitor);
+    return visitor.getContext().getGrammar();
+  }
+
+  @Test
+  public void should_collapse_single_child_nodes() {
+    File file = new File("src/test/resources/metrics/complexity.js");
+    SourceFile expected = JavaScriptAstScanner.scanSingleFile(file);
+    AstScanner<EcmaScriptGrammar> scanner = JavaScriptAstScanner.create(collapsingConfiguration());
+    scanner.scanFile(file);
+    SourceFile actual = (SourceFile) scanner.getIndex().search(file.getAbsolutePath());
+    for (EcmaScriptMetric metric : EcmaScriptMetric.values()) {
+      assertThat(actual.getInt(metric)).as(metric.getName()).isEqualTo(expected.getInt(metric));
+    }
+
+    ExpressionStatementVisitor visitor = new DeclaringExpressionStatementVisitor();
+    JavaScriptAstScanner.create(collapsingConfiguration(), visitor).scanFile(new File("src/test/resources/metrics/statements.js"));
+    assertThat(visitor.expressionTypes).excludes(visitor.getContext().getGrammar().expression);
+  }
+
+  @Test
+  public void should_not_collapse_single_child_nodes_by_default() {
+    ExpressionStatementVisitor visitor = new DeclaringExpressionStatementVisitor();
+    JavaScriptAstScanner.scanSingleFile(new File("src/test/resources/metrics/statements.js"), visitor);
+    assertThat(visitor.expressionTypes).containsOnly(visitor.getContext().getGrammar().expression);
+  }
+
+  @Test
+  public void should_not_collapse_single_child_nodes_used_by_visitor() {
+    DeclaringExpressionStatementVisitor visitor = new DeclaringExpressionStatementVisitor();
+    visitor.usedTypes = true;
+    JavaScriptAstScanner.create(collapsingConfiguration(), visitor).scanFile(new File("src/test/resources/metrics/statements.js"));
+    assertThat(visitor.expressionTypes).containsOnly(visitor.getContext().getGrammar().expression);
+  }
+
+  @Test
+  public void should_not_collapse_single_child_nodes_when_visitor_does_not_declare_used_types() {
+    ExpressionStatementVisitor visitor = new ExpressionStatementVisitor();
+    JavaScriptAstScanner.create(collapsingConfiguration(), visitor).scanFile(new File("src/test/resources/metrics/statements.js"));
+    assertThat(visitor.expressionTypes).containsOnly(visitor.getContext().getGrammar().expression);
+  }
+
+  private static EcmaScriptConfiguration collapsingConfiguration() {
+    EcmaScriptConfiguration conf = new EcmaScriptConfiguration(Charsets.UTF_8);
+    conf.setCollapseSingleChildNodes(true);
+    return conf;
+  }
+
+  /**
+   * Counts question marks and function bodies, which contain only tokens.
+   */
+  private static class TokensVisitor extends SquidAstVisitor<EcmaScriptGrammar> implements AstAndTokenVisitor {
+
+    int questionMarks;
+    int functionBodies;
+
+    @Override
+    public void init() {
+      subscribeTo(getContext().getGrammar().program);
+    }
+
+    public void visitToken(Token token) {
+      if (token.getType() == EcmaScriptPunctuator.QUERY) {
+        questionMarks++;
+      }
+    }
+
+    @Override
+    public void visitNode(AstNode astNode) {
+      for (AstNode functionBody : astNode.findChildren(getContext().getGrammar().functionBody)) {
+        if (functionBody.hasChildren() && functionBody.getFirstChild().is(getContext().getGrammar().skippedToken)) {
+          functionBodies++;
+        }
+      }
+    }
+
+  }
+
+  private static class QuestionMarksVisitor extends SquidAstVisitor<EcmaScriptGrammar> {
+
+    @Override
+    public void init() {
+      subscribeTo(EcmaScriptPunctuator.QUERY);
+    }
+
+  }
+
+  private static class ErrorsVisitor extends SquidAstVisitor<EcmaScriptGrammar> implements AuditListener {
+
+    final List<Integer> errors = Lists.newArrayList();
+
+    public void processRecognitionException(RecognitionException e) {
+      assertThat(e.isFatal()).isFalse();
+      errors.add(e.getLine());
+    }
+
+    public void processException(Exception e) {
+      throw new IllegalStateException(e);
+    }
+
+  }
+
+  private static class ExpressionStatementVisitor extends SquidAstVisitor<EcmaScriptGrammar> {
+
+    final Set<AstNodeType> expressionTypes = Sets.newHashSet();
+
+    @Override
+    public void init() {
+      subscribeTo(getContext().getGrammar().expressionStatement);
+    }
+
+    @Override
+    public void visitNode(AstNode astNode) {
+      expressionTypes.add(astNode.getFirstChild().getType());
+    }
+
+  }
+
+  private static class DeclaringExpressionStatementVisitor extends ExpressionStatementVisitor implements UsedAstNodeTypes {
+
+    boolean usedTypes;
+
+    public Collection<AstNodeType> getUsedAstNodeTypes() {
+      return usedTypes ? Collections.<AstNodeType> singleton(getContext().getGrammar().expression) : Collections.<AstNodeType> emptySet();
+    }
+
+  }
+
 }
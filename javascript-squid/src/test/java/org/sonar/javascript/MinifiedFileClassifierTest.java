@@ -0,0 +1,72 @@
+/*
+ * Sonar JavaScript Plugin
+ * Copyright (C) 2011 Eriks Nukis and SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.javascript;
+
+import com.google.common.base.Charsets;
+import com.google.common.base.Strings;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.StringReader;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class MinifiedFileClassifierTest {
+
+  private final MinifiedFileClassifier classifier = new MinifiedFileClassifier(Charsets.UTF_8, 200, 0.03);
+
+  @Test
+  public void should_not_classify_regular_files() {
+    assertThat(classifier.isMinified(new File("src/test/resources/metrics/complexity.js"))).isFalse();
+    assertThat(classifier.isMinified(new File("src/test/resources/metrics/comments.js"))).isFalse();
+  }
+
+  @Test
+  public void should_classify_minified_file() {
+    assertThat(classifier.isMinified(new File("src/test/resources/parsing/minified.min.js"))).isTrue();
+  }
+
+  @Test
+  public void long_lines() throws IOException {
+    assertThat(classifier.isMinified(new StringReader(Strings.repeat("a = b; ", 30) + "\n"))).isTrue();
+    assertThat(classifier.isMinified(new StringReader(Strings.repeat("a = b; ", 30) + "\n" + Strings.repeat("\n", 10)))).isFalse();
+  }
+
+  @Test
+  public void whitespaces() throws IOException {
+    assertThat(classifier.isMinified(new StringReader(Strings.repeat(Strings.repeat("a=b;", 10) + "\n", 30)))).isTrue();
+    assertThat(classifier.isMinified(new StringReader(Strings.repeat(Strings.repeat("a=b;", 10) + "\n", 10)))).isFalse();
+    assertThat(classifier.isMinified(new StringReader(Strings.repeat("a = b;\n", 200)))).isFalse();
+  }
+
+  @Test
+  public void empty_file() throws IOException {
+    assertThat(classifier.isMinified(new StringReader(""))).isFalse();
+  }
+
+  @Test
+  public void disabled() throws IOException {
+    MinifiedFileClassifier disabled = new MinifiedFileClassifier(Charsets.UTF_8, 0, 0);
+    assertThat(disabled.isMinified(new StringReader(Strings.repeat("a=b;c=d;", 200)))).isFalse();
+    assertThat(disabled.isMinified(new File("src/test/resources/parsing/minified.min.js"))).isFalse();
+  }
+
+}
@@ -0,0 +1,162 @@
+/*
+ * Sonar JavaScript Plugin
+ * Copyright (C) 2011 Eriks Nukis and SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.javascript;
+
+import com.google.common.base.Charsets;
+import com.google.common.base.Supplier;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Ordering;
+import com.sonar.sslr.api.AstNode;
+import com.sonar.sslr.squid.AstScanner;
+import com.sonar.sslr.squid.SquidAstVisitor;
+import org.junit.Test;
+import org.sonar.javascript.api.EcmaScriptGrammar;
+import org.sonar.javascript.api.EcmaScriptMetric;
+import org.sonar.squid.api.SourceCode;
+import org.sonar.squid.api.SourceCodeSearchEngine;
+import org.sonar.squid.api.SourceFile;
+import org.sonar.squid.api.SourceFunction;
+import org.sonar.squid.api.SourceProject;
+import org.sonar.squid.indexer.QueryByType;
+
+import java.io.File;
+import java.util.List;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class ParallelAstScannerTest {
+
+  private static final List<File> FILES = ImmutableList.of(
+      new File("src/test/resources/metrics/comments.js"),
+      new File("src/test/resources/metrics/complexity.js"),
+      new File("src/test/resources/metrics/functions.js"),
+      new File("src/test/resources/metrics/lines.js"),
+      new File("src/test/resources/metrics/lines_of_code.js"),
+      new File("src/test/resources/metrics/statements.js"));
+
+  private static final Supplier<AstScanner<EcmaScriptGrammar>> SCANNER_FACTORY = new Supplier<AstScanner<EcmaScriptGrammar>>() {
+    public AstScanner<EcmaScriptGrammar> get() {
+      return JavaScriptAstScanner.create(new EcmaScriptConfiguration(Charsets.UTF_8));
+    }
+  };
+
+  @Test
+  public void should_produce_same_results_as_single_scanner() {
+    AstScanner<EcmaScriptGrammar> scanner = SCANNER_FACTORY.get();
+    scanner.scanFiles(FILES);
+
+    ParallelAstScanner parallelScanner = new ParallelAstScanner(3, SCANNER_FACTORY);
+    parallelScanner.scanFiles(FILES);
+
+    assertSameMeasures(parallelScanner.getIndex(), scanner.getIndex(), SourceProject.class);
+    assertSameMeasures(parallelScanner.getIndex(), scanner.getIndex(), SourceFile.class);
+    assertSameMeasures(parallelScanner.getIndex(), scanner.getIndex(), SourceFunction.class);
+  }
+
+  @Test
+  public void should_support_more_workers_than_files() {
+    ParallelAstScanner parallelScanner = new ParallelAstScanner(4, SCANNER_FACTORY);
+    parallelScanner.scanFiles(ImmutableList.of(new File("src/test/resources/metrics/lines.js")));
+
+    SourceProject project = (SourceProject) parallelScanner.getIndex().search(new QueryByType(SourceProject.class)).iterator().next();
+    assertThat(project.getInt(EcmaScriptMetric.FILES)).isEqualTo(1);
+    assertThat(project.getInt(EcmaScriptMetric.LINES)).isEqualTo(5);
+  }
+
+  @Test
+  public void should_order_files_from_largest_to_smallest() {
+    File smallest = new File("src/test/resources/metrics/lines.js");
+    File largest = new File("src/test/resources/metrics/complexity.js");
+    assertThat(ParallelAstScanner.largestFirst().sortedCopy(ImmutableList.of(smallest, largest))).containsExactly(largest, smallest);
+  }
+
+  @Test
+  public void should_scan_largest_files_first() {
+    List<File> scanned = Lists.newArrayList();
+    new ParallelAstScanner(1, scannerFactory(scanned)).scanFiles(FILES);
+
+    assertThat(scanned).containsExactly(
+        new File("src/test/resources/metrics/statements.js"),
+        new File("src/test/resources/metrics/complexity.js"),
+        new File("src/test/resources/metrics/functions.js"),
+        new File("src/test/resources/metrics/comments.js"),
+        new File("src/test/resources/metrics/lines.js"),
+        new File("src/test/resources/metrics/lines_of_code.js"));
+  }
+
+  @Test
+  public void should_scan_files_in_given_order() {
+    List<File> scanned = Lists.newArrayList();
+    new ParallelAstScanner(1, scannerFactory(scanned)).scanFiles(FILES, Ordering.usingToString().reverse());
+
+    assertThat(scanned).containsExactly(
+        new File("src/test/resources/metrics/statements.js"),
+        new File("src/test/resources/metrics/lines_of_code.js"),
+        new File("src/test/resources/metrics/lines.js"),
+        new File("src/test/resources/metrics/functions.js"),
+        new File("src/test/resources/metrics/complexity.js"),
+        new File("src/test/resources/metrics/comments.js"));
+  }
+
+  @Test
+  public void should_produce_same_results_in_any_order() {
+    AstScanner<EcmaScriptGrammar> scanner = SCANNER_FACTORY.get();
+    scanner.scanFiles(FILES);
+
+    ParallelAstScanner parallelScanner = new ParallelAstScanner(2, SCANNER_FACTORY);
+    parallelScanner.scanFiles(FILES, Ordering.usingToString().reverse());
+
+    assertSameMeasures(parallelScanner.getIndex(), scanner.getIndex(), SourceFile.class);
+    assertSameMeasures(parallelScanner.getIndex(), scanner.getIndex(), SourceFunction.class);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void should_require_at_least_one_worker() {
+    new ParallelAstScanner(0, SCANNER_FACTORY);
+  }
+
+  /**
+   * @param scanned receives files in the order, in which they were scanned
+   */
+  private static Supplier<AstScanner<EcmaScriptGrammar>> scannerFactory(final List<File> scanned) {
+    return new Supplier<AstScanner<EcmaScriptGrammar>>() {
+      public AstScanner<EcmaScriptGrammar> get() {
+        return JavaScriptAstScanner.create(new EcmaScriptConfiguration(Charsets.UTF_8), new SquidAstVisitor<EcmaScriptGrammar>() {
+          @Override
+          public void visitFile(AstNode astNode) {
+            scanned.add(new File("src/test/resources/metrics", getContext().getFile().getName()));
+          }
+        });
+      }
+    };
+  }
+
+  private static void assertSameMeasures(SourceCodeSearchEngine actual, SourceCodeSearchEngine expected, Class<? extends SourceCode> type) {
+    assertThat(actual.search(new QueryByType(type)).size()).isEqualTo(expected.search(new QueryByType(type)).size());
+    for (SourceCode expectedSourceCode : expected.search(new QueryByType(type))) {
+      SourceCode actualSourceCode = actual.search(expectedSourceCode.getKey());
+      for (EcmaScriptMetric metric : EcmaScriptMetric.values()) {
+        assertThat(actualSourceCode.getDouble(metric)).as(expectedSourceCode + " " + metric).isEqualTo(expectedSourceCode.getDouble(metric));
+      }
+    }
+  }
+
+}
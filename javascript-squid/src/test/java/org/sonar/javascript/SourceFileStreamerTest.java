@@ -0,0 +1,108 @@
+/*
+ * Sonar JavaScript Plugin
+ * Copyright (C) 2011 Eriks Nukis and SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.javascript;
+
+import com.google.common.base.Charsets;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.sonar.sslr.squid.AstScanner;
+import org.junit.Test;
+import org.sonar.javascript.api.EcmaScriptGrammar;
+import org.sonar.javascript.api.EcmaScriptMetric;
+import org.sonar.squid.api.SourceCode;
+import org.sonar.squid.api.SourceFile;
+import org.sonar.squid.api.SourceFunction;
+import org.sonar.squid.indexer.QueryByParent;
+import org.sonar.squid.indexer.QueryByType;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class SourceFileStreamerTest {
+
+  private static final List<File> FILES = ImmutableList.of(
+      new File("src/test/resources/metrics/comments.js"),
+      new File("src/test/resources/metrics/complexity.js"),
+      new File("src/test/resources/parsing/parsing_error.js"),
+      new File("src/test/resources/metrics/functions.js"));
+
+  private final List<SourceFile> sourceFiles = Lists.newArrayList();
+  private final List<double[]> functionComplexities = Lists.newArrayList();
+
+  private final SourceFileStreamer streamer = new SourceFileStreamer(new SourceFileStreamer.Callback() {
+    public void onSourceFile(SourceFile sourceFile, double[] functionComplexities) {
+      sourceFiles.add(sourceFile);
+      SourceFileStreamerTest.this.functionComplexities.add(functionComplexities);
+    }
+  });
+
+  @Test
+  public void should_stream_files_with_final_measures() {
+    AstScanner<EcmaScriptGrammar> scanner = JavaScriptAstScanner.create(new EcmaScriptConfiguration(Charsets.UTF_8));
+    scanner.scanFiles(FILES);
+
+    JavaScriptAstScanner.create(new EcmaScriptConfiguration(Charsets.UTF_8), streamer).scanFiles(FILES);
+
+    assertThat(sourceFiles.size()).isEqualTo(FILES.size());
+    for (int i = 0; i < FILES.size(); i++) {
+      SourceFile expected = (SourceFile) scanner.getIndex().search(FILES.get(i).getAbsolutePath());
+      SourceFile actual = sourceFiles.get(i);
+      assertThat(actual.getKey()).isEqualTo(expected.getKey());
+      for (EcmaScriptMetric metric : EcmaScriptMetric.values()) {
+        assertThat(actual.getDouble(metric)).as(actual + " " + metric).isEqualTo(expected.getDouble(metric));
+      }
+      assertThat(sort(functionComplexities.get(i))).isEqualTo(functionComplexities(scanner, expected));
+    }
+  }
+
+  private static double[] functionComplexities(AstScanner<EcmaScriptGrammar> scanner, SourceFile sourceFile) {
+    Collection<SourceCode> functions = scanner.getIndex().search(new QueryByParent(sourceFile), new QueryByType(SourceFunction.class));
+    double[] result = new double[functions.size()];
+    int i = 0;
+    for (SourceCode function : functions) {
+      result[i++] = function.getDouble(EcmaScriptMetric.COMPLEXITY);
+    }
+    return sort(result);
+  }
+
+  private static double[] sort(double[] array) {
+    Arrays.sort(array);
+    return array;
+  }
+
+  @Test
+  public void should_release_files() {
+    AstScanner<EcmaScriptGrammar> scanner = JavaScriptAstScanner.create(new EcmaScriptConfiguration(Charsets.UTF_8), streamer);
+    scanner.scanFiles(FILES);
+
+    assertThat(scanner.getIndex().search(new QueryByType(SourceFile.class))).isEmpty();
+    assertThat(scanner.getIndex().search(new QueryByType(SourceFunction.class))).isEmpty();
+    SourceCode project = sourceFiles.get(0).getParent();
+    assertThat(project.hasChildren()).isFalse();
+
+    SourceFile functions = sourceFiles.get(3);
+    assertThat(functions.getChildren().size()).isEqualTo(3);
+  }
+
+}
@@ -0,0 +1,110 @@
+/*
+ * Sonar JavaScript Plugin
+ * Copyright (C) 2011 Eriks Nukis and SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.javascript;
+
+import com.google.common.base.Charsets;
+import com.google.common.base.Strings;
+import com.google.common.io.Files;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class SourceReaderTest {
+
+  @Rule
+  public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  @Test
+  public void should_read_like_input_stream_reader() throws Exception {
+    assertSameAsReader("", Charsets.UTF_8);
+    assertSameAsReader("var a = 1;\n", Charsets.UTF_8);
+    assertSameAsReader("var a = 'café 𝄞';\n", Charsets.UTF_8);
+    assertSameAsReader("var a = 'café';\n", Charsets.ISO_8859_1);
+    assertSameAsReader("var a = 'café';\n", Charsets.UTF_16);
+    assertSameAsReader("var a = 'café';\n", Charset.forName("windows-1252"));
+  }
+
+  @Test
+  public void should_replace_malformed_input() throws Exception {
+    File file = temporaryFolder.newFile("malformed.js");
+    Files.write(new byte[] {'a', (byte) 0xC3, 'b', (byte) 0xE2, (byte) 0x82}, file);
+    assertThat(SourceReader.read(file, Charsets.UTF_8).toString()).isEqualTo(Files.toString(file, Charsets.UTF_8));
+  }
+
+  @Test
+  public void should_read_large_file() throws Exception {
+    String source = Strings.repeat("var café = 1;\n", SourceReader.MAPPING_THRESHOLD / 10);
+    assertSameAsReader(source, Charsets.UTF_8);
+    assertSameAsReader(source, Charsets.ISO_8859_1);
+  }
+
+  @Test
+  public void should_read_beginning_of_file() throws Exception {
+    File file = write("var café = 1;\n", Charsets.UTF_8);
+    assertThat(SourceReader.read(file, Charsets.UTF_8, 5).toString()).isEqualTo("var c");
+    assertThat(SourceReader.read(file, Charsets.UTF_8, 9).toString()).isEqualTo("var café ");
+  }
+
+  @Test
+  public void should_reuse_buffer() throws Exception {
+    File file = write("var a = 1;\n", Charsets.UTF_8);
+    CharBuffer buffer = SourceReader.read(file, Charsets.UTF_8);
+    assertThat(SourceReader.read(file, Charsets.UTF_8)).isSameAs(buffer);
+  }
+
+  @Test
+  public void should_not_keep_buffer_of_large_file() throws Exception {
+    File largeFile = write(Strings.repeat("var a = 1;\n", SourceReader.MAX_REUSED_CAPACITY / 10), Charsets.UTF_8);
+    File smallFile = write("var a = 1;\n", Charsets.UTF_8);
+
+    CharBuffer large = SourceReader.read(largeFile, Charsets.UTF_8);
+    CharBuffer small = SourceReader.read(smallFile, Charsets.UTF_8);
+    assertThat(small).isNotSameAs(large);
+    assertThat(small.capacity()).isLessThanOrEqualTo(SourceReader.MAX_REUSED_CAPACITY);
+    assertThat(SourceReader.read(largeFile, Charsets.UTF_8)).isNotSameAs(large);
+  }
+
+  @Test
+  public void should_release_file() throws Exception {
+    String source = Strings.repeat("var a = 1;\n", SourceReader.MAPPING_THRESHOLD / 10);
+    File file = write(source, Charsets.UTF_8);
+    assertThat(SourceReader.read(file, Charsets.UTF_8).length()).isEqualTo(source.length());
+    assertThat(file.delete()).isTrue();
+  }
+
+  private void assertSameAsReader(String source, Charset charset) throws IOException {
+    File file = write(source, charset);
+    assertThat(SourceReader.read(file, charset).toString()).isEqualTo(Files.toString(file, charset));
+  }
+
+  private File write(String source, Charset charset) throws IOException {
+    File file = temporaryFolder.newFile();
+    Files.write(source, file, charset);
+    return file;
+  }
+
+}
@@ -0,0 +1,114 @@
+/*
+ * Sonar JavaScript Plugin
+ * Copyright (C) 2011 Eriks Nukis and SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.javascript.lexer;
+
+import com.google.common.base.Charsets;
+import com.google.common.collect.Lists;
+import com.sonar.sslr.api.GenericTokenType;
+import com.sonar.sslr.api.Token;
+import com.sonar.sslr.api.Trivia;
+import com.sonar.sslr.impl.Lexer;
+import org.apache.commons.io.FileUtils;
+import org.junit.Test;
+import org.sonar.javascript.EcmaScriptConfiguration;
+import org.sonar.javascript.api.EcmaScriptPunctuator;
+
+import java.io.File;
+import java.net.URI;
+import java.util.Collection;
+import java.util.List;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class CompactTokensTest {
+
+  private final EcmaScriptConfiguration conf = new EcmaScriptConfiguration(Charsets.UTF_8);
+  private final Lexer lexer = EcmaScriptLexer.create(conf);
+
+  @Test
+  public void should_store_types_and_positions() {
+    CompactTokens tokens = EcmaScriptLexer.lexCompact(URI.create("tests://unittest"), "a =\r\n /* c */ 'b';");
+    assertThat(tokens.size()).isEqualTo(5);
+
+    assertThat(tokens.getType(0)).isSameAs(GenericTokenType.IDENTIFIER);
+    assertThat(tokens.getType(1)).isSameAs(EcmaScriptPunctuator.EQU);
+    assertThat(tokens.getType(2)).isSameAs(GenericTokenType.LITERAL);
+    assertThat(tokens.getLine(2)).isEqualTo(2);
+    assertThat(tokens.getColumn(2)).isEqualTo(9);
+    assertThat(tokens.getOffset(2)).isEqualTo(14);
+    assertThat(tokens.getLength(2)).isEqualTo(3);
+    assertThat(tokens.getValue(2)).isEqualTo("'b'");
+    assertThat(tokens.getCommentsCount(2)).isEqualTo(1);
+    assertThat(tokens.getCommentLine(2, 0)).isEqualTo(2);
+    assertThat(tokens.getCommentValue(2, 0)).isEqualTo("/* c */");
+    assertThat(tokens.getCommentsCount(3)).isEqualTo(0);
+
+    assertThat(tokens.getType(4)).isSameAs(GenericTokenType.EOF);
+    assertThat(tokens.getValue(4)).isEqualTo("EOF");
+    assertThat(tokens.getOffset(4)).isEqualTo(18);
+  }
+
+  @Test
+  public void should_produce_same_tokens_as_lexer() {
+    assertSameTokens("");
+    assertSameTokens("﻿var a = /b/g / c; // d\n/* e */ # 'f");
+    assertSameTokens("a\rb\r\n\r\nc\n");
+  }
+
+  @Test
+  public void should_produce_same_tokens_on_resources() throws Exception {
+    Collection<File> files = FileUtils.listFiles(new File("src/test/resources"), new String[] {"js"}, true);
+    for (File file : files) {
+      CompactTokens actual = EcmaScriptLexer.lexCompact(conf, file);
+      assertThat(actual.getURI()).isEqualTo(file.toURI());
+      assertThat(toString(toList(actual))).as(file.getPath()).isEqualTo(toString(lexer.lex(file)));
+    }
+  }
+
+  private void assertSameTokens(String source) {
+    List<Token> expected = lexer.lex(source);
+    List<Token> actual = toList(EcmaScriptLexer.lexCompact(URI.create("tests://unittest"), source));
+    assertThat(toString(actual)).as(source).isEqualTo(toString(expected));
+  }
+
+  private static List<Token> toList(CompactTokens tokens) {
+    List<Token> result = Lists.newArrayList();
+    for (int i = 0; i < tokens.size(); i++) {
+      result.add(tokens.getToken(i));
+    }
+    return result;
+  }
+
+  private static String toString(List<Token> tokens) {
+    StringBuilder sb = new StringBuilder();
+    for (Token token : tokens) {
+      for (Trivia trivia : token.getTrivia()) {
+        sb.append("  ").append(toString(trivia.getToken())).append('\n');
+      }
+      sb.append(toString(token)).append('\n');
+    }
+    return sb.toString();
+  }
+
+  private static String toString(Token token) {
+    return token.getType() + " " + token.getLine() + ":" + token.getColumn() + " " + token.getOriginalValue() + " " + token.getURI();
+  }
+
+}
@@ -0,0 +1,89 @@
+/*
+ * Sonar JavaScript Plugin
+ * Copyright (C) 2011 Eriks Nukis and SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.javascript.lexer;
+
+import com.google.common.base.Charsets;
+import com.sonar.sslr.api.Token;
+import com.sonar.sslr.api.Trivia;
+import com.sonar.sslr.impl.Lexer;
+import org.apache.commons.io.FileUtils;
+import org.junit.Test;
+import org.sonar.javascript.EcmaScriptConfiguration;
+
+import java.io.File;
+import java.util.Collection;
+import java.util.List;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class EcmaScriptHandWrittenChannelTest {
+
+  private final Lexer regexpLexer = EcmaScriptLexer.create(new EcmaScriptConfiguration(Charsets.UTF_8));
+  private final Lexer handWrittenLexer = createHandWrittenLexer();
+
+  private static Lexer createHandWrittenLexer() {
+    EcmaScriptConfiguration conf = new EcmaScriptConfiguration(Charsets.UTF_8);
+    conf.setHandWrittenLexer(true);
+    return EcmaScriptLexer.create(conf);
+  }
+
+  @Test
+  public void should_produce_same_tokens_as_regular_expressions() {
+    assertSameTokens("0x 0x1F 0x1.fp2 0x1p3d 0b 0b101L 00x1 1. 1.5e+3f .5E2 1e 1e3 1f 1L 0.e_");
+    assertSameTokens("a = b / c / d; e = /[/]\\//g.test(f); g = (h) / 2; i = [/x/, / y/]");
+    assertSameTokens("/x/ /y\n/ /[]/ /\\u/ /\\x1/ /\\u12345/");
+    assertSameTokens("'a\\'b' \"c\\\nd\" 'unterminated");
+    assertSameTokens("<!-- html comment\n/* block */ /* unterminated");
+    assertSameTokens("café été _$ $_1 if iff instanceof x\u0000y \\u0061 # @");
+    assertSameTokens(">>>= >>> >>= >> >= > === == = !== != ! ... . ++ += + && &= &");
+    assertSameTokens("﻿var a;\u000B\f\r\n b");
+  }
+
+  @Test
+  public void should_produce_same_tokens_on_resources() throws Exception {
+    Collection<File> files = FileUtils.listFiles(new File("src/test/resources"), new String[] {"js"}, true);
+    assertThat(files).isNotEmpty();
+    for (File file : files) {
+      assertSameTokens(FileUtils.readFileToString(file, "UTF-8"));
+    }
+  }
+
+  private void assertSameTokens(String source) {
+    List<Token> expected = regexpLexer.lex(source);
+    List<Token> actual = handWrittenLexer.lex(source);
+    assertThat(toString(actual)).as(source).isEqualTo(toString(expected));
+  }
+
+  private static String toString(List<Token> tokens) {
+    StringBuilder sb = new StringBuilder();
+    for (Token token : tokens) {
+      for (Trivia trivia : token.getTrivia()) {
+        sb.append("  ").append(toString(trivia.getToken())).append('\n');
+      }
+      sb.append(toString(token)).append('\n');
+    }
+    return sb.toString();
+  }
+
+  private static String toString(Token token) {
+    return token.getType() + " " + token.getLine() + ":" + token.getColumn() + " " + token.getOriginalValue();
+  }
+
+}
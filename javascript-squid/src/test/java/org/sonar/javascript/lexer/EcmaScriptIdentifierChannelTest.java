@@ -0,0 +1,87 @@
+/*
+ * Sonar JavaScript Plugin
+ * Copyright (C) 2011 Eriks Nukis and SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.javascript.lexer;
+
+import com.google.common.base.Joiner;
+import com.sonar.sslr.api.Token;
+import com.sonar.sslr.impl.Lexer;
+import com.sonar.sslr.impl.channel.BlackHoleChannel;
+import com.sonar.sslr.impl.channel.IdentifierAndKeywordChannel;
+import com.sonar.sslr.impl.channel.UnknownCharacterChannel;
+import org.apache.commons.io.FileUtils;
+import org.junit.Test;
+import org.sonar.channel.Channel;
+import org.sonar.javascript.api.EcmaScriptKeyword;
+
+import java.io.File;
+import java.util.List;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class EcmaScriptIdentifierChannelTest {
+
+  private final Lexer expectedLexer = lexer(new IdentifierAndKeywordChannel(EcmaScriptLexer.IDENTIFIER, true, EcmaScriptKeyword.values()));
+  private final Lexer actualLexer = lexer(new EcmaScriptIdentifierChannel());
+
+  private static Lexer lexer(Channel<Lexer> identifierChannel) {
+    return Lexer.builder()
+        .withFailIfNoChannelToConsumeOneCharacter(true)
+        .withChannel(new BlackHoleChannel("\\s++"))
+        .withChannel(identifierChannel)
+        .withChannel(new UnknownCharacterChannel())
+        .build();
+  }
+
+  @Test
+  public void should_recognize_keywords() {
+    for (EcmaScriptKeyword keyword : EcmaScriptKeyword.values()) {
+      List<Token> tokens = actualLexer.lex(keyword.getValue());
+      assertThat(tokens.get(0).getType()).isSameAs(keyword);
+      assertThat(tokens.get(0).getValue()).isEqualTo(keyword.getValue());
+    }
+  }
+
+  @Test
+  public void should_produce_same_tokens_as_identifier_and_keyword_channel() {
+    assertSameTokens("a _ $ a1 _$a if iff i in inn instanceof instanceOf Function nulll nul null");
+    assertSameTokens("x\u0000y \u007F $¢ café été π̀ ٠ 𝒜𝒜 \uD835 a\uD835 1a");
+    assertSameTokens("\tif(this.x){return}\r\nvar y");
+  }
+
+  @Test
+  public void should_produce_same_tokens_on_resources() throws Exception {
+    for (File file : FileUtils.listFiles(new File("src/test/resources"), new String[] {"js"}, true)) {
+      assertSameTokens(FileUtils.readFileToString(file, "UTF-8"));
+    }
+  }
+
+  private void assertSameTokens(String source) {
+    assertThat(toString(actualLexer.lex(source))).as(source).isEqualTo(toString(expectedLexer.lex(source)));
+  }
+
+  private static String toString(List<Token> tokens) {
+    StringBuilder sb = new StringBuilder();
+    for (Token token : tokens) {
+      sb.append(Joiner.on(' ').join(token.getType(), token.getLine() + ":" + token.getColumn(), token.getValue(), token.getOriginalValue())).append('\n');
+    }
+    return sb.toString();
+  }
+
+}
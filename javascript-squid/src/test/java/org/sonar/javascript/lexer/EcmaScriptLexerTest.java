@@ -23,24 +23,36 @@ import com.google.common.base.Charsets;
 import com.sonar.sslr.api.GenericTokenType;
 import com.sonar.sslr.impl.Lexer;
 import com.sonar.sslr.impl.channel.UnknownCharacterChannel;
-import org.junit.BeforeClass;
 import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.junit.runners.Parameterized.Parameters;
 import org.sonar.javascript.EcmaScriptConfiguration;
 import org.sonar.javascript.api.EcmaScriptKeyword;
 import org.sonar.javascript.api.EcmaScriptTokenType;
 
+import java.util.Arrays;
+import java.util.Collection;
+
 import static com.sonar.sslr.test.lexer.LexerMatchers.hasComment;
 import static com.sonar.sslr.test.lexer.LexerMatchers.hasToken;
 import static com.sonar.sslr.test.lexer.LexerMatchers.hasTokens;
 import static org.junit.Assert.assertThat;
 
+@RunWith(Parameterized.class)
 public class EcmaScriptLexerTest {
 
-  private static Lexer lexer;
+  @Parameters
+  public static Collection<Object[]> engines() {
+    return Arrays.asList(new Object[][] {{false}, {true}});
+  }
+
+  private final Lexer lexer;
 
-  @BeforeClass
-  public static void init() {
-    lexer = EcmaScriptLexer.create(new EcmaScriptConfiguration(Charsets.UTF_8));
+  public EcmaScriptLexerTest(boolean handWrittenLexer) {
+    EcmaScriptConfiguration conf = new EcmaScriptConfiguration(Charsets.UTF_8);
+    conf.setHandWrittenLexer(handWrittenLexer);
+    lexer = EcmaScriptLexer.create(conf);
   }
 
   @Test
@@ -64,7 +76,7 @@ public class EcmaScriptLexerTest {
     assertRegexp("/[\\xFF]/");
   }
 
-  private static void assertRegexp(String regexp) {
+  private void assertRegexp(String regexp) {
     assertThat(lexer.lex(regexp), hasToken(regexp, EcmaScriptTokenType.REGULAR_EXPRESSION_LITERAL));
   }
 
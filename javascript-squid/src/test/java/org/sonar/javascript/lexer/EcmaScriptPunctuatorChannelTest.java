@@ -0,0 +1,82 @@
+/*
+ * Sonar JavaScript Plugin
+ * Copyright (C) 2011 Eriks Nukis and SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.javascript.lexer;
+
+import com.sonar.sslr.api.Token;
+import com.sonar.sslr.impl.Lexer;
+import com.sonar.sslr.impl.channel.BlackHoleChannel;
+import com.sonar.sslr.impl.channel.PunctuatorChannel;
+import com.sonar.sslr.impl.channel.UnknownCharacterChannel;
+import org.junit.Test;
+import org.sonar.channel.Channel;
+import org.sonar.javascript.api.EcmaScriptPunctuator;
+
+import java.util.List;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class EcmaScriptPunctuatorChannelTest {
+
+  private final Lexer expectedLexer = lexer(new PunctuatorChannel(EcmaScriptPunctuator.values()));
+  private final Lexer actualLexer = lexer(new EcmaScriptPunctuatorChannel());
+
+  private static Lexer lexer(Channel<Lexer> punctuatorChannel) {
+    return Lexer.builder()
+        .withFailIfNoChannelToConsumeOneCharacter(true)
+        .withChannel(new BlackHoleChannel("\\s++"))
+        .withChannel(punctuatorChannel)
+        .withChannel(new UnknownCharacterChannel())
+        .build();
+  }
+
+  @Test
+  public void should_recognize_punctuators() {
+    for (EcmaScriptPunctuator punctuator : EcmaScriptPunctuator.values()) {
+      List<Token> tokens = actualLexer.lex(punctuator.getValue());
+      assertThat(tokens.size()).isEqualTo(2);
+      assertThat(tokens.get(0).getType()).isSameAs(punctuator);
+    }
+  }
+
+  @Test
+  public void should_produce_same_tokens_as_punctuator_channel() {
+    StringBuilder sb = new StringBuilder();
+    for (EcmaScriptPunctuator first : EcmaScriptPunctuator.values()) {
+      for (EcmaScriptPunctuator second : EcmaScriptPunctuator.values()) {
+        sb.append(first.getValue()).append(second.getValue()).append(' ');
+      }
+    }
+    assertSameTokens(sb.toString());
+    assertSameTokens(">>>>=!===>>>=<<=<!-- a#b§");
+  }
+
+  private void assertSameTokens(String source) {
+    assertThat(toString(actualLexer.lex(source))).isEqualTo(toString(expectedLexer.lex(source)));
+  }
+
+  private static String toString(List<Token> tokens) {
+    StringBuilder sb = new StringBuilder();
+    for (Token token : tokens) {
+      sb.append(token.getType()).append(' ').append(token.getLine()).append(':').append(token.getColumn()).append(' ').append(token.getValue()).append('\n');
+    }
+    return sb.toString();
+  }
+
+}
@@ -19,7 +19,15 @@
  */
 package org.sonar.javascript.lexer;
 
+import com.sonar.sslr.api.GenericTokenType;
+import com.sonar.sslr.api.Token;
+import com.sonar.sslr.api.TokenType;
 import org.junit.Test;
+import org.sonar.javascript.api.EcmaScriptKeyword;
+import org.sonar.javascript.api.EcmaScriptPunctuator;
+import org.sonar.javascript.api.EcmaScriptTokenType;
+
+import java.io.File;
 
 import static org.fest.assertions.Assertions.assertThat;
 
@@ -34,4 +42,30 @@ public class EcmaScriptRegexpChannelTest {
     assertThat(EcmaScriptRegexpChannel.guessNextIsRegexp("identifier")).isFalse();
   }
 
+  @Test
+  public void should_guess_by_token_type_as_by_value() {
+    for (EcmaScriptPunctuator punctuator : EcmaScriptPunctuator.values()) {
+      assertSameGuess(punctuator, punctuator.getValue());
+    }
+    for (EcmaScriptKeyword keyword : EcmaScriptKeyword.values()) {
+      assertSameGuess(keyword, keyword.getValue());
+    }
+    assertSameGuess(GenericTokenType.IDENTIFIER, "identifier");
+    assertSameGuess(GenericTokenType.LITERAL, "'('");
+    assertSameGuess(EcmaScriptTokenType.NUMERIC_LITERAL, "1");
+    assertSameGuess(EcmaScriptTokenType.REGULAR_EXPRESSION_LITERAL, "/a/");
+    assertSameGuess(GenericTokenType.UNKNOWN_CHAR, "#");
+  }
+
+  private static void assertSameGuess(TokenType type, String value) {
+    Token token = Token.builder()
+        .setType(type)
+        .setValueAndOriginalValue(value)
+        .setURI(new File("file.js").toURI())
+        .setLine(1)
+        .setColumn(0)
+        .build();
+    assertThat(EcmaScriptRegexpChannel.guessNextIsRegexp(token)).as(value).isEqualTo(EcmaScriptRegexpChannel.guessNextIsRegexp(value));
+  }
+
 }
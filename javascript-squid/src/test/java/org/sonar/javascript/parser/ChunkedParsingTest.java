@@ -0,0 +1,296 @@
+/*
+ * Sonar JavaScript Plugin
+ * Copyright (C) 2011 Eriks Nukis and SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.javascript.parser;
+
+import com.google.common.base.Charsets;
+import com.google.common.base.Strings;
+import com.google.common.collect.Lists;
+import com.sonar.sslr.api.AstNode;
+import com.sonar.sslr.api.RecognitionException;
+import com.sonar.sslr.api.RecognitionExceptionListener;
+import com.sonar.sslr.api.Token;
+import com.sonar.sslr.impl.Parser;
+import com.sonar.sslr.impl.ParsingState;
+import com.sonar.sslr.impl.events.ParsingEventListener;
+import com.sonar.sslr.impl.matcher.RuleMatcher;
+import org.apache.commons.io.FileUtils;
+import org.junit.Test;
+import org.sonar.javascript.EcmaScriptConfiguration;
+import org.sonar.javascript.api.EcmaScriptGrammar;
+import org.sonar.javascript.api.EcmaScriptKeyword;
+import org.sonar.javascript.api.EcmaScriptPunctuator;
+import org.sonar.javascript.api.EcmaScriptTokenType;
+import org.sonar.javascript.lexer.EcmaScriptLexer;
+
+import java.io.File;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static com.sonar.sslr.api.GenericTokenType.IDENTIFIER;
+import static org.fest.assertions.Assertions.assertThat;
+
+public class ChunkedParsingTest {
+
+  private static final String SOURCE = "var a = 1, b = [2, 3];\n"
+      + "function f(x) { return x ? { y: x } : null; }\n"
+      + "if (a) b(); else { c(); }\n"
+      + "do a--; while (a > 0);\n"
+      + "try { f(a); } catch (e) {} finally { a = 0; }\n"
+      + "g = function () {}\n"
+      + "(h);\n"
+      + "o = {}\n"
+      + "p = /re/g;\n"
+      + "q = function () {} in r;\n";
+
+  private final Parser<EcmaScriptGrammar> sequentialParser = createParser(false, false);
+  private final Parser<EcmaScriptGrammar> chunkedParser = createParser(true, false);
+
+  private static Parser<EcmaScriptGrammar> createParser(boolean chunked, boolean errorRecovery) {
+    EcmaScriptConfiguration conf = new EcmaScriptConfiguration(Charsets.UTF_8);
+    conf.setErrorRecovery(errorRecovery);
+    Parser<EcmaScriptGrammar> parser = EcmaScriptParser.create(conf);
+    if (chunked) {
+      ChunkedParsing.apply(parser.getGrammar(), 4, 1);
+    }
+    return parser;
+  }
+
+  @Test
+  public void should_split_at_top_level_boundaries() {
+    assertThat(split("a; if (b) c; else d; function f() {}\n(g);")).isEqualTo(new int[] {0, 2, 11});
+    assertThat(split("a; { b; c; } d; (function () { e; })(); f;")).isEqualTo(new int[] {0, 2, 8, 10, 22});
+    assertThat(split("a; } b; c;")).isEqualTo(new int[] {0, 2});
+  }
+
+  @Test
+  public void should_respect_chunk_size() {
+    List<Token> tokens = EcmaScriptLexer.create(new EcmaScriptConfiguration(Charsets.UTF_8)).lex(Strings.repeat("a;", 100));
+    ParsingState parsingState = new ParsingState(tokens);
+    assertThat(ChunkedSourceElementsMatcher.split(parsingState, 0, 200, 4, 1)).isEqualTo(new int[] {0, 50, 100, 150});
+    assertThat(ChunkedSourceElementsMatcher.split(parsingState, 0, 200, 4, 80)).isEqualTo(new int[] {0, 80});
+    assertThat(ChunkedSourceElementsMatcher.split(parsingState, 0, 200, 4, 200)).isEqualTo(new int[] {0});
+  }
+
+  @Test
+  public void boundaries() {
+    assertThat(ChunkedSourceElementsMatcher.isBoundary(EcmaScriptPunctuator.SEMI, IDENTIFIER)).isTrue();
+    assertThat(ChunkedSourceElementsMatcher.isBoundary(EcmaScriptPunctuator.SEMI, EcmaScriptPunctuator.LPARENTHESIS)).isTrue();
+    assertThat(ChunkedSourceElementsMatcher.isBoundary(EcmaScriptPunctuator.SEMI, EcmaScriptKeyword.ELSE)).isFalse();
+    assertThat(ChunkedSourceElementsMatcher.isBoundary(EcmaScriptPunctuator.SEMI, EcmaScriptKeyword.WHILE)).isFalse();
+    assertThat(ChunkedSourceElementsMatcher.isBoundary(EcmaScriptPunctuator.RCURLYBRACE, EcmaScriptKeyword.FUNCTION)).isTrue();
+    assertThat(ChunkedSourceElementsMatcher.isBoundary(EcmaScriptPunctuator.RCURLYBRACE, EcmaScriptTokenType.REGULAR_EXPRESSION_LITERAL)).isTrue();
+    assertThat(ChunkedSourceElementsMatcher.isBoundary(EcmaScriptPunctuator.RCURLYBRACE, EcmaScriptPunctuator.LCURLYBRACE)).isTrue();
+    assertThat(ChunkedSourceElementsMatcher.isBoundary(EcmaScriptPunctuator.RCURLYBRACE, EcmaScriptPunctuator.SEMI)).isFalse();
+    assertThat(ChunkedSourceElementsMatcher.isBoundary(EcmaScriptPunctuator.RCURLYBRACE, EcmaScriptPunctuator.LPARENTHESIS)).isFalse();
+    assertThat(ChunkedSourceElementsMatcher.isBoundary(EcmaScriptPunctuator.RCURLYBRACE, EcmaScriptKeyword.CATCH)).isFalse();
+    assertThat(ChunkedSourceElementsMatcher.isBoundary(EcmaScriptPunctuator.RCURLYBRACE, EcmaScriptKeyword.INSTANCEOF)).isFalse();
+    assertThat(ChunkedSourceElementsMatcher.isBoundary(IDENTIFIER, IDENTIFIER)).isFalse();
+  }
+
+  @Test
+  public void should_produce_same_tree_as_sequential_parsing() {
+    assertSameTree(SOURCE);
+    assertSameTree(Strings.repeat(SOURCE, 50));
+  }
+
+  @Test
+  public void should_fail_as_sequential_parsing() {
+    assertSameTree(SOURCE + "a = ;\n" + SOURCE);
+    assertSameTree(SOURCE + "a = (b;\n" + SOURCE);
+    assertSameTree(SOURCE + "a = b);\n" + SOURCE);
+  }
+
+  @Test
+  public void should_produce_same_tree_on_resources() throws Exception {
+    for (File file : FileUtils.listFiles(new File("src/test/resources"), new String[] {"js"}, true)) {
+      assertSameTree(FileUtils.readFileToString(file, "UTF-8"));
+    }
+  }
+
+  @Test
+  public void should_recover_as_sequential_parsing() {
+    String source = SOURCE + "var = 1;\n" + SOURCE;
+    List<Integer> sequentialErrors = Lists.newArrayList();
+    List<Integer> chunkedErrors = Lists.newArrayList();
+    String expected = print(withErrors(createParser(false, true), sequentialErrors).parse(source));
+    String actual = print(withErrors(createParser(true, true), chunkedErrors).parse(source));
+    assertThat(actual).isEqualTo(expected);
+    assertThat(chunkedErrors).isEqualTo(sequentialErrors).containsExactly(11);
+  }
+
+  @Test
+  public void should_shift_indexes_of_chunk() {
+    AstNode program = chunkedParser.parse(Strings.repeat("a; b = c;\n", 10));
+    List<AstNode> sourceElements = program.getFirstChild().getChildren();
+    assertThat(sourceElements).hasSize(20);
+    for (int i = 0; i < sourceElements.size(); i++) {
+      AstNode sourceElement = sourceElements.get(i);
+      int from = i / 2 * 6 + (i % 2 == 0 ? 0 : 2);
+      assertThat(sourceElement.getFromIndex()).isEqualTo(from);
+      assertThat(sourceElement.getToIndex()).isEqualTo(from + (i % 2 == 0 ? 2 : 4));
+      assertThat(sourceElement.getLastToken().getValue()).isEqualTo(";");
+    }
+  }
+
+  @Test
+  public void should_cancel_chunk_after_failure_of_another_one() {
+    AtomicBoolean failed = new AtomicBoolean();
+    ChunkedSourceElementsMatcher.CancellationListener listener = new ChunkedSourceElementsMatcher.CancellationListener(failed, null);
+    for (int i = 0; i < 2 * ChunkedSourceElementsMatcher.CancellationListener.CHECK_INTERVAL; i++) {
+      listener.enterRule(null, null);
+    }
+    failed.set(true);
+    try {
+      for (int i = 0; i < ChunkedSourceElementsMatcher.CancellationListener.CHECK_INTERVAL; i++) {
+        listener.enterRule(null, null);
+      }
+    } catch (ChunkedSourceElementsMatcher.ChunkCancelledException e) {
+      return;
+    }
+    throw new AssertionError();
+  }
+
+  @Test
+  public void should_cancel_chunk_by_timeout() {
+    AtomicBoolean failed = new AtomicBoolean();
+    ParseTimeoutWatchdog watchdog = new ParseTimeoutWatchdog(0);
+    watchdog.beginParse();
+    ChunkedSourceElementsMatcher.CancellationListener listener = new ChunkedSourceElementsMatcher.CancellationListener(failed, watchdog);
+    try {
+      for (int i = 0; i < ChunkedSourceElementsMatcher.CancellationListener.CHECK_INTERVAL; i++) {
+        listener.enterRule(null, null);
+      }
+    } catch (ChunkedSourceElementsMatcher.ChunkCancelledException e) {
+      assertThat(failed.get()).isTrue();
+      return;
+    }
+    throw new AssertionError();
+  }
+
+  @Test
+  public void should_parse_in_chunks_when_watched_by_timeout() {
+    String source = Strings.repeat(SOURCE, 50);
+    RulesCounter sequential = new RulesCounter();
+    String expected = print(observed(sequentialParser, sequential).parse(source));
+    CountingWatchdog chunked = new CountingWatchdog();
+    assertThat(print(observed(chunkedParser, chunked).parse(source))).isEqualTo(expected);
+    // rules of chunks are entered by other threads
+    assertThat(chunked.rules).isLessThan(sequential.rules / 2);
+  }
+
+  @Test
+  public void should_parse_sequentially_when_rules_are_observed() {
+    String source = Strings.repeat(SOURCE, 50);
+    RulesCounter sequential = new RulesCounter();
+    observed(sequentialParser, sequential).parse(source);
+    RulesCounter chunked = new RulesCounter();
+    observed(chunkedParser, chunked).parse(source);
+    assertThat(chunked.rules).isEqualTo(sequential.rules);
+  }
+
+  @Test
+  public void should_cancel_chunked_parsing_by_timeout() {
+    try {
+      observed(chunkedParser, new ParseTimeoutWatchdog(0)).parse(Strings.repeat(SOURCE, 50));
+    } catch (ParseTimeoutException e) {
+      assertThat(e.getTokens().size()).isEqualTo(EcmaScriptLexer.create(new EcmaScriptConfiguration(Charsets.UTF_8)).lex(Strings.repeat(SOURCE, 50)).size());
+      return;
+    }
+    throw new AssertionError();
+  }
+
+  private static Parser<EcmaScriptGrammar> observed(Parser<EcmaScriptGrammar> parser, ParsingEventListener listener) {
+    return Parser.builder(parser).setParsingEventListeners(listener).build();
+  }
+
+  private static class RulesCounter extends ParsingEventListener {
+
+    int rules;
+
+    @Override
+    public void enterRule(RuleMatcher rule, ParsingState parsingState) {
+      rules++;
+    }
+
+  }
+
+  private static class CountingWatchdog extends ParseTimeoutWatchdog {
+
+    int rules;
+
+    public CountingWatchdog() {
+      super(60000);
+    }
+
+    @Override
+    public void enterRule(RuleMatcher rule, ParsingState parsingState) {
+      rules++;
+      super.enterRule(rule, parsingState);
+    }
+
+  }
+
+  private static Parser<EcmaScriptGrammar> withErrors(Parser<EcmaScriptGrammar> parser, final List<Integer> errors) {
+    return Parser.builder(parser)
+        .setRecognictionExceptionListener(new RecognitionExceptionListener() {
+          public void processRecognitionException(RecognitionException e) {
+            errors.add(e.getLine());
+          }
+        })
+        .build();
+  }
+
+  private static int[] split(String source) {
+    List<Token> tokens = EcmaScriptLexer.create(new EcmaScriptConfiguration(Charsets.UTF_8)).lex(source);
+    return ChunkedSourceElementsMatcher.split(new ParsingState(tokens), 0, tokens.size() - 1, 100, 1);
+  }
+
+  private void assertSameTree(String source) {
+    String expected;
+    try {
+      expected = print(sequentialParser.parse(source));
+    } catch (RecognitionException e) {
+      expected = "line " + e.getLine();
+    }
+    String actual;
+    try {
+      actual = print(chunkedParser.parse(source));
+    } catch (RecognitionException e) {
+      actual = "line " + e.getLine();
+    }
+    assertThat(actual).as(source).isEqualTo(expected);
+  }
+
+  private static String print(AstNode node) {
+    StringBuilder sb = new StringBuilder();
+    print(node, sb);
+    return sb.toString();
+  }
+
+  private static void print(AstNode node, StringBuilder sb) {
+    sb.append('(').append(node.getName()).append(' ').append(node.getTokenValue()).append(' ').append(node.getTokenLine())
+        .append(' ').append(node.getFromIndex()).append(' ').append(node.getToIndex());
+    for (AstNode child : node.getChildren()) {
+      print(child, sb);
+    }
+    sb.append(')');
+  }
+
+}
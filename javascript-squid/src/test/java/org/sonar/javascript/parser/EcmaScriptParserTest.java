@@ -0,0 +1,111 @@
+/*
+ * Sonar JavaScript Plugin
+ * Copyright (C) 2011 Eriks Nukis and SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.javascript.parser;
+
+import com.google.common.base.Charsets;
+import com.google.common.base.Strings;
+import com.sonar.sslr.api.AstNode;
+import com.sonar.sslr.impl.Parser;
+import org.junit.Test;
+import org.sonar.javascript.EcmaScriptConfiguration;
+import org.sonar.javascript.api.EcmaScriptGrammar;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class EcmaScriptParserTest {
+
+  @Test
+  public void should_share_grammar_for_same_settings() {
+    EcmaScriptConfiguration conf = new EcmaScriptConfiguration(Charsets.UTF_8);
+    EcmaScriptGrammar grammar = EcmaScriptParser.createWithSharedGrammar(conf).getGrammar();
+    assertThat(EcmaScriptParser.createWithSharedGrammar(new EcmaScriptConfiguration(Charsets.ISO_8859_1)).getGrammar()).isSameAs(grammar);
+    assertThat(EcmaScriptParser.create(conf).getGrammar()).isNotSameAs(grammar);
+
+    conf.setPrecedenceClimbing(!conf.getPrecedenceClimbing());
+    assertThat(EcmaScriptParser.createWithSharedGrammar(conf).getGrammar()).isNotSameAs(grammar);
+  }
+
+  @Test
+  public void should_parse_concurrently_with_shared_grammar() throws Exception {
+    final String source = Strings.repeat("function f(a) { return a ? (b + c) * d : [e, { f: g }]; }\n", 200);
+    final EcmaScriptConfiguration conf = new EcmaScriptConfiguration(Charsets.UTF_8);
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    try {
+      List<Future<Integer>> results = new ArrayList<Future<Integer>>();
+      for (int i = 0; i < 8; i++) {
+        results.add(executor.submit(new Callable<Integer>() {
+          public Integer call() {
+            Parser<EcmaScriptGrammar> parser = EcmaScriptParser.createWithSharedGrammar(conf);
+            int count = 0;
+            for (int j = 0; j < 5; j++) {
+              count = countNodes(parser.parse(source));
+            }
+            return count;
+          }
+        }));
+      }
+      int expected = countNodes(EcmaScriptParser.create(conf).parse(source));
+      for (Future<Integer> result : results) {
+        assertThat(result.get()).isEqualTo(expected);
+      }
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  @Test
+  public void should_create_parsers_concurrently() throws Exception {
+    final String source = "function f(a) { return a ? (b + c) * d : [e, { f: g }]; }\n";
+    final EcmaScriptConfiguration conf = new EcmaScriptConfiguration(Charsets.UTF_8);
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    try {
+      List<Future<Integer>> results = new ArrayList<Future<Integer>>();
+      for (int i = 0; i < 16; i++) {
+        results.add(executor.submit(new Callable<Integer>() {
+          public Integer call() {
+            return countNodes(EcmaScriptParser.create(conf).parse(source));
+          }
+        }));
+      }
+      int expected = countNodes(EcmaScriptParser.create(conf).parse(source));
+      for (Future<Integer> result : results) {
+        assertThat(result.get()).isEqualTo(expected);
+      }
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  private static int countNodes(AstNode node) {
+    int count = 1;
+    for (AstNode child : node.getChildren()) {
+      count += countNodes(child);
+    }
+    return count;
+  }
+
+}
@@ -0,0 +1,78 @@
+/*
+ * Sonar JavaScript Plugin
+ * Copyright (C) 2011 Eriks Nukis and SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.javascript.parser;
+
+import com.google.common.base.Charsets;
+import com.google.common.collect.ImmutableList;
+import com.sonar.sslr.api.AstNode;
+import com.sonar.sslr.api.AstNodeType;
+import com.sonar.sslr.api.GenericTokenType;
+import com.sonar.sslr.api.RecognitionException;
+import com.sonar.sslr.impl.Parser;
+import org.junit.Test;
+import org.sonar.javascript.EcmaScriptConfiguration;
+import org.sonar.javascript.api.EcmaScriptGrammar;
+import org.sonar.javascript.api.EcmaScriptKeyword;
+import org.sonar.javascript.api.EcmaScriptPunctuator;
+
+import java.util.Collections;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class LazyFunctionBodiesTest {
+
+  private final Parser<EcmaScriptGrammar> parser = EcmaScriptParser.create(new EcmaScriptConfiguration(Charsets.UTF_8));
+  private final EcmaScriptGrammar g = parser.getGrammar();
+
+  @Test
+  public void should_skip_function_bodies() {
+    LazyFunctionBodies.apply(g);
+    AstNode program = parser.parse("(function () {\n  var a = { b: function () { if (c) { d(); } } };\n}());\nfunction f() {}");
+
+    AstNode functionBody = program.findFirstChild(g.functionBody);
+    assertThat(functionBody.getNumberOfChildren()).isEqualTo(23);
+    for (AstNode child : functionBody.getChildren()) {
+      assertThat(child.hasChildren()).isFalse();
+      assertThat(child.is(g.skippedToken)).isTrue();
+    }
+    assertThat(functionBody.getLastChild().getTokenValue()).isEqualTo(";");
+    assertThat(functionBody.nextSibling().getType()).isSameAs(EcmaScriptPunctuator.RCURLYBRACE);
+    assertThat(program.findFirstChild(g.ifStatement)).isNull();
+    assertThat(program.findChildren(g.functionBody)).hasSize(2);
+    assertThat(program.findFirstChild(g.functionDeclaration).findFirstChild(g.functionBody).hasChildren()).isFalse();
+  }
+
+  @Test(expected = RecognitionException.class)
+  public void should_fail_on_unbalanced_curly_braces() {
+    LazyFunctionBodies.apply(g);
+    parser.parse("function f() { if (a) { b(); }");
+  }
+
+  @Test
+  public void should_detect_types_inside_of_function_body() {
+    assertThat(LazyFunctionBodies.canAppearInFunctionBody(g, Collections.<AstNodeType> emptyList())).isFalse();
+    assertThat(LazyFunctionBodies.canAppearInFunctionBody(g, ImmutableList.<AstNodeType> of(g.program, GenericTokenType.EOF))).isFalse();
+    assertThat(LazyFunctionBodies.canAppearInFunctionBody(g, ImmutableList.<AstNodeType> of(g.program, EcmaScriptPunctuator.QUERY))).isTrue();
+    assertThat(LazyFunctionBodies.canAppearInFunctionBody(g, ImmutableList.<AstNodeType> of(EcmaScriptKeyword.NEW))).isTrue();
+    assertThat(LazyFunctionBodies.canAppearInFunctionBody(g, ImmutableList.<AstNodeType> of(g.program, g.ifStatement))).isTrue();
+    assertThat(LazyFunctionBodies.canAppearInFunctionBody(g, ImmutableList.<AstNodeType> of(g.functionDeclaration))).isTrue();
+  }
+
+}
@@ -0,0 +1,128 @@
+/*
+ * Sonar JavaScript Plugin
+ * Copyright (C) 2011 Eriks Nukis and SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.javascript.parser;
+
+import com.google.common.base.Charsets;
+import com.sonar.sslr.api.AstNode;
+import com.sonar.sslr.api.Rule;
+import com.sonar.sslr.impl.Parser;
+import com.sonar.sslr.impl.matcher.RuleDefinition;
+import org.junit.Test;
+import org.sonar.javascript.EcmaScriptConfiguration;
+import org.sonar.javascript.api.EcmaScriptGrammar;
+
+import java.io.IOException;
+import java.io.StringWriter;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class MemoizationStatisticsTest {
+
+  private static final String SOURCE = "var a = b.c(d)[e];\n"
+      + "x = new y.z;\n"
+      + "if (a.b) { c(d.e, f); }\n";
+
+  private static Parser<EcmaScriptGrammar> parser(MemoizationPolicy policy, MemoizationStatistics statistics) {
+    EcmaScriptConfiguration conf = new EcmaScriptConfiguration(Charsets.UTF_8);
+    conf.setMemoizationPolicy(policy);
+    return statistics == null ? EcmaScriptParser.create(conf) : EcmaScriptParser.create(conf, statistics);
+  }
+
+  @Test
+  public void should_count_invocations_at_token_where_rule_already_matched() {
+    MemoizationStatistics statistics = new MemoizationStatistics();
+    parser(MemoizationPolicy.NONE, statistics).parse("a;");
+
+    // leftHandSideExpression matched by first alternative of assignmentExpression and then by conditionalExpression,
+    // and same attempts fail at EOF, while looking for next statement
+    assertThat(statistics.getRule("leftHandSideExpression").getInvocations()).isEqualTo(4);
+    assertThat(statistics.getRule("leftHandSideExpression").getHits()).isEqualTo(1);
+    assertThat(statistics.getRule("leftHandSideExpression").getTokens()).isEqualTo(1);
+    assertThat(statistics.getRule("leftHandSideExpression").getHitRate()).isEqualTo(0.25);
+
+    // memberExpression matched by callExpression, which fails, and then by newExpression
+    assertThat(statistics.getRule("memberExpression").getHits()).isGreaterThan(0);
+
+    // not re-entered at the same token
+    assertThat(statistics.getRule("program").getHits()).isEqualTo(0);
+    assertThat(statistics.getRule("expressionStatement").getHits()).isEqualTo(0);
+  }
+
+  @Test
+  public void should_reset_matches_between_files() {
+    MemoizationStatistics statistics = new MemoizationStatistics();
+    Parser<EcmaScriptGrammar> parser = parser(MemoizationPolicy.NONE, statistics);
+    parser.parse("a;");
+    parser.parse("a;");
+
+    assertThat(statistics.getRule("program").getInvocations()).isEqualTo(2);
+    assertThat(statistics.getRule("program").getHits()).isEqualTo(0);
+    assertThat(statistics.getRule("leftHandSideExpression").getHits()).isEqualTo(2);
+  }
+
+  @Test
+  public void selected_rules_should_be_those_with_most_repeated_work() {
+    MemoizationStatistics statistics = new MemoizationStatistics();
+    parser(MemoizationPolicy.NONE, statistics).parse(SOURCE);
+
+    assertThat(statistics.getRules().get(0).getTokens()).isGreaterThan(0);
+    EcmaScriptGrammar grammar = new EcmaScriptGrammarImpl(MemoizationPolicy.NONE);
+    for (Rule rule : MemoizationPolicy.getSelectedRules(grammar)) {
+      String name = ((RuleDefinition) rule).getRule().getName();
+      assertThat(statistics.getRule(name).getHits()).as(name).isGreaterThan(0);
+    }
+  }
+
+  @Test
+  public void policies_should_produce_same_tree() {
+    String expected = print(parser(MemoizationPolicy.NONE, null).parse(SOURCE));
+    for (MemoizationPolicy policy : MemoizationPolicy.values()) {
+      assertThat(print(parser(policy, null).parse(SOURCE))).as(policy.name()).isEqualTo(expected);
+    }
+  }
+
+  private static String print(AstNode node) {
+    StringBuilder sb = new StringBuilder();
+    print(node, sb);
+    return sb.toString();
+  }
+
+  private static void print(AstNode node, StringBuilder sb) {
+    sb.append('(').append(node.getName()).append(' ').append(node.getTokenValue());
+    for (AstNode child : node.getChildren()) {
+      print(child, sb);
+    }
+    sb.append(')');
+  }
+
+  @Test
+  public void should_report() throws IOException {
+    MemoizationStatistics statistics = new MemoizationStatistics();
+    parser(MemoizationPolicy.NONE, statistics).parse(SOURCE);
+    StringWriter writer = new StringWriter();
+    statistics.report(writer);
+
+    assertThat(writer.toString())
+        .startsWith(String.format("%-32s %12s %12s %8s %12s%n", "rule", "invocations", "hits", "rate", "tokens"))
+        .contains("leftHandSideExpression")
+        .excludes("program");
+  }
+
+}
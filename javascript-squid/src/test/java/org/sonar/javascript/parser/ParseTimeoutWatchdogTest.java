@@ -0,0 +1,57 @@
+/*
+ * Sonar JavaScript Plugin
+ * Copyright (C) 2011 Eriks Nukis and SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.javascript.parser;
+
+import com.google.common.base.Charsets;
+import com.google.common.base.Strings;
+import com.sonar.sslr.api.GenericTokenType;
+import com.sonar.sslr.impl.Parser;
+import org.junit.Test;
+import org.sonar.javascript.EcmaScriptConfiguration;
+import org.sonar.javascript.api.EcmaScriptGrammar;
+
+import static org.fest.assertions.Assertions.assertThat;
+import static org.junit.Assert.fail;
+
+public class ParseTimeoutWatchdogTest {
+
+  private static final String SOURCE = Strings.repeat("a = (b + c) * d;\n", 5000);
+
+  @Test
+  public void should_cancel_parsing() {
+    Parser<EcmaScriptGrammar> parser = EcmaScriptParser.create(new EcmaScriptConfiguration(Charsets.UTF_8), new ParseTimeoutWatchdog(1));
+    try {
+      parser.parse(SOURCE);
+      fail();
+    } catch (ParseTimeoutException e) {
+      assertThat(e.isFatal()).isTrue();
+      assertThat(e.getMessage()).contains("takes more than 1 ms");
+      assertThat(e.getTokens().size()).isEqualTo(5000 * 10 + 1);
+      assertThat(e.getTokens().get(e.getTokens().size() - 1).getType()).isSameAs(GenericTokenType.EOF);
+    }
+  }
+
+  @Test
+  public void should_not_cancel_parsing() {
+    Parser<EcmaScriptGrammar> parser = EcmaScriptParser.create(new EcmaScriptConfiguration(Charsets.UTF_8), new ParseTimeoutWatchdog(60000));
+    assertThat(parser.parse(SOURCE)).isNotNull();
+  }
+
+}
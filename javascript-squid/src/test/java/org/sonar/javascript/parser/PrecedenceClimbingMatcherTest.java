@@ -0,0 +1,140 @@
+/*
+ * Sonar JavaScript Plugin
+ * Copyright (C) 2011 Eriks Nukis and SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.javascript.parser;
+
+import com.google.common.base.Charsets;
+import com.sonar.sslr.api.AstNode;
+import com.sonar.sslr.api.AstNodeType;
+import com.sonar.sslr.api.RecognitionException;
+import com.sonar.sslr.impl.Parser;
+import org.apache.commons.io.FileUtils;
+import org.junit.Test;
+import org.sonar.javascript.EcmaScriptConfiguration;
+import org.sonar.javascript.api.EcmaScriptGrammar;
+
+import java.io.File;
+import java.util.Collection;
+import java.util.Collections;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class PrecedenceClimbingMatcherTest {
+
+  private final Parser<EcmaScriptGrammar> rulesParser = EcmaScriptParser.create(new EcmaScriptConfiguration(Charsets.UTF_8));
+  private final Parser<EcmaScriptGrammar> precedenceClimbingParser = createPrecedenceClimbingParser();
+
+  private static Parser<EcmaScriptGrammar> createPrecedenceClimbingParser() {
+    EcmaScriptConfiguration conf = new EcmaScriptConfiguration(Charsets.UTF_8);
+    conf.setPrecedenceClimbing(true);
+    return EcmaScriptParser.create(conf);
+  }
+
+  @Test
+  public void should_produce_same_tree_as_rules() {
+    assertSameTree("a;");
+    assertSameTree("a * b / c % d + e - f << g >> h >>> i;");
+    assertSameTree("a || b && c | d ^ e & f == g != h === i !== j < k > l <= m >= n instanceof o in p << q + r * s;");
+    assertSameTree("a * b + c; a + b * c; a + b * c - d / e; a - b << c < d == e & f ^ g | h && i || j;");
+    assertSameTree("a = b; a += b -= c; a.b[c] = d = e ? f : g; a = b ? c = d : e = f; x = y ? z : w ? v : u;");
+    assertSameTree("!a; -a * +b; ~-!a; typeof a === 'b'; delete a.b; void 0; ++a + b++; --a - b--; - -a;");
+    assertSameTree("a = function (b) { return b || c; }; new A(b + c).d(e * f)[g - h];");
+    assertSameTree("for (var i = 0, j = a in b ? c : d; i < n; i++) {} for (a = b in c;;) {} for (a in b) {} for (var a = (b in c) in d) {}");
+    assertSameTree("a + b = c;");
+    assertSameTree("a = (b, c), d;");
+    assertSameTree("x = { a: b + c, get d() { return e; } }; y = [a, b * c, , d ? e : f];");
+  }
+
+  @Test
+  public void should_fail_as_rules() {
+    assertSameTree("a +;");
+    assertSameTree("a ? b;");
+    assertSameTree("a = ;");
+    assertSameTree("a ? b : ;");
+    assertSameTree("- ;");
+    assertSameTree("a + b +");
+  }
+
+  @Test
+  public void should_produce_same_tree_on_resources() throws Exception {
+    Collection<File> files = FileUtils.listFiles(new File("src/test/resources"), new String[] {"js"}, true);
+    assertThat(files).isNotEmpty();
+    for (File file : files) {
+      assertSameTree(FileUtils.readFileToString(file, "UTF-8"));
+    }
+  }
+
+  @Test
+  public void should_parse_expression_rules() {
+    precedenceClimbingParser.setRootRule(precedenceClimbingParser.getGrammar().expression);
+    assertThat(print(precedenceClimbingParser.parse("a + b, c"))).isEqualTo(
+        "(expression a(additiveExpression a(unaryExpression a(postfixExpression a(leftHandSideExpression a(newExpression a(memberExpression a"
+          + "(primaryExpression a(IDENTIFIER a)))))))(PLUS +)(unaryExpression b(postfixExpression b(leftHandSideExpression b(newExpression b"
+          + "(memberExpression b(primaryExpression b(IDENTIFIER b))))))))(COMMA ,)(unaryExpression c(postfixExpression c(leftHandSideExpression c"
+          + "(newExpression c(memberExpression c(primaryExpression c(IDENTIFIER c))))))))");
+  }
+
+  @Test
+  public void should_produce_same_collapsed_tree_as_rules() throws Exception {
+    Parser<EcmaScriptGrammar> rulesParser = EcmaScriptParser.create(new EcmaScriptConfiguration(Charsets.UTF_8));
+    SingleChildNodes.collapse(rulesParser.getGrammar(), Collections.<AstNodeType> emptySet());
+    Parser<EcmaScriptGrammar> precedenceClimbingParser = createPrecedenceClimbingParser();
+    SingleChildNodes.collapse(precedenceClimbingParser.getGrammar(), Collections.<AstNodeType> emptySet());
+
+    assertSameTree(rulesParser, precedenceClimbingParser, "a = b; a.b[c] = d = e ? f : g; a++ + b; -a = b; a++ = b; (a) = b;");
+    for (File file : FileUtils.listFiles(new File("src/test/resources"), new String[] {"js"}, true)) {
+      assertSameTree(rulesParser, precedenceClimbingParser, FileUtils.readFileToString(file, "UTF-8"));
+    }
+  }
+
+  private void assertSameTree(String source) {
+    assertSameTree(rulesParser, precedenceClimbingParser, source);
+  }
+
+  private static void assertSameTree(Parser<EcmaScriptGrammar> rulesParser, Parser<EcmaScriptGrammar> precedenceClimbingParser, String source) {
+    String expected;
+    try {
+      expected = print(rulesParser.parse(source));
+    } catch (RecognitionException e) {
+      expected = "line " + e.getLine();
+    }
+    String actual;
+    try {
+      actual = print(precedenceClimbingParser.parse(source));
+    } catch (RecognitionException e) {
+      actual = "line " + e.getLine();
+    }
+    assertThat(actual).as(source).isEqualTo(expected);
+  }
+
+  private static String print(AstNode node) {
+    StringBuilder sb = new StringBuilder();
+    print(node, sb);
+    return sb.toString();
+  }
+
+  private static void print(AstNode node, StringBuilder sb) {
+    sb.append('(').append(node.getName()).append(' ').append(node.getTokenValue());
+    for (AstNode child : node.getChildren()) {
+      print(child, sb);
+    }
+    sb.append(')');
+  }
+
+}
@@ -0,0 +1,81 @@
+/*
+ * Sonar JavaScript Plugin
+ * Copyright (C) 2011 Eriks Nukis and SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.javascript.parser;
+
+import com.google.common.base.Charsets;
+import com.google.common.collect.ImmutableSet;
+import com.sonar.sslr.api.AstNode;
+import com.sonar.sslr.api.AstNodeType;
+import com.sonar.sslr.api.GenericTokenType;
+import com.sonar.sslr.impl.Parser;
+import org.junit.Test;
+import org.sonar.javascript.EcmaScriptConfiguration;
+import org.sonar.javascript.api.EcmaScriptGrammar;
+
+import java.util.Collections;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class SingleChildNodesTest {
+
+  private final Parser<EcmaScriptGrammar> parser = EcmaScriptParser.create(new EcmaScriptConfiguration(Charsets.UTF_8));
+  private final EcmaScriptGrammar g = parser.getGrammar();
+
+  @Test
+  public void should_collapse_all() {
+    assertThat(countNodes(parser.parse("a;"))).isEqualTo(16);
+
+    assertThat(SingleChildNodes.collapse(g, Collections.<AstNodeType> emptySet())).isEqualTo(SingleChildNodes.getCollapsibleRules(g).size());
+    AstNode program = parser.parse("a;");
+    assertThat(countNodes(program)).isEqualTo(9);
+    AstNode expressionStatement = program.findFirstChild(g.expressionStatement);
+    assertThat(expressionStatement.getFirstChild().getType()).isSameAs(GenericTokenType.IDENTIFIER);
+  }
+
+  @Test
+  public void should_not_collapse_used_types() {
+    assertThat(SingleChildNodes.collapse(g, ImmutableSet.of(g.memberExpression, g.expression))).isEqualTo(SingleChildNodes.getCollapsibleRules(g).size() - 2);
+    AstNode expressionStatement = parser.parse("a;").findFirstChild(g.expressionStatement);
+    assertThat(expressionStatement.getFirstChild().getType()).isSameAs(g.expression);
+    assertThat(expressionStatement.getFirstChild().getFirstChild().getType()).isSameAs(g.memberExpression);
+    assertThat(expressionStatement.getFirstChild().getFirstChild().getFirstChild().getType()).isSameAs(GenericTokenType.IDENTIFIER);
+  }
+
+  @Test
+  public void should_keep_nodes_with_several_children() {
+    SingleChildNodes.collapse(g, Collections.<AstNodeType> emptySet());
+    AstNode expressionStatement = parser.parse("a.b, c++;").findFirstChild(g.expressionStatement);
+    AstNode expression = expressionStatement.getFirstChild();
+    assertThat(expression.getType()).isSameAs(g.expression);
+    assertThat(expression.getFirstChild().getType()).isSameAs(g.memberExpression);
+    assertThat(expression.getLastChild().getType()).isSameAs(g.postfixExpression);
+  }
+
+  private static int countNodes(AstNode node) {
+    int count = 1;
+    if (node.hasChildren()) {
+      for (AstNode child : node.getChildren()) {
+        count += countNodes(child);
+      }
+    }
+    return count;
+  }
+
+}
@@ -0,0 +1,148 @@
+/*
+ * Sonar JavaScript Plugin
+ * Copyright (C) 2011 Eriks Nukis and SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.javascript.parser;
+
+import com.google.common.base.Charsets;
+import com.google.common.collect.Lists;
+import com.sonar.sslr.api.AstNode;
+import com.sonar.sslr.api.RecognitionException;
+import com.sonar.sslr.api.RecognitionExceptionListener;
+import com.sonar.sslr.impl.Parser;
+import org.junit.Test;
+import org.sonar.javascript.EcmaScriptConfiguration;
+import org.sonar.javascript.api.EcmaScriptGrammar;
+import org.sonar.javascript.api.EcmaScriptKeyword;
+
+import java.util.List;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class StatementRecoveryMatcherTest {
+
+  private final List<Integer> errors = Lists.newArrayList();
+  private final Parser<EcmaScriptGrammar> parser = createParser(true);
+  private final EcmaScriptGrammar g = parser.getGrammar();
+
+  private Parser<EcmaScriptGrammar> createParser(boolean errorRecovery) {
+    EcmaScriptConfiguration conf = new EcmaScriptConfiguration(Charsets.UTF_8);
+    conf.setErrorRecovery(errorRecovery);
+    return Parser.builder(EcmaScriptParser.create(conf))
+        .setRecognictionExceptionListener(new RecognitionExceptionListener() {
+          public void processRecognitionException(RecognitionException e) {
+            errors.add(e.getLine());
+          }
+        })
+        .build();
+  }
+
+  @Test
+  public void should_not_recover_when_disabled() {
+    try {
+      createParser(false).parse("a = ;\nb = 1;");
+    } catch (RecognitionException e) {
+      assertThat(e.isFatal()).isTrue();
+      assertThat(e.getLine()).isEqualTo(1);
+      return;
+    }
+    throw new AssertionError();
+  }
+
+  @Test
+  public void should_not_report_errors_for_valid_program() {
+    AstNode program = parser.parse("a = 1; function f() { if (a) { b(); } }");
+    assertThat(errors).isEmpty();
+    assertThat(program.findFirstChild(g.recoveredStatement)).isNull();
+  }
+
+  @Test
+  public void should_skip_up_to_semicolon() {
+    AstNode program = parser.parse("var = 1; b = 1;");
+    assertThat(errors).containsExactly(1);
+    assertThat(program.getFirstChild().getChildren()).hasSize(2);
+    assertThat(tokens(program.getFirstChild().getFirstChild())).isEqualTo("var = 1 ;");
+    assertThat(program.getFirstChild().getLastChild().is(g.sourceElement)).isTrue();
+  }
+
+  @Test
+  public void should_give_skipped_tokens_own_type() {
+    AstNode program = parser.parse("var = new;");
+    AstNode recoveredStatement = program.getFirstChild().getFirstChild();
+    assertThat(recoveredStatement.is(g.recoveredStatement)).isTrue();
+    assertThat(recoveredStatement.getChildren()).hasSize(4);
+    for (AstNode child : recoveredStatement.getChildren()) {
+      assertThat(child.is(g.skippedToken)).isTrue();
+    }
+    assertThat(program.findFirstChild(EcmaScriptKeyword.NEW)).isNull();
+  }
+
+  @Test
+  public void should_skip_up_to_end_of_line() {
+    AstNode program = parser.parse("var = 1\nb = 1\nvar +\nd = 2");
+    assertThat(errors).containsExactly(1, 3);
+    AstNode sourceElements = program.getFirstChild();
+    assertThat(sourceElements.getChildren()).hasSize(4);
+    assertThat(tokens(sourceElements.getChild(0))).isEqualTo("var = 1");
+    assertThat(sourceElements.getChild(1).is(g.sourceElement)).isTrue();
+    assertThat(tokens(sourceElements.getChild(2))).isEqualTo("var +");
+    assertThat(sourceElements.getChild(3).is(g.sourceElement)).isTrue();
+  }
+
+  @Test
+  public void should_skip_balanced_brackets() {
+    AstNode program = parser.parse("if (a\n== ) {\n b;\n}\nc();");
+    assertThat(errors).containsExactly(2);
+    assertThat(tokens(program.getFirstChild().getFirstChild())).isEqualTo("if ( a == ) { b ; }");
+    assertThat(program.getFirstChild().getLastChild().is(g.sourceElement)).isTrue();
+  }
+
+  @Test
+  public void should_recover_within_function_and_block() {
+    AstNode program = parser.parse("function f() {\n a +;\n b();\n}\nif (c) {\n d +;\n}\nswitch (e) {\n case 1: f +;\n default: g();\n}");
+    assertThat(errors).containsExactly(2, 6, 9);
+    assertThat(program.findFirstChild(g.functionDeclaration)).isNotNull();
+    assertThat(program.findFirstChild(g.ifStatement)).isNotNull();
+    assertThat(program.findFirstChild(g.defaultClause)).isNotNull();
+    assertThat(program.findChildren(g.recoveredStatement)).hasSize(3);
+  }
+
+  @Test
+  public void should_not_skip_unexpected_closing_curly_brace() {
+    try {
+      parser.parse("a();\n}\nb();");
+    } catch (RecognitionException e) {
+      assertThat(e.isFatal()).isTrue();
+      assertThat(e.getLine()).isEqualTo(2);
+      return;
+    }
+    throw new AssertionError();
+  }
+
+  private static String tokens(AstNode node) {
+    StringBuilder sb = new StringBuilder();
+    for (AstNode child : node.getChildren()) {
+      if (sb.length() > 0) {
+        sb.append(' ');
+      }
+      sb.append(child.getTokenValue());
+    }
+    return sb.toString();
+  }
+
+}
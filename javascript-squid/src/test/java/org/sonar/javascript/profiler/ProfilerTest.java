@@ -0,0 +1,135 @@
+/*
+ * Sonar JavaScript Plugin
+ * Copyright (C) 2011 Eriks Nukis and SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.javascript.profiler;
+
+import com.google.common.base.Charsets;
+import com.google.common.io.Files;
+import com.sonar.sslr.api.AstNode;
+import com.sonar.sslr.squid.AstScanner;
+import com.sonar.sslr.squid.SquidAstVisitor;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.sonar.javascript.EcmaScriptConfiguration;
+import org.sonar.javascript.JavaScriptAstScanner;
+import org.sonar.javascript.api.EcmaScriptGrammar;
+import org.sonar.javascript.api.EcmaScriptMetric;
+import org.sonar.squid.api.SourceFile;
+
+import java.io.File;
+import java.util.Map;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class ProfilerTest {
+
+  @Rule
+  public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  @Test
+  public void should_not_change_results() {
+    File file = new File("src/test/resources/metrics/complexity.js");
+    SourceFile expected = JavaScriptAstScanner.scanSingleFile(file);
+
+    Profiler profiler = new Profiler();
+    FunctionsCounter functionsCounter = new FunctionsCounter();
+    AstScanner<EcmaScriptGrammar> scanner = JavaScriptAstScanner.create(new EcmaScriptConfiguration(Charsets.UTF_8), profiler, functionsCounter);
+    scanner.scanFile(file);
+    SourceFile actual = (SourceFile) scanner.getIndex().search(file.getAbsolutePath());
+
+    for (EcmaScriptMetric metric : EcmaScriptMetric.values()) {
+      assertThat(actual.getDouble(metric)).as(metric.name()).isEqualTo(expected.getDouble(metric));
+    }
+    assertThat(functionsCounter.count).isEqualTo(expected.getInt(EcmaScriptMetric.FUNCTIONS));
+  }
+
+  @Test
+  public void should_write_report() throws Exception {
+    File file = new File("src/test/resources/metrics/complexity.js");
+    File minifiedFile = new File("src/test/resources/parsing/minified.min.js");
+    Profiler profiler = new Profiler();
+    JavaScriptAstScanner.create(new EcmaScriptConfiguration(Charsets.UTF_8), profiler, new FunctionsCounter()).scanFile(file);
+    JavaScriptAstScanner.createTokensOnly(new EcmaScriptConfiguration(Charsets.UTF_8), profiler).scanFile(minifiedFile);
+    profiler.record(file.getAbsolutePath(), Profiler.Phase.SAVE, 2000000, 1000000);
+
+    File reportFile = temporaryFolder.newFile("profile.json");
+    profiler.writeReport(reportFile, 1);
+    String report = Files.toString(reportFile, Charsets.UTF_8);
+
+    assertThat(report).startsWith("{\n  \"files\": 2,\n");
+    assertThat(report).contains("\"lex\": {\"wall\": ");
+    assertThat(report).contains("\"parse\": {\"wall\": ");
+    assertThat(report).contains("\"visit\": {\"wall\": ");
+    assertThat(report).contains("\"save\": {\"wall\": 2, \"cpu\": 1}");
+    assertThat(report).contains("\"slowestFiles\": [\n    {\"file\": ");
+    assertThat(report).contains("\"visitor\": \"" + FunctionsCounter.class.getName() + "\"");
+    assertThat(report).contains("\"visitor\": \"com.sonar.sslr.squid.metrics.LinesVisitor\"");
+  }
+
+  @Test
+  public void should_report_visitors_of_each_file() throws Exception {
+    File file = new File("src/test/resources/metrics/complexity.js");
+    Profiler profiler = new Profiler();
+    JavaScriptAstScanner.create(new EcmaScriptConfiguration(Charsets.UTF_8), profiler, new FunctionsCounter()).scanFile(file);
+
+    File reportFile = temporaryFolder.newFile("profile.json");
+    profiler.writeReport(reportFile, 1);
+    String fileLine = Files.readLines(reportFile, Charsets.UTF_8).get(4);
+
+    assertThat(fileLine).startsWith("    {\"file\": " + Profiler.quote(file.getAbsolutePath()));
+    assertThat(fileLine).contains(", \"visitors\": [{\"visitor\": ");
+    assertThat(fileLine).contains("{\"visitor\": \"" + FunctionsCounter.class.getName() + "\", \"wall\": ");
+  }
+
+  @Test
+  public void should_quote() {
+    assertThat(Profiler.quote("a\"b\\c\nd")).isEqualTo("\"a\\\"b\\\\c\\u000ad\"");
+  }
+
+  @Test
+  public void should_read_wall_times() throws Exception {
+    Profiler profiler = new Profiler();
+    profiler.record("C:\\first file=\"1\".js", Profiler.Phase.PARSE, 3000000, 0);
+    profiler.record("second", Profiler.Phase.SAVE, 2000000, 0);
+    profiler.record("third", Profiler.Phase.SAVE, 1000000, 0);
+    File wallTimesFile = temporaryFolder.newFile("wall-times.properties");
+    profiler.writeWallTimes(wallTimesFile, 2);
+
+    Map<String, Long> wallTimes = Profiler.readWallTimes(wallTimesFile);
+    assertThat(wallTimes.size()).isEqualTo(2);
+    assertThat(wallTimes.get("C:\\first file=\"1\".js")).isEqualTo(3L);
+    assertThat(wallTimes.get("second")).isEqualTo(2L);
+  }
+
+  private static class FunctionsCounter extends SquidAstVisitor<EcmaScriptGrammar> {
+    private int count;
+
+    @Override
+    public void init() {
+      subscribeTo(getContext().getGrammar().functionDeclaration, getContext().getGrammar().functionExpression);
+    }
+
+    @Override
+    public void visitNode(AstNode astNode) {
+      count++;
+    }
+  }
+
+}
@@ -0,0 +1,115 @@
+/*
+ * Sonar JavaScript Plugin
+ * Copyright (C) 2011 Eriks Nukis and SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.javascript.profiler;
+
+import com.google.common.base.Charsets;
+import com.google.common.io.Files;
+import com.sonar.sslr.impl.Parser;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.sonar.javascript.EcmaScriptConfiguration;
+import org.sonar.javascript.JavaScriptAstScanner;
+import org.sonar.javascript.api.EcmaScriptGrammar;
+import org.sonar.javascript.parser.EcmaScriptParser;
+
+import java.io.File;
+import java.io.StringWriter;
+import java.util.List;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class RuleProfilerTest {
+
+  @Rule
+  public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  private static RuleProfile find(List<RuleProfile> rules, String name) {
+    for (RuleProfile rule : rules) {
+      if (rule.getName().equals(name)) {
+        return rule;
+      }
+    }
+    throw new AssertionError(name);
+  }
+
+  @Test
+  public void should_count_invocations_matches_and_backtracks() {
+    RuleProfiler ruleProfiler = new RuleProfiler();
+    Parser<EcmaScriptGrammar> parser = EcmaScriptParser.create(new EcmaScriptConfiguration(Charsets.UTF_8), ruleProfiler.newParsingEventListener());
+    parser.parse("a;");
+    parser.parse("b;");
+
+    List<RuleProfile> rules = ruleProfiler.getRules();
+    RuleProfile program = find(rules, "program");
+    assertThat(program.invocations).isEqualTo(2);
+    assertThat(program.matches).isEqualTo(2);
+    assertThat(program.backtracks).isEqualTo(0);
+    assertThat(program.totalTime).isGreaterThanOrEqualTo(program.selfTime);
+
+    // callExpression fails, because identifier is not followed by arguments
+    RuleProfile callExpression = find(rules, "callExpression");
+    assertThat(callExpression.matches).isEqualTo(0);
+    assertThat(callExpression.backtracks).isEqualTo(callExpression.invocations);
+  }
+
+  @Test
+  public void self_times_should_sum_up_to_total_time_of_root() {
+    RuleProfiler ruleProfiler = new RuleProfiler();
+    EcmaScriptParser.create(new EcmaScriptConfiguration(Charsets.UTF_8), ruleProfiler.newParsingEventListener())
+        .parse("function f(a) { return a ? f(a - 1) : [a, {b: a}]; }");
+
+    List<RuleProfile> rules = ruleProfiler.getRules();
+    long selfTime = 0;
+    for (int i = 0; i < rules.size(); i++) {
+      selfTime += rules.get(i).selfTime;
+      if (i > 0) {
+        assertThat(rules.get(i).selfTime).isLessThanOrEqualTo(rules.get(i - 1).selfTime);
+      }
+    }
+    assertThat(selfTime).isEqualTo(find(rules, "program").totalTime);
+    // recursive rules are counted once
+    assertThat(find(rules, "statement").totalTime).isLessThanOrEqualTo(find(rules, "program").totalTime);
+  }
+
+  @Test
+  public void should_be_enabled_through_profiler() throws Exception {
+    RuleProfiler ruleProfiler = new RuleProfiler();
+    Profiler profiler = new Profiler(ruleProfiler);
+    assertThat(profiler.getRuleProfiler()).isSameAs(ruleProfiler);
+    assertThat(new Profiler().getRuleProfiler()).isNull();
+
+    JavaScriptAstScanner.create(new EcmaScriptConfiguration(Charsets.UTF_8), profiler)
+        .scanFile(new File("src/test/resources/metrics/complexity.js"));
+    assertThat(find(ruleProfiler.getRules(), "program").invocations).isEqualTo(1);
+
+    StringWriter writer = new StringWriter();
+    ruleProfiler.writeReport(writer);
+    assertThat(writer.toString())
+        .startsWith("{\n  \"rules\": [\n    {\"rule\": ")
+        .contains("{\"rule\": \"program\", \"invocations\": 1, \"matches\": 1, \"backtracks\": 0, \"self\": ")
+        .endsWith("}\n  ]\n}\n");
+
+    File reportFile = temporaryFolder.newFile("rules.json");
+    ruleProfiler.writeReport(reportFile);
+    assertThat(Files.toString(reportFile, Charsets.UTF_8)).isEqualTo(writer.toString());
+  }
+
+}
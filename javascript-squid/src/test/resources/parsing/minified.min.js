@@ -0,0 +1,2 @@
+/*! lib v1.0 */
+!function(a,b){"use strict";function f0(c,d){return c>d?c-d:d&&c||0}var v0=f0(a,b);function f1(c,d){return c>d?c-d:d&&c||1}var v1=f1(a,b);function f2(c,d){return c>d?c-d:d&&c||2}var v2=f2(a,b);function f3(c,d){return c>d?c-d:d&&c||3}var v3=f3(a,b);function f4(c,d){return c>d?c-d:d&&c||4}var v4=f4(a,b);function f5(c,d){return c>d?c-d:d&&c||5}var v5=f5(a,b);function f6(c,d){return c>d?c-d:d&&c||6}var v6=f6(a,b);function f7(c,d){return c>d?c-d:d&&c||7}var v7=f7(a,b);function f8(c,d){return c>d?c-d:d&&c||8}var v8=f8(a,b);function f9(c,d){return c>d?c-d:d&&c||9}var v9=f9(a,b);function f10(c,d){return c>d?c-d:d&&c||10}var v10=f10(a,b);function f11(c,d){return c>d?c-d:d&&c||11}var v11=f11(a,b);function f12(c,d){return c>d?c-d:d&&c||12}var v12=f12(a,b);function f13(c,d){return c>d?c-d:d&&c||13}var v13=f13(a,b);function f14(c,d){return c>d?c-d:d&&c||14}var v14=f14(a,b);function f15(c,d){return c>d?c-d:d&&c||15}var v15=f15(a,b);function f16(c,d){return c>d?c-d:d&&c||16}var v16=f16(a,b);function f17(c,d){return c>d?c-d:d&&c||17}var v17=f17(a,b);function f18(c,d){return c>d?c-d:d&&c||18}var v18=f18(a,b);function f19(c,d){return c>d?c-d:d&&c||19}var v19=f19(a,b);function f20(c,d){return c>d?c-d:d&&c||20}var v20=f20(a,b);function f21(c,d){return c>d?c-d:d&&c||21}var v21=f21(a,b);function f22(c,d){return c>d?c-d:d&&c||22}var v22=f22(a,b);function f23(c,d){return c>d?c-d:d&&c||23}var v23=f23(a,b);function f24(c,d){return c>d?c-d:d&&c||24}var v24=f24(a,b);function f25(c,d){return c>d?c-d:d&&c||25}var v25=f25(a,b);function f26(c,d){return c>d?c-d:d&&c||26}var v26=f26(a,b);function f27(c,d){return c>d?c-d:d&&c||27}var v27=f27(a,b);function f28(c,d){return c>d?c-d:d&&c||28}var v28=f28(a,b);function f29(c,d){return c>d?c-d:d&&c||29}var v29=f29(a,b);function f30(c,d){return c>d?c-d:d&&c||30}var v30=f30(a,b);function f31(c,d){return c>d?c-d:d&&c||31}var v31=f31(a,b);function f32(c,d){return c>d?c-d:d&&c||32}var v32=f32(a,b);function f33(c,d){return c>d?c-d:d&&c||33}var v33=f33(a,b);function f34(c,d){return c>d?c-d:d&&c||34}var v34=f34(a,b);function f35(c,d){return c>d?c-d:d&&c||35}var v35=f35(a,b);function f36(c,d){return c>d?c-d:d&&c||36}var v36=f36(a,b);function f37(c,d){return c>d?c-d:d&&c||37}var v37=f37(a,b);function f38(c,d){return c>d?c-d:d&&c||38}var v38=f38(a,b);function f39(c,d){return c>d?c-d:d&&c||39}var v39=f39(a,b);function f40(c,d){return c>d?c-d:d&&c||40}var v40=f40(a,b);function f41(c,d){return c>d?c-d:d&&c||41}var v41=f41(a,b);function f42(c,d){return c>d?c-d:d&&c||42}var v42=f42(a,b);function f43(c,d){return c>d?c-d:d&&c||43}var v43=f43(a,b);function f44(c,d){return c>d?c-d:d&&c||44}var v44=f44(a,b);function f45(c,d){return c>d?c-d:d&&c||45}var v45=f45(a,b);function f46(c,d){return c>d?c-d:d&&c||46}var v46=f46(a,b);function f47(c,d){return c>d?c-d:d&&c||47}var v47=f47(a,b);function f48(c,d){return c>d?c-d:d&&c||48}var v48=f48(a,b);function f49(c,d){return c>d?c-d:d&&c||49}var v49=f49(a,b);function f50(c,d){return c>d?c-d:d&&c||50}var v50=f50(a,b);function f51(c,d){return c>d?c-d:d&&c||51}var v51=f51(a,b);function f52(c,d){return c>d?c-d:d&&c||52}var v52=f52(a,b);function f53(c,d){return c>d?c-d:d&&c||53}var v53=f53(a,b);function f54(c,d){return c>d?c-d:d&&c||54}var v54=f54(a,b);function f55(c,d){return c>d?c-d:d&&c||55}var v55=f55(a,b);function f56(c,d){return c>d?c-d:d&&c||56}var v56=f56(a,b);function f57(c,d){return c>d?c-d:d&&c||57}var v57=f57(a,b);function f58(c,d){return c>d?c-d:d&&c||58}var v58=f58(a,b);function f59(c,d){return c>d?c-d:d&&c||59}var v59=f59(a,b);}(1,2);
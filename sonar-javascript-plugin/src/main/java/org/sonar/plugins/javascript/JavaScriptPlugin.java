@@ -24,6 +24,7 @@ import org.sonar.api.Extension;
 import org.sonar.api.Properties;
 import org.sonar.api.Property;
 import org.sonar.api.SonarPlugin;
+import org.sonar.plugins.javascript.cache.TokenCache;
 import org.sonar.plugins.javascript.colorizer.JavaScriptColorizerFormat;
 import org.sonar.plugins.javascript.core.JavaScript;
 import org.sonar.plugins.javascript.core.JavaScriptSourceImporter;
@@ -44,6 +45,52 @@ import java.util.List;
     project = true),
   @Property(key = JavaScriptPlugin.TEST_FRAMEWORK_KEY, defaultValue = JavaScriptPlugin.TEST_FRAMEWORK_DEFAULT, name = "JavaScript test framework to use",
     description = "Testing framework to use (jstest or jstestdriver)", global = true, project = true),
+  @Property(key = JavaScriptPlugin.THREADS_KEY, defaultValue = JavaScriptPlugin.THREADS_DEFAULT, name = "Number of threads",
+    description = "Number of threads used to analyse files. Each thread uses its own parser and its own instances of checks.",
+    global = true, project = true),
+  @Property(key = JavaScriptPlugin.CACHE_KEY, defaultValue = JavaScriptPlugin.CACHE_DEFAULT, name = "Analysis cache",
+    description = "Reuse results of previous analysis for files, which were not changed, as long as active rules are the same. "
+      + "Results are stored in the working directory of project.",
+    global = true, project = true),
+  @Property(key = JavaScriptPlugin.MINIFIED_MAX_AVERAGE_LINE_LENGTH_KEY, defaultValue = JavaScriptPlugin.MINIFIED_MAX_AVERAGE_LINE_LENGTH_DEFAULT,
+    name = "Maximum average line length",
+    description = "Files with a greater average line length are considered as minified: they are not parsed, checks are not executed on them, "
+      + "and only lines and comments are computed. 0 to disable.",
+    global = true, project = true),
+  @Property(key = JavaScriptPlugin.MINIFIED_MIN_WHITESPACE_RATIO_KEY, defaultValue = JavaScriptPlugin.MINIFIED_MIN_WHITESPACE_RATIO_DEFAULT,
+    name = "Minimum ratio of whitespaces",
+    description = "Files with a smaller ratio of whitespace characters are considered as minified. 0 to disable.",
+    global = true, project = true),
+  @Property(key = JavaScriptPlugin.PARSE_TIMEOUT_KEY, defaultValue = JavaScriptPlugin.PARSE_TIMEOUT_DEFAULT, name = "Parse timeout",
+    description = "Maximum time in milliseconds to parse a file. Parsing of a file which takes longer is cancelled: a violation of the parsing error rule "
+      + "is reported, checks are not executed on it, and only lines and comments are computed. 0 for no limit.",
+    global = true, project = true),
+  @Property(key = JavaScriptPlugin.ERROR_RECOVERY_KEY, defaultValue = JavaScriptPlugin.ERROR_RECOVERY_DEFAULT, name = "Recover from parsing errors",
+    description = "Skips statements, which can't be parsed, instead of giving up the whole file: a violation of the parsing error rule "
+      + "is reported for each of them, and the rest of the file is analysed as usual.",
+    global = true, project = true),
+  @Property(key = JavaScriptPlugin.CHUNKED_PARSING_THREADS_KEY, defaultValue = JavaScriptPlugin.CHUNKED_PARSING_THREADS_DEFAULT,
+    name = "Number of threads to parse a huge file",
+    description = "Huge files are split into chunks between top-level statements and functions, which are parsed in parallel by given number of threads. "
+      + "Resulting syntax tree is the same as with a single thread, and parse timeout applies to all chunks. 1 to parse every file by a single thread. "
+      + "Not used while grammar rules are profiled.",
+    global = true, project = true),
+  @Property(key = JavaScriptPlugin.MEMOIZATION_POLICY_KEY, defaultValue = JavaScriptPlugin.MEMOIZATION_POLICY_DEFAULT, name = "Memoization of grammar rules",
+    description = "ALL to memoize matches of all rules of grammar, SELECTED to memoize only rules, which are matched again while backtracking, "
+      + "NONE to disable memoization. Resulting syntax tree is the same.",
+    global = true, project = true),
+  @Property(key = JavaScriptPlugin.COLLAPSE_SINGLE_CHILD_NODES_KEY, defaultValue = JavaScriptPlugin.COLLAPSE_SINGLE_CHILD_NODES_DEFAULT,
+    name = "Collapse single-child nodes",
+    description = "Removes from syntax tree single-child nodes of expressions, which are not used by any rule, to save memory and time of checks.",
+    global = true, project = true),
+  @Property(key = JavaScriptPlugin.PROFILE_KEY, defaultValue = JavaScriptPlugin.PROFILE_DEFAULT, name = "Profile analysis",
+    description = "Records time spent in lexing, parsing, each check and saving of results for every file, and writes report "
+      + JavaScriptSquidSensor.PROFILE_FILENAME + " with slowest files and checks into working directory.",
+    global = true, project = true),
+  @Property(key = JavaScriptPlugin.PROFILE_RULES_KEY, defaultValue = JavaScriptPlugin.PROFILE_RULES_DEFAULT, name = "Profile grammar rules",
+    description = "Together with profiling of analysis, records invocations, backtracks and time spent in each rule of grammar, and writes report "
+      + JavaScriptSquidSensor.RULES_PROFILE_FILENAME + " with rules ranked by time into working directory. Slows down parsing.",
+    global = true, project = true),
 
   // JsTestDriver (http://code.google.com/p/js-test-driver/)
   @Property(key = JavaScriptPlugin.JSTESTDRIVER_FOLDER_KEY, defaultValue = JavaScriptPlugin.JSTESTDRIVER_DEFAULT_FOLDER, name = "JSTestDriver output folder",
@@ -65,6 +112,7 @@ public class JavaScriptPlugin extends SonarPlugin {
         JavaScriptSourceImporter.class,
         JavaScriptColorizerFormat.class,
         JavaScriptCpdMapping.class,
+        TokenCache.class,
 
         JavaScriptSquidSensor.class,
         JavaScriptRuleRepository.class,
@@ -92,6 +140,38 @@ public class JavaScriptPlugin extends SonarPlugin {
   public static final String TEST_FRAMEWORK_KEY = PROPERTY_PREFIX + ".testframework";
   public static final String TEST_FRAMEWORK_DEFAULT = "jstestdriver";
 
+  public static final String THREADS_KEY = PROPERTY_PREFIX + ".threads";
+  public static final String THREADS_DEFAULT = "1";
+
+  public static final String CACHE_KEY = PROPERTY_PREFIX + ".cache";
+  public static final String CACHE_DEFAULT = "false";
+
+  public static final String MINIFIED_MAX_AVERAGE_LINE_LENGTH_KEY = PROPERTY_PREFIX + ".minified.maxAverageLineLength";
+  public static final String MINIFIED_MAX_AVERAGE_LINE_LENGTH_DEFAULT = "200";
+  public static final String MINIFIED_MIN_WHITESPACE_RATIO_KEY = PROPERTY_PREFIX + ".minified.minWhitespaceRatio";
+  public static final String MINIFIED_MIN_WHITESPACE_RATIO_DEFAULT = "0.03";
+
+  public static final String PARSE_TIMEOUT_KEY = PROPERTY_PREFIX + ".parseTimeout";
+  public static final String PARSE_TIMEOUT_DEFAULT = "0";
+
+  public static final String ERROR_RECOVERY_KEY = PROPERTY_PREFIX + ".errorRecovery";
+  public static final String ERROR_RECOVERY_DEFAULT = "false";
+
+  public static final String CHUNKED_PARSING_THREADS_KEY = PROPERTY_PREFIX + ".chunkedParsingThreads";
+  public static final String CHUNKED_PARSING_THREADS_DEFAULT = "1";
+
+  public static final String MEMOIZATION_POLICY_KEY = PROPERTY_PREFIX + ".memoizationPolicy";
+  public static final String MEMOIZATION_POLICY_DEFAULT = "ALL";
+
+  public static final String COLLAPSE_SINGLE_CHILD_NODES_KEY = PROPERTY_PREFIX + ".collapseSingleChildNodes";
+  public static final String COLLAPSE_SINGLE_CHILD_NODES_DEFAULT = "false";
+
+  public static final String PROFILE_KEY = PROPERTY_PREFIX + ".profile";
+  public static final String PROFILE_DEFAULT = "false";
+
+  public static final String PROFILE_RULES_KEY = PROPERTY_PREFIX + ".profile.rules";
+  public static final String PROFILE_RULES_DEFAULT = "false";
+
   // JSTestDriver
   public static final String JSTESTDRIVER_FOLDER_KEY = PROPERTY_PREFIX + ".jstestdriver.reportsfolder";
   public static final String JSTESTDRIVER_DEFAULT_FOLDER = "target/jstestdriver";
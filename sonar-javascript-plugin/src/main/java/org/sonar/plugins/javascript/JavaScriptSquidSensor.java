@@ -19,13 +19,20 @@
  */
 package org.sonar.plugins.javascript;
 
+import com.google.common.base.Function;
+import com.google.common.base.Supplier;
 import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Ordering;
 import com.sonar.sslr.squid.AstScanner;
 import com.sonar.sslr.squid.SquidAstVisitor;
+import org.apache.commons.configuration.Configuration;
+import org.sonar.api.CoreProperties;
 import org.sonar.api.batch.Sensor;
 import org.sonar.api.batch.SensorContext;
 import org.sonar.api.checks.AnnotationCheckFactory;
 import org.sonar.api.measures.CoreMetrics;
+import org.sonar.api.measures.FileLinesContext;
 import org.sonar.api.measures.FileLinesContextFactory;
 import org.sonar.api.measures.PersistenceMode;
 import org.sonar.api.measures.RangeDistributionBuilder;
@@ -33,40 +40,71 @@ import org.sonar.api.profiles.RulesProfile;
 import org.sonar.api.resources.File;
 import org.sonar.api.resources.InputFileUtils;
 import org.sonar.api.resources.Project;
+import org.sonar.api.resources.Resource;
+import org.sonar.api.rules.ActiveRule;
 import org.sonar.api.rules.Violation;
+import org.sonar.api.utils.SonarException;
 import org.sonar.javascript.EcmaScriptConfiguration;
 import org.sonar.javascript.JavaScriptAstScanner;
+import org.sonar.javascript.MinifiedFileClassifier;
+import org.sonar.javascript.ParallelAstScanner;
+import org.sonar.javascript.SourceFileStreamer;
 import org.sonar.javascript.api.EcmaScriptGrammar;
 import org.sonar.javascript.api.EcmaScriptMetric;
 import org.sonar.javascript.checks.CheckList;
 import org.sonar.javascript.metrics.FileLinesVisitor;
+import org.sonar.javascript.parser.MemoizationPolicy;
+import org.sonar.javascript.profiler.Profiler;
+import org.sonar.javascript.profiler.RuleProfiler;
+import org.sonar.plugins.javascript.cache.AnalysisCache;
+import org.sonar.plugins.javascript.cache.CachedFile;
+import org.sonar.plugins.javascript.cache.RecordingFileLinesContextFactory;
+import org.sonar.plugins.javascript.cache.TokenCache;
 import org.sonar.plugins.javascript.core.JavaScript;
 import org.sonar.squid.api.CheckMessage;
-import org.sonar.squid.api.SourceCode;
 import org.sonar.squid.api.SourceFile;
-import org.sonar.squid.api.SourceFunction;
-import org.sonar.squid.indexer.QueryByParent;
-import org.sonar.squid.indexer.QueryByType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
+import java.io.IOException;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
 
 public class JavaScriptSquidSensor implements Sensor {
 
+  private static final Logger LOG = LoggerFactory.getLogger(JavaScriptSquidSensor.class);
+
+  public static final String PROFILE_FILENAME = "javascript-profile.json";
+  public static final String RULES_PROFILE_FILENAME = "javascript-rules-profile.json";
+  public static final String WALL_TIMES_FILENAME = "javascript-wall-times.properties";
+  private static final int PROFILE_MAX_FILES = 100;
+
   private final Number[] FUNCTIONS_DISTRIB_BOTTOM_LIMITS = {1, 2, 4, 6, 8, 10, 12, 20, 30};
   private final Number[] FILES_DISTRIB_BOTTOM_LIMITS = {0, 5, 10, 20, 30, 60, 90};
 
-  private final AnnotationCheckFactory annotationCheckFactory;
+  private final RulesProfile profile;
   private final FileLinesContextFactory fileLinesContextFactory;
+  private final JavaScript javascript;
+  private final TokenCache tokenCache;
+
+  private final List<AnnotationCheckFactory> annotationCheckFactories = Lists.newArrayList();
+  private final Map<String, String> contentHashes = Maps.newHashMap();
+  private final Object lock = new Object();
 
   private Project project;
   private SensorContext context;
-  private AstScanner<EcmaScriptGrammar> scanner;
+  private AnalysisCache cache;
+  private RecordingFileLinesContextFactory recordingFileLinesContextFactory;
+  private Profiler profiler;
 
-  public JavaScriptSquidSensor(RulesProfile profile, FileLinesContextFactory fileLinesContextFactory) {
-    this.annotationCheckFactory = AnnotationCheckFactory.create(profile, CheckList.REPOSITORY_KEY, CheckList.getChecks());
+  public JavaScriptSquidSensor(RulesProfile profile, FileLinesContextFactory fileLinesContextFactory, JavaScript javascript, TokenCache tokenCache) {
+    this.profile = profile;
     this.fileLinesContextFactory = fileLinesContextFactory;
+    this.javascript = javascript;
+    this.tokenCache = tokenCache;
   }
 
   public boolean shouldExecuteOnProject(Project project) {
@@ -76,69 +114,293 @@ public class JavaScriptSquidSensor implements Sensor {
   public void analyse(Project project, SensorContext context) {
     this.project = project;
     this.context = context;
+    annotationCheckFactories.clear();
+    contentHashes.clear();
+    cache = null;
+    if (javascript.getConfiguration().getBoolean(JavaScriptPlugin.PROFILE_KEY, Boolean.parseBoolean(JavaScriptPlugin.PROFILE_DEFAULT))) {
+      profiler = new Profiler(javascript.getConfiguration().getBoolean(JavaScriptPlugin.PROFILE_RULES_KEY, Boolean.parseBoolean(JavaScriptPlugin.PROFILE_RULES_DEFAULT))
+          ? new RuleProfiler()
+          : null);
+    } else {
+      profiler = null;
+    }
+
+    final EcmaScriptConfiguration conf = createConfiguration(project);
+    if (conf.getChunkedParsingThreads() > 1 && profiler != null && profiler.getRuleProfiler() != null) {
+      LOG.warn("Files are parsed by a single thread, because grammar rules are profiled");
+    }
+    List<java.io.File> files = InputFileUtils.toFiles(project.getFileSystem().mainFiles(JavaScript.KEY));
+    int maxAverageLineLength = javascript.getConfiguration().getInt(JavaScriptPlugin.MINIFIED_MAX_AVERAGE_LINE_LENGTH_KEY,
+        Integer.parseInt(JavaScriptPlugin.MINIFIED_MAX_AVERAGE_LINE_LENGTH_DEFAULT));
+    double minWhitespaceRatio = javascript.getConfiguration().getDouble(JavaScriptPlugin.MINIFIED_MIN_WHITESPACE_RATIO_KEY,
+        Double.parseDouble(JavaScriptPlugin.MINIFIED_MIN_WHITESPACE_RATIO_DEFAULT));
+
+    List<java.io.File> filesToScan = files;
+    FileLinesContextFactory scannerFileLinesContextFactory = fileLinesContextFactory;
+    if (javascript.getConfiguration().getBoolean(JavaScriptPlugin.CACHE_KEY, Boolean.parseBoolean(JavaScriptPlugin.CACHE_DEFAULT))) {
+      cache = AnalysisCache.load(
+          new java.io.File(project.getFileSystem().getSonarWorkingDirectory(), AnalysisCache.FILENAME),
+          AnalysisCache.configurationHash(profile, CheckList.REPOSITORY_KEY, conf.getCharset(), maxAverageLineLength, minWhitespaceRatio,
+          conf.getParseTimeout(), conf.getErrorRecovery()));
+      filesToScan = Lists.newArrayList();
+      for (java.io.File file : files) {
+        String contentHash = AnalysisCache.contentHash(file);
+        CachedFile cachedFile = cache.get(file, contentHash);
+        if (cachedFile == null) {
+          contentHashes.put(file.getAbsolutePath(), contentHash);
+          filesToScan.add(file);
+        } else {
+          File sonarFile = File.fromIOFile(file, project);
+          RecordingFileLinesContextFactory.replay(fileLinesContextFactory, sonarFile, cachedFile.getLinesData());
+          save(sonarFile, cachedFile);
+        }
+      }
+      LOG.info("{} files were not changed since previous analysis", files.size() - filesToScan.size());
+
+      recordingFileLinesContextFactory = new RecordingFileLinesContextFactory(fileLinesContextFactory);
+      scannerFileLinesContextFactory = recordingFileLinesContextFactory;
+    }
+
+    MinifiedFileClassifier classifier = new MinifiedFileClassifier(conf.getCharset(), maxAverageLineLength, minWhitespaceRatio);
+    List<java.io.File> filesToParse = Lists.newArrayList();
+    List<java.io.File> minifiedFiles = Lists.newArrayList();
+    for (java.io.File file : filesToScan) {
+      if (classifier.isMinified(file)) {
+        minifiedFiles.add(file);
+      } else {
+        filesToParse.add(file);
+      }
+    }
+
+    scan(conf, filesToParse, scannerFileLinesContextFactory);
+
+    if (!minifiedFiles.isEmpty()) {
+      LOG.info("{} files look minified, only lines and comments will be computed for them", minifiedFiles.size());
+      // Checks are not executed on such files
+      List<SquidAstVisitor<EcmaScriptGrammar>> visitors = Lists.newArrayList();
+      visitors.add(new FileLinesVisitor(project, scannerFileLinesContextFactory));
+      addTokenRecorder(visitors);
+      visitors.add(newSourceFileStreamer());
+      JavaScriptAstScanner.createTokensOnly(conf, profiler, visitors.toArray(new SquidAstVisitor[visitors.size()]))
+          .scanFiles(minifiedFiles);
+    }
+
+    if (cache != null) {
+      cache.save();
+    }
+
+    if (profiler != null) {
+      writeProfile();
+    }
+  }
+
+  private void writeProfile() {
+    java.io.File reportFile = new java.io.File(project.getFileSystem().getSonarWorkingDirectory(), PROFILE_FILENAME);
+    try {
+      profiler.writeReport(reportFile, PROFILE_MAX_FILES);
+      LOG.info("Profile of analysis saved in {}", reportFile);
+    } catch (IOException e) {
+      throw new SonarException("Unable to save profile of analysis in " + reportFile, e);
+    }
+    java.io.File wallTimesFile = new java.io.File(project.getFileSystem().getSonarWorkingDirectory(), WALL_TIMES_FILENAME);
+    try {
+      profiler.writeWallTimes(wallTimesFile, PROFILE_MAX_FILES);
+    } catch (IOException e) {
+      throw new SonarException("Unable to save wall times of files in " + wallTimesFile, e);
+    }
+    if (profiler.getRuleProfiler() != null) {
+      java.io.File rulesReportFile = new java.io.File(project.getFileSystem().getSonarWorkingDirectory(), RULES_PROFILE_FILENAME);
+      try {
+        profiler.getRuleProfiler().writeReport(rulesReportFile);
+        LOG.info("Profile of grammar rules saved in {}", rulesReportFile);
+      } catch (IOException e) {
+        throw new SonarException("Unable to save profile of grammar rules in " + rulesReportFile, e);
+      }
+    }
+  }
+
+  private void scan(final EcmaScriptConfiguration conf, List<java.io.File> files, FileLinesContextFactory fileLinesContextFactory) {
+    int threads = javascript.getConfiguration().getInt(JavaScriptPlugin.THREADS_KEY, Integer.parseInt(JavaScriptPlugin.THREADS_DEFAULT));
+    if (threads > 1) {
+      // FileLinesVisitor saves data from worker threads, whereas batch components are not thread-safe
+      final FileLinesContextFactory synchronizedFileLinesContextFactory = new SynchronizedFileLinesContextFactory(fileLinesContextFactory, lock);
+      ParallelAstScanner scanner = new ParallelAstScanner(threads, new Supplier<AstScanner<EcmaScriptGrammar>>() {
+        public AstScanner<EcmaScriptGrammar> get() {
+          return createScanner(conf, synchronizedFileLinesContextFactory);
+        }
+      });
+      scanner.scanFiles(files, scanOrder(new java.io.File(project.getFileSystem().getSonarWorkingDirectory(), WALL_TIMES_FILENAME)));
+    } else {
+      createScanner(conf, fileLinesContextFactory).scanFiles(files);
+    }
+  }
+
+  /**
+   * Files, which were the slowest according to the profile of previous analysis, go first - the most expensive first,
+   * then all other files from the largest to the smallest.
+   */
+  static Ordering<java.io.File> scanOrder(java.io.File previousWallTimes) {
+    Ordering<java.io.File> largestFirst = ParallelAstScanner.largestFirst();
+    if (!previousWallTimes.isFile()) {
+      return largestFirst;
+    }
+    final Map<String, Long> wallTimes;
+    try {
+      wallTimes = Profiler.readWallTimes(previousWallTimes);
+    } catch (IOException e) {
+      LOG.warn("Unable to read wall times of previous analysis from " + previousWallTimes, e);
+      return largestFirst;
+    }
+    return Ordering.<Long> natural().reverse().nullsLast().onResultOf(new Function<java.io.File, Long>() {
+      public Long apply(java.io.File file) {
+        return wallTimes.get(file.getAbsolutePath());
+      }
+    }).compound(largestFirst);
+  }
+
+  /**
+   * Creates new instances of checks for each scanner, so that scanners can be used concurrently.
+   * All visitors added here, except {@link org.sonar.javascript.checks.XPathCheck}, declare used types of nodes, so that AST can be collapsed.
+   *
+   * @param additionalVisitors visitors to add after checks, for tests
+   */
+  AstScanner<EcmaScriptGrammar> createScanner(EcmaScriptConfiguration conf, FileLinesContextFactory fileLinesContextFactory,
+      SquidAstVisitor<EcmaScriptGrammar>... additionalVisitors) {
+    AnnotationCheckFactory annotationCheckFactory = AnnotationCheckFactory.create(profile, CheckList.REPOSITORY_KEY, CheckList.getChecks());
+    annotationCheckFactories.add(annotationCheckFactory);
 
     Collection<SquidAstVisitor<EcmaScriptGrammar>> squidChecks = annotationCheckFactory.getChecks();
     List<SquidAstVisitor<EcmaScriptGrammar>> visitors = Lists.newArrayList(squidChecks);
+    visitors.addAll(Arrays.asList(additionalVisitors));
     visitors.add(new FileLinesVisitor(project, fileLinesContextFactory));
-    this.scanner = JavaScriptAstScanner.create(createConfiguration(project), visitors.toArray(new SquidAstVisitor[visitors.size()]));
-    scanner.scanFiles(InputFileUtils.toFiles(project.getFileSystem().mainFiles(JavaScript.KEY)));
+    addTokenRecorder(visitors);
+    visitors.add(newSourceFileStreamer());
+    return JavaScriptAstScanner.create(conf, profiler, visitors.toArray(new SquidAstVisitor[visitors.size()]));
+  }
 
-    Collection<SourceCode> squidSourceFiles = scanner.getIndex().search(new QueryByType(SourceFile.class));
-    save(squidSourceFiles);
+  /**
+   * Tokens are kept for CPD, unless it is skipped.
+   */
+  private void addTokenRecorder(List<SquidAstVisitor<EcmaScriptGrammar>> visitors) {
+    Configuration configuration = javascript.getConfiguration();
+    if (!configuration.getBoolean(CoreProperties.CPD_SKIP_PROPERTY, false)
+        && !configuration.getBoolean("sonar.cpd." + JavaScript.KEY + ".skip", false)) {
+      visitors.add(tokenCache.newRecorder());
+    }
+  }
+
+  private SourceFileStreamer newSourceFileStreamer() {
+    return new SourceFileStreamer(new SourceFileStreamer.Callback() {
+      public void onSourceFile(SourceFile sourceFile, double[] functionComplexities) {
+        save(sourceFile, functionComplexities);
+      }
+    });
   }
 
   private EcmaScriptConfiguration createConfiguration(Project project) {
-    return new EcmaScriptConfiguration(project.getFileSystem().getSourceCharset());
+    EcmaScriptConfiguration conf = new EcmaScriptConfiguration(project.getFileSystem().getSourceCharset());
+    conf.setParseTimeout(javascript.getConfiguration().getLong(JavaScriptPlugin.PARSE_TIMEOUT_KEY, Long.parseLong(JavaScriptPlugin.PARSE_TIMEOUT_DEFAULT)));
+    conf.setErrorRecovery(javascript.getConfiguration().getBoolean(JavaScriptPlugin.ERROR_RECOVERY_KEY, Boolean.parseBoolean(JavaScriptPlugin.ERROR_RECOVERY_DEFAULT)));
+    conf.setChunkedParsingThreads(javascript.getConfiguration().getInt(JavaScriptPlugin.CHUNKED_PARSING_THREADS_KEY,
+        Integer.parseInt(JavaScriptPlugin.CHUNKED_PARSING_THREADS_DEFAULT)));
+    conf.setMemoizationPolicy(MemoizationPolicy.valueOf(javascript.getConfiguration().getString(JavaScriptPlugin.MEMOIZATION_POLICY_KEY,
+        JavaScriptPlugin.MEMOIZATION_POLICY_DEFAULT)));
+    conf.setCollapseSingleChildNodes(javascript.getConfiguration().getBoolean(JavaScriptPlugin.COLLAPSE_SINGLE_CHILD_NODES_KEY,
+        Boolean.parseBoolean(JavaScriptPlugin.COLLAPSE_SINGLE_CHILD_NODES_DEFAULT)));
+    return conf;
   }
 
-  private void save(Collection<SourceCode> squidSourceFiles) {
-    for (SourceCode squidSourceFile : squidSourceFiles) {
-      SourceFile squidFile = (SourceFile) squidSourceFile;
+  /**
+   * Called as soon as analysis of a file is complete, possibly from several threads.
+   */
+  private void save(SourceFile squidFile, double[] functionComplexities) {
+    long wallTime = System.nanoTime();
+    long cpuTime = Profiler.cpuTime();
+    java.io.File file = new java.io.File(squidFile.getKey());
+    CachedFile result = toCachedFile(squidFile, functionComplexities, contentHashes.get(file.getAbsolutePath()));
+    synchronized (lock) {
+      File sonarFile = File.fromIOFile(file, project);
+      save(sonarFile, result);
+      if (cache != null) {
+        Map<String, Map<Integer, Integer>> linesData = recordingFileLinesContextFactory.remove(sonarFile);
+        // results of parse, which was cancelled by timeout, are incomplete, so file should be analysed again
+        if (!JavaScriptAstScanner.isParseTimedOut(squidFile)) {
+          cache.put(file, new CachedFile(result.getContentHash(), result.getMeasures(), result.getFunctionComplexities(),
+              linesData, result.getMessages()));
+        }
+      }
+    }
+    if (profiler != null) {
+      profiler.record(squidFile.getKey(), Profiler.Phase.SAVE, System.nanoTime() - wallTime, Profiler.cpuTime() - cpuTime);
+    }
+  }
 
-      File sonarFile = File.fromIOFile(new java.io.File(squidFile.getKey()), project);
+  private CachedFile toCachedFile(SourceFile squidFile, double[] functionComplexities, String contentHash) {
+    double[] measures = new double[EcmaScriptMetric.values().length];
+    for (EcmaScriptMetric metric : EcmaScriptMetric.values()) {
+      measures[metric.ordinal()] = squidFile.getDouble(metric);
+    }
 
-      saveFilesComplexityDistribution(sonarFile, squidFile);
-      saveFunctionsComplexityDistribution(sonarFile, squidFile);
-      saveMeasures(sonarFile, squidFile);
-      saveViolations(sonarFile, squidFile);
+    List<CachedFile.Message> messages = Lists.newArrayList();
+    if (squidFile.getCheckMessages() != null) {
+      for (CheckMessage message : squidFile.getCheckMessages()) {
+        ActiveRule activeRule = getActiveRule(message.getCheck());
+        messages.add(new CachedFile.Message(activeRule == null ? null : activeRule.getRuleKey(), message.getLine(), message.getText(Locale.ENGLISH)));
+      }
     }
+
+    return new CachedFile(contentHash, measures, functionComplexities, null, messages);
+  }
+
+  private void save(File sonarFile, CachedFile result) {
+    saveFilesComplexityDistribution(sonarFile, result);
+    saveFunctionsComplexityDistribution(sonarFile, result);
+    saveMeasures(sonarFile, result);
+    saveViolations(sonarFile, result);
   }
 
-  private void saveMeasures(File sonarFile, SourceFile squidFile) {
-    context.saveMeasure(sonarFile, CoreMetrics.FILES, squidFile.getDouble(EcmaScriptMetric.FILES));
-    context.saveMeasure(sonarFile, CoreMetrics.LINES, squidFile.getDouble(EcmaScriptMetric.LINES));
-    context.saveMeasure(sonarFile, CoreMetrics.NCLOC, squidFile.getDouble(EcmaScriptMetric.LINES_OF_CODE));
-    context.saveMeasure(sonarFile, CoreMetrics.FUNCTIONS, squidFile.getDouble(EcmaScriptMetric.FUNCTIONS));
-    context.saveMeasure(sonarFile, CoreMetrics.STATEMENTS, squidFile.getDouble(EcmaScriptMetric.STATEMENTS));
-    context.saveMeasure(sonarFile, CoreMetrics.COMPLEXITY, squidFile.getDouble(EcmaScriptMetric.COMPLEXITY));
-    context.saveMeasure(sonarFile, CoreMetrics.COMMENT_LINES, squidFile.getDouble(EcmaScriptMetric.COMMENT_LINES));
+  private void saveMeasures(File sonarFile, CachedFile result) {
+    double[] measures = result.getMeasures();
+    context.saveMeasure(sonarFile, CoreMetrics.FILES, measures[EcmaScriptMetric.FILES.ordinal()]);
+    context.saveMeasure(sonarFile, CoreMetrics.LINES, measures[EcmaScriptMetric.LINES.ordinal()]);
+    context.saveMeasure(sonarFile, CoreMetrics.NCLOC, measures[EcmaScriptMetric.LINES_OF_CODE.ordinal()]);
+    context.saveMeasure(sonarFile, CoreMetrics.FUNCTIONS, measures[EcmaScriptMetric.FUNCTIONS.ordinal()]);
+    context.saveMeasure(sonarFile, CoreMetrics.STATEMENTS, measures[EcmaScriptMetric.STATEMENTS.ordinal()]);
+    context.saveMeasure(sonarFile, CoreMetrics.COMPLEXITY, measures[EcmaScriptMetric.COMPLEXITY.ordinal()]);
+    context.saveMeasure(sonarFile, CoreMetrics.COMMENT_LINES, measures[EcmaScriptMetric.COMMENT_LINES.ordinal()]);
   }
 
-  private void saveFunctionsComplexityDistribution(File sonarFile, SourceFile squidFile) {
-    Collection<SourceCode> squidFunctionsInFile = scanner.getIndex().search(new QueryByParent(squidFile), new QueryByType(SourceFunction.class));
+  private void saveFunctionsComplexityDistribution(File sonarFile, CachedFile result) {
     RangeDistributionBuilder complexityDistribution = new RangeDistributionBuilder(CoreMetrics.FUNCTION_COMPLEXITY_DISTRIBUTION, FUNCTIONS_DISTRIB_BOTTOM_LIMITS);
-    for (SourceCode squidFunction : squidFunctionsInFile) {
-      complexityDistribution.add(squidFunction.getDouble(EcmaScriptMetric.COMPLEXITY));
+    for (double functionComplexity : result.getFunctionComplexities()) {
+      complexityDistribution.add(functionComplexity);
     }
     context.saveMeasure(sonarFile, complexityDistribution.build().setPersistenceMode(PersistenceMode.MEMORY));
   }
 
-  private void saveFilesComplexityDistribution(File sonarFile, SourceFile squidFile) {
+  private void saveFilesComplexityDistribution(File sonarFile, CachedFile result) {
     RangeDistributionBuilder complexityDistribution = new RangeDistributionBuilder(CoreMetrics.FILE_COMPLEXITY_DISTRIBUTION, FILES_DISTRIB_BOTTOM_LIMITS);
-    complexityDistribution.add(squidFile.getDouble(EcmaScriptMetric.COMPLEXITY));
+    complexityDistribution.add(result.getMeasures()[EcmaScriptMetric.COMPLEXITY.ordinal()]);
     context.saveMeasure(sonarFile, complexityDistribution.build().setPersistenceMode(PersistenceMode.MEMORY));
   }
 
-  private void saveViolations(File sonarFile, SourceFile squidFile) {
-    Collection<CheckMessage> messages = squidFile.getCheckMessages();
-    if (messages != null) {
-      for (CheckMessage message : messages) {
-        Violation violation = Violation.create(annotationCheckFactory.getActiveRule(message.getCheck()), sonarFile)
-            .setLineId(message.getLine())
-            .setMessage(message.getText(Locale.ENGLISH));
-        context.saveViolation(violation);
+  private void saveViolations(File sonarFile, CachedFile result) {
+    for (CachedFile.Message message : result.getMessages()) {
+      Violation violation = Violation.create(message.getRuleKey() == null ? null : profile.getActiveRule(CheckList.REPOSITORY_KEY, message.getRuleKey()), sonarFile)
+          .setLineId(message.getLine())
+          .setMessage(message.getText());
+      context.saveViolation(violation);
+    }
+  }
+
+  private ActiveRule getActiveRule(Object check) {
+    for (AnnotationCheckFactory annotationCheckFactory : annotationCheckFactories) {
+      ActiveRule activeRule = annotationCheckFactory.getActiveRule(check);
+      if (activeRule != null) {
+        return activeRule;
       }
     }
+    return null;
   }
 
   @Override
@@ -146,4 +408,46 @@ public class JavaScriptSquidSensor implements Sensor {
     return getClass().getSimpleName();
   }
 
+  private static class SynchronizedFileLinesContextFactory implements FileLinesContextFactory {
+
+    private final FileLinesContextFactory delegate;
+    private final Object lock;
+
+    public SynchronizedFileLinesContextFactory(FileLinesContextFactory delegate, Object lock) {
+      this.delegate = delegate;
+      this.lock = lock;
+    }
+
+    public FileLinesContext createFor(Resource resource) {
+      final FileLinesContext fileLinesContext;
+      synchronized (lock) {
+        fileLinesContext = delegate.createFor(resource);
+      }
+      return new FileLinesContext() {
+        public void setIntValue(String metricKey, int line, int value) {
+          fileLinesContext.setIntValue(metricKey, line, value);
+        }
+
+        public Integer getIntValue(String metricKey, int line) {
+          return fileLinesContext.getIntValue(metricKey, line);
+        }
+
+        public void setStringValue(String metricKey, int line, String value) {
+          fileLinesContext.setStringValue(metricKey, line, value);
+        }
+
+        public String getStringValue(String metricKey, int line) {
+          return fileLinesContext.getStringValue(metricKey, line);
+        }
+
+        public void save() {
+          synchronized (lock) {
+            fileLinesContext.save();
+          }
+        }
+      };
+    }
+
+  }
+
 }
@@ -0,0 +1,250 @@
+/*
+ * Sonar JavaScript Plugin
+ * Copyright (C) 2011 Eriks Nukis and SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.plugins.javascript.cache;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.io.Closeables;
+import com.google.common.io.Files;
+import org.sonar.api.profiles.RulesProfile;
+import org.sonar.api.rules.ActiveRule;
+import org.sonar.api.rules.ActiveRuleParam;
+import org.sonar.api.utils.SonarException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.net.URISyntaxException;
+import java.nio.charset.Charset;
+import java.security.CodeSource;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Results of analysis of files from previous run, stored in the working directory of project.
+ * An entry is used only when content of file and configuration of analysis (active rules and their parameters) are the same.
+ */
+public class AnalysisCache {
+
+  private static final Logger LOG = LoggerFactory.getLogger(AnalysisCache.class);
+
+  public static final String FILENAME = "javascript-analysis-cache.bin";
+
+  /**
+   * Must be incremented whenever format of entries or results of analysis change.
+   */
+  private static final int FORMAT_VERSION = 1;
+
+  private static final String PLUGIN_VERSION = pluginVersion();
+
+  private final File file;
+  private final String configurationHash;
+  private final Map<String, CachedFile> previous;
+  private final Map<String, CachedFile> current = Maps.newHashMap();
+
+  private AnalysisCache(File file, String configurationHash, Map<String, CachedFile> previous) {
+    this.file = file;
+    this.configurationHash = configurationHash;
+    this.previous = previous;
+  }
+
+  /**
+   * Loads cache from given file. Cache is empty if file doesn't exist, can't be read, or was created with another configuration.
+   */
+  public static AnalysisCache load(File file, String configurationHash) {
+    Map<String, CachedFile> entries = Maps.newHashMap();
+    if (file.isFile()) {
+      ObjectInputStream in = null;
+      try {
+        in = new ObjectInputStream(new BufferedInputStream(new FileInputStream(file)));
+        if (in.readInt() == FORMAT_VERSION && configurationHash.equals(in.readUTF())) {
+          entries = readEntries(in);
+        } else {
+          LOG.info("Configuration of analysis has changed, all files will be analysed");
+        }
+      } catch (Exception e) {
+        LOG.warn("Unable to read analysis cache " + file + ", all files will be analysed", e);
+      } finally {
+        Closeables.closeQuietly(in);
+      }
+    }
+    return new AnalysisCache(file, configurationHash, entries);
+  }
+
+  @SuppressWarnings("unchecked")
+  private static Map<String, CachedFile> readEntries(ObjectInputStream in) throws IOException, ClassNotFoundException {
+    return (Map<String, CachedFile>) in.readObject();
+  }
+
+  /**
+   * @return results of previous analysis of given file, or null if there is no such results or content of file has changed
+   */
+  public CachedFile get(File sourceFile, String contentHash) {
+    String key = sourceFile.getAbsolutePath();
+    CachedFile entry = previous.get(key);
+    if (entry == null || !entry.getContentHash().equals(contentHash)) {
+      return null;
+    }
+    current.put(key, entry);
+    return entry;
+  }
+
+  public void put(File sourceFile, CachedFile entry) {
+    current.put(sourceFile.getAbsolutePath(), entry);
+  }
+
+  /**
+   * Stores entries, which were requested or added during this analysis, so that entries of deleted files are dropped.
+   */
+  public void save() {
+    ObjectOutputStream out = null;
+    try {
+      Files.createParentDirs(file);
+      out = new ObjectOutputStream(new BufferedOutputStream(new FileOutputStream(file)));
+      out.writeInt(FORMAT_VERSION);
+      out.writeUTF(configurationHash);
+      out.writeObject(current);
+    } catch (IOException e) {
+      LOG.warn("Unable to write analysis cache " + file, e);
+    } finally {
+      Closeables.closeQuietly(out);
+    }
+  }
+
+  public static String contentHash(File file) {
+    try {
+      return toHex(Files.getDigest(file, newDigest()));
+    } catch (IOException e) {
+      throw new SonarException("Unable to read " + file, e);
+    }
+  }
+
+  /**
+   * Hash of everything, except content of file, that has an influence on results of analysis of file.
+   *
+   * @param settings values of other settings, which have an influence on results
+   */
+  public static String configurationHash(RulesProfile profile, String repositoryKey, Charset charset, Object... settings) {
+    StringBuilder sb = new StringBuilder();
+    sb.append(PLUGIN_VERSION).append('\n');
+    sb.append(charset.name()).append('\n');
+    for (Object setting : settings) {
+      sb.append(setting).append('\n');
+    }
+    List<ActiveRule> activeRules = Lists.newArrayList(profile.getActiveRulesByRepository(repositoryKey));
+    Collections.sort(activeRules, new Comparator<ActiveRule>() {
+      public int compare(ActiveRule a, ActiveRule b) {
+        return a.getRuleKey().compareTo(b.getRuleKey());
+      }
+    });
+    for (ActiveRule activeRule : activeRules) {
+      sb.append(activeRule.getRuleKey());
+      List<ActiveRuleParam> params = Lists.newArrayList(activeRule.getActiveRuleParams());
+      Collections.sort(params, new Comparator<ActiveRuleParam>() {
+        public int compare(ActiveRuleParam a, ActiveRuleParam b) {
+          return a.getKey().compareTo(b.getKey());
+        }
+      });
+      for (ActiveRuleParam param : params) {
+        sb.append(' ').append(param.getKey()).append('=').append(param.getValue());
+      }
+      sb.append('\n');
+    }
+    try {
+      return toHex(newDigest().digest(sb.toString().getBytes("UTF-8")));
+    } catch (IOException e) {
+      throw new SonarException(e);
+    }
+  }
+
+  /**
+   * Version from manifest of plugin is not available in development builds, so checksum of jar or time of last modification
+   * of directory with classes is used instead. If there is neither, results of this run are never reused.
+   */
+  private static String pluginVersion() {
+    String version = AnalysisCache.class.getPackage().getImplementationVersion();
+    if (version != null) {
+      return version;
+    }
+    CodeSource codeSource = AnalysisCache.class.getProtectionDomain().getCodeSource();
+    if (codeSource != null && codeSource.getLocation() != null) {
+      try {
+        version = versionOf(new File(codeSource.getLocation().toURI()));
+      } catch (URISyntaxException e) {
+        LOG.debug("Unable to locate plugin", e);
+      } catch (IllegalArgumentException e) {
+        LOG.debug("Unable to locate plugin", e);
+      }
+    }
+    return version == null ? UUID.randomUUID().toString() : version;
+  }
+
+  /**
+   * @return checksum of given jar, time of last modification of files in given directory, or null
+   */
+  static String versionOf(File location) {
+    if (location.isFile()) {
+      return contentHash(location);
+    } else if (location.isDirectory()) {
+      return "modified " + lastModified(location);
+    }
+    return null;
+  }
+
+  private static long lastModified(File directory) {
+    long result = directory.lastModified();
+    File[] files = directory.listFiles();
+    if (files != null) {
+      for (File file : files) {
+        result = Math.max(result, file.isDirectory() ? lastModified(file) : file.lastModified());
+      }
+    }
+    return result;
+  }
+
+  private static MessageDigest newDigest() {
+    try {
+      return MessageDigest.getInstance("MD5");
+    } catch (NoSuchAlgorithmException e) {
+      throw new SonarException(e);
+    }
+  }
+
+  private static String toHex(byte[] bytes) {
+    StringBuilder sb = new StringBuilder(bytes.length * 2);
+    for (byte b : bytes) {
+      sb.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+    }
+    return sb.toString();
+  }
+
+}
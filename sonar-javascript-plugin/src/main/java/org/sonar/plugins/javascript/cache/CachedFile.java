@@ -0,0 +1,100 @@
+/*
+ * Sonar JavaScript Plugin
+ * Copyright (C) 2011 Eriks Nukis and SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.plugins.javascript.cache;
+
+import java.io.Serializable;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Results of analysis of a single file: everything that the squid sensor saves for it.
+ */
+public class CachedFile implements Serializable {
+
+  private static final long serialVersionUID = 1L;
+
+  private final String contentHash;
+  private final double[] measures;
+  private final double[] functionComplexities;
+  private final Map<String, Map<Integer, Integer>> linesData;
+  private final List<Message> messages;
+
+  /**
+   * @param measures values of metrics, indexed by ordinal of {@link org.sonar.javascript.api.EcmaScriptMetric}
+   * @param linesData values of {@link org.sonar.api.measures.FileLinesContext} by metric key and line
+   */
+  public CachedFile(String contentHash, double[] measures, double[] functionComplexities, Map<String, Map<Integer, Integer>> linesData,
+      List<Message> messages) {
+    this.contentHash = contentHash;
+    this.measures = measures;
+    this.functionComplexities = functionComplexities;
+    this.linesData = linesData;
+    this.messages = messages;
+  }
+
+  public String getContentHash() {
+    return contentHash;
+  }
+
+  public double[] getMeasures() {
+    return measures;
+  }
+
+  public double[] getFunctionComplexities() {
+    return functionComplexities;
+  }
+
+  public Map<String, Map<Integer, Integer>> getLinesData() {
+    return linesData;
+  }
+
+  public List<Message> getMessages() {
+    return messages;
+  }
+
+  public static class Message implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private final String ruleKey;
+    private final Integer line;
+    private final String text;
+
+    public Message(String ruleKey, Integer line, String text) {
+      this.ruleKey = ruleKey;
+      this.line = line;
+      this.text = text;
+    }
+
+    public String getRuleKey() {
+      return ruleKey;
+    }
+
+    public Integer getLine() {
+      return line;
+    }
+
+    public String getText() {
+      return text;
+    }
+
+  }
+
+}
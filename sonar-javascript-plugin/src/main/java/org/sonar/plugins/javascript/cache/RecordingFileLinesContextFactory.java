@@ -0,0 +1,96 @@
+/*
+ * Sonar JavaScript Plugin
+ * Copyright (C) 2011 Eriks Nukis and SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.plugins.javascript.cache;
+
+import com.google.common.collect.Maps;
+import org.sonar.api.measures.FileLinesContext;
+import org.sonar.api.measures.FileLinesContextFactory;
+import org.sonar.api.resources.Resource;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Records integer values, which are saved through {@link FileLinesContext}, so that they can be put into {@link AnalysisCache}.
+ */
+public class RecordingFileLinesContextFactory implements FileLinesContextFactory {
+
+  private final FileLinesContextFactory delegate;
+  private final Map<String, Map<String, Map<Integer, Integer>>> recorded = new ConcurrentHashMap<String, Map<String, Map<Integer, Integer>>>();
+
+  public RecordingFileLinesContextFactory(FileLinesContextFactory delegate) {
+    this.delegate = delegate;
+  }
+
+  public FileLinesContext createFor(final Resource resource) {
+    final FileLinesContext fileLinesContext = delegate.createFor(resource);
+    final Map<String, Map<Integer, Integer>> linesData = Maps.newHashMap();
+    return new FileLinesContext() {
+      public void setIntValue(String metricKey, int line, int value) {
+        Map<Integer, Integer> values = linesData.get(metricKey);
+        if (values == null) {
+          values = Maps.newTreeMap();
+          linesData.put(metricKey, values);
+        }
+        values.put(line, value);
+        fileLinesContext.setIntValue(metricKey, line, value);
+      }
+
+      public Integer getIntValue(String metricKey, int line) {
+        return fileLinesContext.getIntValue(metricKey, line);
+      }
+
+      public void setStringValue(String metricKey, int line, String value) {
+        fileLinesContext.setStringValue(metricKey, line, value);
+      }
+
+      public String getStringValue(String metricKey, int line) {
+        return fileLinesContext.getStringValue(metricKey, line);
+      }
+
+      public void save() {
+        fileLinesContext.save();
+        recorded.put(resource.getKey(), linesData);
+      }
+    };
+  }
+
+  /**
+   * @return values saved for given resource, or empty map if nothing was saved; recorded values are forgotten
+   */
+  public Map<String, Map<Integer, Integer>> remove(Resource resource) {
+    Map<String, Map<Integer, Integer>> result = recorded.remove(resource.getKey());
+    return result == null ? Maps.<String, Map<Integer, Integer>>newHashMap() : result;
+  }
+
+  /**
+   * Saves previously recorded values.
+   */
+  public static void replay(FileLinesContextFactory fileLinesContextFactory, Resource resource, Map<String, Map<Integer, Integer>> linesData) {
+    FileLinesContext fileLinesContext = fileLinesContextFactory.createFor(resource);
+    for (Map.Entry<String, Map<Integer, Integer>> metric : linesData.entrySet()) {
+      for (Map.Entry<Integer, Integer> line : metric.getValue().entrySet()) {
+        fileLinesContext.setIntValue(metric.getKey(), line.getKey(), line.getValue());
+      }
+    }
+    fileLinesContext.save();
+  }
+
+}
@@ -0,0 +1,206 @@
+/*
+ * Sonar JavaScript Plugin
+ * Copyright (C) 2011 Eriks Nukis and SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.plugins.javascript.cache;
+
+import com.google.common.collect.Lists;
+import com.sonar.sslr.api.AstAndTokenVisitor;
+import com.sonar.sslr.api.AstNode;
+import com.sonar.sslr.api.AstNodeType;
+import com.sonar.sslr.api.Token;
+import com.sonar.sslr.api.TokenType;
+import com.sonar.sslr.squid.SquidAstVisitor;
+import org.sonar.api.BatchExtension;
+import org.sonar.javascript.api.EcmaScriptGrammar;
+import org.sonar.javascript.api.UsedAstNodeTypes;
+
+import java.io.File;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Keeps tokens produced by lexer during analysis of files by squid, so that other consumers of tokens - like CPD -
+ * don't have to read and lex the same files once again. Tokens are kept in a compact form: values of tokens are shared between files,
+ * and tokens of a file are removed from cache, when they are taken.
+ * Sharing of values is only an optimization, so values of tokens, which were put into cache concurrently with removal of the last file,
+ * are simply not shared with values of previous files.
+ * <p>
+ * Tokens of all files are kept until CPD, so total number of tokens in cache is bounded: tokens of files, which don't fit,
+ * are not kept, and consumers lex those files once again.
+ * </p>
+ */
+public class TokenCache implements BatchExtension {
+
+  /**
+   * About 20 bytes per token in addition to shared values.
+   */
+  static final int DEFAULT_MAX_TOKENS = 2000000;
+
+  private final ConcurrentMap<String, FileTokens> files = new ConcurrentHashMap<String, FileTokens>();
+  private final ConcurrentMap<String, String> values = new ConcurrentHashMap<String, String>();
+  private final int maxTokens;
+  private final AtomicInteger tokens = new AtomicInteger();
+
+  public TokenCache() {
+    this(DEFAULT_MAX_TOKENS);
+  }
+
+  TokenCache(int maxTokens) {
+    this.maxTokens = maxTokens;
+  }
+
+  /**
+   * @return visitor, which puts into this cache all tokens of visited files
+   */
+  public SquidAstVisitor<EcmaScriptGrammar> newRecorder() {
+    return new Recorder(this);
+  }
+
+  /**
+   * @return false, if tokens were not kept, because cache is full
+   */
+  public boolean put(File file, List<Token> tokens) {
+    if (!reserve(tokens.size())) {
+      return false;
+    }
+    FileTokens previous = files.put(file.getAbsolutePath(), new FileTokens(tokens, values));
+    if (previous != null) {
+      this.tokens.addAndGet(-previous.size());
+    }
+    return true;
+  }
+
+  private boolean reserve(int size) {
+    while (true) {
+      int current = tokens.get();
+      if (current + size > maxTokens) {
+        return false;
+      }
+      if (tokens.compareAndSet(current, current + size)) {
+        return true;
+      }
+    }
+  }
+
+  boolean isFull() {
+    return tokens.get() >= maxTokens;
+  }
+
+  /**
+   * Shared values are dropped, when the last file is taken, so that they don't outlive consumers of tokens.
+   *
+   * @return tokens of given file or null, if there is no such file in cache
+   */
+  public FileTokens remove(File file) {
+    FileTokens result = files.remove(file.getAbsolutePath());
+    if (result != null) {
+      tokens.addAndGet(-result.size());
+    }
+    if (files.isEmpty()) {
+      values.clear();
+    }
+    return result;
+  }
+
+  public static class FileTokens {
+
+    private final String[] values;
+    private final TokenType[] types;
+    private final int[] lines;
+
+    FileTokens(List<Token> tokens, ConcurrentMap<String, String> sharedValues) {
+      int size = tokens.size();
+      values = new String[size];
+      types = new TokenType[size];
+      lines = new int[size];
+      for (int i = 0; i < size; i++) {
+        Token token = tokens.get(i);
+        String value = sharedValues.putIfAbsent(token.getValue(), token.getValue());
+        values[i] = value == null ? token.getValue() : value;
+        types[i] = token.getType();
+        lines[i] = token.getLine();
+      }
+    }
+
+    public int size() {
+      return values.length;
+    }
+
+    public String getValue(int i) {
+      return values[i];
+    }
+
+    public TokenType getType(int i) {
+      return types[i];
+    }
+
+    public int getLine(int i) {
+      return lines[i];
+    }
+
+  }
+
+  private static class Recorder extends SquidAstVisitor<EcmaScriptGrammar> implements AstAndTokenVisitor, UsedAstNodeTypes {
+
+    private final TokenCache cache;
+    private final List<Token> tokens = Lists.newArrayList();
+
+    public Recorder(TokenCache cache) {
+      this.cache = cache;
+    }
+
+    private boolean recording;
+
+    @Override
+    public void visitFile(AstNode astNode) {
+      tokens.clear();
+      recording = !cache.isFull();
+    }
+
+    public void visitToken(Token token) {
+      if (recording) {
+        tokens.add(token);
+      }
+    }
+
+    /**
+     * Uses only tokens.
+     */
+    public Collection<AstNodeType> getUsedAstNodeTypes() {
+      return Collections.emptyList();
+    }
+
+    /**
+     * Nothing is put into cache for a file, which can't be parsed, so that consumers fall back to lexing it.
+     */
+    @Override
+    public void leaveFile(AstNode astNode) {
+      if (!tokens.isEmpty()) {
+        cache.put(getContext().getFile(), tokens);
+        tokens.clear();
+      }
+    }
+
+  }
+
+}
@@ -23,6 +23,7 @@ import net.sourceforge.pmd.cpd.Tokenizer;
 import org.sonar.api.batch.AbstractCpdMapping;
 import org.sonar.api.resources.Language;
 import org.sonar.api.resources.ProjectFileSystem;
+import org.sonar.plugins.javascript.cache.TokenCache;
 import org.sonar.plugins.javascript.core.JavaScript;
 
 import java.nio.charset.Charset;
@@ -31,14 +32,16 @@ public class JavaScriptCpdMapping extends AbstractCpdMapping {
 
   private final JavaScript language;
   private final Charset charset;
+  private final TokenCache tokenCache;
 
-  public JavaScriptCpdMapping(JavaScript language, ProjectFileSystem fs) {
+  public JavaScriptCpdMapping(JavaScript language, ProjectFileSystem fs, TokenCache tokenCache) {
     this.language = language;
     this.charset = fs.getSourceCharset();
+    this.tokenCache = tokenCache;
   }
 
   public Tokenizer getTokenizer() {
-    return new JavaScriptTokenizer(charset);
+    return new JavaScriptTokenizer(charset, tokenCache);
   }
 
   public Language getLanguage() {
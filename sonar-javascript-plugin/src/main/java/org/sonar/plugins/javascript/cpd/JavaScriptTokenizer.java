@@ -20,43 +20,59 @@
 package org.sonar.plugins.javascript.cpd;
 
 import com.sonar.sslr.api.GenericTokenType;
-import com.sonar.sslr.api.Token;
-import com.sonar.sslr.impl.Lexer;
+import com.sonar.sslr.api.TokenType;
 import net.sourceforge.pmd.cpd.SourceCode;
 import net.sourceforge.pmd.cpd.TokenEntry;
 import net.sourceforge.pmd.cpd.Tokenizer;
 import net.sourceforge.pmd.cpd.Tokens;
 import org.sonar.javascript.EcmaScriptConfiguration;
+import org.sonar.javascript.lexer.CompactTokens;
 import org.sonar.javascript.lexer.EcmaScriptLexer;
+import org.sonar.plugins.javascript.cache.TokenCache;
 
 import java.io.File;
 import java.nio.charset.Charset;
-import java.util.List;
 
 public class JavaScriptTokenizer implements Tokenizer {
 
-  private final Charset charset;
+  private final EcmaScriptConfiguration conf;
+  private final TokenCache tokenCache;
 
   public JavaScriptTokenizer(Charset charset) {
-    this.charset = charset;
+    this(charset, new TokenCache());
+  }
+
+  /**
+   * @param tokenCache tokens of files, which were already lexed during analysis - files, which are not in cache, are lexed
+   */
+  public JavaScriptTokenizer(Charset charset, TokenCache tokenCache) {
+    this.conf = new EcmaScriptConfiguration(charset);
+    this.tokenCache = tokenCache;
   }
 
   public final void tokenize(SourceCode source, Tokens cpdTokens) {
-    Lexer lexer = EcmaScriptLexer.create(new EcmaScriptConfiguration(charset));
     String fileName = source.getFileName();
-    List<Token> tokens = lexer.lex(new File(fileName));
-    for (Token token : tokens) {
-      TokenEntry cpdToken = new TokenEntry(getTokenImage(token), fileName, token.getLine());
-      cpdTokens.add(cpdToken);
+    TokenCache.FileTokens cachedTokens = tokenCache.remove(new File(fileName));
+    if (cachedTokens != null) {
+      for (int i = 0; i < cachedTokens.size(); i++) {
+        TokenEntry cpdToken = new TokenEntry(getTokenImage(cachedTokens.getType(i), cachedTokens.getValue(i)), fileName, cachedTokens.getLine(i));
+        cpdTokens.add(cpdToken);
+      }
+    } else {
+      CompactTokens tokens = EcmaScriptLexer.lexCompact(conf, new File(fileName));
+      for (int i = 0; i < tokens.size(); i++) {
+        TokenEntry cpdToken = new TokenEntry(getTokenImage(tokens.getType(i), tokens.getValue(i)), fileName, tokens.getLine(i));
+        cpdTokens.add(cpdToken);
+      }
     }
     cpdTokens.add(TokenEntry.getEOF());
   }
 
-  private String getTokenImage(Token token) {
-    if (token.getType() == GenericTokenType.LITERAL) {
+  private String getTokenImage(TokenType type, String value) {
+    if (type == GenericTokenType.LITERAL) {
       return GenericTokenType.LITERAL.getValue();
     }
-    return token.getValue();
+    return value;
   }
 
 }
@@ -19,36 +19,72 @@
  */
 package org.sonar.plugins.javascript;
 
+import com.google.common.base.Charsets;
+import com.google.common.base.Strings;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Sets;
+import com.google.common.io.Files;
+import com.sonar.sslr.api.AstNode;
+import com.sonar.sslr.api.AstNodeType;
+import com.sonar.sslr.squid.SquidAstVisitor;
+import org.apache.commons.configuration.Configuration;
+import org.apache.commons.configuration.PropertiesConfiguration;
 import org.junit.Before;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 import org.mockito.Mockito;
+import org.sonar.api.CoreProperties;
 import org.sonar.api.batch.SensorContext;
 import org.sonar.api.measures.CoreMetrics;
 import org.sonar.api.measures.FileLinesContext;
 import org.sonar.api.measures.FileLinesContextFactory;
 import org.sonar.api.profiles.RulesProfile;
 import org.sonar.api.resources.*;
+import org.sonar.api.rules.AnnotationRuleParser;
+import org.sonar.javascript.EcmaScriptConfiguration;
+import org.sonar.javascript.api.EcmaScriptGrammar;
+import org.sonar.javascript.api.UsedAstNodeTypes;
+import org.sonar.javascript.checks.CheckList;
+import org.sonar.javascript.profiler.Profiler;
+import org.sonar.plugins.javascript.cache.AnalysisCache;
+import org.sonar.plugins.javascript.cache.TokenCache;
 import org.sonar.plugins.javascript.core.JavaScript;
 
 import java.io.File;
+import java.io.FileInputStream;
+import java.io.ObjectInputStream;
 import java.nio.charset.Charset;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
 
 import static org.fest.assertions.Assertions.assertThat;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 public class JavaScriptSquidSensorTest {
 
+  @Rule
+  public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  private Configuration configuration;
+  private FileLinesContextFactory fileLinesContextFactory;
+  private FileLinesContext fileLinesContext;
   private JavaScriptSquidSensor sensor;
+  private TokenCache tokenCache;
 
   @Before
   public void setUp() {
-    FileLinesContextFactory fileLinesContextFactory = mock(FileLinesContextFactory.class);
-    FileLinesContext fileLinesContext = mock(FileLinesContext.class);
+    fileLinesContextFactory = mock(FileLinesContextFactory.class);
+    fileLinesContext = mock(FileLinesContext.class);
     when(fileLinesContextFactory.createFor(Mockito.any(Resource.class))).thenReturn(fileLinesContext);
-    sensor = new JavaScriptSquidSensor(mock(RulesProfile.class), fileLinesContextFactory);
+    configuration = new PropertiesConfiguration();
+    tokenCache = new TokenCache();
+    sensor = new JavaScriptSquidSensor(mock(RulesProfile.class), fileLinesContextFactory, new JavaScript(configuration), tokenCache);
   }
 
   @Test
@@ -62,17 +98,214 @@ public class JavaScriptSquidSensorTest {
 
   @Test
   public void should_analyse() {
-    ProjectFileSystem fs = mock(ProjectFileSystem.class);
-    when(fs.getSourceCharset()).thenReturn(Charset.forName("UTF-8"));
-    InputFile inputFile = InputFileUtils.create(
-        new File("src/test/resources/cpd"),
-        new File("src/test/resources/cpd/Person.js"));
-    when(fs.mainFiles(JavaScript.KEY)).thenReturn(ImmutableList.of(inputFile));
-    Project project = new Project("key");
-    project.setFileSystem(fs);
-    SensorContext context = mock(SensorContext.class);
+    analyseAndVerify();
+  }
 
-    sensor.analyse(project, context);
+  @Test
+  public void should_analyse_in_parallel() {
+    configuration.setProperty(JavaScriptPlugin.THREADS_KEY, "2");
+    analyseAndVerify();
+  }
+
+  @Test
+  public void should_reuse_results_of_previous_analysis() {
+    configuration.setProperty(JavaScriptPlugin.CACHE_KEY, "true");
+    analyseAndVerify();
+    assertThat(new File(temporaryFolder.getRoot(), AnalysisCache.FILENAME).isFile()).isTrue();
+
+    SensorContext context = analyse();
+
+    verify(context).saveMeasure(Mockito.any(Resource.class), Mockito.eq(CoreMetrics.NCLOC), Mockito.eq(10.0));
+    verify(context).saveMeasure(Mockito.any(Resource.class), Mockito.eq(CoreMetrics.COMPLEXITY), Mockito.eq(4.0));
+    verify(fileLinesContext, times(2)).setIntValue(CoreMetrics.NCLOC_DATA_KEY, 5, 1);
+    verify(fileLinesContext, times(2)).save();
+  }
+
+  @Test
+  public void should_not_reuse_results_of_parse_cancelled_by_timeout() throws Exception {
+    configuration.setProperty(JavaScriptPlugin.CACHE_KEY, "true");
+    configuration.setProperty(JavaScriptPlugin.PARSE_TIMEOUT_KEY, "1");
+    File sourceDir = temporaryFolder.newFolder("src");
+    File file = new File(sourceDir, "huge.js");
+    Files.write(Strings.repeat("a = (b + c) * d;\n", 5000), file, Charsets.UTF_8);
+    analyse(sourceDir, file);
+
+    assertThat(readCachedFiles()).excludes(file.getAbsolutePath());
+  }
+
+  @Test
+  public void should_profile() throws Exception {
+    configuration.setProperty(JavaScriptPlugin.PROFILE_KEY, "true");
+    analyseAndVerify();
+
+    File reportFile = new File(temporaryFolder.getRoot(), JavaScriptSquidSensor.PROFILE_FILENAME);
+    assertThat(reportFile.isFile()).isTrue();
+    String report = Files.toString(reportFile, Charsets.UTF_8);
+    assertThat(report).contains("\"files\": 1,");
+    assertThat(report).contains(new File("src/test/resources/cpd/Person.js").getAbsolutePath());
+    assertThat(report).contains("\"save\": {\"wall\": ");
+  }
+
+  @Test
+  public void should_profile_grammar_rules() throws Exception {
+    configuration.setProperty(JavaScriptPlugin.PROFILE_KEY, "true");
+    configuration.setProperty(JavaScriptPlugin.PROFILE_RULES_KEY, "true");
+    analyseAndVerify();
+
+    File reportFile = new File(temporaryFolder.getRoot(), JavaScriptSquidSensor.RULES_PROFILE_FILENAME);
+    assertThat(reportFile.isFile()).isTrue();
+    assertThat(Files.toString(reportFile, Charsets.UTF_8)).contains("{\"rule\": \"program\", \"invocations\": 1, \"matches\": 1, \"backtracks\": 0, ");
+  }
+
+  @Test
+  public void should_not_profile_grammar_rules_by_default() {
+    configuration.setProperty(JavaScriptPlugin.PROFILE_KEY, "true");
+    analyseAndVerify();
+    assertThat(new File(temporaryFolder.getRoot(), JavaScriptSquidSensor.RULES_PROFILE_FILENAME).exists()).isFalse();
+  }
+
+  @Test
+  public void should_analyse_in_parallel_using_previous_profile() {
+    configuration.setProperty(JavaScriptPlugin.PROFILE_KEY, "true");
+    configuration.setProperty(JavaScriptPlugin.THREADS_KEY, "2");
+    analyseAndVerify();
+    assertThat(new File(temporaryFolder.getRoot(), JavaScriptSquidSensor.WALL_TIMES_FILENAME).isFile()).isTrue();
+    analyseAndVerify();
+  }
+
+  @Test
+  public void should_scan_slowest_files_of_previous_analysis_first() throws Exception {
+    File small = new File("src/test/resources/cpd/Person.js");
+    File large = new File("src/test/resources/minified/library.min.js");
+    File smallest = new File("src/test/resources/org/sonar/plugins/javascript/core/filestoimport/sourceDirectory/Person.js");
+    Profiler profiler = new Profiler();
+    profiler.record(smallest.getAbsolutePath(), Profiler.Phase.PARSE, 2000000, 0);
+    profiler.record(small.getAbsolutePath(), Profiler.Phase.PARSE, 1000000, 0);
+    File wallTimes = temporaryFolder.newFile(JavaScriptSquidSensor.WALL_TIMES_FILENAME);
+    profiler.writeWallTimes(wallTimes, 10);
+
+    assertThat(JavaScriptSquidSensor.scanOrder(wallTimes).sortedCopy(ImmutableList.of(small, large, smallest)))
+        .containsExactly(smallest, small, large);
+  }
+
+  @Test
+  public void should_scan_largest_files_first_without_previous_analysis() {
+    File small = new File("src/test/resources/cpd/Person.js");
+    File large = new File("src/test/resources/minified/library.min.js");
+
+    assertThat(JavaScriptSquidSensor.scanOrder(new File(temporaryFolder.getRoot(), JavaScriptSquidSensor.WALL_TIMES_FILENAME))
+        .sortedCopy(ImmutableList.of(small, large))).containsExactly(large, small);
+  }
+
+  @Test
+  public void should_keep_tokens_for_cpd() {
+    analyseAndVerify();
+    assertThat(tokenCache.remove(new File("src/test/resources/cpd/Person.js")).size()).isGreaterThan(1);
+  }
+
+  @Test
+  public void should_not_keep_tokens_when_cpd_skipped() {
+    configuration.setProperty(CoreProperties.CPD_SKIP_PROPERTY, "true");
+    analyseAndVerify();
+    assertThat(tokenCache.remove(new File("src/test/resources/cpd/Person.js"))).isNull();
+  }
+
+  @Test
+  public void should_not_parse_minified_files() {
+    SensorContext context = analyse(new File("src/test/resources/minified"), new File("src/test/resources/minified/library.min.js"));
+
+    verify(context).saveMeasure(Mockito.any(Resource.class), Mockito.eq(CoreMetrics.FILES), Mockito.eq(1.0));
+    verify(context).saveMeasure(Mockito.any(Resource.class), Mockito.eq(CoreMetrics.LINES), Mockito.eq(3.0));
+    verify(context).saveMeasure(Mockito.any(Resource.class), Mockito.eq(CoreMetrics.NCLOC), Mockito.eq(1.0));
+    verify(context).saveMeasure(Mockito.any(Resource.class), Mockito.eq(CoreMetrics.COMMENT_LINES), Mockito.eq(1.0));
+    verify(context).saveMeasure(Mockito.any(Resource.class), Mockito.eq(CoreMetrics.FUNCTIONS), Mockito.eq(0.0));
+    verify(context).saveMeasure(Mockito.any(Resource.class), Mockito.eq(CoreMetrics.COMPLEXITY), Mockito.eq(0.0));
+  }
+
+  @SuppressWarnings("unchecked")
+  private Set<String> readCachedFiles() throws Exception {
+    ObjectInputStream in = new ObjectInputStream(new FileInputStream(new File(temporaryFolder.getRoot(), AnalysisCache.FILENAME)));
+    try {
+      in.readInt();
+      in.readUTF();
+      return ((Map<String, ?>) in.readObject()).keySet();
+    } finally {
+      in.close();
+    }
+  }
+
+  @Test
+  public void should_collapse_single_child_nodes() {
+    configuration.setProperty(JavaScriptPlugin.COLLAPSE_SINGLE_CHILD_NODES_KEY, "true");
+    sensor = new JavaScriptSquidSensor(profileWithAllChecks(false), fileLinesContextFactory, new JavaScript(configuration), tokenCache);
+    analyseAndVerify();
+
+    NodeTypesVisitor visitor = new NodeTypesVisitor();
+    sensor.createScanner(collapsingConfiguration(), fileLinesContextFactory, visitor)
+        .scanFile(new File("src/test/resources/cpd/Person.js"));
+    EcmaScriptGrammar g = visitor.getContext().getGrammar();
+    assertThat(visitor.types).contains(g.memberExpression);
+    assertThat(visitor.types).excludes(g.leftHandSideExpression, g.postfixExpression);
+  }
+
+  @Test
+  public void should_not_collapse_single_child_nodes_when_xpath_check_is_active() {
+    configuration.setProperty(JavaScriptPlugin.COLLAPSE_SINGLE_CHILD_NODES_KEY, "true");
+    sensor = new JavaScriptSquidSensor(profileWithAllChecks(true), fileLinesContextFactory, new JavaScript(configuration), tokenCache);
+    analyse();
+
+    NodeTypesVisitor visitor = new NodeTypesVisitor();
+    sensor.createScanner(collapsingConfiguration(), fileLinesContextFactory, visitor)
+        .scanFile(new File("src/test/resources/cpd/Person.js"));
+    EcmaScriptGrammar g = visitor.getContext().getGrammar();
+    assertThat(visitor.types).contains(g.leftHandSideExpression, g.postfixExpression);
+  }
+
+  private static EcmaScriptConfiguration collapsingConfiguration() {
+    EcmaScriptConfiguration conf = new EcmaScriptConfiguration(Charsets.UTF_8);
+    conf.setCollapseSingleChildNodes(true);
+    return conf;
+  }
+
+  private static RulesProfile profileWithAllChecks(boolean withXPathCheck) {
+    RulesProfile rulesProfile = RulesProfile.create();
+    for (org.sonar.api.rules.Rule rule : new AnnotationRuleParser().parse(CheckList.REPOSITORY_KEY, CheckList.getChecks())) {
+      if (withXPathCheck || !"XPath".equals(rule.getKey())) {
+        rulesProfile.activateRule(rule, null);
+      }
+    }
+    return rulesProfile;
+  }
+
+  /**
+   * Collects types of all nodes of AST. Declares that it uses none of them, so that it doesn't prevent collapsing of nodes.
+   */
+  private static class NodeTypesVisitor extends SquidAstVisitor<EcmaScriptGrammar> implements UsedAstNodeTypes {
+
+    private final Set<AstNodeType> types = Sets.newHashSet();
+
+    @Override
+    public void visitFile(AstNode astNode) {
+      if (astNode != null) {
+        collect(astNode);
+      }
+    }
+
+    private void collect(AstNode astNode) {
+      types.add(astNode.getType());
+      for (AstNode child : astNode.getChildren()) {
+        collect(child);
+      }
+    }
+
+    public Collection<AstNodeType> getUsedAstNodeTypes() {
+      return Collections.emptyList();
+    }
+
+  }
+
+  private void analyseAndVerify() {
+    SensorContext context = analyse();
 
     verify(context).saveMeasure(Mockito.any(Resource.class), Mockito.eq(CoreMetrics.FILES), Mockito.eq(1.0));
     verify(context).saveMeasure(Mockito.any(Resource.class), Mockito.eq(CoreMetrics.LINES), Mockito.eq(22.0));
@@ -83,4 +316,23 @@ public class JavaScriptSquidSensorTest {
     verify(context).saveMeasure(Mockito.any(Resource.class), Mockito.eq(CoreMetrics.COMMENT_LINES), Mockito.eq(2.0));
   }
 
+  private SensorContext analyse() {
+    return analyse(new File("src/test/resources/cpd"), new File("src/test/resources/cpd/Person.js"));
+  }
+
+  private SensorContext analyse(File sourceDir, File file) {
+    ProjectFileSystem fs = mock(ProjectFileSystem.class);
+    when(fs.getSourceCharset()).thenReturn(Charset.forName("UTF-8"));
+    when(fs.getSourceDirs()).thenReturn(ImmutableList.of(sourceDir));
+    when(fs.getSonarWorkingDirectory()).thenReturn(temporaryFolder.getRoot());
+    InputFile inputFile = InputFileUtils.create(sourceDir, file);
+    when(fs.mainFiles(JavaScript.KEY)).thenReturn(ImmutableList.of(inputFile));
+    Project project = new Project("key");
+    project.setFileSystem(fs);
+    SensorContext context = mock(SensorContext.class);
+
+    sensor.analyse(project, context);
+    return context;
+  }
+
 }
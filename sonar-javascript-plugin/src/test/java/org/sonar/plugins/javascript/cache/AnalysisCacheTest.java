@@ -0,0 +1,157 @@
+/*
+ * Sonar JavaScript Plugin
+ * Copyright (C) 2011 Eriks Nukis and SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.plugins.javascript.cache;
+
+import com.google.common.base.Charsets;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.io.Files;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.sonar.api.profiles.RulesProfile;
+import org.sonar.api.rules.Rule;
+import org.sonar.api.rules.RulePriority;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Map;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class AnalysisCacheTest {
+
+  @org.junit.Rule
+  public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  @Test
+  public void should_reuse_entry_of_not_modified_file() throws Exception {
+    File cacheFile = new File(temporaryFolder.getRoot(), AnalysisCache.FILENAME);
+    File sourceFile = temporaryFolder.newFile("source.js");
+
+    AnalysisCache cache = AnalysisCache.load(cacheFile, "conf");
+    assertThat(cache.get(sourceFile, "hash")).isNull();
+    cache.put(sourceFile, newCachedFile("hash"));
+    cache.save();
+
+    cache = AnalysisCache.load(cacheFile, "conf");
+    CachedFile cachedFile = cache.get(sourceFile, "hash");
+    assertThat(cachedFile).isNotNull();
+    assertThat(cachedFile.getMeasures()).isEqualTo(new double[] {1, 2});
+    assertThat(cachedFile.getFunctionComplexities()).isEqualTo(new double[] {3});
+    assertThat(cachedFile.getLinesData().get("ncloc_data").get(1)).isEqualTo(1);
+    assertThat(cachedFile.getMessages().get(0).getRuleKey()).isEqualTo("rule");
+    assertThat(cachedFile.getMessages().get(0).getLine()).isEqualTo(42);
+    assertThat(cachedFile.getMessages().get(0).getText()).isEqualTo("message");
+
+    assertThat(cache.get(sourceFile, "other hash")).isNull();
+  }
+
+  @Test
+  public void should_ignore_entries_of_another_configuration() throws Exception {
+    File cacheFile = new File(temporaryFolder.getRoot(), AnalysisCache.FILENAME);
+    File sourceFile = temporaryFolder.newFile("source.js");
+
+    AnalysisCache cache = AnalysisCache.load(cacheFile, "conf");
+    cache.put(sourceFile, newCachedFile("hash"));
+    cache.save();
+
+    assertThat(AnalysisCache.load(cacheFile, "other conf").get(sourceFile, "hash")).isNull();
+  }
+
+  @Test
+  public void should_drop_entries_which_were_not_used() throws Exception {
+    File cacheFile = new File(temporaryFolder.getRoot(), AnalysisCache.FILENAME);
+    File sourceFile = temporaryFolder.newFile("source.js");
+
+    AnalysisCache cache = AnalysisCache.load(cacheFile, "conf");
+    cache.put(sourceFile, newCachedFile("hash"));
+    cache.save();
+    AnalysisCache.load(cacheFile, "conf").save();
+
+    assertThat(AnalysisCache.load(cacheFile, "conf").get(sourceFile, "hash")).isNull();
+  }
+
+  @Test
+  public void should_ignore_corrupted_file() throws Exception {
+    File cacheFile = new File(temporaryFolder.getRoot(), AnalysisCache.FILENAME);
+    Files.write("corrupted", cacheFile, Charsets.UTF_8);
+
+    assertThat(AnalysisCache.load(cacheFile, "conf").get(temporaryFolder.newFile("source.js"), "hash")).isNull();
+  }
+
+  @Test
+  public void content_hash() throws IOException {
+    File file = temporaryFolder.newFile("source.js");
+    Files.write("var a;", file, Charsets.UTF_8);
+    String hash = AnalysisCache.contentHash(file);
+    assertThat(hash).isEqualTo(AnalysisCache.contentHash(file));
+
+    Files.write("var b;", file, Charsets.UTF_8);
+    assertThat(AnalysisCache.contentHash(file)).isNotEqualTo(hash);
+  }
+
+  @Test
+  public void configuration_hash() {
+    RulesProfile profile = RulesProfile.create();
+    Rule rule = Rule.create("javascript", "rule", "Rule");
+    rule.createParameter("param");
+    profile.activateRule(rule, RulePriority.MAJOR).setParameter("param", "1");
+    String hash = AnalysisCache.configurationHash(profile, "javascript", Charsets.UTF_8);
+
+    assertThat(AnalysisCache.configurationHash(profile, "javascript", Charsets.UTF_8)).isEqualTo(hash);
+    assertThat(AnalysisCache.configurationHash(profile, "javascript", Charsets.ISO_8859_1)).isNotEqualTo(hash);
+    assertThat(AnalysisCache.configurationHash(profile, "javascript", Charsets.UTF_8, 1)).isNotEqualTo(hash);
+
+    profile.getActiveRule(rule).getActiveRuleParams().get(0).setValue("2");
+    assertThat(AnalysisCache.configurationHash(profile, "javascript", Charsets.UTF_8)).isNotEqualTo(hash);
+  }
+
+  @Test
+  public void plugin_version_without_manifest() throws Exception {
+    File jar = temporaryFolder.newFile("plugin.jar");
+    Files.write("classes", jar, Charsets.UTF_8);
+    String version = AnalysisCache.versionOf(jar);
+    assertThat(version).isEqualTo(AnalysisCache.contentHash(jar));
+    Files.write("other classes", jar, Charsets.UTF_8);
+    assertThat(AnalysisCache.versionOf(jar)).isNotEqualTo(version);
+
+    File classes = temporaryFolder.newFolder("classes");
+    File classFile = new File(classes, "org/Plugin.class");
+    Files.createParentDirs(classFile);
+    Files.write("class", classFile, Charsets.UTF_8);
+    classFile.setLastModified(1000000000L);
+    classes.setLastModified(1000000000L);
+    classFile.getParentFile().setLastModified(1000000000L);
+    version = AnalysisCache.versionOf(classes);
+    assertThat(AnalysisCache.versionOf(classes)).isEqualTo(version);
+    classFile.setLastModified(2000000000L);
+    assertThat(AnalysisCache.versionOf(classes)).isNotEqualTo(version);
+
+    assertThat(AnalysisCache.versionOf(new File(temporaryFolder.getRoot(), "missing"))).isNull();
+  }
+
+  private static CachedFile newCachedFile(String contentHash) {
+    Map<String, Map<Integer, Integer>> linesData = ImmutableMap.<String, Map<Integer, Integer>>of("ncloc_data", Collections.singletonMap(1, 1));
+    return new CachedFile(contentHash, new double[] {1, 2}, new double[] {3}, linesData,
+        ImmutableList.of(new CachedFile.Message("rule", 42, "message")));
+  }
+
+}
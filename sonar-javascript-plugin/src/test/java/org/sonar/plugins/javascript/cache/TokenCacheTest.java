@@ -0,0 +1,94 @@
+/*
+ * Sonar JavaScript Plugin
+ * Copyright (C) 2011 Eriks Nukis and SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.plugins.javascript.cache;
+
+import com.google.common.base.Charsets;
+import com.sonar.sslr.api.Token;
+import org.junit.Test;
+import org.sonar.javascript.EcmaScriptConfiguration;
+import org.sonar.javascript.JavaScriptAstScanner;
+import org.sonar.javascript.lexer.EcmaScriptLexer;
+
+import java.io.File;
+import java.util.List;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class TokenCacheTest {
+
+  private final File file = new File("src/test/resources/cpd/Person.js");
+
+  @Test
+  public void should_record_same_tokens_as_lexer() {
+    List<Token> expected = EcmaScriptLexer.create(new EcmaScriptConfiguration(Charsets.UTF_8)).lex(file);
+
+    TokenCache tokenCache = new TokenCache();
+    JavaScriptAstScanner.create(new EcmaScriptConfiguration(Charsets.UTF_8), tokenCache.newRecorder()).scanFile(file);
+    TokenCache.FileTokens actual = tokenCache.remove(file);
+
+    assertThat(actual.size()).isEqualTo(expected.size());
+    for (int i = 0; i < expected.size(); i++) {
+      assertThat(actual.getValue(i)).isEqualTo(expected.get(i).getValue());
+      assertThat(actual.getType(i)).isSameAs(expected.get(i).getType());
+      assertThat(actual.getLine(i)).isEqualTo(expected.get(i).getLine());
+    }
+  }
+
+  @Test
+  public void should_share_values_between_files() {
+    TokenCache tokenCache = new TokenCache();
+    File otherFile = new File("other.js");
+    tokenCache.put(file, EcmaScriptLexer.create(new EcmaScriptConfiguration(Charsets.UTF_8)).lex("var a;"));
+    tokenCache.put(otherFile, EcmaScriptLexer.create(new EcmaScriptConfiguration(Charsets.UTF_8)).lex("var a;"));
+
+    assertThat(tokenCache.remove(otherFile).getValue(0)).isSameAs(tokenCache.remove(file).getValue(0));
+  }
+
+  @Test
+  public void should_not_share_values_after_last_file_removed() {
+    TokenCache tokenCache = new TokenCache();
+    File otherFile = new File("other.js");
+    tokenCache.put(file, EcmaScriptLexer.create(new EcmaScriptConfiguration(Charsets.UTF_8)).lex("var a;"));
+    TokenCache.FileTokens first = tokenCache.remove(file);
+    tokenCache.put(otherFile, EcmaScriptLexer.create(new EcmaScriptConfiguration(Charsets.UTF_8)).lex("var a;"));
+
+    assertThat(tokenCache.remove(otherFile).getValue(1)).isNotSameAs(first.getValue(1));
+  }
+
+  @Test
+  public void should_not_keep_tokens_over_limit() {
+    TokenCache tokenCache = new TokenCache(10);
+    File otherFile = new File("other.js");
+    assertThat(tokenCache.put(file, EcmaScriptLexer.create(new EcmaScriptConfiguration(Charsets.UTF_8)).lex("var a = 1;"))).isTrue();
+    assertThat(tokenCache.put(otherFile, EcmaScriptLexer.create(new EcmaScriptConfiguration(Charsets.UTF_8)).lex("var b = 2;"))).isFalse();
+    assertThat(tokenCache.remove(otherFile)).isNull();
+
+    assertThat(tokenCache.remove(file).size()).isEqualTo(6);
+    assertThat(tokenCache.put(otherFile, EcmaScriptLexer.create(new EcmaScriptConfiguration(Charsets.UTF_8)).lex("var b = 2;"))).isTrue();
+  }
+
+  @Test
+  public void should_not_record_when_full() {
+    TokenCache tokenCache = new TokenCache(1);
+    JavaScriptAstScanner.create(new EcmaScriptConfiguration(Charsets.UTF_8), tokenCache.newRecorder()).scanFile(file);
+    assertThat(tokenCache.remove(file)).isNull();
+  }
+
+}
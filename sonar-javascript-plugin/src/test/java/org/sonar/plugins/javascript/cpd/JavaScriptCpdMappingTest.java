@@ -21,6 +21,7 @@ package org.sonar.plugins.javascript.cpd;
 
 import org.junit.Test;
 import org.sonar.api.resources.ProjectFileSystem;
+import org.sonar.plugins.javascript.cache.TokenCache;
 import org.sonar.plugins.javascript.core.JavaScript;
 
 import static org.fest.assertions.Assertions.assertThat;
@@ -32,7 +33,7 @@ public class JavaScriptCpdMappingTest {
   public void test() {
     JavaScript language = mock(JavaScript.class);
     ProjectFileSystem fs = mock(ProjectFileSystem.class);
-    JavaScriptCpdMapping mapping = new JavaScriptCpdMapping(language, fs);
+    JavaScriptCpdMapping mapping = new JavaScriptCpdMapping(language, fs, new TokenCache());
     assertThat(mapping.getLanguage()).isSameAs(language);
     assertThat(mapping.getTokenizer()).isInstanceOf(JavaScriptTokenizer.class);
   }
@@ -19,10 +19,14 @@
  */
 package org.sonar.plugins.javascript.cpd;
 
+import com.google.common.base.Charsets;
 import net.sourceforge.pmd.cpd.SourceCode;
 import net.sourceforge.pmd.cpd.TokenEntry;
 import net.sourceforge.pmd.cpd.Tokens;
 import org.junit.Test;
+import org.sonar.javascript.EcmaScriptConfiguration;
+import org.sonar.javascript.lexer.EcmaScriptLexer;
+import org.sonar.plugins.javascript.cache.TokenCache;
 
 import java.io.File;
 import java.nio.charset.Charset;
@@ -44,4 +48,27 @@ public class JavaScriptTokenizerTest {
     assertThat(tokens.getTokens().get(tokens.size() - 1)).isEqualTo(TokenEntry.getEOF());
   }
 
+  @Test
+  public void should_use_cached_tokens() {
+    File file = new File("src/test/resources/cpd/Person.js");
+    SourceCode source = mock(SourceCode.class);
+    when(source.getFileName()).thenReturn(file.getAbsolutePath());
+    Tokens expected = new Tokens();
+    new JavaScriptTokenizer(Charsets.UTF_8).tokenize(source, expected);
+
+    TokenCache tokenCache = new TokenCache();
+    tokenCache.put(file, EcmaScriptLexer.create(new EcmaScriptConfiguration(Charsets.UTF_8)).lex(file));
+    Tokens actual = new Tokens();
+    new JavaScriptTokenizer(Charsets.UTF_8, tokenCache).tokenize(source, actual);
+
+    assertThat(actual.size()).isEqualTo(expected.size());
+    for (int i = 0; i < expected.size(); i++) {
+      TokenEntry expectedToken = expected.getTokens().get(i);
+      TokenEntry actualToken = actual.getTokens().get(i);
+      assertThat(actualToken).isEqualTo(expectedToken);
+      assertThat(actualToken.getBeginLine()).isEqualTo(expectedToken.getBeginLine());
+    }
+    assertThat(tokenCache.remove(file)).as("tokens should be removed from cache").isNull();
+  }
+
 }
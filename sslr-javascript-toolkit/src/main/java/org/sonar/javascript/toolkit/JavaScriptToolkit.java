@@ -36,7 +36,7 @@ public final class JavaScriptToolkit {
 
   public static void main(String[] args) {
     System.setProperty("com.apple.mrj.application.apple.menu.about.name", "SSDK");
-    new Toolkit(EcmaScriptParser.create(new EcmaScriptConfiguration(Charset.defaultCharset())), getTokenizers(), "SSLR JavaScript Toolkit").run();
+    new Toolkit(EcmaScriptParser.createWithSharedGrammar(new EcmaScriptConfiguration(Charset.defaultCharset())), getTokenizers(), "SSLR JavaScript Toolkit").run();
   }
 
   public static List<Tokenizer> getTokenizers() {
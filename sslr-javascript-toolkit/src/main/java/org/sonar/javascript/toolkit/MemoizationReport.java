@@ -0,0 +1,97 @@
+/*
+ * Sonar JavaScript Plugin
+ * Copyright (C) 2011 Eriks Nukis and SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.javascript.toolkit;
+
+import com.google.common.collect.Lists;
+import com.sonar.sslr.api.RecognitionException;
+import com.sonar.sslr.impl.Parser;
+import org.apache.commons.io.FileUtils;
+import org.sonar.javascript.EcmaScriptConfiguration;
+import org.sonar.javascript.api.EcmaScriptGrammar;
+import org.sonar.javascript.parser.EcmaScriptParser;
+import org.sonar.javascript.parser.MemoizationPolicy;
+import org.sonar.javascript.parser.MemoizationStatistics;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.util.List;
+
+/**
+ * Parses given files and directories without memoization and prints for each rule how often it is re-entered at a token,
+ * where it has already matched - see {@link MemoizationStatistics}.
+ * Used to choose rules for {@link MemoizationPolicy#SELECTED}.
+ */
+public final class MemoizationReport {
+
+  private MemoizationReport() {
+  }
+
+  public static void main(String[] args) throws IOException {
+    if (args.length == 0) {
+      System.err.println("Usage: java -cp sslr-javascript-toolkit.jar " + MemoizationReport.class.getName() + " <file or directory>...");
+      System.exit(1);
+    }
+    run(listFiles(args), Charset.defaultCharset(), new OutputStreamWriter(System.out));
+  }
+
+  /**
+   * @return given files and JavaScript files from given directories
+   */
+  static List<File> listFiles(String[] args) {
+    List<File> files = Lists.newArrayList();
+    for (String arg : args) {
+      File file = new File(arg);
+      if (file.isDirectory()) {
+        files.addAll(FileUtils.listFiles(file, new String[] {"js"}, true));
+      } else {
+        files.add(file);
+      }
+    }
+    return files;
+  }
+
+  /**
+   * @return number of files, which can't be parsed
+   */
+  public static int run(List<File> files, Charset charset, Writer writer) throws IOException {
+    EcmaScriptConfiguration conf = new EcmaScriptConfiguration(charset);
+    conf.setMemoizationPolicy(MemoizationPolicy.NONE);
+    MemoizationStatistics statistics = new MemoizationStatistics();
+    Parser<EcmaScriptGrammar> parser = EcmaScriptParser.createWithSharedGrammar(conf, statistics);
+    int errors = 0;
+    for (File file : files) {
+      try {
+        parser.parse(file);
+      } catch (RecognitionException e) {
+        errors++;
+      }
+    }
+    statistics.report(writer);
+    if (errors > 0) {
+      writer.write(errors + " file(s) can't be parsed\n");
+      writer.flush();
+    }
+    return errors;
+  }
+
+}
@@ -0,0 +1,82 @@
+/*
+ * Sonar JavaScript Plugin
+ * Copyright (C) 2011 Eriks Nukis and SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.javascript.toolkit;
+
+import com.sonar.sslr.api.RecognitionException;
+import com.sonar.sslr.impl.Parser;
+import org.sonar.javascript.EcmaScriptConfiguration;
+import org.sonar.javascript.api.EcmaScriptGrammar;
+import org.sonar.javascript.parser.EcmaScriptParser;
+import org.sonar.javascript.profiler.RuleProfiler;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.util.List;
+
+/**
+ * Parses given files and directories and prints invocations, backtracks and time spent in each grammar rule -
+ * see {@link RuleProfiler}. Files are parsed twice and only the second pass is recorded, so that JIT compilation
+ * does not distort the ranking.
+ */
+public final class RuleProfileReport {
+
+  private RuleProfileReport() {
+  }
+
+  public static void main(String[] args) throws IOException {
+    if (args.length == 0) {
+      System.err.println("Usage: java -cp sslr-javascript-toolkit.jar " + RuleProfileReport.class.getName() + " <file or directory>...");
+      System.exit(1);
+    }
+    run(MemoizationReport.listFiles(args), Charset.defaultCharset(), new OutputStreamWriter(System.out));
+  }
+
+  /**
+   * @return number of files, which can't be parsed
+   */
+  public static int run(List<File> files, Charset charset, Writer writer) throws IOException {
+    EcmaScriptConfiguration conf = new EcmaScriptConfiguration(charset);
+    parseAll(EcmaScriptParser.createWithSharedGrammar(conf), files);
+    RuleProfiler ruleProfiler = new RuleProfiler();
+    int errors = parseAll(EcmaScriptParser.createWithSharedGrammar(conf, ruleProfiler.newParsingEventListener()), files);
+    ruleProfiler.writeReport(writer);
+    if (errors > 0) {
+      writer.write(errors + " file(s) can't be parsed\n");
+      writer.flush();
+    }
+    return errors;
+  }
+
+  private static int parseAll(Parser<EcmaScriptGrammar> parser, List<File> files) {
+    int errors = 0;
+    for (File file : files) {
+      try {
+        parser.parse(file);
+      } catch (RecognitionException e) {
+        errors++;
+      }
+    }
+    return errors;
+  }
+
+}
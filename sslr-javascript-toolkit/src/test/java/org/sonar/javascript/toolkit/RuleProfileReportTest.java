@@ -0,0 +1,55 @@
+/*
+ * Sonar JavaScript Plugin
+ * Copyright (C) 2011 Eriks Nukis and SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.javascript.toolkit;
+
+import com.google.common.base.Charsets;
+import com.google.common.collect.ImmutableList;
+import com.google.common.io.Files;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.StringWriter;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class RuleProfileReportTest {
+
+  @Rule
+  public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  @Test
+  public void test() throws IOException {
+    File valid = temporaryFolder.newFile("valid.js");
+    Files.write("a = b.c(d);\nx.y;\n", valid, Charsets.UTF_8);
+    File invalid = temporaryFolder.newFile("invalid.js");
+    Files.write("while }", invalid, Charsets.UTF_8);
+
+    StringWriter writer = new StringWriter();
+    assertThat(RuleProfileReport.run(ImmutableList.of(valid, invalid), Charsets.UTF_8, writer)).isEqualTo(1);
+    assertThat(writer.toString())
+        .startsWith("{\n  \"rules\": [")
+        .contains("{\"rule\": \"program\", \"invocations\": 2, \"matches\": 1, \"backtracks\": 1, ")
+        .endsWith("1 file(s) can't be parsed\n");
+  }
+
+}